@@ -0,0 +1,67 @@
+package cn.ianzhang.authapi.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// 一致性哈希环：每个节点映射为 virtualNodes 个虚拟节点，键的哈希值顺时针遇到的第一个虚拟节点即为归属节点。
+// 增删一个节点时只有约 1/N 的键改变归属。环在构造后不可变，查找为一次二分查找，无锁。
+// 哈希只依赖键的 UTF-8 字节，各节点、各版本 JVM 的计算结果一致。
+public final class ConsistentHashRing {
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Ring needs at least one node and one virtual node per node");
+        }
+        this.nodes = Collections.unmodifiableSet(new LinkedHashSet<>(nodes));
+        int count = this.nodes.size() * virtualNodes;
+        long[][] entries = new long[count][];
+        String[] names = this.nodes.toArray(new String[0]);
+        int n = 0;
+        for (int node = 0; node < names.length; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[n++] = new long[]{hash(names[node] + "#" + v), node};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[count];
+        this.owners = new String[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = entries[i][0];
+            owners[i] = names[(int) entries[i][1]];
+        }
+    }
+
+    public String ownerOf(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    // FNV-1a 64 位哈希，再用 MurmurHash3 的 fmix64 打散，保证相近的键分布均匀
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,150 @@
+package cn.ianzhang.authapi.cluster;
+
+import cn.ianzhang.authapi.model.User;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// 基于 HTTP 的节点客户端，请求体和响应体均为 UserCodec 编码的二进制，
+// 每个请求携带集群共享密钥，对端 PeerController 据此拒绝外部访问。
+public class HttpUserPeer implements UserPeer {
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+    public static final String PATH = "/internal/users";
+    public static final String SEARCH_PATH = "/search";
+    private static final String CONTENT_TYPE = "application/octet-stream";
+    private static final int NOT_FOUND = 404;
+    private static final int CONFLICT = 409;
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final String secret;
+    private final Duration timeout;
+
+    public HttpUserPeer(HttpClient client, URI baseUri, String secret, Duration timeout) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.secret = secret;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public User fetch(String username) {
+        return get("username", username);
+    }
+
+    @Override
+    public User fetchByEmail(String email) {
+        return get("email", email);
+    }
+
+    // 用 HttpClient 的异步发送，并行询问多个节点时不为每个节点占用一个线程
+    @Override
+    public CompletableFuture<User> fetchByEmailAsync(String email) {
+        return client.sendAsync(request(uri("email", email)).GET().build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        throw new PeerUnavailableException("Peer " + baseUri + " is unreachable", error);
+                    }
+                    return decode(checked(response, NOT_FOUND));
+                });
+    }
+
+    @Override
+    public List<String> searchUsernames(String prefix, String after, int limit) {
+        HttpResponse<byte[]> response = checked(send(request(searchUri(prefix, after, limit)).GET().build()), 0);
+        return UserCodec.decodeUsernames(response.body());
+    }
+
+    @Override
+    public CompletableFuture<List<String>> searchUsernamesAsync(String prefix, String after, int limit) {
+        return client.sendAsync(request(searchUri(prefix, after, limit)).GET().build(),
+                        HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        throw new PeerUnavailableException("Peer " + baseUri + " is unreachable", error);
+                    }
+                    return UserCodec.decodeUsernames(checked(response, 0).body());
+                });
+    }
+
+    private URI searchUri(String prefix, String after, int limit) {
+        StringBuilder query = new StringBuilder(PATH).append(SEARCH_PATH)
+                .append("?prefix=").append(URLEncoder.encode(prefix, StandardCharsets.UTF_8))
+                .append("&limit=").append(limit);
+        if (after != null) {
+            query.append("&after=").append(URLEncoder.encode(after, StandardCharsets.UTF_8));
+        }
+        return baseUri.resolve(query.toString());
+    }
+
+    private User get(String param, String value) {
+        return decode(checked(send(request(uri(param, value)).GET().build()), NOT_FOUND));
+    }
+
+    private URI uri(String param, String value) {
+        return baseUri.resolve(PATH + "?" + param + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8));
+    }
+
+    private static User decode(HttpResponse<byte[]> response) {
+        if (response.statusCode() == NOT_FOUND) {
+            return null;
+        }
+        return UserCodec.decode(response.body());
+    }
+
+    @Override
+    public boolean saveIfAbsent(User user) {
+        HttpResponse<byte[]> response = send(request(baseUri.resolve(PATH))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(UserCodec.encode(user)))
+                .build());
+        return checked(response, CONFLICT).statusCode() != CONFLICT;
+    }
+
+    @Override
+    public void update(User user) {
+        checked(send(request(baseUri.resolve(PATH))
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(UserCodec.encode(user)))
+                .build()), 0);
+    }
+
+    private HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header(SECRET_HEADER, secret)
+                .header("Content-Type", CONTENT_TYPE)
+                .header("Accept", CONTENT_TYPE);
+    }
+
+    // 网络错误视为节点不可用，状态码由调用方经 checked 检查
+    private HttpResponse<byte[]> send(HttpRequest request) {
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new PeerUnavailableException("Peer " + baseUri + " is unreachable", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PeerUnavailableException("Interrupted while calling peer " + baseUri, e);
+        }
+        return response;
+    }
+
+    // 除 2xx 和调用方能够解释的 expected 状态外一律视为节点不可用（expected 为 0 表示只接受 2xx）。
+    // 只有按用户名或邮箱查找时 404 表示用户不存在；写入时的 404 说明对端没有提供集群接口
+    // （节点地址配错，或对端以 reactive profile 运行），不能当作成功或用户不存在
+    private HttpResponse<byte[]> checked(HttpResponse<byte[]> response, int expected) {
+        int status = response.statusCode();
+        if (status != expected && (status < 200 || status >= 300)) {
+            throw new PeerUnavailableException("Peer " + baseUri + " answered " + status);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,13 @@
+package cn.ianzhang.authapi.cluster;
+
+// 用户归属节点不可达或返回了错误，调用方应返回 503 让客户端稍后重试
+public class PeerUnavailableException extends RuntimeException {
+
+    public PeerUnavailableException(String message) {
+        super(message);
+    }
+
+    public PeerUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
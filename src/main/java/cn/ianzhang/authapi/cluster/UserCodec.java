@@ -0,0 +1,124 @@
+package cn.ianzhang.authapi.cluster;
+
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// 节点间传输用户的二进制格式：[版本] 后接用户名、密码散列、邮箱三个字段，
+// 每个字段为 [是否为空] + 修改版 UTF-8 字符串；版本 2 之后再接 [角色数] 和各个角色名。
+// 用户ID和权限位集只在进程内有效，不参与传输。仍可解码版本 1 的记录（例如旧快照），按没有角色处理。
+// 用户名列表编码为 [版本][个数] 后接各个用户名。
+public final class UserCodec {
+    private static final byte VERSION = 1;
+    private static final byte VERSION_WITH_ROLES = 2;
+
+    private UserCodec() {
+    }
+
+    public static byte[] encode(User user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION_WITH_ROLES);
+            writeNullable(out, user.getUsername());
+            writeNullable(out, user.getPassword());
+            writeNullable(out, user.getEmail());
+            out.writeShort(user.getRoles().size());
+            for (Role role : user.getRoles()) {
+                out.writeUTF(role.getName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // 格式错误时抛出 IllegalArgumentException
+    public static User decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != VERSION && version != VERSION_WITH_ROLES) {
+                throw new IllegalArgumentException("Unsupported user encoding version");
+            }
+            User user = new User(readNullable(in), readNullable(in), readNullable(in));
+            if (version == VERSION_WITH_ROLES) {
+                user.setRoles(readRoles(in));
+            }
+            if (user.getUsername() == null || in.available() > 0) {
+                throw new IllegalArgumentException("Malformed user encoding");
+            }
+            return user;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed user encoding", e);
+        }
+    }
+
+    public static byte[] encodeUsernames(List<String> usernames) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + usernames.size() * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(usernames.size());
+            for (String username : usernames) {
+                out.writeUTF(username);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // 格式错误时抛出 IllegalArgumentException
+    public static List<String> decodeUsernames(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported username list encoding version");
+            }
+            int count = in.readInt();
+            if (count < 0 || count > data.length) {
+                throw new IllegalArgumentException("Malformed username list encoding");
+            }
+            List<String> usernames = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                usernames.add(in.readUTF());
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Malformed username list encoding");
+            }
+            return usernames;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed username list encoding", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static Set<Role> readRoles(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        if (count > in.available()) {
+            throw new IllegalArgumentException("Malformed user encoding");
+        }
+        Set<Role> roles = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            roles.add(new Role(in.readUTF()));
+        }
+        return Set.copyOf(roles);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,44 @@
+package cn.ianzhang.authapi.cluster;
+
+import cn.ianzhang.authapi.model.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// 访问其他节点本地用户存储的客户端；节点不可达或返回错误时抛出 PeerUnavailableException
+public interface UserPeer {
+
+    // 在归属节点上查找用户，不存在时返回 null
+    User fetch(String username);
+
+    // 在该节点的本地存储中按邮箱查找用户，不存在时返回 null
+    User fetchByEmail(String email);
+
+    // 异步版本的 fetchByEmail，供按邮箱查找时并行询问各节点；节点不可用时以 PeerUnavailableException 异常完成。
+    // 默认在调用线程上同步执行
+    default CompletableFuture<User> fetchByEmailAsync(String email) {
+        try {
+            return CompletableFuture.completedFuture(fetchByEmail(email));
+        } catch (PeerUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // 在该节点的本地存储中按前缀搜索用户名，语义同 UserRepository.findUsernamesByPrefix
+    List<String> searchUsernames(String prefix, String after, int limit);
+
+    // 异步版本的 searchUsernames，供前缀搜索时并行询问各节点；节点不可用时以 PeerUnavailableException 异常完成。
+    // 默认在调用线程上同步执行
+    default CompletableFuture<List<String>> searchUsernamesAsync(String prefix, String after, int limit) {
+        try {
+            return CompletableFuture.completedFuture(searchUsernames(prefix, after, limit));
+        } catch (PeerUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // 仅当归属节点上用户名未被占用时保存，返回是否保存成功
+    boolean saveIfAbsent(User user);
+
+    void update(User user);
+}
@@ -0,0 +1,736 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.security.RolePermissions;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 认证相关配置，对应 application.properties 中的 auth.* 配置项
+@ConfigurationProperties(prefix = "auth")
+public class AuthProperties {
+    private final Session session = new Session();
+    private final Password password = new Password();
+    private final UserStore userStore = new UserStore();
+    private final Cluster cluster = new Cluster();
+    private final BulkImport bulkImport = new BulkImport();
+    private final Authorization authorization = new Authorization();
+    private final RateLimit rateLimit = new RateLimit();
+    private final Lockout lockout = new Lockout();
+    private final Pinning pinning = new Pinning();
+
+    public Session getSession() {
+        return session;
+    }
+
+    public Password getPassword() {
+        return password;
+    }
+
+    public UserStore getUserStore() {
+        return userStore;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public Authorization getAuthorization() {
+        return authorization;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Lockout getLockout() {
+        return lockout;
+    }
+
+    public Pinning getPinning() {
+        return pinning;
+    }
+
+    public static class Session {
+        // 会话模式：store（默认，进程内会话表）、off-heap（堆外会话表）、signed（无状态签名令牌）
+        private String mode = "store";
+        // 空闲超时：超过该时长未访问的会话失效
+        private Duration idleTimeout = Duration.ofMinutes(30);
+        // 绝对超时：无论是否活跃，会话创建后超过该时长即失效
+        private Duration absoluteTimeout = Duration.ofHours(12);
+        // 过期会话清理间隔，同时也是时间轮的刻度
+        private Duration sweepInterval = Duration.ofSeconds(1);
+        // store 模式下每个用户最多同时保留的会话数，超出时注销最早的会话；0 表示不限制
+        private int maxSessionsPerUser = 10;
+        private final Journal journal = new Journal();
+        private final OffHeap offHeap = new OffHeap();
+        private final Signed signed = new Signed();
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getAbsoluteTimeout() {
+            return absoluteTimeout;
+        }
+
+        public void setAbsoluteTimeout(Duration absoluteTimeout) {
+            this.absoluteTimeout = absoluteTimeout;
+        }
+
+        public Duration getSweepInterval() {
+            return sweepInterval;
+        }
+
+        public void setSweepInterval(Duration sweepInterval) {
+            this.sweepInterval = sweepInterval;
+        }
+
+        public int getMaxSessionsPerUser() {
+            return maxSessionsPerUser;
+        }
+
+        public void setMaxSessionsPerUser(int maxSessionsPerUser) {
+            this.maxSessionsPerUser = maxSessionsPerUser;
+        }
+
+        public Journal getJournal() {
+            return journal;
+        }
+
+        public OffHeap getOffHeap() {
+            return offHeap;
+        }
+
+        public Signed getSigned() {
+            return signed;
+        }
+    }
+
+    public static class OffHeap {
+        // 分段数，每段一把锁
+        private int stripes = 64;
+        // 初始容量（会话数），不足时各段自动翻倍扩容
+        private int initialCapacity = 65_536;
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public int getInitialCapacity() {
+            return initialCapacity;
+        }
+
+        public void setInitialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+        }
+    }
+
+    public static class Signed {
+        // Base64 编码的签名密钥（至少 32 字节），多节点部署时必须一致；为空时每次启动随机生成
+        private String signingKey = "";
+        // 一个绝对超时周期内预计的登出次数，用于确定吊销过滤器的大小
+        private int revocationCapacity = 100_000;
+        // 用户名到用户ID换算结果的缓存时长；其他节点上的用户改动最多延迟该时长被本节点看到
+        private Duration userCacheTtl = Duration.ofSeconds(30);
+        // 用户名到用户ID换算结果的最大缓存条数，0 表示不缓存
+        private int userCacheMaxEntries = 100_000;
+
+        public String getSigningKey() {
+            return signingKey;
+        }
+
+        public void setSigningKey(String signingKey) {
+            this.signingKey = signingKey;
+        }
+
+        public int getRevocationCapacity() {
+            return revocationCapacity;
+        }
+
+        public void setRevocationCapacity(int revocationCapacity) {
+            this.revocationCapacity = revocationCapacity;
+        }
+
+        public Duration getUserCacheTtl() {
+            return userCacheTtl;
+        }
+
+        public void setUserCacheTtl(Duration userCacheTtl) {
+            this.userCacheTtl = userCacheTtl;
+        }
+
+        public int getUserCacheMaxEntries() {
+            return userCacheMaxEntries;
+        }
+
+        public void setUserCacheMaxEntries(int userCacheMaxEntries) {
+            this.userCacheMaxEntries = userCacheMaxEntries;
+        }
+    }
+
+    public static class Journal {
+        // 是否把会话写入日志以便重启后恢复，默认关闭
+        private boolean enabled = false;
+        private String path = "data/sessions.journal";
+        // 组提交间隔：每隔该时长批量写入并 fsync 一次
+        private Duration syncInterval = Duration.ofMillis(10);
+        // 日志记录数超过该值且超过存活会话数两倍时触发压缩
+        private long compactionThreshold = 1_000_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public Duration getSyncInterval() {
+            return syncInterval;
+        }
+
+        public void setSyncInterval(Duration syncInterval) {
+            this.syncInterval = syncInterval;
+        }
+
+        public long getCompactionThreshold() {
+            return compactionThreshold;
+        }
+
+        public void setCompactionThreshold(long compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+        }
+    }
+
+    public static class Password {
+        // 启动时按该目标耗时校准 PBKDF2 迭代次数
+        private Duration targetHashTime = Duration.ofMillis(100);
+        // 校准结果的下限
+        private int minIterations = 100_000;
+        // 散列线程数，默认等于 CPU 核数
+        private int threads = Runtime.getRuntime().availableProcessors();
+        // 散列任务排队上限，超出后直接拒绝并返回 503
+        private int queueCapacity = 64;
+        // 请求线程等待散列结果的最长时间
+        private Duration timeout = Duration.ofSeconds(5);
+        // 是否接受改造前以明文存储的密码并在登录成功后重新散列，仅在迁移存量数据期间开启
+        private boolean acceptLegacyPlaintext = false;
+        private final Cache cache = new Cache();
+
+        public Duration getTargetHashTime() {
+            return targetHashTime;
+        }
+
+        public void setTargetHashTime(Duration targetHashTime) {
+            this.targetHashTime = targetHashTime;
+        }
+
+        public int getMinIterations() {
+            return minIterations;
+        }
+
+        public void setMinIterations(int minIterations) {
+            this.minIterations = minIterations;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public boolean isAcceptLegacyPlaintext() {
+            return acceptLegacyPlaintext;
+        }
+
+        public void setAcceptLegacyPlaintext(boolean acceptLegacyPlaintext) {
+            this.acceptLegacyPlaintext = acceptLegacyPlaintext;
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+    }
+
+    public static class Cache {
+        // 是否缓存已验证的凭据，默认关闭
+        private boolean enabled = false;
+        private Duration ttl = Duration.ofMinutes(5);
+        private int maxEntries = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public static class UserStore {
+        // 用户存储类型：memory 或 jdbc
+        private String type = "memory";
+        // jdbc 模式下每批写入的最大行数
+        private int batchSize = 500;
+        // jdbc 模式下待写记录的最长滞留时间
+        private Duration flushInterval = Duration.ofMillis(50);
+        // jdbc 模式下预计的用户数，用于确定注册布隆过滤器的大小
+        private int expectedUsers = 1_000_000;
+        // jdbc 模式下单个用户的最大写入次数，超过后放弃，计入 JMX 的 FailedWrites
+        private int maxWriteAttempts = 5;
+        // jdbc 模式下本实例是否为用户表的唯一写入方；开启后布隆过滤器判定不存在的用户名和邮箱不再查询数据库
+        private boolean soleWriter = false;
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getExpectedUsers() {
+            return expectedUsers;
+        }
+
+        public void setExpectedUsers(int expectedUsers) {
+            this.expectedUsers = expectedUsers;
+        }
+
+        public int getMaxWriteAttempts() {
+            return maxWriteAttempts;
+        }
+
+        public void setMaxWriteAttempts(int maxWriteAttempts) {
+            this.maxWriteAttempts = maxWriteAttempts;
+        }
+
+        public boolean isSoleWriter() {
+            return soleWriter;
+        }
+
+        public void setSoleWriter(boolean soleWriter) {
+            this.soleWriter = soleWriter;
+        }
+    }
+
+    public static class Cluster {
+        // 是否按一致性哈希把用户分片到多个节点，默认关闭
+        private boolean enabled = false;
+        // 本节点名，必须是 peers 中的一个
+        private String self = "";
+        // 所有节点（含本节点）的名称到基础 URL 的映射，各节点配置必须一致
+        private Map<String, String> peers = new LinkedHashMap<>();
+        // 每个节点在哈希环上的虚拟节点数
+        private int virtualNodes = 128;
+        // 节点间请求携带的共享密钥
+        private String secret = "";
+        // 节点间请求超时
+        private Duration timeout = Duration.ofSeconds(2);
+        private final NearCache nearCache = new NearCache();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getSelf() {
+            return self;
+        }
+
+        public void setSelf(String self) {
+            this.self = self;
+        }
+
+        public Map<String, String> getPeers() {
+            return peers;
+        }
+
+        public void setPeers(Map<String, String> peers) {
+            this.peers = peers;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public NearCache getNearCache() {
+            return nearCache;
+        }
+    }
+
+    public static class NearCache {
+        // 其他节点用户在本地缓存的时长
+        private Duration ttl = Duration.ofSeconds(30);
+        // 为 0 时不缓存
+        private int maxEntries = 10_000;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public static class BulkImport {
+        // 调用批量导入和恢复接口需携带的令牌，为空时这些接口拒绝所有请求
+        private String token = "";
+        // 调用导出接口需携带的令牌；导出内容含密码散列，与导入令牌分开配置，为空时拒绝所有导出请求
+        private String exportToken = "";
+        // 并行校验和散列的线程数，默认处理器数的四分之一，超过处理器数的一半时按一半计
+        private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        // 每块的记录数，内存中最多同时保留两块
+        private int chunkSize = 1_000;
+
+        public String getToken() {
+            return token;
+        }
+
+        public void setToken(String token) {
+            this.token = token;
+        }
+
+        public String getExportToken() {
+            return exportToken;
+        }
+
+        public void setExportToken(String exportToken) {
+            this.exportToken = exportToken;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class Authorization {
+        // 角色名到权限的映射，为空时使用内置的 user 和 admin 两个角色
+        private Map<String, List<Permission>> roles = new LinkedHashMap<>();
+        // 角色名到其父角色的映射，角色继承父角色的全部权限
+        private Map<String, List<String>> parents = new LinkedHashMap<>();
+        // 没有分配角色的用户按该角色处理
+        private String defaultRole = RolePermissions.DEFAULT_ROLE;
+        // 启动时被授予 admin 角色的已有账号，用于初始化第一个管理员；列出但尚不存在的用户名不允许注册
+        private List<String> admins = new ArrayList<>();
+        // 额外需要登录的路径模式，例如 /api/reports/** 或 GET /api/items/{id}；
+        // 标注了 @RequiresLogin 或 @RequiresPermission 的接口无需在此列出
+        private List<String> protectedPaths = new ArrayList<>();
+
+        public Map<String, List<Permission>> getRoles() {
+            return roles;
+        }
+
+        public void setRoles(Map<String, List<Permission>> roles) {
+            this.roles = roles;
+        }
+
+        public Map<String, List<String>> getParents() {
+            return parents;
+        }
+
+        public void setParents(Map<String, List<String>> parents) {
+            this.parents = parents;
+        }
+
+        public String getDefaultRole() {
+            return defaultRole;
+        }
+
+        public void setDefaultRole(String defaultRole) {
+            this.defaultRole = defaultRole;
+        }
+
+        public List<String> getAdmins() {
+            return admins;
+        }
+
+        public void setAdmins(List<String> admins) {
+            this.admins = admins;
+        }
+
+        public List<String> getProtectedPaths() {
+            return protectedPaths;
+        }
+
+        public void setProtectedPaths(List<String> protectedPaths) {
+            this.protectedPaths = protectedPaths;
+        }
+    }
+
+    public static class RateLimit {
+        // 是否对登录接口限流
+        private boolean enabled = true;
+        // 每个限流器最多跟踪的键（IP 或账号）数；跟踪满且都在限流中时，新键共用一个令牌桶
+        private int maxKeys = 100_000;
+        // 每个客户端 IP：最多连续 20 次，之后每 3 秒恢复一次
+        private final Bucket ip = new Bucket(20, Duration.ofSeconds(3));
+        // 每个账号：最多连续 5 次，之后每 12 秒恢复一次
+        private final Bucket account = new Bucket(5, Duration.ofSeconds(12));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxKeys() {
+            return maxKeys;
+        }
+
+        public void setMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+
+        public Bucket getIp() {
+            return ip;
+        }
+
+        public Bucket getAccount() {
+            return account;
+        }
+    }
+
+    public static class Bucket {
+        // 令牌桶容量，即允许的最大突发次数
+        private int capacity;
+        // 每补充一个令牌的间隔
+        private Duration refillInterval;
+
+        public Bucket(int capacity, Duration refillInterval) {
+            this.capacity = capacity;
+            this.refillInterval = refillInterval;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Duration getRefillInterval() {
+            return refillInterval;
+        }
+
+        public void setRefillInterval(Duration refillInterval) {
+            this.refillInterval = refillInterval;
+        }
+    }
+
+    public static class Lockout {
+        // 是否在连续登录失败后临时锁定账号
+        private boolean enabled = true;
+        // 衰减后的失败分数达到该值时锁定
+        private int maxFailures = 5;
+        // 失败分数的半衰期
+        private Duration halfLife = Duration.ofMinutes(15);
+        // 锁定时长
+        private Duration duration = Duration.ofMinutes(15);
+        // 最多跟踪的已存在账号数
+        private int maxAccounts = 100_000;
+        // 不存在的用户名所用 count-min sketch 每行的计数器数
+        private int sketchWidth = 65_536;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxFailures() {
+            return maxFailures;
+        }
+
+        public void setMaxFailures(int maxFailures) {
+            this.maxFailures = maxFailures;
+        }
+
+        public Duration getHalfLife() {
+            return halfLife;
+        }
+
+        public void setHalfLife(Duration halfLife) {
+            this.halfLife = halfLife;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public void setDuration(Duration duration) {
+            this.duration = duration;
+        }
+
+        public int getMaxAccounts() {
+            return maxAccounts;
+        }
+
+        public void setMaxAccounts(int maxAccounts) {
+            this.maxAccounts = maxAccounts;
+        }
+
+        public int getSketchWidth() {
+            return sketchWidth;
+        }
+
+        public void setSketchWidth(int sketchWidth) {
+            this.sketchWidth = sketchWidth;
+        }
+    }
+
+    public static class Pinning {
+        // 启用虚拟线程（spring.threads.virtual.enabled=true）时是否以 JFR 检测载体线程被钉住
+        private boolean enabled = true;
+        // 钉住超过该时长才记录
+        private Duration threshold = Duration.ofMillis(20);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(Duration threshold) {
+            this.threshold = threshold;
+        }
+    }
+}
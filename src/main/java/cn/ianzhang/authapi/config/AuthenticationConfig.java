@@ -0,0 +1,34 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.controller.ProtectedPaths;
+import cn.ianzhang.authapi.controller.SessionAuthenticationFilter;
+import cn.ianzhang.authapi.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableConfigurationProperties(AuthProperties.class)
+public class AuthenticationConfig {
+
+    // 需要登录的路径在此编译：配置的 auth.authorization.protected-paths 加上带 @RequiresLogin / @RequiresPermission 的接口。
+    // 排在字符编码等请求包装过滤器之后、登录限流等业务过滤器之前
+    @Bean
+    public FilterRegistrationBean<SessionAuthenticationFilter> sessionAuthenticationFilter(
+            AuthProperties properties, UserService userService, ObjectMapper objectMapper,
+            @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping) {
+        ProtectedPaths protectedPaths = ProtectedPaths.compile(properties.getAuthorization().getProtectedPaths(),
+                handlerMapping.getHandlerMethods());
+        FilterRegistrationBean<SessionAuthenticationFilter> registration =
+                new FilterRegistrationBean<>(new SessionAuthenticationFilter(userService, protectedPaths, objectMapper));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+}
@@ -0,0 +1,61 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.cluster.ConsistentHashRing;
+import cn.ianzhang.authapi.cluster.HttpUserPeer;
+import cn.ianzhang.authapi.cluster.UserPeer;
+import cn.ianzhang.authapi.repository.ShardedUserRepository;
+import cn.ianzhang.authapi.repository.UserRepository;
+import cn.ianzhang.authapi.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.HashMap;
+import java.util.Map;
+
+// 启用集群时，在本地用户存储之上包装分片层，UserService 等使用方拿到的是分片存储
+@Configuration
+@EnableConfigurationProperties(AuthProperties.class)
+@ConditionalOnProperty(prefix = "auth.cluster", name = "enabled", havingValue = "true")
+public class ClusterConfig {
+    private static final Logger log = LoggerFactory.getLogger(ClusterConfig.class);
+
+    @Bean
+    @Primary
+    public ShardedUserRepository shardedUserRepository(@Qualifier("localUserRepository") UserRepository localUserRepository,
+                                                       AuthProperties properties) {
+        AuthProperties.Cluster cluster = properties.getCluster();
+        if (cluster.getSecret() == null || cluster.getSecret().isBlank()) {
+            throw new IllegalStateException("auth.cluster.secret must be set when clustering is enabled");
+        }
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(cluster.getTimeout())
+                .build();
+        Map<String, UserPeer> peers = new HashMap<>();
+        cluster.getPeers().forEach((node, url) -> {
+            if (!node.equals(cluster.getSelf())) {
+                peers.put(node, new HttpUserPeer(client, URI.create(url), cluster.getSecret(), cluster.getTimeout()));
+            }
+        });
+        ConsistentHashRing ring = new ConsistentHashRing(cluster.getPeers().keySet(), cluster.getVirtualNodes());
+        log.info("User store sharded across {} as {}", ring.nodes(), cluster.getSelf());
+        return new ShardedUserRepository(cluster.getSelf(), ring, localUserRepository, peers,
+                cluster.getNearCache().getTtl(), cluster.getNearCache().getMaxEntries(), cluster.getTimeout());
+    }
+
+    // 近端缓存淘汰远端用户时回收其用户ID，ID表不随访问过的远端用户数无限增长；
+    // 仍被会话引用的ID由 UserService 保留
+    @Bean
+    public SmartInitializingSingleton nearCacheUserIdRelease(ShardedUserRepository shardedUserRepository,
+                                                             UserService userService) {
+        return () -> shardedUserRepository.setEvictionListener(userService::releaseUserId);
+    }
+}
@@ -0,0 +1,29 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import cn.ianzhang.authapi.service.UserImportService;
+import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.service.UserSnapshotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AuthProperties.class)
+public class ImportConfig {
+
+    @Bean(destroyMethod = "close")
+    public UserImportService userImportService(UserService userService, PasswordHashingService passwordHashingService,
+                                               ObjectMapper objectMapper, AuthProperties properties) {
+        AuthProperties.BulkImport bulkImport = properties.getBulkImport();
+        return new UserImportService(userService, passwordHashingService, objectMapper,
+                bulkImport.getParallelism(), bulkImport.getChunkSize(), bulkImport.getToken());
+    }
+
+    @Bean
+    public UserSnapshotService userSnapshotService(UserService userService, ObjectMapper objectMapper,
+                                                   AuthProperties properties) {
+        return new UserSnapshotService(userService, objectMapper, properties.getBulkImport().getExportToken());
+    }
+}
@@ -0,0 +1,49 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.controller.LoginRateLimitFilter;
+import cn.ianzhang.authapi.controller.ReactiveLoginRateLimitFilter;
+import cn.ianzhang.authapi.security.TokenBucketLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AuthProperties.class)
+@ConditionalOnProperty(prefix = "auth.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    // 只作用于两个登录接口
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<LoginRateLimitFilter> loginRateLimitFilter(AuthProperties properties,
+                                                                            ObjectMapper objectMapper) {
+        AuthProperties.RateLimit rateLimit = properties.getRateLimit();
+        FilterRegistrationBean<LoginRateLimitFilter> registration = new FilterRegistrationBean<>(
+                new LoginRateLimitFilter(byIp(rateLimit), byAccount(rateLimit), objectMapper));
+        registration.addUrlPatterns("/api/auth/login", "/api/auth/login/email");
+        return registration;
+    }
+
+    // WebFlux 模式下的同一套限流，过滤器自行判断登录路径
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveLoginRateLimitFilter reactiveLoginRateLimitFilter(AuthProperties properties,
+                                                                     ObjectMapper objectMapper) {
+        AuthProperties.RateLimit rateLimit = properties.getRateLimit();
+        return new ReactiveLoginRateLimitFilter(byIp(rateLimit), byAccount(rateLimit), objectMapper);
+    }
+
+    private static TokenBucketLimiter byIp(AuthProperties.RateLimit rateLimit) {
+        return new TokenBucketLimiter(rateLimit.getIp().getCapacity(), rateLimit.getIp().getRefillInterval(),
+                rateLimit.getMaxKeys());
+    }
+
+    private static TokenBucketLimiter byAccount(AuthProperties.RateLimit rateLimit) {
+        return new TokenBucketLimiter(rateLimit.getAccount().getCapacity(),
+                rateLimit.getAccount().getRefillInterval(), rateLimit.getMaxKeys());
+    }
+}
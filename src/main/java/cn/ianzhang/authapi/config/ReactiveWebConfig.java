@@ -0,0 +1,45 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.controller.AuthHeader;
+import cn.ianzhang.authapi.service.ReactiveUserService;
+import cn.ianzhang.authapi.service.UserService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+import reactor.core.scheduler.Schedulers;
+
+// WebFlux 模式（reactive profile 中 spring.main.web-application-type=reactive）。
+// classpath 上同时有 Tomcat，显式声明 Netty 服务器工厂，否则 Spring Boot 会用 Tomcat 承载响应式栈
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(AuthProperties.class)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new AuthHeader.ReactiveAuthHeaderResolver());
+    }
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // 阻塞调用共用 Reactor 的 boundedElastic 调度器。签名会话按用户名查找用户，
+    // 用户存储为 jdbc 时查找可能阻塞，会话解析也要离开事件循环。
+    // 集群内部接口（PeerController）只在 Servlet 模式下提供，响应式节点无法承载归属于它的用户，因此拒绝启动
+    @Bean
+    public ReactiveUserService reactiveUserService(UserService userService, AuthProperties properties) {
+        if (properties.getCluster().isEnabled()) {
+            throw new IllegalStateException("auth.cluster.enabled is not supported with the reactive profile: "
+                    + "peers could not reach this node's users");
+        }
+        boolean sessionLookupBlocks = "signed".equals(properties.getSession().getMode())
+                && "jdbc".equals(properties.getUserStore().getType());
+        return new ReactiveUserService(userService, Schedulers.boundedElastic(), sessionLookupBlocks);
+    }
+}
@@ -0,0 +1,51 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.repository.InMemoryUserRepository;
+import cn.ianzhang.authapi.repository.JdbcUserRepository;
+import cn.ianzhang.authapi.repository.UserIdTable;
+import cn.ianzhang.authapi.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.MBeanExporter;
+
+import java.util.Map;
+
+// 按 auth.user-store.type 选择本地用户存储实现；启用集群时由 ClusterConfig 在其上包装分片层
+@Configuration
+@EnableConfigurationProperties(AuthProperties.class)
+public class RepositoryConfig {
+
+    @Bean
+    @Qualifier("localUserRepository")
+    @ConditionalOnProperty(prefix = "auth.user-store", name = "type", havingValue = "memory", matchIfMissing = true)
+    public UserRepository inMemoryUserRepository() {
+        return new InMemoryUserRepository();
+    }
+
+    @Bean(destroyMethod = "close")
+    @Qualifier("localUserRepository")
+    @ConditionalOnProperty(prefix = "auth.user-store", name = "type", havingValue = "jdbc")
+    public UserRepository jdbcUserRepository(JdbcTemplate jdbcTemplate, AuthProperties properties) {
+        AuthProperties.UserStore userStore = properties.getUserStore();
+        return new JdbcUserRepository(jdbcTemplate, userStore.getBatchSize(), userStore.getFlushInterval(),
+                userStore.getExpectedUsers(), userStore.getMaxWriteAttempts(), userStore.isSoleWriter());
+    }
+
+    // 经 JMX 发布写入状态，重试多次仍失败的用户数可在 cn.ianzhang.authapi:type=UserStore 的 FailedWrites 上监控
+    @Bean
+    @ConditionalOnProperty(prefix = "auth.user-store", name = "type", havingValue = "jdbc")
+    public MBeanExporter userStoreStatsExporter(@Qualifier("localUserRepository") UserRepository repository) {
+        MBeanExporter exporter = new MBeanExporter();
+        exporter.setBeans(Map.of("cn.ianzhang.authapi:type=UserStore", repository));
+        return exporter;
+    }
+
+    @Bean
+    public UserIdTable userIdTable() {
+        return new UserIdTable();
+    }
+}
@@ -0,0 +1,86 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.cluster.PeerUnavailableException;
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.security.CredentialCache;
+import cn.ianzhang.authapi.security.LoginFailureTracker;
+import cn.ianzhang.authapi.security.PasswordHasher;
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import cn.ianzhang.authapi.security.RolePermissions;
+import cn.ianzhang.authapi.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(AuthProperties.class)
+public class SecurityConfig {
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public PasswordHashingService passwordHashingService(AuthProperties properties) {
+        AuthProperties.Password password = properties.getPassword();
+        int iterations = PasswordHasher.calibrate(password.getTargetHashTime(), password.getMinIterations());
+        log.info("PBKDF2 calibrated to {} iterations (target {} per hash)", iterations, password.getTargetHashTime());
+        return new PasswordHashingService(new PasswordHasher(iterations, password.isAcceptLegacyPlaintext()),
+                password.getThreads(), password.getQueueCapacity(), password.getTimeout());
+    }
+
+    @Bean
+    public CredentialCache credentialCache(AuthProperties properties) {
+        AuthProperties.Cache cache = properties.getPassword().getCache();
+        return new CredentialCache(cache.getTtl(), cache.isEnabled() ? cache.getMaxEntries() : 0);
+    }
+
+    @Bean
+    public RolePermissions rolePermissions(AuthProperties properties) {
+        AuthProperties.Authorization authorization = properties.getAuthorization();
+        Map<String, ? extends Collection<Permission>> roles = authorization.getRoles().isEmpty()
+                ? RolePermissions.BUILTIN_ROLES : authorization.getRoles();
+        return new RolePermissions(roles, authorization.getParents(), authorization.getDefaultRole());
+    }
+
+    // 启动时把 auth.authorization.admins 中已存在的账号持久化为管理员，此后权限只来自角色，不按用户名授予。
+    // 集群中有节点尚未启动时跳过，下次启动再试
+    @Bean
+    public ApplicationRunner adminBootstrap(UserService userService, AuthProperties properties) {
+        return args -> {
+            List<String> admins = properties.getAuthorization().getAdmins();
+            if (admins.isEmpty()) {
+                return;
+            }
+            try {
+                List<String> granted = userService.bootstrapAdmins(admins);
+                if (!granted.isEmpty()) {
+                    log.info("Granted role {} to {}", RolePermissions.ADMIN_ROLE, granted);
+                }
+                for (String username : admins) {
+                    if (!userService.isUsernameTaken(username)) {
+                        log.warn("Admin account {} does not exist and the username is reserved; to create it, "
+                                + "register the account while it is not listed in auth.authorization.admins, "
+                                + "then add it and restart", username);
+                    }
+                }
+            } catch (PeerUnavailableException e) {
+                log.warn("Skipped admin bootstrap, cluster peer unavailable", e);
+            }
+        };
+    }
+
+    @Bean
+    public LoginFailureTracker loginFailureTracker(AuthProperties properties) {
+        AuthProperties.Lockout lockout = properties.getLockout();
+        if (!lockout.isEnabled()) {
+            return LoginFailureTracker.disabled();
+        }
+        return new LoginFailureTracker(lockout.getMaxFailures(), lockout.getHalfLife(), lockout.getDuration(),
+                lockout.getMaxAccounts(), lockout.getSketchWidth());
+    }
+}
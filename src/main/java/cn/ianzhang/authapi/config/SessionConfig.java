@@ -0,0 +1,135 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.repository.CachingUserIdResolver;
+import cn.ianzhang.authapi.repository.UserIdTable;
+import cn.ianzhang.authapi.repository.UserRepository;
+import cn.ianzhang.authapi.session.OffHeapSessionManager;
+import cn.ianzhang.authapi.session.RandomSessionIdGenerator;
+import cn.ianzhang.authapi.session.SessionIdGenerator;
+import cn.ianzhang.authapi.session.SessionJournal;
+import cn.ianzhang.authapi.session.SessionStore;
+import cn.ianzhang.authapi.session.SignedSessionManager;
+import cn.ianzhang.authapi.session.StoreSessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.function.ToIntFunction;
+
+// 按 auth.session.mode 选择会话管理方式
+@Configuration
+@EnableConfigurationProperties(AuthProperties.class)
+public class SessionConfig {
+    private static final Logger log = LoggerFactory.getLogger(SessionConfig.class);
+
+    // store 模式：进程内会话表，可选会话日志
+    @Configuration
+    @ConditionalOnProperty(prefix = "auth.session", name = "mode", havingValue = "store", matchIfMissing = true)
+    static class StoreModeConfig {
+
+        @Bean(destroyMethod = "close")
+        public SessionStore sessionStore(AuthProperties properties) {
+            AuthProperties.Session session = properties.getSession();
+            return new SessionStore(session.getIdleTimeout(), session.getAbsoluteTimeout(), session.getSweepInterval(),
+                    session.getMaxSessionsPerUser());
+        }
+
+        // 启动时先回放日志恢复会话，再开始记录新的会话变更；已删除用户的会话不再恢复。
+        // 内存用户存储重启后为空，本节点用户的会话都无法恢复，需配合 jdbc 用户存储使用
+        @Bean(destroyMethod = "close")
+        @ConditionalOnProperty(prefix = "auth.session.journal", name = "enabled", havingValue = "true")
+        public SessionJournal sessionJournal(SessionStore sessionStore, UserRepository userRepository,
+                                             UserIdTable userIdTable, AuthProperties properties) throws IOException {
+            AuthProperties.Journal journal = properties.getSession().getJournal();
+            if ("memory".equals(properties.getUserStore().getType())) {
+                log.warn("auth.session.journal is enabled with the memory user store: users are lost on restart, "
+                        + "so replay drops every journaled session of a user stored on this node");
+            }
+            SessionJournal sessionJournal = new SessionJournal(Path.of(journal.getPath()), sessionStore,
+                    userIdResolver(userRepository, userIdTable), journal.getSyncInterval(),
+                    journal.getCompactionThreshold());
+            sessionJournal.replay();
+            sessionStore.addListener(sessionJournal);
+            return sessionJournal;
+        }
+
+        @Bean
+        public StoreSessionManager sessionManager(SessionStore sessionStore, SessionIdGenerator sessionIdGenerator) {
+            return new StoreSessionManager(sessionStore, sessionIdGenerator);
+        }
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "auth.session", name = "mode", havingValue = "off-heap")
+    public OffHeapSessionManager offHeapSessionManager(AuthProperties properties) {
+        AuthProperties.Session session = properties.getSession();
+        warnIfPerUserLimitIgnored(session, "off-heap");
+        return new OffHeapSessionManager(session.getIdleTimeout(), session.getAbsoluteTimeout(),
+                session.getSweepInterval(), session.getOffHeap().getStripes(),
+                session.getOffHeap().getInitialCapacity());
+    }
+
+    // signed 模式每次解析令牌都要按用户名换算用户ID，经有界缓存避免每个请求都查询存储
+    @Bean
+    @ConditionalOnProperty(prefix = "auth.session", name = "mode", havingValue = "signed")
+    public CachingUserIdResolver cachingUserIdResolver(UserRepository userRepository, UserIdTable userIdTable,
+                                                       AuthProperties properties) {
+        AuthProperties.Signed signed = properties.getSession().getSigned();
+        return new CachingUserIdResolver(userRepository, userIdTable, signed.getUserCacheTtl(),
+                signed.getUserCacheMaxEntries());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "auth.session", name = "mode", havingValue = "signed")
+    public SignedSessionManager signedSessionManager(CachingUserIdResolver userIdResolver,
+                                                     AuthProperties properties) {
+        AuthProperties.Session session = properties.getSession();
+        AuthProperties.Signed signed = session.getSigned();
+        warnIfPerUserLimitIgnored(session, "signed");
+        byte[] key;
+        if (signed.getSigningKey() == null || signed.getSigningKey().isBlank()) {
+            log.warn("auth.session.signed.signing-key is not set, using a random key: "
+                    + "tokens will not survive restarts or be accepted by other nodes");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = Base64.getDecoder().decode(signed.getSigningKey());
+        }
+        return new SignedSessionManager(key, session.getAbsoluteTimeout(), signed.getRevocationCapacity(),
+                userIdResolver);
+    }
+
+    // 默认使用随机会话ID生成器，可通过声明自定义 SessionIdGenerator Bean 替换
+    @Bean
+    @ConditionalOnMissingBean
+    public SessionIdGenerator sessionIdGenerator() {
+        return new RandomSessionIdGenerator();
+    }
+
+    // 只有 store 模式按用户索引会话；off-heap 会话表不建用户索引以免每个会话产生堆上对象，signed 令牌不在服务端登记，
+    // 两者都无法限制每个用户的会话数，配置了上限时在启动日志中明确指出，而不是静默忽略
+    private static void warnIfPerUserLimitIgnored(AuthProperties.Session session, String mode) {
+        if (session.getMaxSessionsPerUser() > 0) {
+            log.warn("auth.session.max-sessions-per-user={} is not enforced in {} session mode; "
+                    + "set it to 0 to acknowledge that sessions per user are unlimited",
+                    session.getMaxSessionsPerUser(), mode);
+        }
+    }
+
+    // 按用户名换算当前进程内的用户ID，用户已不存在时返回负数
+    private static ToIntFunction<String> userIdResolver(UserRepository userRepository, UserIdTable userIdTable) {
+        return username -> {
+            User user = userRepository.findByUsername(username);
+            return user != null ? userIdTable.intern(user) : User.NO_ID;
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.diagnostics.PinningMonitor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// 虚拟线程模式：spring.threads.virtual.enabled=true 时 Tomcat 为每个请求启动一个虚拟线程，
+// 阻塞在 JDBC、散列线程池或集群调用上的请求不再占用平台线程。此时默认开启钉住检测
+@Configuration
+@EnableConfigurationProperties(AuthProperties.class)
+@ConditionalOnProperty(prefix = "spring.threads.virtual", name = "enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "auth.pinning", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public PinningMonitor pinningMonitor(AuthProperties properties) {
+        return new PinningMonitor(properties.getPinning().getThreshold());
+    }
+}
@@ -1,16 +1,35 @@
 package cn.ianzhang.authapi.config;
 
 import cn.ianzhang.authapi.controller.AuthHeader;
+import cn.ianzhang.authapi.controller.PermissionInterceptor;
+import cn.ianzhang.authapi.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class WebConfig implements WebMvcConfigurer {
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+
+    public WebConfig(UserService userService, ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+    }
+
     @Override
     public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
-        resolvers.add(new AuthHeader.AuthHeaderResolver());
+        resolvers.add(new AuthHeader.AuthHeaderResolver(userService));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new PermissionInterceptor(userService, objectMapper));
     }
-}
\ No newline at end of file
+}
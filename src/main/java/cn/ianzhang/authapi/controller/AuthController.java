@@ -1,27 +1,55 @@
 package cn.ianzhang.authapi.controller;
 
+import cn.ianzhang.authapi.cluster.PeerUnavailableException;
+import cn.ianzhang.authapi.dto.EmailLoginRequest;
 import cn.ianzhang.authapi.dto.LoginRequest;
 import cn.ianzhang.authapi.dto.RegisterRequest;
 import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.model.Permission;
 import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.AccountLockedException;
+import cn.ianzhang.authapi.security.HashingBusyException;
+import cn.ianzhang.authapi.service.ImportSummary;
+import cn.ianzhang.authapi.service.UserImportService;
 import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.service.UserSnapshotService;
+import cn.ianzhang.authapi.session.SessionOperationUnsupportedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final String TEXT_CSV = "text/csv";
+
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserSnapshotService userSnapshotService;
 
     @Autowired
-    public AuthController(UserService userService) {
+    public AuthController(UserService userService, UserImportService userImportService,
+                          UserSnapshotService userSnapshotService) {
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.userSnapshotService = userSnapshotService;
     }
 
     @PostMapping("/register")
@@ -31,19 +59,27 @@ public class AuthController {
             return ResponseEntity.badRequest()
                     .body(Response.fail("用户名、密码和邮箱不能为空"));
         }
+        if (User.isUsernameTooLong(request.getUsername())) {
+            return ResponseEntity.badRequest()
+                    .body(Response.fail("用户名不能超过 " + User.MAX_USERNAME_BYTES + " 字节"));
+        }
+        if (User.isEmailTooLong(request.getEmail())) {
+            return ResponseEntity.badRequest()
+                    .body(Response.fail("邮箱不能超过 " + User.MAX_EMAIL_LENGTH + " 个字符"));
+        }
 
         // 创建用户对象
         User user = new User(request.getUsername(), request.getPassword(), request.getEmail());
 
-        // 注册用户
-        boolean registered = userService.register(user);
-        if (registered) {
-            return ResponseEntity.status(HttpStatus.CREATED)
+        // 注册用户；邮箱是否被占用由 registerAccount 一并判定，不在这里预先查一次
+        return switch (userService.registerAccount(user)) {
+            case CREATED -> ResponseEntity.status(HttpStatus.CREATED)
                     .body(Response.success("注册成功", "注册成功"));
-        } else {
-            return ResponseEntity.status(HttpStatus.CONFLICT)
+            case EMAIL_TAKEN -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Response.fail("邮箱已被注册"));
+            case USERNAME_TAKEN -> ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(Response.fail("用户名已存在"));
-        }
+        };
     }
 
     @PostMapping("/login")
@@ -66,6 +102,91 @@ public class AuthController {
         }
     }
 
+    // 以邮箱登录，邮箱不区分大小写；成功时与用户名登录一样返回会话令牌
+    @PostMapping("/login/email")
+    public ResponseEntity<Response<String>> loginByEmail(@RequestBody EmailLoginRequest request) {
+        if (request.getEmail() == null || request.getPassword() == null) {
+            return ResponseEntity.badRequest()
+                    .body(Response.fail("邮箱和密码不能为空"));
+        }
+
+        String sessionId = userService.loginByEmail(request.getEmail(), request.getPassword());
+        if (sessionId != null) {
+            return ResponseEntity.ok()
+                    .header("Authorization", sessionId)
+                    .body(Response.success("登录成功", sessionId));
+        } else {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Response.fail("邮箱或密码错误"));
+        }
+    }
+
+    // 批量导入用户：请求体为 NDJSON 或带表头的 CSV，边读边处理，
+    // 响应为 NDJSON，按输入顺序逐条返回每条记录的结果，最后一行为汇总
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV})
+    public void importUsers(@RequestHeader(value = UserImportService.TOKEN_HEADER, required = false) String token,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!userImportService.isAuthorized(token)) {
+            response.sendError(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        UserImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? UserImportService.Format.NDJSON : UserImportService.Format.CSV;
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        userImportService.importUsers(request.getInputStream(), format, response.getOutputStream());
+    }
+
+    // 导出本节点的全部用户：format=ndjson（默认）或 snapshot（二进制快照，可用 /restore 恢复）；
+    // 边遍历存储边写响应，不在内存中汇总。使用单独的导出令牌，导入令牌不能导出密码散列
+    @GetMapping("/export")
+    public void exportUsers(@RequestHeader(value = UserSnapshotService.EXPORT_TOKEN_HEADER, required = false) String token,
+                            @RequestParam(defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        if (!userSnapshotService.isExportAuthorized(token)) {
+            response.sendError(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        if ("snapshot".equals(format)) {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.snapshot\"");
+            userSnapshotService.writeSnapshot(response.getOutputStream());
+        } else {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            userSnapshotService.exportNdjson(response.getOutputStream());
+        }
+    }
+
+    // 从二进制快照恢复用户，已存在的用户名保持不变。导入令牌之外还携带具有 ROLE_MANAGE 权限的会话时才恢复角色，
+    // 否则丢弃角色，并在响应消息和 rolesDropped 中说明
+    @PostMapping(value = "/restore", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Response<ImportSummary>> restoreUsers(
+            @RequestHeader(value = UserImportService.TOKEN_HEADER, required = false) String token,
+            AuthHeader authHeader, HttpServletRequest request) throws IOException {
+        if (!userImportService.isAuthorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Response.fail("无权访问"));
+        }
+        boolean keepRoles = authHeader.getSessionId() != null
+                && userService.hasPermission(authHeader.getSessionId(), Permission.ROLE_MANAGE);
+        try {
+            ImportSummary summary = userSnapshotService.restoreSnapshot(request.getInputStream(), keepRoles);
+            if (summary.getRolesDropped() == 0) {
+                return ResponseEntity.ok(Response.success("恢复完成", summary));
+            }
+            String message = keepRoles
+                    ? "恢复完成，" + summary.getRolesDropped() + " 个用户的未定义角色未恢复"
+                    : "恢复完成，" + summary.getRolesDropped() + " 个用户的角色未恢复（需要具有 ROLE_MANAGE 权限的会话）";
+            return ResponseEntity.ok(Response.success(message, summary));
+        } catch (IllegalArgumentException e) {
+            // 出错前的记录已经恢复，重新提交完整快照即可，已恢复的用户会被跳过
+            return ResponseEntity.badRequest().body(Response.fail("快照格式错误"));
+        }
+    }
+
     @PostMapping("/logout")
     public ResponseEntity<Response<String>> logout(AuthHeader authHeader) {
         if (authHeader.getSessionId() != null) {
@@ -73,4 +194,45 @@ public class AuthController {
         }
         return ResponseEntity.ok(Response.success("登出成功", "登出成功"));
     }
+
+    // 注销当前用户在本节点上的全部会话，返回注销的会话数
+    @PostMapping("/logout/all")
+    public ResponseEntity<Response<Integer>> logoutAll(AuthHeader authHeader) {
+        int removed = authHeader.getSessionId() != null ? userService.logoutAll(authHeader.getSessionId()) : -1;
+        if (removed < 0) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Response.fail("请先登录"));
+        }
+        return ResponseEntity.ok(Response.success("已登出全部会话", removed));
+    }
+
+    // 自定义的会话管理实现不支持该操作；其他来源的 UnsupportedOperationException 仍按服务器错误处理
+    @ExceptionHandler(SessionOperationUnsupportedException.class)
+    public ResponseEntity<Response<String>> handleUnsupported(SessionOperationUnsupportedException e) {
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED)
+                .body(Response.fail("当前会话模式不支持该操作"));
+    }
+
+    // 密码散列线程池已满，快速拒绝并提示客户端稍后重试
+    @ExceptionHandler(HashingBusyException.class)
+    public ResponseEntity<Response<String>> handleHashingBusy(HashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Response.fail("服务繁忙，请稍后重试"));
+    }
+
+    // 连续登录失败后账号被临时锁定，Retry-After 为剩余锁定秒数
+    @ExceptionHandler(AccountLockedException.class)
+    public ResponseEntity<Response<String>> handleAccountLocked(AccountLockedException e) {
+        return ResponseEntity.status(HttpStatus.LOCKED)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString((e.getRetryAfterMillis() + 999) / 1000))
+                .body(Response.fail("登录失败次数过多，账号已被临时锁定，请稍后再试"));
+    }
+
+    // 用户归属节点暂时不可达
+    @ExceptionHandler(PeerUnavailableException.class)
+    public ResponseEntity<Response<String>> handlePeerUnavailable(PeerUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Response.fail("服务暂不可用，请稍后重试"));
+    }
 }
@@ -1,13 +1,42 @@
 package cn.ianzhang.authapi.controller;
 
+import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.session.SessionPrincipal;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.support.WebDataBinderFactory;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
 
+// 请求携带的会话令牌。依次取 Authorization 头（"Bearer <令牌>" 或裸令牌）和名为 SESSION_COOKIE 的 Cookie，
+// 逐字符扫描，不用正则：裸令牌直接沿用请求头字符串，带前缀或取自 Cookie 时只复制令牌本身一次。
+// 两种会话令牌都是 URL 安全 Base64，长度或字符不符的直接视为没有令牌，不进入会话表查找；
+// 没有令牌时返回共享的 EMPTY，不分配对象。
+// 浏览器跨站请求也会自动带上 Cookie，为防止 CSRF，Cookie 中的令牌只用于 GET/HEAD/OPTIONS，
+// 或带有 X-Requested-With 头的请求（跨站页面不经 CORS 预检无法设置自定义头）。
+// 下发 SESSION Cookie 时须设置 SameSite=Lax 或 Strict，以及 HttpOnly 和 Secure。
 public class AuthHeader {
+    public static final AuthHeader EMPTY = new AuthHeader(null);
+    public static final String SESSION_COOKIE = "SESSION";
+    public static final String REQUESTED_WITH = "X-Requested-With";
+    // 签名令牌（用户名最长 255 字节）编码后不超过 386 个字符
+    static final int MAX_TOKEN_LENGTH = 512;
+
+    private static final String BEARER = "Bearer";
+    private static final boolean[] TOKEN_CHARS = new boolean[128];
+
+    static {
+        for (char c : "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray()) {
+            TOKEN_CHARS[c] = true;
+        }
+    }
+
     private final String sessionId;
 
     public AuthHeader(String sessionId) {
@@ -18,19 +47,162 @@ public class AuthHeader {
         return sessionId;
     }
 
-    // 参数解析器，用于从请求头中提取Authorization
+    static AuthHeader of(String authorization, String cookie) {
+        String token = credential(authorization, cookie);
+        return token != null ? new AuthHeader(token) : EMPTY;
+    }
+
+    public static AuthHeader from(HttpServletRequest request) {
+        String token = credential(request);
+        return token != null ? new AuthHeader(token) : EMPTY;
+    }
+
+    // 请求中的会话令牌，Cookie 只在 cookieAllowed 时采用；没有或格式不符时返回 null
+    public static String credential(HttpServletRequest request) {
+        if (request == null) {
+            return null;
+        }
+        String cookie = cookieAllowed(request.getMethod(), request.getHeader(REQUESTED_WITH))
+                ? request.getHeader(HttpHeaders.COOKIE) : null;
+        return credential(request.getHeader(HttpHeaders.AUTHORIZATION), cookie);
+    }
+
+    // 安全方法，或带有 X-Requested-With 头的请求才接受 Cookie 中的令牌
+    static boolean cookieAllowed(String method, String requestedWith) {
+        return requestedWith != null || "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    // 从 Authorization 头和 Cookie 头中解析令牌，不检查请求方法；没有或格式不符时返回 null
+    static String credential(String authorization, String cookie) {
+        String token = authorization != null ? fromAuthorization(authorization) : null;
+        return token != null || cookie == null ? token : fromCookie(cookie);
+    }
+
+    static String fromAuthorization(String header) {
+        int start = skipSpaces(header, 0);
+        int end = trimEnd(header, start, header.length());
+        if (end - start >= BEARER.length() && header.regionMatches(true, start, BEARER, 0, BEARER.length())) {
+            // 只有 "Bearer" 而没有令牌时视为没有令牌
+            if (end - start == BEARER.length()) {
+                return null;
+            }
+            if (header.charAt(start + BEARER.length()) == ' ') {
+                start = skipSpaces(header, start + BEARER.length() + 1);
+            }
+        }
+        return token(header, start, end);
+    }
+
+    // Cookie 头形如 "a=1; SESSION=令牌; b=2"，只取第一个名为 SESSION_COOKIE 的值
+    static String fromCookie(String header) {
+        int length = header.length();
+        int i = 0;
+        while (i < length) {
+            int nameStart = skipSpaces(header, i);
+            int end = header.indexOf(';', nameStart);
+            if (end < 0) {
+                end = length;
+            }
+            int nameEnd = nameStart + SESSION_COOKIE.length();
+            if (nameEnd < end && header.regionMatches(nameStart, SESSION_COOKIE, 0, SESSION_COOKIE.length())) {
+                int eq = skipSpaces(header, nameEnd);
+                if (eq < end && header.charAt(eq) == '=') {
+                    int start = skipSpaces(header, eq + 1);
+                    int valueEnd = trimEnd(header, start, end);
+                    // 值可以带一对双引号
+                    if (valueEnd - start >= 2 && header.charAt(start) == '"' && header.charAt(valueEnd - 1) == '"') {
+                        start++;
+                        valueEnd--;
+                    }
+                    return token(header, start, valueEnd);
+                }
+            }
+            i = end + 1;
+        }
+        return null;
+    }
+
+    private static String token(String s, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 128 || !TOKEN_CHARS[c]) {
+                return null;
+            }
+        }
+        return length == s.length() ? s : s.substring(start, end);
+    }
+
+    private static int skipSpaces(String s, int i) {
+        while (i < s.length() && s.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(String s, int start, int end) {
+        while (end > start && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // 参数解析器，用于从请求头中提取Authorization；SessionPrincipal 类型的参数注入当前会话主体。
+    // 主体优先取 SessionAuthenticationFilter 已放进请求属性的值，没有时按请求头解析一次，会话无效时注入 null
     public static class AuthHeaderResolver implements HandlerMethodArgumentResolver {
+        private final UserService userService;
+
+        public AuthHeaderResolver() {
+            this(null);
+        }
+
+        public AuthHeaderResolver(UserService userService) {
+            this.userService = userService;
+        }
+
         @Override
         public boolean supportsParameter(MethodParameter parameter) {
-            return parameter.getParameterType().equals(AuthHeader.class);
+            Class<?> type = parameter.getParameterType();
+            return type.equals(AuthHeader.class) || type.equals(SessionPrincipal.class);
         }
 
         @Override
         public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
                                       NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
             HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
-            String sessionId = request != null ? request.getHeader("Authorization") : null;
-            return new AuthHeader(sessionId);
+            if (parameter == null || !parameter.getParameterType().equals(SessionPrincipal.class)) {
+                return from(request);
+            }
+            if (request == null) {
+                return null;
+            }
+            if (request.getAttribute(SessionAuthenticationFilter.PRINCIPAL) instanceof SessionPrincipal principal) {
+                return principal;
+            }
+            String sessionId = credential(request);
+            return sessionId != null && userService != null ? userService.resolvePrincipal(sessionId) : null;
+        }
+    }
+
+    // WebFlux 版本的参数解析器，按同样的规则读取请求头，不阻塞
+    public static class ReactiveAuthHeaderResolver
+            implements org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver {
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            return parameter.getParameterType().equals(AuthHeader.class);
+        }
+
+        @Override
+        public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext,
+                                            ServerWebExchange exchange) {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpHeaders headers = request.getHeaders();
+            String cookie = cookieAllowed(request.getMethod().name(), headers.getFirst(REQUESTED_WITH))
+                    ? headers.getFirst(HttpHeaders.COOKIE) : null;
+            return Mono.just(of(headers.getFirst(HttpHeaders.AUTHORIZATION), cookie));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.repository.EmailIndex;
+import cn.ianzhang.authapi.security.TokenBucketLimiter;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// 登录接口限流，在请求体绑定成 LoginRequest 之前拒绝超限的请求，不进入控制器，也不做任何散列计算。
+// 先按客户端 IP 取令牌，此时还没有读取请求体；再读取请求体（登录请求很小，超过 MAX_BODY_BYTES 直接拒绝），
+// 只用流式解析取出 username 或 email 字段，按账号取令牌。读出的请求体原样交给后续的绑定。
+// 客户端 IP 取自 getRemoteAddr；部署在反向代理之后时需由容器（例如 server.forward-headers-strategy）还原真实地址。
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+    static final int MAX_BODY_BYTES = 8 * 1024;
+
+    private final TokenBucketLimiter byIp;
+    private final TokenBucketLimiter byAccount;
+    private final ObjectMapper objectMapper;
+
+    public LoginRateLimitFilter(TokenBucketLimiter byIp, TokenBucketLimiter byAccount, ObjectMapper objectMapper) {
+        this.byIp = byIp;
+        this.byAccount = byAccount;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String ip = request.getRemoteAddr();
+        if (!byIp.tryAcquire(ip)) {
+            tooManyRequests(response, byIp.millisUntilAvailable(ip));
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            reject(response, HttpStatus.PAYLOAD_TOO_LARGE, "请求体过大");
+            return;
+        }
+        String account = accountKey(body, request.getRequestURI().endsWith("/email") ? "email" : "username");
+        if (account != null && !byAccount.tryAcquire(account)) {
+            tooManyRequests(response, byAccount.millisUntilAvailable(account));
+            return;
+        }
+        chain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    // 取出请求体顶层的 field 字段（username 或 email）作为账号键，邮箱按规范化后的形式计；
+    // 字段重复时与绑定一样以最后一次出现为准，避免用重复字段绕过限流。无法解析时返回 null，交由控制器报错
+    String accountKey(byte[] body, String field) {
+        return accountKey(objectMapper, body, field);
+    }
+
+    static String accountKey(ObjectMapper objectMapper, byte[] body, String field) {
+        String value = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.VALUE_STRING && field.equals(name)) {
+                    value = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        if (value == null) {
+            return null;
+        }
+        return "email".equals(field) ? "email:" + EmailIndex.normalize(value) : "username:" + value;
+    }
+
+    private void tooManyRequests(HttpServletResponse response, long waitMillis) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (waitMillis + 999) / 1000)));
+        reject(response, HttpStatus.TOO_MANY_REQUESTS, "登录尝试过于频繁，请稍后再试");
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Response.fail(message));
+    }
+
+    // 以已读出的请求体替换原输入流
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                private ReadListener readListener;
+
+                // 请求体已全部在内存中：注册后立即通知可读，读完通知结束，与容器的约束一致
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    if (listener == null) {
+                        throw new NullPointerException("listener");
+                    }
+                    if (readListener != null) {
+                        throw new IllegalStateException("ReadListener already set");
+                    }
+                    if (!isAsyncStarted()) {
+                        throw new IllegalStateException("Non-blocking read requires async processing");
+                    }
+                    readListener = listener;
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.cluster.HttpUserPeer;
+import cn.ianzhang.authapi.cluster.UserCodec;
+import cn.ianzhang.authapi.config.AuthProperties;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.repository.UserRepository;
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+// 集群内部接口：其他节点通过 HttpUserPeer 读写本节点归属的用户，只操作本地存储，不再转发。
+// 仅在启用集群时注册，请求必须携带正确的集群共享密钥；收到的密码散列同样要通过格式和迭代次数检查。
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping(HttpUserPeer.PATH)
+@ConditionalOnProperty(prefix = "auth.cluster", name = "enabled", havingValue = "true")
+public class PeerController {
+
+    private final UserRepository localUserRepository;
+    private final PasswordHashingService passwordHashing;
+    private final byte[] secret;
+
+    @Autowired
+    public PeerController(@Qualifier("localUserRepository") UserRepository localUserRepository,
+                          PasswordHashingService passwordHashing, AuthProperties properties) {
+        this.localUserRepository = localUserRepository;
+        this.passwordHashing = passwordHashing;
+        this.secret = properties.getCluster().getSecret().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @GetMapping(params = "username", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> fetch(@RequestHeader(value = HttpUserPeer.SECRET_HEADER, required = false) String secret,
+                                        @RequestParam String username) {
+        if (!authorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return encoded(localUserRepository.findByUsername(username));
+    }
+
+    @GetMapping(params = "email", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> fetchByEmail(@RequestHeader(value = HttpUserPeer.SECRET_HEADER, required = false) String secret,
+                                               @RequestParam String email) {
+        if (!authorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return encoded(localUserRepository.findByEmail(email));
+    }
+
+    @GetMapping(value = HttpUserPeer.SEARCH_PATH, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> searchUsernames(@RequestHeader(value = HttpUserPeer.SECRET_HEADER, required = false) String secret,
+                                                  @RequestParam String prefix,
+                                                  @RequestParam(required = false) String after,
+                                                  @RequestParam int limit) {
+        if (!authorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(UserCodec.encodeUsernames(localUserRepository.findUsernamesByPrefix(prefix, after, limit)));
+    }
+
+    // 仅当用户名和邮箱都未被占用时保存，已占用时返回 409
+    @PostMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> saveIfAbsent(@RequestHeader(value = HttpUserPeer.SECRET_HEADER, required = false) String secret,
+                                             @RequestBody byte[] body) {
+        if (!authorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        User user = UserCodec.decode(body);
+        if (!passwordHashing.isAcceptableHash(user.getPassword())) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!localUserRepository.saveIfAbsent(user)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+
+    // 修改角色时会原样带回迁移期间尚未升级的明文密码，因此与本地存储相同的密码不再检查
+    @PutMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> update(@RequestHeader(value = HttpUserPeer.SECRET_HEADER, required = false) String secret,
+                                       @RequestBody byte[] body) {
+        if (!authorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        User user = UserCodec.decode(body);
+        if (!passwordHashing.isAcceptableHash(user.getPassword())) {
+            User stored = localUserRepository.findByUsername(user.getUsername());
+            if (stored == null || !Objects.equals(stored.getPassword(), user.getPassword())) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        localUserRepository.update(user);
+        return ResponseEntity.noContent().build();
+    }
+
+    // 请求体格式错误
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Void> handleMalformed(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+    }
+
+    private static ResponseEntity<byte[]> encoded(User user) {
+        if (user == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(UserCodec.encode(user));
+    }
+
+    private boolean authorized(String provided) {
+        return provided != null && MessageDigest.isEqual(secret, provided.getBytes(StandardCharsets.UTF_8));
+    }
+}
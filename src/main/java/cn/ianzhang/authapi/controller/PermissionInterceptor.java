@@ -0,0 +1,74 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.RolePermissions;
+import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.session.SessionPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 按处理方法上的 @RequiresPermission 鉴权。所需权限编译成位集按方法缓存，注解只在每个方法首次被调用时读取；
+// 之后每次请求只做一次会话解析、一次权限版本比较和一次按位与。未声明权限的接口直接放行。
+public class PermissionInterceptor implements HandlerInterceptor {
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<Method, Long> requiredByMethod = new ConcurrentHashMap<>();
+
+    public PermissionInterceptor(UserService userService, ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        long required = requiredByMethod.computeIfAbsent(handlerMethod.getMethod(), PermissionInterceptor::requiredMask);
+        if (required == 0) {
+            return true;
+        }
+        // SessionAuthenticationFilter 已解析过会话时直接取用
+        long granted;
+        if (request.getAttribute(SessionAuthenticationFilter.PRINCIPAL) instanceof SessionPrincipal principal) {
+            granted = userService.permissionsOf(principal);
+        } else {
+            User user = userService.getUserBySessionId(AuthHeader.from(request).getSessionId());
+            if (user == null) {
+                reject(response, HttpStatus.UNAUTHORIZED, "请先登录");
+                return false;
+            }
+            granted = userService.permissionsOf(user);
+        }
+        if (!RolePermissions.allows(granted, required)) {
+            reject(response, HttpStatus.FORBIDDEN, "权限不足");
+            return false;
+        }
+        return true;
+    }
+
+    private static long requiredMask(Method method) {
+        RequiresPermission annotation = method.getAnnotation(RequiresPermission.class);
+        return annotation != null ? Permission.mask(annotation.value()) : 0;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Response.fail(message));
+    }
+}
@@ -0,0 +1,122 @@
+package cn.ianzhang.authapi.controller;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// 需要登录的路径，启动时编译一次。规则来自配置的路径模式（"/api/foo/**" 或 "GET /api/foo/{id}"）
+// 以及标注了 @RequiresLogin / @RequiresPermission 的处理方法的映射路径。
+// 不含通配符和路径变量的路径放进哈希表，一次查找完成；其余编译成 PathPattern，请求路径只解析一次后逐个匹配。
+// 与 MVC 的处理器映射一样按解码后、去掉 ;参数 的路径段匹配，/api/report%73 和 /api/reports;x=1 都视为 /api/reports。
+public class ProtectedPaths {
+    private static final Set<RequestMethod> ANY_METHOD = EnumSet.allOf(RequestMethod.class);
+
+    private final Map<String, Set<RequestMethod>> exact = new HashMap<>();
+    private final List<Rule> patterns = new ArrayList<>();
+
+    private ProtectedPaths() {
+    }
+
+    public static ProtectedPaths compile(Collection<String> configured, Map<RequestMappingInfo, HandlerMethod> handlers) {
+        ProtectedPaths paths = new ProtectedPaths();
+        for (String rule : configured) {
+            paths.add(rule.trim());
+        }
+        handlers.forEach((info, handler) -> {
+            if (requiresLogin(handler)) {
+                Set<RequestMethod> methods = info.getMethodsCondition().getMethods();
+                for (String pattern : info.getPatternValues()) {
+                    paths.add(pattern, methods.isEmpty() ? ANY_METHOD : methods);
+                }
+            }
+        });
+        return paths;
+    }
+
+    static boolean requiresLogin(HandlerMethod handler) {
+        return handler.hasMethodAnnotation(RequiresLogin.class) || handler.hasMethodAnnotation(RequiresPermission.class)
+                || handler.getBeanType().isAnnotationPresent(RequiresLogin.class);
+    }
+
+    // path 为去掉上下文路径后、未解码的请求路径
+    public boolean matches(String method, String path) {
+        return matches(method, PathContainer.parsePath(path));
+    }
+
+    // path 为 MVC 解析出的应用内路径，即 RequestPath.pathWithinApplication()
+    public boolean matches(String method, PathContainer path) {
+        RequestMethod requestMethod = RequestMethod.resolve(method);
+        if (requestMethod == null) {
+            return false;
+        }
+        Set<RequestMethod> methods = exact.get(valueToMatch(path));
+        if (methods != null && methods.contains(requestMethod)) {
+            return true;
+        }
+        for (Rule rule : patterns) {
+            if (rule.methods.contains(requestMethod) && rule.pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 解码后、去掉路径参数的路径，与 PathPattern 匹配时使用的值一致
+    private static String valueToMatch(PathContainer path) {
+        List<PathContainer.Element> elements = path.elements();
+        if (elements.size() == 1 && elements.get(0) instanceof PathContainer.Separator) {
+            return "/";
+        }
+        StringBuilder value = new StringBuilder(path.value().length());
+        for (PathContainer.Element element : elements) {
+            value.append(element instanceof PathContainer.PathSegment segment ? segment.valueToMatch() : element.value());
+        }
+        return value.toString();
+    }
+
+    public boolean isEmpty() {
+        return exact.isEmpty() && patterns.isEmpty();
+    }
+
+    // "METHOD /path" 或 "/path"，后者匹配所有方法
+    private void add(String rule) {
+        if (rule.isEmpty()) {
+            return;
+        }
+        int space = rule.indexOf(' ');
+        if (space < 0) {
+            add(rule, ANY_METHOD);
+            return;
+        }
+        RequestMethod method = RequestMethod.resolve(rule.substring(0, space).toUpperCase());
+        if (method == null) {
+            throw new IllegalArgumentException("Unknown HTTP method in protected path: " + rule);
+        }
+        add(rule.substring(space + 1).trim(), EnumSet.of(method));
+    }
+
+    private void add(String pattern, Set<RequestMethod> methods) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Protected path must start with '/': " + pattern);
+        }
+        if (pattern.indexOf('*') < 0 && pattern.indexOf('{') < 0 && pattern.indexOf('?') < 0) {
+            exact.computeIfAbsent(pattern, k -> EnumSet.noneOf(RequestMethod.class)).addAll(methods);
+        } else {
+            patterns.add(new Rule(PathPatternParser.defaultInstance.parse(pattern), EnumSet.copyOf(methods)));
+        }
+    }
+
+    private record Rule(PathPattern pattern, Set<RequestMethod> methods) {
+    }
+}
@@ -0,0 +1,122 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.cluster.PeerUnavailableException;
+import cn.ianzhang.authapi.dto.EmailLoginRequest;
+import cn.ianzhang.authapi.dto.LoginRequest;
+import cn.ianzhang.authapi.dto.RegisterRequest;
+import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.AccountLockedException;
+import cn.ianzhang.authapi.security.HashingBusyException;
+import cn.ianzhang.authapi.service.ReactiveUserService;
+import cn.ianzhang.authapi.session.SessionOperationUnsupportedException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+// /api/auth 的 WebFlux 版本（reactive profile），响应与 AuthController 一致。
+// 批量导入、导出与恢复依赖 Servlet 流式读写，只在 Servlet 模式下提供
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/auth")
+public class ReactiveAuthController {
+
+    private final ReactiveUserService userService;
+
+    public ReactiveAuthController(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<Response<String>>> register(@RequestBody RegisterRequest request) {
+        if (request.getUsername() == null || request.getPassword() == null || request.getEmail() == null) {
+            return Mono.just(ResponseEntity.badRequest().body(Response.fail("用户名、密码和邮箱不能为空")));
+        }
+        if (User.isUsernameTooLong(request.getUsername())) {
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Response.fail("用户名不能超过 " + User.MAX_USERNAME_BYTES + " 字节")));
+        }
+        if (User.isEmailTooLong(request.getEmail())) {
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Response.fail("邮箱不能超过 " + User.MAX_EMAIL_LENGTH + " 个字符")));
+        }
+        User user = new User(request.getUsername(), request.getPassword(), request.getEmail());
+        return userService.registerAccount(user).map(result -> switch (result) {
+            case CREATED -> ResponseEntity.status(HttpStatus.CREATED).body(Response.success("注册成功", "注册成功"));
+            case EMAIL_TAKEN -> ResponseEntity.status(HttpStatus.CONFLICT).body(Response.<String>fail("邮箱已被注册"));
+            case USERNAME_TAKEN -> ResponseEntity.status(HttpStatus.CONFLICT).body(Response.<String>fail("用户名已存在"));
+        });
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<Response<String>>> login(@RequestBody LoginRequest request) {
+        if (request.getUsername() == null || request.getPassword() == null) {
+            return Mono.just(ResponseEntity.badRequest().body(Response.fail("用户名和密码不能为空")));
+        }
+        return loggedIn(userService.login(request.getUsername(), request.getPassword()), "用户名或密码错误");
+    }
+
+    @PostMapping("/login/email")
+    public Mono<ResponseEntity<Response<String>>> loginByEmail(@RequestBody EmailLoginRequest request) {
+        if (request.getEmail() == null || request.getPassword() == null) {
+            return Mono.just(ResponseEntity.badRequest().body(Response.fail("邮箱和密码不能为空")));
+        }
+        return loggedIn(userService.loginByEmail(request.getEmail(), request.getPassword()), "邮箱或密码错误");
+    }
+
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<Response<String>>> logout(AuthHeader authHeader) {
+        Mono<Void> logout = authHeader.getSessionId() != null ? userService.logout(authHeader.getSessionId()) : Mono.empty();
+        return logout.then(Mono.fromSupplier(() -> ResponseEntity.ok(Response.success("登出成功", "登出成功"))));
+    }
+
+    @PostMapping("/logout/all")
+    public Mono<ResponseEntity<Response<Integer>>> logoutAll(AuthHeader authHeader) {
+        Mono<Integer> removed = authHeader.getSessionId() != null
+                ? userService.logoutAll(authHeader.getSessionId()) : Mono.just(-1);
+        return removed.map(count -> count < 0
+                ? ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Response.<Integer>fail("请先登录"))
+                : ResponseEntity.ok(Response.success("已登出全部会话", count)));
+    }
+
+    private static Mono<ResponseEntity<Response<String>>> loggedIn(Mono<String> sessionId, String failure) {
+        return sessionId
+                .map(id -> ResponseEntity.ok().header("Authorization", id).body(Response.success("登录成功", id)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Response.fail(failure)));
+    }
+
+    @ExceptionHandler(HashingBusyException.class)
+    public ResponseEntity<Response<String>> handleHashingBusy(HashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Response.fail("服务繁忙，请稍后重试"));
+    }
+
+    @ExceptionHandler(AccountLockedException.class)
+    public ResponseEntity<Response<String>> handleAccountLocked(AccountLockedException e) {
+        return ResponseEntity.status(HttpStatus.LOCKED)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString((e.getRetryAfterMillis() + 999) / 1000))
+                .body(Response.fail("登录失败次数过多，账号已被临时锁定，请稍后再试"));
+    }
+
+    @ExceptionHandler(PeerUnavailableException.class)
+    public ResponseEntity<Response<String>> handlePeerUnavailable(PeerUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Response.fail("服务暂不可用，请稍后重试"));
+    }
+
+    // 自定义的会话管理实现不支持该操作；其他来源的 UnsupportedOperationException 仍按服务器错误处理
+    @ExceptionHandler(SessionOperationUnsupportedException.class)
+    public ResponseEntity<Response<String>> handleUnsupported(SessionOperationUnsupportedException e) {
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED)
+                .body(Response.fail("当前会话模式不支持该操作"));
+    }
+}
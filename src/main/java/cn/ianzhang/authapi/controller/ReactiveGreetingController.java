@@ -0,0 +1,40 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.service.ReactiveUserService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+// /api/greeting 的 WebFlux 版本（reactive profile）。会话解析通常在事件循环上完成，
+// 签名会话配合 jdbc 存储时由 ReactiveUserService 切换到阻塞调度器
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/greeting")
+public class ReactiveGreetingController {
+
+    private final ReactiveUserService userService;
+
+    public ReactiveGreetingController(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    @GetMapping("/public")
+    public Mono<ResponseEntity<Response<String>>> publicGreeting() {
+        return Mono.just(ResponseEntity.ok(Response.success("Hello, welcome to our service!")));
+    }
+
+    @GetMapping("/protected")
+    public Mono<ResponseEntity<Response<String>>> protectedGreeting(AuthHeader authHeader) {
+        if (authHeader.getSessionId() == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Response.fail("请先登录")));
+        }
+        return userService.getUserBySessionId(authHeader.getSessionId())
+                .map(user -> ResponseEntity.ok(Response.success("Hello, " + user.getUsername() + "! Welcome back!")))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Response.fail("请先登录")));
+    }
+}
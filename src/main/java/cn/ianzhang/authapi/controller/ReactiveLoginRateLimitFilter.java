@@ -0,0 +1,107 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.security.TokenBucketLimiter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+
+// LoginRateLimitFilter 的 WebFlux 版本，规则相同：先按客户端 IP 取令牌，再聚合请求体（超过 MAX_BODY_BYTES 直接拒绝），
+// 流式取出 username 或 email 字段按账号取令牌，读出的请求体原样交给后续的绑定。
+// 令牌桶只做内存操作，整个过滤器在事件循环上完成，不切换线程
+public class ReactiveLoginRateLimitFilter implements WebFilter {
+    static final Set<String> LOGIN_PATHS = Set.of("/api/auth/login", "/api/auth/login/email");
+
+    private final TokenBucketLimiter byIp;
+    private final TokenBucketLimiter byAccount;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveLoginRateLimitFilter(TokenBucketLimiter byIp, TokenBucketLimiter byAccount,
+                                        ObjectMapper objectMapper) {
+        this.byIp = byIp;
+        this.byAccount = byAccount;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+        if (request.getMethod() != HttpMethod.POST || !LOGIN_PATHS.contains(path)) {
+            return chain.filter(exchange);
+        }
+        InetSocketAddress remote = request.getRemoteAddress();
+        String ip = remote != null && remote.getAddress() != null ? remote.getAddress().getHostAddress() : "unknown";
+        if (!byIp.tryAcquire(ip)) {
+            return tooManyRequests(exchange.getResponse(), byIp.millisUntilAvailable(ip));
+        }
+        String field = path.endsWith("/email") ? "email" : "username";
+        return DataBufferUtils.join(request.getBody(), LoginRateLimitFilter.MAX_BODY_BYTES)
+                .map(buffer -> {
+                    byte[] body = new byte[buffer.readableByteCount()];
+                    buffer.read(body);
+                    DataBufferUtils.release(buffer);
+                    return body;
+                })
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> {
+                    String account = LoginRateLimitFilter.accountKey(objectMapper, body, field);
+                    if (account != null && !byAccount.tryAcquire(account)) {
+                        return tooManyRequests(exchange.getResponse(), byAccount.millisUntilAvailable(account));
+                    }
+                    return chain.filter(exchange.mutate().request(new CachedBodyRequest(request, body)).build());
+                })
+                .onErrorResume(DataBufferLimitException.class,
+                        e -> reject(exchange.getResponse(), HttpStatus.PAYLOAD_TOO_LARGE, "请求体过大"));
+    }
+
+    private Mono<Void> tooManyRequests(ServerHttpResponse response, long waitMillis) {
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (waitMillis + 999) / 1000)));
+        return reject(response, HttpStatus.TOO_MANY_REQUESTS, "登录尝试过于频繁，请稍后再试");
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, HttpStatus status, String message) {
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(Response.fail(message));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    // 以已读出的请求体替换原请求体
+    private static final class CachedBodyRequest extends ServerHttpRequestDecorator {
+        private final byte[] body;
+
+        CachedBodyRequest(ServerHttpRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body)));
+        }
+    }
+}
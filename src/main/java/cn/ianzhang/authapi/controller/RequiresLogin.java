@@ -0,0 +1,13 @@
+package cn.ianzhang.authapi.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// 声明接口需要登录，标在类上时作用于全部接口；由 SessionAuthenticationFilter 在进入 DispatcherServlet 之前检查。
+// 声明了 @RequiresPermission 的接口同样需要登录，不必重复标注
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequiresLogin {
+}
@@ -0,0 +1,15 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.model.Permission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// 声明调用接口所需的权限，需同时具备全部权限；由 PermissionInterceptor 检查
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequiresPermission {
+    Permission[] value();
+}
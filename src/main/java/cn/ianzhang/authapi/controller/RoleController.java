@@ -0,0 +1,44 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.dto.RoleDefinitionRequest;
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/roles")
+public class RoleController {
+
+    private final UserService userService;
+
+    @Autowired
+    public RoleController(UserService userService) {
+        this.userService = userService;
+    }
+
+    // 新增或修改角色；修改只在本节点生效，重启后以配置为准
+    @PutMapping("/{name}")
+    @RequiresPermission(Permission.ROLE_MANAGE)
+    public ResponseEntity<Response<String>> defineRole(@PathVariable String name,
+                                                       @RequestBody RoleDefinitionRequest request) {
+        List<Permission> permissions = request.getPermissions() != null ? request.getPermissions() : List.of();
+        List<String> parents = request.getParents() != null ? request.getParents() : List.of();
+        try {
+            userService.defineRole(name, permissions, parents);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Response.fail("父角色未定义或角色继承成环"));
+        }
+        return ResponseEntity.ok(Response.success("角色已更新", "角色已更新"));
+    }
+}
@@ -0,0 +1,61 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.session.SessionPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.RequestPath;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// 需要登录的接口在进入 DispatcherServlet 之前校验会话：Authorization 头只解析一次，
+// 会话无效时直接返回 401，不做处理器映射、参数解析；有效时把 SessionPrincipal 放进请求属性 PRINCIPAL，
+// 控制器参数和 PermissionInterceptor 直接取用，不再查会话表。不需要登录的路径不经过本过滤器。
+public class SessionAuthenticationFilter extends OncePerRequestFilter {
+    public static final String PRINCIPAL = "cn.ianzhang.authapi.controller.SessionAuthenticationFilter.PRINCIPAL";
+
+    private final UserService userService;
+    private final ProtectedPaths protectedPaths;
+    private final ObjectMapper objectMapper;
+
+    public SessionAuthenticationFilter(UserService userService, ProtectedPaths protectedPaths,
+                                       ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.protectedPaths = protectedPaths;
+        this.objectMapper = objectMapper;
+    }
+
+    // 与 DispatcherServlet 使用同一份解析结果，按解码并去掉 ;参数 后的应用内路径匹配
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        RequestPath path = ServletRequestPathUtils.hasParsedRequestPath(request)
+                ? ServletRequestPathUtils.getParsedRequestPath(request)
+                : ServletRequestPathUtils.parseAndCache(request);
+        return !protectedPaths.matches(request.getMethod(), path.pathWithinApplication());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String sessionId = AuthHeader.credential(request);
+        SessionPrincipal principal = sessionId != null ? userService.resolvePrincipal(sessionId) : null;
+        if (principal == null) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            objectMapper.writeValue(response.getOutputStream(), Response.fail("请先登录"));
+            return;
+        }
+        request.setAttribute(PRINCIPAL, principal);
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,59 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.Response;
+import cn.ianzhang.authapi.dto.RoleAssignmentRequest;
+import cn.ianzhang.authapi.dto.UserSearchPage;
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// 本控制器的接口都声明了所需权限，会话校验由 SessionAuthenticationFilter、鉴权由 PermissionInterceptor 完成
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/users")
+public class UserController {
+
+    private final UserService userService;
+
+    @Autowired
+    public UserController(UserService userService) {
+        this.userService = userService;
+    }
+
+    // 按前缀搜索用户名，按字典序分页；取下一页时把上一页返回的 next 作为 after 传入
+    @GetMapping("/search")
+    @RequiresPermission(Permission.USER_SEARCH)
+    public ResponseEntity<Response<UserSearchPage>> search(@RequestParam(defaultValue = "") String prefix,
+                                                           @RequestParam(required = false) String after,
+                                                           @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(Response.success(userService.searchUsernames(prefix, after, limit)));
+    }
+
+    // 替换用户的角色，角色为空集合时恢复为默认角色
+    @PutMapping("/{username}/roles")
+    @RequiresPermission(Permission.ROLE_MANAGE)
+    public ResponseEntity<Response<String>> assignRoles(@PathVariable String username,
+                                                        @RequestBody RoleAssignmentRequest request) {
+        if (request.getRoles() == null) {
+            return ResponseEntity.badRequest().body(Response.fail("角色不能为空"));
+        }
+        try {
+            if (!userService.assignRoles(username, request.getRoles())) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Response.fail("用户不存在"));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Response.fail("未定义的角色或角色列表过长"));
+        }
+        return ResponseEntity.ok(Response.success("角色已更新", "角色已更新"));
+    }
+}
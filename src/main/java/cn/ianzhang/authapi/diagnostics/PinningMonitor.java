@@ -0,0 +1,116 @@
+package cn.ianzhang.authapi.diagnostics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// 虚拟线程钉住（pinning）检测：订阅 JFR 的 jdk.VirtualThreadPinned 事件，
+// 虚拟线程在 synchronized 块或本地方法中阻塞、无法让出载体线程超过 threshold 时 JVM 记录该事件。
+// 事件按调用栈中第一个本项目的栈帧（发起阻塞调用的位置）归类，持有监视器的 synchronized 块在其调用栈上；
+// 每个位置首次出现时连同完整调用栈告警一次，report 给出按次数排序的汇总，关闭时写入日志。
+public class PinningMonitor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PinningMonitor.class);
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "cn.ianzhang.authapi.";
+
+    private final RecordingStream stream;
+    private final ConcurrentHashMap<String, Site> sites = new ConcurrentHashMap<>();
+
+    public PinningMonitor(Duration threshold) {
+        this.stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::record);
+        stream.startAsync();
+    }
+
+    // 按钉住次数从多到少排列的各代码位置
+    public List<PinnedSite> report() {
+        List<PinnedSite> report = new ArrayList<>(sites.size());
+        sites.forEach((location, site) -> report.add(new PinnedSite(location, site.count.sum(),
+                Duration.ofNanos(site.totalNanos.sum()), Duration.ofNanos(site.maxNanos.get()), site.stackTrace)));
+        report.sort(Comparator.comparingLong(PinnedSite::count).reversed());
+        return report;
+    }
+
+    private void record(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String location = locate(frames);
+        long nanos = event.getDuration().toNanos();
+        Site site = sites.get(location);
+        if (site == null) {
+            Site created = new Site(format(frames));
+            site = sites.putIfAbsent(location, created);
+            if (site == null) {
+                site = created;
+                log.warn("Virtual thread pinned its carrier for {} ms at {}\n{}",
+                        nanos / 1_000_000, location, created.stackTrace);
+            }
+        }
+        site.count.increment();
+        site.totalNanos.add(nanos);
+        site.maxNanos.accumulate(nanos);
+    }
+
+    // 第一个本项目的栈帧；栈中没有本项目代码时取栈顶
+    private static String locate(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE)) {
+                return describe(frame);
+            }
+        }
+        return frames.isEmpty() ? "<unknown>" : describe(frames.get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static String format(List<RecordedFrame> frames) {
+        StringBuilder builder = new StringBuilder();
+        for (RecordedFrame frame : frames) {
+            builder.append("\tat ").append(describe(frame)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+        List<PinnedSite> report = report();
+        if (!report.isEmpty()) {
+            StringBuilder builder = new StringBuilder("Virtual thread pinning report:");
+            for (PinnedSite site : report) {
+                builder.append("\n  ").append(site.location()).append(": ").append(site.count())
+                        .append(" times, total ").append(site.total().toMillis())
+                        .append(" ms, max ").append(site.max().toMillis()).append(" ms");
+            }
+            log.warn(builder.toString());
+        }
+    }
+
+    public record PinnedSite(String location, long count, Duration total, Duration max, String stackTrace) {
+    }
+
+    private static final class Site {
+        final String stackTrace;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Site(String stackTrace) {
+            this.stackTrace = stackTrace;
+        }
+    }
+}
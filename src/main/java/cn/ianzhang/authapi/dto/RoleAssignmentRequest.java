@@ -0,0 +1,15 @@
+package cn.ianzhang.authapi.dto;
+
+import java.util.Set;
+
+public class RoleAssignmentRequest {
+    private Set<String> roles;
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(Set<String> roles) {
+        this.roles = roles;
+    }
+}
@@ -0,0 +1,26 @@
+package cn.ianzhang.authapi.dto;
+
+import cn.ianzhang.authapi.model.Permission;
+
+import java.util.List;
+
+public class RoleDefinitionRequest {
+    private List<Permission> permissions;
+    private List<String> parents;
+
+    public List<Permission> getPermissions() {
+        return permissions;
+    }
+
+    public void setPermissions(List<Permission> permissions) {
+        this.permissions = permissions;
+    }
+
+    public List<String> getParents() {
+        return parents;
+    }
+
+    public void setParents(List<String> parents) {
+        this.parents = parents;
+    }
+}
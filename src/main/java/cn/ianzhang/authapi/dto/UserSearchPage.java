@@ -0,0 +1,33 @@
+package cn.ianzhang.authapi.dto;
+
+import java.util.List;
+
+// 用户名搜索的一页结果；next 为取下一页时传入的游标，没有更多结果时为 null
+public class UserSearchPage {
+    private List<String> usernames;
+    private String next;
+
+    public UserSearchPage() {
+    }
+
+    public UserSearchPage(List<String> usernames, String next) {
+        this.usernames = usernames;
+        this.next = next;
+    }
+
+    public List<String> getUsernames() {
+        return usernames;
+    }
+
+    public void setUsernames(List<String> usernames) {
+        this.usernames = usernames;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
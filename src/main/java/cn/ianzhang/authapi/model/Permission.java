@@ -0,0 +1,28 @@
+package cn.ianzhang.authapi.model;
+
+import java.util.Arrays;
+
+// 权限点。每个权限对应位集中的一位（按声明顺序），最多 64 个；
+// 位集只在进程内计算和使用，不持久化，调整声明顺序不影响已有数据
+public enum Permission {
+    // 按前缀搜索用户名
+    USER_SEARCH,
+    // 为用户分配角色
+    ROLE_MANAGE;
+
+    public long bit() {
+        return 1L << ordinal();
+    }
+
+    public static long mask(Iterable<Permission> permissions) {
+        long mask = 0;
+        for (Permission permission : permissions) {
+            mask |= permission.bit();
+        }
+        return mask;
+    }
+
+    public static long mask(Permission... permissions) {
+        return mask(Arrays.asList(permissions));
+    }
+}
@@ -1,21 +1,69 @@
 package cn.ianzhang.authapi.model;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 
 public class User {
+    // 尚未分配用户ID
+    public static final int NO_ID = -1;
+    // 用户名按 UTF-8 编码的最大字节数：签名会话令牌只用一个字节记录用户名长度
+    public static final int MAX_USERNAME_BYTES = 255;
+    // 邮箱、密码散列和角色列表（逗号分隔的角色名）的最大字符数，即 jdbc 用户表的列宽。
+    // jdbc 存储是写后批量插入，超长的字段要到写库时才失败，此时注册已经返回成功，用户在重启后消失，因此在存储之前拒绝
+    public static final int MAX_EMAIL_LENGTH = 255;
+    public static final int MAX_PASSWORD_LENGTH = 255;
+    public static final int MAX_ROLES_LENGTH = 1024;
+
+    private int id = NO_ID;
     private String username;
     private String password;
     private String email;
+    // 为空时按默认角色处理
+    private Set<Role> roles = Set.of();
+    // 由角色解析出的权限位集连同解析时角色定义的版本，作为一个不可变对象经一次 volatile 写发布，读到的版本与位集总是配对的；
+    // 在用户登录或注册时计算，角色定义变化后按需重算；不持久化
+    private volatile ResolvedPermissions resolvedPermissions = ResolvedPermissions.UNRESOLVED;
 
     public User() {
     }
 
+    // 用户名按 UTF-8 编码是否超出 MAX_USERNAME_BYTES；注册、导入和快照恢复都据此拒绝
+    public static boolean isUsernameTooLong(String username) {
+        return username != null && username.length() * 3 > MAX_USERNAME_BYTES
+                && username.getBytes(StandardCharsets.UTF_8).length > MAX_USERNAME_BYTES;
+    }
+
+    // 邮箱还以小写形式存入 email_key 列，个别字符转小写后会变长，两种形式都要放得下
+    public static boolean isEmailTooLong(String email) {
+        return email != null && (email.length() > MAX_EMAIL_LENGTH
+                || email.toLowerCase(Locale.ROOT).length() > MAX_EMAIL_LENGTH);
+    }
+
+    // 角色列表以逗号分隔保存时的字符数
+    public static int rolesLength(Set<Role> roles) {
+        int length = Math.max(0, roles.size() - 1);
+        for (Role role : roles) {
+            length += role.getName().length();
+        }
+        return length;
+    }
+
     public User(String username, String password, String email) {
         this.username = username;
         this.password = password;
         this.email = email;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -40,6 +88,26 @@ public class User {
         this.email = email;
     }
 
+    public Set<Role> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(Set<Role> roles) {
+        this.roles = roles != null ? roles : Set.of();
+    }
+
+    public long getPermissions() {
+        return resolvedPermissions.bits();
+    }
+
+    public ResolvedPermissions getResolvedPermissions() {
+        return resolvedPermissions;
+    }
+
+    public void setResolvedPermissions(ResolvedPermissions resolvedPermissions) {
+        this.resolvedPermissions = resolvedPermissions;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -61,4 +129,10 @@ public class User {
                 ", email='" + email + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+
+    // version 为解析时角色定义快照的版本，bits 为解析出的权限位集
+    public record ResolvedPermissions(int version, long bits) {
+        // 尚未解析过权限；快照版本从 1 开始
+        public static final ResolvedPermissions UNRESOLVED = new ResolvedPermissions(0, 0);
+    }
+}
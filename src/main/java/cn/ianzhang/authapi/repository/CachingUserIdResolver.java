@@ -0,0 +1,99 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.BoundedEvictor;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+// 按用户名换算进程内用户ID的有界缓存，供 signed 模式每次解析令牌时使用：
+// 命中时只做一次哈希表查找和一次ID表读取，不再每个请求都经 UserRepository（jdbc 或跨节点）查找用户。
+// 命中条件：条目未过期，且ID表中该ID仍然有效；ID被释放（例如近端缓存淘汰该用户）后条目随之失效。
+// 用户改动时ID不变，缓存里只有ID，解析出的用户始终是ID表中的当前对象；
+// 其他节点上的改动在条目过期后重新查询存储时取回，最多延迟 ttl 加上近端缓存的 nearCacheTtl。
+// 用户不存在的结果不缓存，刚在其他节点注册的用户不会因负缓存而被拒绝。
+public class CachingUserIdResolver implements ToIntFunction<String> {
+    private final UserRepository userRepository;
+    private final UserIdTable userIds;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Clock clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final BoundedEvictor<String, Entry> evictor;
+
+    // maxEntries 小于等于 0 表示禁用缓存，每次都查询存储
+    public CachingUserIdResolver(UserRepository userRepository, UserIdTable userIds, Duration ttl, int maxEntries) {
+        this(userRepository, userIds, ttl, maxEntries, Clock.systemUTC());
+    }
+
+    CachingUserIdResolver(UserRepository userRepository, UserIdTable userIds, Duration ttl, int maxEntries,
+                          Clock clock) {
+        this.userRepository = userRepository;
+        this.userIds = userIds;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.evictor = new BoundedEvictor<>(entries, maxEntries);
+    }
+
+    // 返回用户当前的ID，用户已不存在时返回 User.NO_ID
+    @Override
+    public int applyAsInt(String username) {
+        if (username == null) {
+            return User.NO_ID;
+        }
+        long now = clock.millis();
+        Entry entry = entries.get(username);
+        if (entry != null) {
+            if (entry.expiresAt > now && userIds.get(entry.id) != null) {
+                hits.increment();
+                return entry.id;
+            }
+            entries.remove(username, entry);
+        }
+        misses.increment();
+        User user = userRepository.findByUsername(username);
+        if (user == null) {
+            return User.NO_ID;
+        }
+        int id = userIds.intern(user);
+        if (maxEntries > 0) {
+            entries.put(username, new Entry(id, now + ttlMillis));
+            if (entries.size() > maxEntries) {
+                evict(now);
+            }
+        }
+        return id;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // 超出容量时增量淘汰：优先清理过期或ID已失效的条目，仍超出则淘汰扫描到的其他条目
+    private void evict(long now) {
+        evictor.evict((username, entry) -> entry.expiresAt <= now || userIds.get(entry.id) == null,
+                (username, entry) -> true, (username, entry) -> evictions.increment());
+    }
+
+    private record Entry(int id, long expiresAt) {
+    }
+}
@@ -0,0 +1,69 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 邮箱二级索引：规范化后的邮箱（去首尾空白、按 Locale.ROOT 转小写）到用户的映射，按邮箱查找和判重都是一次哈希查找。
+// 每个邮箱最多属于一个用户：claim 以 putIfAbsent 原子占用，失败的注册通过 release 归还。
+// 索引只持有用户对象的引用，存储更新用户时由 replace 同步；删除用户时调用 release。
+public class EmailIndex {
+    private final ConcurrentHashMap<String, User> byEmail = new ConcurrentHashMap<>();
+
+    public static String normalize(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    public User get(String email) {
+        String key = normalize(email);
+        return key != null ? byEmail.get(key) : null;
+    }
+
+    // 为用户占用其邮箱，邮箱已被占用时返回 false；没有邮箱的用户不入索引
+    public boolean claim(User user) {
+        String key = normalize(user.getEmail());
+        return key == null || byEmail.putIfAbsent(key, user) == null;
+    }
+
+    // 直接登记用户的邮箱，用于从已有数据回填索引；邮箱已被其他用户占用时保留原映射
+    public void index(User user) {
+        String key = normalize(user.getEmail());
+        if (key != null) {
+            byEmail.putIfAbsent(key, user);
+        }
+    }
+
+    // 释放用户占用的邮箱；只有映射仍指向该用户时才移除
+    public void release(User user) {
+        String key = normalize(user.getEmail());
+        if (key != null) {
+            byEmail.computeIfPresent(key, (k, owner) -> sameUser(owner, user) ? null : owner);
+        }
+    }
+
+    // 存储中的用户被替换（例如更新邮箱或密码散列）后同步索引；
+    // 新邮箱已被其他用户占用时不抢占，该用户暂时无法按新邮箱查到
+    public void replace(User previous, User current) {
+        if (previous != null && !sameEmail(previous, current)) {
+            release(previous);
+        }
+        String key = normalize(current.getEmail());
+        if (key != null) {
+            byEmail.compute(key, (k, owner) -> owner == null || sameUser(owner, current) ? current : owner);
+        }
+    }
+
+    public int size() {
+        return byEmail.size();
+    }
+
+    private static boolean sameUser(User a, User b) {
+        return a.getUsername().equals(b.getUsername());
+    }
+
+    private static boolean sameEmail(User a, User b) {
+        String key = normalize(a.getEmail());
+        return key != null && key.equals(normalize(b.getEmail()));
+    }
+}
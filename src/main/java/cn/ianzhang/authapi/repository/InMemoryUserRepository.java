@@ -0,0 +1,78 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class InMemoryUserRepository implements UserRepository {
+    private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+    private final EmailIndex emails = new EmailIndex();
+    private final UsernamePrefixIndex prefixes = new UsernamePrefixIndex();
+
+    @Override
+    public User findByUsername(String username) {
+        return username != null ? users.get(username) : null;
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return username != null && users.containsKey(username);
+    }
+
+    // 索引中的映射可能来自一次尚未完成（或随后失败）的注册，只返回存储中邮箱仍一致的用户
+    @Override
+    public User findByEmail(String email) {
+        User indexed = emails.get(email);
+        if (indexed == null) {
+            return null;
+        }
+        User current = users.get(indexed.getUsername());
+        return current != null && EmailIndex.normalize(email).equals(EmailIndex.normalize(current.getEmail()))
+                ? current : null;
+    }
+
+    @Override
+    public List<String> findUsernamesByPrefix(String prefix, String after, int limit) {
+        return prefixes.search(prefix, after, limit);
+    }
+
+    @Override
+    public void save(User user) {
+        put(user);
+        prefixes.add(user.getUsername());
+    }
+
+    // 先占用邮箱再占用用户名，用户名已被占用时归还邮箱
+    @Override
+    public boolean saveIfAbsent(User user) {
+        if (!emails.claim(user)) {
+            return false;
+        }
+        if (users.putIfAbsent(user.getUsername(), user) != null) {
+            emails.release(user);
+            return false;
+        }
+        prefixes.add(user.getUsername());
+        return true;
+    }
+
+    @Override
+    public void update(User user) {
+        put(user);
+    }
+
+    // 在用户名所在的桶锁内同步邮箱索引，同一用户的并发更新不会让索引与存储错位
+    private void put(User user) {
+        users.compute(user.getUsername(), (username, previous) -> {
+            emails.replace(previous, user);
+            return user;
+        });
+    }
+
+    @Override
+    public void forEach(Consumer<User> action) {
+        users.values().forEach(action);
+    }
+}
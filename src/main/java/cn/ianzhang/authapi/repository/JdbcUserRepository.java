@@ -0,0 +1,518 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// 基于 JDBC 的用户存储，采用写后（write-behind）批量写入：
+// save/update 先写入内存索引并进入待写队列，由后台线程每隔 flushInterval 或攒满 batchSize 条时
+// 以 batchUpdate 一次性写入数据库，注册吞吐不再受限于每个用户一次数据库往返。
+// 读取先查内存索引，未命中再查数据库并回填索引。
+// 启动时把已有用户名和规范化邮箱全部载入布隆过滤器。声明为唯一写入方（soleWriter）时，
+// 过滤器判定不存在的用户名或邮箱（注册时的常见情况）不再查询数据库，启动后由其他进程插入的行因此不可见；
+// 只有本实例是该表中这些用户名的唯一写入方（单节点部署，或多节点时按用户名分片）才可开启。
+// 默认不开启，过滤器未命中时仍查询数据库。
+// 按邮箱查找走 email_key 列上的索引，命中的用户回填内存索引和邮箱索引。
+// 启动时同时把全部用户名载入内存中的前缀索引，前缀搜索不访问数据库。
+// 批量写入失败时逐行重写，单行的错误不影响同批的其他用户；仍失败的行按 flushInterval 的指数退避重新排队，
+// 重试 maxAttempts 次仍失败时计入 getFailedWrites，经 JMX（UserStoreStatsMXBean）报告，而不只是写日志。
+// 逐行插入撞上已有的行时，只有该行是本实例写入的（散列带随机盐，密码散列相同即为同一次写入）或本实例是唯一写入方，
+// 才改为更新；否则该行属于其他实例，不覆盖，计入 getConflictingWrites 和 getFailedWrites，并从内存索引中移除该用户。
+public class JdbcUserRepository implements UserRepository, UserStoreStatsMXBean, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(JdbcUserRepository.class);
+
+    // 列宽与 User 中的长度上限一致，UserService 在存储之前按这些上限拒绝超长的字段
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS users (" +
+            "username VARCHAR(255) PRIMARY KEY, " +
+            "password VARCHAR(" + User.MAX_PASSWORD_LENGTH + ") NOT NULL, " +
+            "email VARCHAR(" + User.MAX_EMAIL_LENGTH + ") NOT NULL, " +
+            "email_key VARCHAR(" + User.MAX_EMAIL_LENGTH + "), " +
+            "roles VARCHAR(" + User.MAX_ROLES_LENGTH + "))";
+    // 兼容没有 email_key 列的旧表：补列并回填
+    private static final String ADD_EMAIL_KEY_SQL = "ALTER TABLE users ADD COLUMN IF NOT EXISTS email_key VARCHAR(255)";
+    private static final String BACKFILL_EMAIL_KEY_SQL = "UPDATE users SET email_key = LOWER(TRIM(email)) WHERE email_key IS NULL";
+    // 角色名以逗号分隔保存，为 NULL 时按默认角色处理
+    private static final String ADD_ROLES_SQL = "ALTER TABLE users ADD COLUMN IF NOT EXISTS roles VARCHAR(1024)";
+    private static final String CREATE_EMAIL_INDEX_SQL = "CREATE INDEX IF NOT EXISTS users_email_key ON users (email_key)";
+    private static final String SELECT_SQL = "SELECT username, password, email, roles FROM users WHERE username = ?";
+    private static final String SELECT_BY_EMAIL_SQL = "SELECT username, password, email, roles FROM users WHERE email_key = ?";
+    private static final String SELECT_KEYS_SQL = "SELECT username, email_key FROM users";
+    private static final String SELECT_ALL_SQL = "SELECT username, password, email, roles FROM users";
+    private static final String INSERT_SQL = "INSERT INTO users (username, password, email, email_key, roles) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE users SET password = ?, email = ?, email_key = ?, roles = ? WHERE username = ?";
+
+    private static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> mapUser(rs);
+    public static final int DEFAULT_MAX_WRITE_ATTEMPTS = 5;
+    // 重试间隔的上限
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 60_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final Map<String, User> index = new ConcurrentHashMap<>();
+    private final UsernameBloomFilter usernames;
+    // 同样的布隆过滤器用于规范化后的邮箱
+    private final UsernameBloomFilter emailKeys;
+    private final EmailIndex emails = new EmailIndex();
+    private final UsernamePrefixIndex prefixes = new UsernamePrefixIndex();
+    private final Queue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // 导出在锁内记下尚未写入的用户；用 ReentrantLock 而不是 synchronized，虚拟线程等待 JDBC 时不钉住载体线程
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final int maxWriteAttempts;
+    private final long retryBackoffMillis;
+    private final boolean soleWriter;
+    // 写入失败、等待退避后重试的记录
+    private final Queue<PendingWrite> retries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retryCount = new AtomicInteger();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder conflictingWrites = new LongAdder();
+    private volatile String lastWriteError;
+
+    public JdbcUserRepository(JdbcTemplate jdbcTemplate, int batchSize, Duration flushInterval, int expectedUsers) {
+        this(jdbcTemplate, batchSize, flushInterval, expectedUsers, DEFAULT_MAX_WRITE_ATTEMPTS);
+    }
+
+    public JdbcUserRepository(JdbcTemplate jdbcTemplate, int batchSize, Duration flushInterval, int expectedUsers,
+                              int maxWriteAttempts) {
+        this(jdbcTemplate, batchSize, flushInterval, expectedUsers, maxWriteAttempts, false);
+    }
+
+    public JdbcUserRepository(JdbcTemplate jdbcTemplate, int batchSize, Duration flushInterval, int expectedUsers,
+                              int maxWriteAttempts, boolean soleWriter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.maxWriteAttempts = Math.max(1, maxWriteAttempts);
+        this.retryBackoffMillis = Math.max(1, flushInterval.toMillis());
+        this.soleWriter = soleWriter;
+        this.usernames = new UsernameBloomFilter(expectedUsers);
+        this.emailKeys = new UsernameBloomFilter(expectedUsers);
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        jdbcTemplate.execute(ADD_EMAIL_KEY_SQL);
+        jdbcTemplate.execute(ADD_ROLES_SQL);
+        jdbcTemplate.update(BACKFILL_EMAIL_KEY_SQL);
+        jdbcTemplate.execute(CREATE_EMAIL_INDEX_SQL);
+        AtomicInteger loaded = new AtomicInteger();
+        jdbcTemplate.query(SELECT_KEYS_SQL, (RowCallbackHandler) rs -> {
+            String username = rs.getString(1);
+            usernames.add(username);
+            prefixes.add(username);
+            String emailKey = rs.getString(2);
+            if (emailKey != null) {
+                emailKeys.add(emailKey);
+            }
+            loaded.incrementAndGet();
+        });
+        log.info("Loaded {} usernames into the registration filter", loaded.get());
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        this.flusher.scheduleWithFixedDelay(this::flushSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        User user = index.get(username);
+        if (user != null) {
+            return user;
+        }
+        if (soleWriter && !usernames.mightContain(username)) {
+            return null;
+        }
+        List<User> rows = jdbcTemplate.query(SELECT_SQL, USER_ROW_MAPPER, username);
+        return rows.isEmpty() ? null : backfill(rows.get(0));
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return findByUsername(username) != null;
+    }
+
+    // 先查邮箱索引，未命中时按 email_key 查询数据库（唯一写入方且过滤器判定不存在时跳过）；
+    // 只返回内存索引中邮箱仍一致的用户，尚未完成或已失败的注册不可见
+    @Override
+    public User findByEmail(String email) {
+        String emailKey = EmailIndex.normalize(email);
+        if (emailKey == null) {
+            return null;
+        }
+        User user = emails.get(emailKey);
+        if (user == null) {
+            if (soleWriter && !emailKeys.mightContain(emailKey)) {
+                return null;
+            }
+            List<User> rows = jdbcTemplate.query(SELECT_BY_EMAIL_SQL, USER_ROW_MAPPER, emailKey);
+            if (rows.isEmpty()) {
+                return null;
+            }
+            user = backfill(rows.get(0));
+        }
+        User current = index.get(user.getUsername());
+        return current != null && emailKey.equals(EmailIndex.normalize(current.getEmail())) ? current : null;
+    }
+
+    @Override
+    public List<String> findUsernamesByPrefix(String prefix, String after, int limit) {
+        return prefixes.search(prefix, after, limit);
+    }
+
+    @Override
+    public void save(User user) {
+        put(user);
+        usernames.add(user.getUsername());
+        prefixes.add(user.getUsername());
+        addEmailKey(user);
+        enqueue(new PendingWrite(user, true, 0, 0));
+    }
+
+    // 以邮箱索引和内存索引的 putIfAbsent 作为唯一性判定点；
+    // 内存索引未命中时先从数据库回填索引，避免覆盖已有用户或重复占用已有邮箱
+    @Override
+    public boolean saveIfAbsent(User user) {
+        String username = user.getUsername();
+        if (findByUsername(username) != null || findByEmail(user.getEmail()) != null || !emails.claim(user)) {
+            return false;
+        }
+        if (index.putIfAbsent(username, user) != null) {
+            emails.release(user);
+            return false;
+        }
+        usernames.add(username);
+        prefixes.add(username);
+        addEmailKey(user);
+        enqueue(new PendingWrite(user, true, 0, 0));
+        return true;
+    }
+
+    @Override
+    public void update(User user) {
+        put(user);
+        addEmailKey(user);
+        enqueue(new PendingWrite(user, false, 0, 0));
+    }
+
+    // 不在调用线程上写出待写队列：先在写出锁内记下尚未写入数据库的用户名（待写和等待重试的记录），
+    // 此时正在写的批次已经提交，任何用户要么已在库中、要么在这份记录里；
+    // 再以单条查询的游标逐行读取整张表，每次只取 batchSize 行，语句在数据库的一致读视图上执行。
+    // 记录中的用户以内存索引中的最新对象代替库中的行，尚未插入的用户在最后补上，每个用户恰好出现一次；遍历本身不回填索引
+    @Override
+    public void forEach(Consumer<User> action) {
+        Map<String, User> unwritten = new HashMap<>();
+        flushLock.lock();
+        try {
+            for (PendingWrite write : retries) {
+                unwritten.put(write.user().getUsername(), write.user());
+            }
+            for (PendingWrite write : pending) {
+                unwritten.put(write.user().getUsername(), write.user());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        unwritten.replaceAll((username, user) -> {
+            User latest = index.get(username);
+            return latest != null ? latest : user;
+        });
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ALL_SQL);
+            statement.setFetchSize(batchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            User user = unwritten.isEmpty() ? null : unwritten.remove(rs.getString("username"));
+            action.accept(user != null ? user : mapUser(rs));
+        });
+        unwritten.values().forEach(action);
+    }
+
+    private static User mapUser(ResultSet rs) throws SQLException {
+        User user = new User(rs.getString("username"), rs.getString("password"), rs.getString("email"));
+        String roles = rs.getString("roles");
+        if (roles != null && !roles.isEmpty()) {
+            Set<Role> parsed = new HashSet<>();
+            for (String name : roles.split(",")) {
+                parsed.add(new Role(name));
+            }
+            user.setRoles(Set.copyOf(parsed));
+        }
+        return user;
+    }
+
+    private static String joinRoles(User user) {
+        if (user.getRoles().isEmpty()) {
+            return null;
+        }
+        StringJoiner joined = new StringJoiner(",");
+        for (Role role : user.getRoles()) {
+            joined.add(role.getName());
+        }
+        return joined.toString();
+    }
+
+    // 在用户名所在的桶锁内同步邮箱索引
+    private void put(User user) {
+        index.compute(user.getUsername(), (username, previous) -> {
+            emails.replace(previous, user);
+            return user;
+        });
+    }
+
+    // 把从数据库读到的用户回填内存索引，并发回填时以先写入索引的对象为准
+    private User backfill(User loaded) {
+        User existing = index.putIfAbsent(loaded.getUsername(), loaded);
+        if (existing != null) {
+            return existing;
+        }
+        emails.index(loaded);
+        return loaded;
+    }
+
+    private void addEmailKey(User user) {
+        String emailKey = EmailIndex.normalize(user.getEmail());
+        if (emailKey != null) {
+            emailKeys.add(emailKey);
+        }
+    }
+
+    // 待写入数据库的记录数，不含等待重试的记录
+    @Override
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    // 写入失败、等待重试的记录数
+    @Override
+    public int getRetryCount() {
+        return retryCount.get();
+    }
+
+    // 重试 maxWriteAttempts 次后仍未能写入的记录数；这些用户只存在于内存中，重启后丢失
+    @Override
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    // 因其他实例已写入同名用户而放弃的插入数，同时计入 getFailedWrites
+    @Override
+    public long getConflictingWrites() {
+        return conflictingWrites.sum();
+    }
+
+    @Override
+    public String getLastWriteError() {
+        return lastWriteError;
+    }
+
+    // 把队列中的所有记录写入数据库。在写出锁内判断队列是否为空：后台线程可能已取出一批正在写，
+    // 只有等它释放锁，返回时此前入队的记录才都已落库
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (!pending.isEmpty()) {
+                writeBatch();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void enqueue(PendingWrite write) {
+        pending.offer(write);
+        // 攒满一批时立即触发写入，不必等到下一个定时周期
+        if (pendingCount.incrementAndGet() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushSafely);
+        }
+    }
+
+    private void writeBatch() {
+        List<PendingWrite> inserts = new ArrayList<>();
+        List<PendingWrite> updates = new ArrayList<>();
+        PendingWrite write;
+        while (inserts.size() + updates.size() < batchSize && (write = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            (write.insert() ? inserts : updates).add(write);
+        }
+        // 同一批中插入先于更新执行，保证同一用户的插入与后续更新顺序不变
+        write(inserts, INSERT_SQL);
+        write(updates, UPDATE_SQL);
+    }
+
+    // 参数在写入时从 User 取值，重试的记录总是写入用户的最新状态
+    private void write(List<PendingWrite> writes, String sql) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) {
+            args.add(write.insert() ? insertArgs(write.user()) : updateArgs(write.user()));
+        }
+        try {
+            jdbcTemplate.batchUpdate(sql, args);
+            return;
+        } catch (DataAccessException e) {
+            log.warn("Failed to write a batch of {} users, retrying row by row", writes.size(), e);
+        }
+        for (PendingWrite write : writes) {
+            try {
+                writeRow(write);
+            } catch (DataAccessException e) {
+                retryLater(write, e);
+            }
+        }
+    }
+
+    private void writeRow(PendingWrite write) {
+        User user = write.user();
+        if (!write.insert()) {
+            jdbcTemplate.update(UPDATE_SQL, updateArgs(user));
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, insertArgs(user));
+        } catch (DuplicateKeyException e) {
+            // 批量插入在中途失败时，该行可能已由本批写入，此时改为更新；其他实例写入的行不能用队列中的副本覆盖
+            if (soleWriter || writtenByThisInstance(user)) {
+                jdbcTemplate.update(UPDATE_SQL, updateArgs(user));
+            } else {
+                conflict(user, e);
+            }
+        }
+    }
+
+    private boolean writtenByThisInstance(User user) {
+        List<User> rows = jdbcTemplate.query(SELECT_SQL, USER_ROW_MAPPER, user.getUsername());
+        return !rows.isEmpty() && Objects.equals(rows.get(0).getPassword(), user.getPassword());
+    }
+
+    // 用户名已被其他实例占用：本实例的注册作废，之后的查找从数据库读到对方的用户
+    private void conflict(User user, DuplicateKeyException e) {
+        conflictingWrites.increment();
+        failedWrites.increment();
+        lastWriteError = e.getMessage();
+        if (index.remove(user.getUsername(), user)) {
+            emails.release(user);
+        }
+        log.error("User {} was already written by another instance, dropping the local registration",
+                user.getUsername(), e);
+    }
+
+    private void retryLater(PendingWrite write, DataAccessException e) {
+        int attempts = write.attempts() + 1;
+        lastWriteError = e.getMessage();
+        if (attempts >= maxWriteAttempts) {
+            failedWrites.increment();
+            log.error("Giving up writing user {} after {} attempts", write.user().getUsername(), attempts, e);
+            return;
+        }
+        long backoff = Math.min(MAX_RETRY_BACKOFF_MILLIS, retryBackoffMillis << Math.min(attempts, 20));
+        log.warn("Failed to write user {} (attempt {}), retrying in {} ms",
+                write.user().getUsername(), attempts, backoff, e);
+        retries.offer(new PendingWrite(write.user(), write.insert(), attempts, System.currentTimeMillis() + backoff));
+        retryCount.incrementAndGet();
+    }
+
+    // 把到期的重试记录移回待写队列；force 时不论是否到期
+    // 在写出锁内移动，导出不会看到记录暂时不在任何队列中
+    void requeueRetries(boolean force) {
+        flushLock.lock();
+        try {
+            moveRetries(force);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void moveRetries(boolean force) {
+        long now = System.currentTimeMillis();
+        int count = retryCount.get();
+        for (int i = 0; i < count; i++) {
+            PendingWrite write = retries.poll();
+            if (write == null) {
+                break;
+            }
+            retryCount.decrementAndGet();
+            if (force || write.notBefore() <= now) {
+                pending.offer(write);
+                pendingCount.incrementAndGet();
+            } else {
+                retries.offer(write);
+                retryCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static Object[] insertArgs(User user) {
+        return new Object[]{user.getUsername(), user.getPassword(), user.getEmail(),
+                EmailIndex.normalize(user.getEmail()), joinRoles(user)};
+    }
+
+    private static Object[] updateArgs(User user) {
+        return new Object[]{user.getPassword(), user.getEmail(), EmailIndex.normalize(user.getEmail()),
+                joinRoles(user), user.getUsername()};
+    }
+
+    private void flushSafely() {
+        flushRequested.set(false);
+        try {
+            requeueRetries(false);
+            flush();
+        } catch (RuntimeException e) {
+            log.error("User write-behind flush failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 关闭前对等待重试的记录再尝试一次
+        requeueRetries(true);
+        flush();
+        if (retryCount.get() > 0) {
+            log.error("{} users could not be written before shutdown", retryCount.get());
+        }
+    }
+
+    private record PendingWrite(User user, boolean insert, int attempts, long notBefore) {
+    }
+}
@@ -0,0 +1,315 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.cluster.ConsistentHashRing;
+import cn.ianzhang.authapi.cluster.PeerUnavailableException;
+import cn.ianzhang.authapi.cluster.UserPeer;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.BoundedEvictor;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+// 分片用户存储：按一致性哈希把每个用户名路由到归属节点。
+// 本节点归属的用户直接读写本地存储，其他用户经 UserPeer 转发给归属节点，
+// 读取和写入的结果在近端缓存中保留 nearCacheTtl，热点用户的登录不必每次跨节点。
+// 近端缓存只缓存存在的用户：刚在其他节点注册的用户不会因负缓存而无法登录；
+// 归属节点上的改动（例如密码散列升级）最多延迟 nearCacheTtl 被其他节点看到。
+// 归属节点不可达时抛出 PeerUnavailableException。
+// 从近端缓存淘汰的用户名交给 evictionListener，由它回收这些用户在进程内占用的资源（例如用户ID）。
+// 邮箱不是分片键：按邮箱查找先查本地，再按近端缓存记下的 邮箱→用户名 直接问该用户的归属节点，
+// 都未命中时并行询问其他节点，总耗时不超过 peerTimeout。
+// 邮箱唯一性：saveIfAbsent 先并行询问归属节点以外的节点，再由归属节点原子地检查自己的邮箱索引；
+// 两步之间的窗口内，不同节点上并发注册的同一邮箱仍可能各自成功。
+// 用户名前缀搜索同样并行询问所有节点，任一节点不可达或超时即抛出 PeerUnavailableException，不返回缺页的结果。
+public class ShardedUserRepository implements UserRepository {
+    private final String self;
+    private final ConsistentHashRing ring;
+    private final UserRepository local;
+    private final Map<String, UserPeer> peers;
+    private final ConcurrentHashMap<String, Entry> nearCache = new ConcurrentHashMap<>();
+    // 规范化邮箱到用户名，与近端缓存条目同进同出
+    private final ConcurrentHashMap<String, String> emailHints = new ConcurrentHashMap<>();
+    private final long nearCacheTtlMillis;
+    private final int nearCacheMaxEntries;
+    private final long peerTimeoutNanos;
+    private final Clock clock;
+    private final BoundedEvictor<String, Entry> evictor;
+    private volatile Consumer<String> evictionListener = username -> {
+    };
+
+    public ShardedUserRepository(String self, ConsistentHashRing ring, UserRepository local, Map<String, UserPeer> peers,
+                                 Duration nearCacheTtl, int nearCacheMaxEntries, Duration peerTimeout) {
+        this(self, ring, local, peers, nearCacheTtl, nearCacheMaxEntries, peerTimeout, Clock.systemUTC());
+    }
+
+    ShardedUserRepository(String self, ConsistentHashRing ring, UserRepository local, Map<String, UserPeer> peers,
+                          Duration nearCacheTtl, int nearCacheMaxEntries, Duration peerTimeout, Clock clock) {
+        if (!ring.nodes().contains(self)) {
+            throw new IllegalArgumentException("Node " + self + " is not part of the ring " + ring.nodes());
+        }
+        for (String node : ring.nodes()) {
+            if (!node.equals(self) && !peers.containsKey(node)) {
+                throw new IllegalArgumentException("No peer configured for node " + node);
+            }
+        }
+        this.self = self;
+        this.ring = ring;
+        this.local = local;
+        this.peers = Map.copyOf(peers);
+        this.nearCacheTtlMillis = nearCacheTtl.toMillis();
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+        this.peerTimeoutNanos = peerTimeout.toNanos();
+        this.clock = clock;
+        this.evictor = new BoundedEvictor<>(nearCache, nearCacheMaxEntries);
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        String owner = ring.ownerOf(username);
+        if (owner.equals(self)) {
+            return local.findByUsername(username);
+        }
+        long now = clock.millis();
+        Entry entry = nearCache.get(username);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.user;
+        }
+        User user = peers.get(owner).fetch(username);
+        if (user != null) {
+            cache(user, now);
+        } else if (entry != null) {
+            if (nearCache.remove(username, entry)) {
+                forgetEmail(entry.user);
+                evictionListener.accept(username);
+            }
+        }
+        return user;
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return findByUsername(username) != null;
+    }
+
+    // 命中的用户按用户名进入近端缓存；任一节点不可达或超时且其余节点都未命中时抛出 PeerUnavailableException
+    @Override
+    public User findByEmail(String email) {
+        User user = local.findByEmail(email);
+        if (user != null || email == null) {
+            return user;
+        }
+        String key = EmailIndex.normalize(email);
+        String username = emailHints.get(key);
+        if (username != null) {
+            // 用户可能已改了邮箱，以归属节点上的当前邮箱为准
+            User hinted = findByUsername(username);
+            if (hinted != null && key.equals(EmailIndex.normalize(hinted.getEmail()))) {
+                return hinted;
+            }
+            emailHints.remove(key, username);
+        }
+        return fetchByEmailFromPeers(email, null);
+    }
+
+    // 并行询问除 skip 以外的其他节点
+    private User fetchByEmailFromPeers(String email, String skip) {
+        List<CompletableFuture<User>> lookups = new ArrayList<>(peers.size());
+        for (Map.Entry<String, UserPeer> peer : peers.entrySet()) {
+            if (!peer.getKey().equals(skip)) {
+                lookups.add(peer.getValue().fetchByEmailAsync(email));
+            }
+        }
+        long deadline = System.nanoTime() + peerTimeoutNanos;
+        PeerUnavailableException unavailable = null;
+        try {
+            for (CompletableFuture<User> lookup : lookups) {
+                User user;
+                try {
+                    user = lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    unavailable = e.getCause() instanceof PeerUnavailableException cause
+                            ? cause : new PeerUnavailableException("Email lookup failed", e.getCause());
+                    continue;
+                } catch (TimeoutException e) {
+                    unavailable = new PeerUnavailableException("Email lookup timed out", e);
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PeerUnavailableException("Interrupted during email lookup", e);
+                }
+                if (user != null) {
+                    cache(user, clock.millis());
+                    return user;
+                }
+            }
+        } finally {
+            lookups.forEach(lookup -> lookup.cancel(true));
+        }
+        if (unavailable != null) {
+            throw unavailable;
+        }
+        return null;
+    }
+
+    // 各节点各取游标之后的一页再归并：全局最小的 limit 个用户名必然都在各节点的前 limit 个之中。
+    // 先向所有节点发出请求再查本地，总耗时取决于最慢的节点而不是各节点之和
+    @Override
+    public List<String> findUsernamesByPrefix(String prefix, String after, int limit) {
+        List<CompletableFuture<List<String>>> searches = new ArrayList<>(peers.size());
+        for (UserPeer peer : peers.values()) {
+            searches.add(peer.searchUsernamesAsync(prefix, after, limit));
+        }
+        long deadline = System.nanoTime() + peerTimeoutNanos;
+        TreeSet<String> merged;
+        try {
+            merged = new TreeSet<>(local.findUsernamesByPrefix(prefix, after, limit));
+            for (CompletableFuture<List<String>> search : searches) {
+                try {
+                    merged.addAll(search.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof PeerUnavailableException cause
+                            ? cause : new PeerUnavailableException("Prefix search failed", e.getCause());
+                } catch (TimeoutException e) {
+                    throw new PeerUnavailableException("Prefix search timed out", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PeerUnavailableException("Interrupted during prefix search", e);
+                }
+            }
+        } finally {
+            searches.forEach(search -> search.cancel(true));
+        }
+        List<String> page = new ArrayList<>(Math.min(limit, merged.size()));
+        for (String username : merged) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(username);
+        }
+        return page;
+    }
+
+    // save 只用于新用户，远程节点上按 saveIfAbsent 处理，不会覆盖归属节点上已有的用户
+    @Override
+    public void save(User user) {
+        String owner = ring.ownerOf(user.getUsername());
+        if (owner.equals(self)) {
+            local.save(user);
+        } else if (peers.get(owner).saveIfAbsent(user)) {
+            cache(user, clock.millis());
+        }
+    }
+
+    // 注册时唯一的一次存储访问（UserService 不再预查用户名和邮箱）：先并行询问归属节点以外的节点邮箱是否已被占用，
+    // 再由归属节点的本地存储原子地判定用户名和它自己的邮箱索引。归属节点在远程时共一次扇出加一次往返，
+    // 扇出不包含归属节点，归属节点上的邮箱只检查这一次
+    @Override
+    public boolean saveIfAbsent(User user) {
+        String owner = ring.ownerOf(user.getUsername());
+        if (emailTakenOutside(user.getEmail(), owner)) {
+            return false;
+        }
+        if (owner.equals(self)) {
+            return local.saveIfAbsent(user);
+        }
+        if (!peers.get(owner).saveIfAbsent(user)) {
+            return false;
+        }
+        cache(user, clock.millis());
+        return true;
+    }
+
+    private boolean emailTakenOutside(String email, String owner) {
+        if (email == null) {
+            return false;
+        }
+        if (!owner.equals(self) && local.findByEmail(email) != null) {
+            return true;
+        }
+        return fetchByEmailFromPeers(email, owner) != null;
+    }
+
+    @Override
+    public void update(User user) {
+        String owner = ring.ownerOf(user.getUsername());
+        if (owner.equals(self)) {
+            local.update(user);
+        } else {
+            peers.get(owner).update(user);
+            cache(user, clock.millis());
+        }
+    }
+
+    // 只遍历本节点归属的用户；整个集群的数据是各节点遍历结果的并集
+    @Override
+    public void forEach(Consumer<User> action) {
+        local.forEach(action);
+    }
+
+    // 用户名的归属节点
+    public String ownerOf(String username) {
+        return ring.ownerOf(username);
+    }
+
+    public boolean isLocal(String username) {
+        return ring.ownerOf(username).equals(self);
+    }
+
+    public void setEvictionListener(Consumer<String> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public int nearCacheSize() {
+        return nearCache.size();
+    }
+
+    private void cache(User user, long now) {
+        if (nearCacheMaxEntries <= 0) {
+            return;
+        }
+        Entry previous = nearCache.put(user.getUsername(), new Entry(user, now + nearCacheTtlMillis));
+        if (previous != null) {
+            forgetEmail(previous.user);
+        }
+        String email = EmailIndex.normalize(user.getEmail());
+        if (email != null) {
+            emailHints.put(email, user.getUsername());
+        }
+        if (nearCache.size() > nearCacheMaxEntries) {
+            evict(now);
+        }
+    }
+
+    // 超出容量时增量淘汰：优先清理过期条目，仍超出则淘汰扫描到的未过期条目
+    private void evict(long now) {
+        List<String> evicted = new ArrayList<>();
+        evictor.evict((username, entry) -> entry.expiresAt <= now, (username, entry) -> true, (username, entry) -> {
+            forgetEmail(entry.user);
+            evicted.add(username);
+        });
+        evicted.forEach(evictionListener);
+    }
+
+    private void forgetEmail(User user) {
+        String email = EmailIndex.normalize(user.getEmail());
+        if (email != null) {
+            emailHints.remove(email, user.getUsername());
+        }
+    }
+
+    private record Entry(User user, long expiresAt) {
+    }
+}
@@ -0,0 +1,185 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+// 用户ID表：为每个用户分配稠密的 int ID，并以 ID 的槽位为下标把 User 存进数组。
+// 会话只保存 int ID，由会话解析用户只需一次数组访问，不必再按用户名查一次哈希表。
+// ID 只在进程内有效，重启后按用户首次注册或登录的顺序重新分配。
+// 同一用户名总是得到同一ID，存储重新加载出新的 User 对象（例如近端缓存过期后）时沿用原ID。
+// release 释放的槽位会被复用，表的大小随在用用户数而不是历史用户数增长。
+// ID 低 SLOT_BITS 位是槽位、其上是槽位的代数，槽位每复用一次代数加一，
+// 持有旧ID的会话因此只会解析为 null，不会串到复用该槽位的其他用户；代数用尽的槽位不再复用。
+// 用户名索引是以 int[] 存槽位的开放寻址表，不为每个用户装箱 Integer。
+// 分配、释放和扩容在锁内进行；读路径只读一次 volatile 数组引用，不加锁。
+public class UserIdTable {
+    private static final int INITIAL_CAPACITY = 1024;
+    static final int SLOT_BITS = 24;
+    static final int MAX_SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = MAX_SLOTS - 1;
+    // 符号位保持为 0，ID 总是非负
+    static final int MAX_GENERATION = Integer.MAX_VALUE >>> SLOT_BITS;
+
+    private volatile User[] users = new User[INITIAL_CAPACITY];
+    // 以下字段只在锁内访问
+    // 用户名索引：存 槽位+1，0 表示空位；装载因子不超过 1/2
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+    private int[] generations = new int[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int nextSlot;
+    private int size;
+
+    // 返回用户的ID，尚未分配时分配一个新ID并写回 User
+    public int intern(User user) {
+        int id = user.getId();
+        User[] snapshot = users;
+        if (id >= 0 && (id & SLOT_MASK) < snapshot.length && snapshot[id & SLOT_MASK] == user) {
+            return id;
+        }
+        synchronized (this) {
+            int position = find(user.getUsername());
+            int slot = position >= 0 ? index[position] - 1 : allocateSlot();
+            id = generations[slot] << SLOT_BITS | slot;
+            user.setId(id);
+            // 同一用户名换了新的 User 对象时沿用原ID，只替换数组中的引用
+            User[] current = users;
+            current[slot] = user;
+            // 重新写一次 volatile 引用，保证无锁读取的线程能看到上面的元素写入
+            users = current;
+            if (position < 0) {
+                index[-position - 1] = slot + 1;
+                size++;
+                if (size * 2 > index.length) {
+                    rehash(index.length << 1);
+                }
+            }
+            return id;
+        }
+    }
+
+    // 按ID取用户，ID 无效或已被释放时返回 null
+    public User get(int id) {
+        if (id < 0) {
+            return null;
+        }
+        User[] snapshot = users;
+        int slot = id & SLOT_MASK;
+        if (slot >= snapshot.length) {
+            return null;
+        }
+        User user = snapshot[slot];
+        return user != null && user.getId() == id ? user : null;
+    }
+
+    // 释放用户名占用的ID，返回是否释放
+    public boolean release(String username) {
+        return release(username, id -> false);
+    }
+
+    // 释放用户名占用的ID，pinned 判定ID仍被引用时保留；判定在锁内进行，与 isAssigned 互斥
+    public synchronized boolean release(String username, IntPredicate pinned) {
+        int position = find(username);
+        if (position < 0) {
+            return false;
+        }
+        int slot = index[position] - 1;
+        if (pinned.test(generations[slot] << SLOT_BITS | slot)) {
+            return false;
+        }
+        remove(position);
+        size--;
+        User[] current = users;
+        current[slot] = null;
+        users = current;
+        if (++generations[slot] <= MAX_GENERATION) {
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+        return true;
+    }
+
+    // 在锁内确认ID仍分配给原用户：与 release 的 pinned 判定互斥，
+    // 调用方据此确认刚为该ID创建的会话没有落在一次并发释放之后
+    public synchronized boolean isAssigned(int id) {
+        return get(id) != null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == MAX_SLOTS) {
+            throw new IllegalStateException("User ID table is full (" + MAX_SLOTS + " slots)");
+        }
+        if (nextSlot == users.length) {
+            users = Arrays.copyOf(users, nextSlot << 1);
+            generations = Arrays.copyOf(generations, nextSlot << 1);
+        }
+        return nextSlot++;
+    }
+
+    // 找到时返回索引位置，否则返回 -(可插入位置)-1
+    private int find(String username) {
+        int mask = index.length - 1;
+        int position = hash(username) & mask;
+        User[] current = users;
+        while (true) {
+            int entry = index[position];
+            if (entry == 0) {
+                return -position - 1;
+            }
+            if (current[entry - 1].getUsername().equals(username)) {
+                return position;
+            }
+            position = (position + 1) & mask;
+        }
+    }
+
+    // 线性探测表的删除：把后续同一探测链上的条目前移，不留墓碑
+    private void remove(int position) {
+        int mask = index.length - 1;
+        User[] current = users;
+        int gap = position;
+        int next = (gap + 1) & mask;
+        while (index[next] != 0) {
+            int home = hash(current[index[next] - 1].getUsername()) & mask;
+            // home 不在 (gap, next] 区间内时，条目可以前移到 gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                index[gap] = index[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = index;
+        index = new int[capacity];
+        int mask = capacity - 1;
+        User[] current = users;
+        for (int entry : old) {
+            if (entry != 0) {
+                int position = hash(current[entry - 1].getUsername()) & mask;
+                while (index[position] != 0) {
+                    position = (position + 1) & mask;
+                }
+                index[position] = entry;
+            }
+        }
+    }
+
+    private static int hash(String username) {
+        int h = username.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
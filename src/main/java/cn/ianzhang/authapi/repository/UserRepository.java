@@ -0,0 +1,33 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// 用户存储抽象，实现必须是线程安全的
+public interface UserRepository {
+
+    // 根据用户名查找用户，不存在时返回 null
+    User findByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    // 根据邮箱查找用户，邮箱按 EmailIndex.normalize 规范化后比较，不存在时返回 null
+    User findByEmail(String email);
+
+    // 按字典序返回以 prefix 开头、且大于游标 after（为 null 时从头开始）的至多 limit 个用户名
+    List<String> findUsernamesByPrefix(String prefix, String after, int limit);
+
+    // 保存新用户
+    void save(User user);
+
+    // 仅当用户名和邮箱都未被占用时保存，返回是否保存成功；同一用户名或邮箱的并发调用只有一个成功
+    boolean saveIfAbsent(User user);
+
+    // 更新已有用户（例如密码散列升级）
+    void update(User user);
+
+    // 弱一致地遍历存储中的所有用户，不复制整个存储；遍历期间的并发修改可能可见也可能不可见
+    void forEach(Consumer<User> action);
+}
@@ -0,0 +1,17 @@
+package cn.ianzhang.authapi.repository;
+
+// jdbc 用户存储的写入状态，经 JMX 以 cn.ianzhang.authapi:type=UserStore 发布。
+// FailedWrites 大于 0 表示有用户重试多次后仍未写入数据库，只存在于内存中，重启后丢失；
+// ConflictingWrites 为其中因其他实例已写入同名用户而放弃的记录数
+public interface UserStoreStatsMXBean {
+
+    int getPendingCount();
+
+    int getRetryCount();
+
+    long getFailedWrites();
+
+    long getConflictingWrites();
+
+    String getLastWriteError();
+}
@@ -0,0 +1,66 @@
+package cn.ianzhang.authapi.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 用户名布隆过滤器：mightContain 返回 false 时用户名一定未被占用，可以跳过对存储的查询。
+// 按 1% 的误判率为 expectedInsertions 个用户名分配位数；实际数量超出预期后误判率上升，
+// 但结果依然正确，只是更多请求回落到存储。位数组为 AtomicLongArray，添加和查询均无锁。
+public class UsernameBloomFilter {
+    private static final int HASHES = 7;
+
+    private final AtomicLongArray words;
+    private final long mask;
+
+    public UsernameBloomFilter(int expectedInsertions) {
+        // 每个用户名约 9.6 位，向上取整到 2 的幂
+        long bits = Math.max(64, (long) Math.ceil(Math.max(1, expectedInsertions) * 9.6));
+        long size = Math.min(1L << 36, Long.highestOneBit(bits - 1) << 1);
+        this.words = new AtomicLongArray((int) (size >>> 6));
+        this.mask = size - 1;
+    }
+
+    public void add(String username) {
+        long h1 = hash(username);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + i * h2) & mask;
+            int index = (int) (bit >>> 6);
+            long flag = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+            } while ((word & flag) == 0 && !words.compareAndSet(index, word, word | flag));
+        }
+    }
+
+    public boolean mightContain(String username) {
+        long h1 = hash(username);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + i * h2) & mask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 直接遍历 char，不做编码转换，查询路径上没有分配
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,41 @@
+package cn.ianzhang.authapi.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// 用户名前缀索引：ConcurrentSkipListSet 按字典序保存全部用户名，增删无锁且立即可见。
+// 查询先以 O(log n) 定位到前缀（或游标）之后的第一个用户名，再顺序取出至多 limit 个，
+// 耗时取决于页大小而不是用户总数。分页用游标而不是偏移量：下一页从上一页最后一个用户名之后开始，
+// 翻页期间的并发插入不会让已有用户名重复出现或被跳过。
+public class UsernamePrefixIndex {
+    private final ConcurrentSkipListSet<String> usernames = new ConcurrentSkipListSet<>();
+
+    public void add(String username) {
+        usernames.add(username);
+    }
+
+    public void remove(String username) {
+        usernames.remove(username);
+    }
+
+    // 按字典序返回以 prefix 开头、且大于 after（为 null 时不限）的至多 limit 个用户名
+    public List<String> search(String prefix, String after, int limit) {
+        NavigableSet<String> tail = after != null && after.compareTo(prefix) >= 0
+                ? usernames.tailSet(after, false)
+                : usernames.tailSet(prefix, true);
+        List<String> page = new ArrayList<>(Math.min(limit, 64));
+        for (String username : tail) {
+            if (page.size() >= limit || !username.startsWith(prefix)) {
+                break;
+            }
+            page.add(username);
+        }
+        return page;
+    }
+
+    public int size() {
+        return usernames.size();
+    }
+}
@@ -0,0 +1,15 @@
+package cn.ianzhang.authapi.security;
+
+// 账号因连续登录失败被临时锁定，调用方应返回 423 并在 Retry-After 中给出剩余锁定时间
+public class AccountLockedException extends RuntimeException {
+    private final long retryAfterMillis;
+
+    public AccountLockedException(long retryAfterMillis) {
+        super("Account is temporarily locked");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
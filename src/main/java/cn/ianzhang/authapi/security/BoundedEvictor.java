@@ -0,0 +1,71 @@
+package cn.ianzhang.authapi.security;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+// 有界 ConcurrentHashMap 的增量淘汰，供各个按键缓存和计数表共用。
+// 时钟指针式扫描：从上次停下的位置起最多检查 BATCH 个条目，途中淘汰 stale 判定可以直接丢弃的条目（如已过期）；
+// 检查完仍超出上限时，再淘汰本轮遇到的 evictable 条目。单次调用的代价以 BATCH 为上限，与映射大小无关，
+// 映射里全是不能淘汰的条目时也不会在每次插入时扫描整张表。
+// 同一时刻只由一个线程淘汰，其他线程不等待，映射可能暂时超出上限，由之后的调用收回。
+public final class BoundedEvictor<K, V> {
+    static final int BATCH = 64;
+
+    private final ConcurrentHashMap<K, V> map;
+    private final int maxSize;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    // 扫描位置，只在持有 evicting 时访问
+    private Iterator<Map.Entry<K, V>> cursor;
+
+    public BoundedEvictor(ConcurrentHashMap<K, V> map, int maxSize) {
+        this.map = map;
+        this.maxSize = maxSize;
+    }
+
+    // 映射超出上限时淘汰条目，每个被淘汰的条目交给 onEvict；返回映射是否已回到上限以内
+    // （另一个线程正在淘汰时返回 true）
+    public boolean evict(BiPredicate<K, V> stale, BiPredicate<K, V> evictable, BiConsumer<K, V> onEvict) {
+        if (!evicting.compareAndSet(false, true)) {
+            return true;
+        }
+        try {
+            int excess = map.size() - maxSize;
+            List<Map.Entry<K, V>> victims = new ArrayList<>(Math.max(0, Math.min(excess, BATCH)));
+            for (int examined = 0; examined < BATCH && map.size() > maxSize; examined++) {
+                if (cursor == null || !cursor.hasNext()) {
+                    cursor = map.entrySet().iterator();
+                    if (!cursor.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<K, V> entry = cursor.next();
+                K key = entry.getKey();
+                V value = entry.getValue();
+                if (stale.test(key, value)) {
+                    if (map.remove(key, value)) {
+                        onEvict.accept(key, value);
+                    }
+                } else if (victims.size() < excess && evictable.test(key, value)) {
+                    victims.add(Map.entry(key, value));
+                }
+            }
+            for (Map.Entry<K, V> victim : victims) {
+                if (map.size() <= maxSize) {
+                    break;
+                }
+                if (map.remove(victim.getKey(), victim.getValue())) {
+                    onEvict.accept(victim.getKey(), victim.getValue());
+                }
+            }
+            return map.size() <= maxSize;
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package cn.ianzhang.authapi.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// 已验证凭据的短期缓存，热点账号重复登录时跳过 PBKDF2 计算。
+// 缓存中只保存口令的 HMAC（密钥为进程内随机生成，不落盘），不保存明文。
+// 条目同时记录验证时的密码散列，存储的散列一旦变化（改密码、散列升级）条目即失效。
+public class CredentialCache {
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Clock clock;
+    // Mac 不是线程安全的，从有界实例池借用，不按线程缓存
+    private final InstancePool<Mac> macs;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final BoundedEvictor<String, Entry> evictor;
+
+    // maxEntries 小于等于 0 表示禁用缓存
+    public CredentialCache(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, Clock.systemUTC());
+    }
+
+    CredentialCache(Duration ttl, int maxEntries, Clock clock) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.evictor = new BoundedEvictor<>(entries, maxEntries);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec keySpec = new SecretKeySpec(key, MAC_ALGORITHM);
+        this.macs = new InstancePool<>(() -> {
+            try {
+                Mac mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(keySpec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    // 命中条件：条目未过期、存储的密码散列未变化且口令 MAC 一致
+    public boolean verify(String username, String password, String passwordHash) {
+        if (!isEnabled() || username == null || password == null) {
+            return false;
+        }
+        Entry entry = entries.get(username);
+        if (entry == null) {
+            misses.increment();
+            return false;
+        }
+        if (entry.expiresAt <= clock.millis() || !entry.passwordHash.equals(passwordHash)) {
+            entries.remove(username, entry);
+            misses.increment();
+            return false;
+        }
+        if (!MessageDigest.isEqual(entry.mac, mac(username, password))) {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    // 记录一次成功的慢速校验结果
+    public void put(String username, String password, String passwordHash) {
+        if (!isEnabled() || username == null || password == null || passwordHash == null) {
+            return;
+        }
+        long now = clock.millis();
+        entries.put(username, new Entry(mac(username, password), passwordHash, now + ttlMillis));
+        if (entries.size() > maxEntries) {
+            evict(now);
+        }
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            entries.remove(username);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // 超出容量时增量淘汰：优先清理过期条目，仍超出则淘汰扫描到的未过期条目
+    private void evict(long now) {
+        evictor.evict((username, entry) -> entry.expiresAt <= now, (username, entry) -> true,
+                (username, entry) -> evictions.increment());
+    }
+
+    private byte[] mac(String username, String password) {
+        Mac mac = macs.acquire();
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] result = mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        macs.release(mac);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CredentialCache{" +
+                "size=" + size() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                '}';
+    }
+
+    private record Entry(byte[] mac, String passwordHash, long expiresAt) {
+    }
+}
@@ -0,0 +1,13 @@
+package cn.ianzhang.authapi.security;
+
+// 散列线程池队列已满或等待超时，调用方应返回 503 并提示客户端稍后重试
+public class HashingBusyException extends RuntimeException {
+
+    public HashingBusyException(String message) {
+        super(message);
+    }
+
+    public HashingBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,59 @@
+package cn.ianzhang.authapi.security;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+// 有界实例池：缓存创建代价高且不是线程安全的对象（Mac、DRBG 及其缓冲区），取用期间由调用方独占。
+// 池的大小与线程数无关：虚拟线程每个请求一个线程，按线程缓存（ThreadLocal）时每个请求都会新建实例。
+// 取用时从随机槽位起探测 PROBES 个槽位，以 CAS 取走实例，都为空时新建；归还时槽位都满则丢弃。
+// 随机起点取自 ThreadLocalRandom，不依赖线程身份，也不经过 ThreadLocal 表。
+public final class InstancePool<T> {
+    private static final int PROBES = 4;
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final Supplier<T> factory;
+
+    // 槽位数为处理器数的两倍，足以覆盖同时在 CPU 上运行的调用方
+    public InstancePool(Supplier<T> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public InstancePool(Supplier<T> factory, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        // 向上取整到 2 的幂，至少 PROBES 个槽位
+        int capacity = Math.max(PROBES, size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.factory = factory;
+    }
+
+    public T acquire() {
+        int start = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (start + i) & mask;
+            T instance = slots.get(slot);
+            if (instance != null && slots.compareAndSet(slot, instance, null)) {
+                return instance;
+            }
+        }
+        return factory.get();
+    }
+
+    // 只归还处于干净状态的实例；使用中途抛出异常的实例直接丢弃，不要归还
+    public void release(T instance) {
+        int start = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i < PROBES; i++) {
+            if (slots.compareAndSet((start + i) & mask, null, instance)) {
+                return;
+            }
+        }
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,230 @@
+package cn.ianzhang.authapi.security;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// 登录失败计分与临时锁定。每次失败计 1 分，分数按半衰期 halfLife 指数衰减；分数达到 maxFailures 时锁定，
+// 并把分数抬高到恰好经过 lockout 衰减回 maxFailures 的值，锁定期间分数不低于阈值，期满后再失败一次即重新锁定。
+// 分数连同最后更新的时刻打包在一个 long 中（高 32 位为 float 分数，低 32 位为相对 epoch 的秒数），以 CAS 更新，不加锁。
+// 已存在的账号各占一个计数，数量以 maxAccounts 为上限，超出时增量淘汰（每次最多检查固定数量的条目）：
+// 先淘汰已衰减到可以忽略的条目，仍超出再淘汰扫描到的未锁定条目，其分数并入溢出 sketch；
+// 锁定中的条目从不淘汰，扫描范围内没有可淘汰的条目时新账号直接记入溢出 sketch。
+// 不存在的用户名记入另一个固定大小的 count-min sketch，喷洒大量随机用户名时内存不随之增长。
+// sketch 只会高估：不存在的用户名的误判不影响真实账号；真实账号只在表满后才进入溢出 sketch，
+// 此时宁可因碰撞多锁，也不丢掉正在被猜测的账号的失败记录。
+public class LoginFailureTracker {
+    private static final int DEPTH = 4;
+    // 分数衰减到此值以下的账号条目可被淘汰
+    private static final float NEGLIGIBLE = 0.5f;
+
+    private final float threshold;
+    private final float lockedScore;
+    private final double halfLifeSeconds;
+    private final int maxAccounts;
+    private final Clock clock;
+    private final long epochSeconds;
+    private final ConcurrentHashMap<String, AtomicLong> accounts = new ConcurrentHashMap<>();
+    private final AtomicLongArray sketch;
+    // 淘汰或无处容纳的已存在账号
+    private final AtomicLongArray overflow;
+    private final int widthMask;
+    private final long seed;
+    private final BoundedEvictor<String, AtomicLong> evictor;
+    private final LongAdder lockouts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // maxFailures 小于等于 0 表示不锁定；sketchWidth 向上取整为 2 的幂
+    public LoginFailureTracker(int maxFailures, Duration halfLife, Duration lockout, int maxAccounts, int sketchWidth) {
+        this(maxFailures, halfLife, lockout, maxAccounts, sketchWidth, Clock.systemUTC());
+    }
+
+    LoginFailureTracker(int maxFailures, Duration halfLife, Duration lockout, int maxAccounts, int sketchWidth,
+                        Clock clock) {
+        if (maxFailures > 0 && (halfLife.getSeconds() <= 0 || lockout.isNegative() || maxAccounts <= 0
+                || sketchWidth <= 0)) {
+            throw new IllegalArgumentException("halfLife, maxAccounts and sketchWidth must be positive");
+        }
+        this.threshold = maxFailures;
+        this.halfLifeSeconds = Math.max(1, halfLife.getSeconds());
+        this.lockedScore = (float) (maxFailures * Math.pow(2, lockout.getSeconds() / halfLifeSeconds));
+        this.maxAccounts = maxAccounts;
+        this.evictor = new BoundedEvictor<>(accounts, maxAccounts);
+        this.clock = clock;
+        this.epochSeconds = clock.millis() / 1000;
+        int width = maxFailures > 0 ? Integer.highestOneBit(Math.max(1, sketchWidth - 1)) << 1 : 1;
+        this.sketch = new AtomicLongArray(DEPTH * width);
+        this.overflow = new AtomicLongArray(DEPTH * width);
+        this.widthMask = width - 1;
+        this.seed = new SecureRandom().nextLong();
+    }
+
+    public static LoginFailureTracker disabled() {
+        return new LoginFailureTracker(0, Duration.ZERO, Duration.ZERO, 1, 1);
+    }
+
+    public boolean isEnabled() {
+        return threshold > 0;
+    }
+
+    // 账号还需锁定多少毫秒，未锁定时返回 0；known 表示账号存在，不存在的用户名查 sketch
+    public long lockedMillis(String account, boolean known) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        int now = now();
+        float score;
+        if (known) {
+            AtomicLong cell = accounts.get(account);
+            score = cell != null ? decay(cell.get(), now) : estimate(overflow, hash(account), now);
+        } else {
+            score = estimate(sketch, hash(account), now);
+        }
+        if (score < threshold) {
+            return 0;
+        }
+        // 分数衰减回阈值以下所需的时间，至少 1 秒
+        double seconds = halfLifeSeconds * (Math.log(score / threshold) / Math.log(2));
+        return Math.max(1000, (long) Math.ceil(seconds * 1000));
+    }
+
+    // 记录一次失败，本次失败导致锁定时返回 true
+    public boolean recordFailure(String account, boolean known) {
+        if (!isEnabled()) {
+            return false;
+        }
+        int now = now();
+        boolean locked = known ? recordKnown(account, now) : recordSketch(sketch, hash(account), now);
+        if (locked) {
+            lockouts.increment();
+        }
+        return locked;
+    }
+
+    // 登录成功后清除账号的失败记录
+    public void recordSuccess(String account) {
+        if (isEnabled()) {
+            accounts.remove(account);
+        }
+    }
+
+    public long getLockouts() {
+        return lockouts.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    // 新建的计数从溢出 sketch 中的估计值开始，账号被淘汰后重新进入时不丢失之前的失败记录
+    private boolean recordKnown(String account, int now) {
+        AtomicLong cell = accounts.get(account);
+        if (cell == null) {
+            long hash = hash(account);
+            cell = accounts.computeIfAbsent(account, k -> new AtomicLong(pack(estimate(overflow, hash, now), now)));
+            if (accounts.size() > maxAccounts && !evict(account, now)) {
+                // 扫描到的条目都在锁定中，没有可淘汰的位置
+                accounts.remove(account, cell);
+                return recordSketch(overflow, hash, now);
+            }
+        }
+        while (true) {
+            long current = cell.get();
+            float previous = decay(current, now);
+            float score = next(previous);
+            if (cell.compareAndSet(current, pack(score, now))) {
+                return previous < threshold && score >= threshold;
+            }
+        }
+    }
+
+    private boolean recordSketch(AtomicLongArray counts, long hash, int now) {
+        float previous = estimate(counts, hash, now);
+        float score = next(previous);
+        raise(counts, hash, score, now);
+        return previous < threshold && score >= threshold;
+    }
+
+    // 保守更新：只把各行中低于 score 的计数抬高到 score，减少碰撞带来的高估
+    private void raise(AtomicLongArray counts, long hash, float score, int now) {
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            while (true) {
+                long current = counts.get(index);
+                if (decay(current, now) >= score || counts.compareAndSet(index, current, pack(score, now))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // 失败一次后的分数，达到阈值时抬高到锁定分数
+    private float next(float score) {
+        float next = score + 1;
+        return next >= threshold ? Math.max(next, lockedScore) : next;
+    }
+
+    private float estimate(AtomicLongArray counts, long hash, int now) {
+        float min = Float.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, decay(counts.get(index(hash, row)), now));
+        }
+        return min;
+    }
+
+    private float decay(long packed, int now) {
+        float score = Float.intBitsToFloat((int) (packed >>> 32));
+        int elapsed = now - (int) packed;
+        if (score == 0 || elapsed <= 0) {
+            return score;
+        }
+        return (float) (score * Math.pow(0.5, elapsed / halfLifeSeconds));
+    }
+
+    private static long pack(float score, int seconds) {
+        return (long) Float.floatToIntBits(score) << 32 | (seconds & 0xFFFFFFFFL);
+    }
+
+    private int now() {
+        return (int) (clock.millis() / 1000 - epochSeconds);
+    }
+
+    // 带随机种子的 FNV-1a，避免按公开的 String.hashCode 构造碰撞
+    private long hash(String account) {
+        long h = seed;
+        for (int i = 0; i < account.length(); i++) {
+            h = (h ^ account.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    private int index(long hash, int row) {
+        long h = hash + row * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return row * (widthMask + 1) + (int) (h & widthMask);
+    }
+
+    // 刚插入的 keep 不参与淘汰。先淘汰分数可以忽略的条目，再淘汰未锁定的条目并把分数并入溢出 sketch；
+    // 锁定中的条目保留。返回是否已腾出位置（另一个线程正在淘汰时视为已腾出）
+    private boolean evict(String keep, int now) {
+        return evictor.evict(
+                (account, cell) -> !account.equals(keep) && decay(cell.get(), now) < NEGLIGIBLE,
+                (account, cell) -> !account.equals(keep) && decay(cell.get(), now) < threshold,
+                (account, cell) -> {
+                    float score = decay(cell.get(), now);
+                    if (score >= NEGLIGIBLE) {
+                        raise(overflow, hash(account), score, now);
+                    }
+                    evictions.increment();
+                });
+    }
+}
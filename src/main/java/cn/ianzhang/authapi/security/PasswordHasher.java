@@ -0,0 +1,148 @@
+package cn.ianzhang.authapi.security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+// PBKDF2-HMAC-SHA256 口令散列。
+// 存储格式：pbkdf2-sha256$<迭代次数>$<盐>$<散列>，盐和散列使用无填充 Base64。
+// 不符合该格式的存量密码视为旧版明文，仅在显式开启迁移开关时接受，校验通过后重新散列。
+// 存储的迭代次数不得超过当前配置的 MAX_ITERATIONS_FACTOR 倍，防止构造的散列让一次校验长时间占用散列线程。
+public class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = 100_000;
+    public static final int MAX_ITERATIONS_FACTOR = 10;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final int CALIBRATION_ITERATIONS = 10_000;
+
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    private final int iterations;
+    private final int maxIterations;
+    private final boolean legacyPlaintext;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iterations) {
+        this(iterations, false);
+    }
+
+    // legacyPlaintext 为 true 时接受旧版明文密码，仅用于迁移改造前的存量数据
+    public PasswordHasher(int iterations, boolean legacyPlaintext) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
+        this.iterations = iterations;
+        this.maxIterations = (int) Math.min((long) iterations * MAX_ITERATIONS_FACTOR, Integer.MAX_VALUE);
+        this.legacyPlaintext = legacyPlaintext;
+    }
+
+    // 在当前主机上测量散列耗时，估算使单次散列达到目标耗时所需的迭代次数
+    public static int calibrate(Duration targetTime, int minIterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        char[] password = "calibration-password".toCharArray();
+        // 先预热，再取多次测量中的最小值，排除 JIT 和调度抖动
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            derive(password, salt, CALIBRATION_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long estimated = targetTime.toNanos() * CALIBRATION_ITERATIONS / Math.max(best, 1);
+        return (int) Math.max(minIterations, Math.min(estimated, Integer.MAX_VALUE));
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] key = derive(password.toCharArray(), salt, iterations);
+        return PREFIX + iterations + '$' + ENCODER.encodeToString(salt) + '$' + ENCODER.encodeToString(key);
+    }
+
+    public boolean verify(String password, String encoded) {
+        if (password == null || encoded == null) {
+            return false;
+        }
+        if (!encoded.startsWith(PREFIX)) {
+            // 旧版明文密码，使用常量时间比较
+            return legacyPlaintext && MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    encoded.getBytes(StandardCharsets.UTF_8));
+        }
+        Parsed parsed = parse(encoded);
+        if (parsed == null) {
+            return false;
+        }
+        byte[] actual = derive(password.toCharArray(), parsed.salt(), parsed.iterations());
+        return MessageDigest.isEqual(parsed.key(), actual);
+    }
+
+    // 是否可以原样存储：批量导入、快照恢复和节点间同步收到的预散列密码都要先经过这里，
+    // 只接受格式正确、迭代次数在上限之内的散列，不接受明文
+    public boolean isAcceptableHash(String encoded) {
+        return encoded != null && encoded.startsWith(PREFIX) && parse(encoded) != null;
+    }
+
+    // 旧版明文或迭代次数低于当前配置的散列需要在下次登录成功后升级
+    public boolean needsRehash(String encoded) {
+        if (encoded == null || !encoded.startsWith(PREFIX)) {
+            return true;
+        }
+        int end = encoded.indexOf('$', PREFIX.length());
+        if (end < 0) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(encoded, PREFIX.length(), end, 10) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    // 格式错误或迭代次数超出 [1, maxIterations] 时返回 null
+    private Parsed parse(String encoded) {
+        String[] parts = encoded.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[0]);
+            if (storedIterations <= 0 || storedIterations > maxIterations) {
+                return null;
+            }
+            byte[] salt = DECODER.decode(parts[1]);
+            byte[] key = DECODER.decode(parts[2]);
+            if (salt.length == 0 || key.length != KEY_BITS / 8) {
+                return null;
+            }
+            return new Parsed(storedIterations, salt, key);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private record Parsed(int iterations, byte[] salt, byte[] key) {
+    }
+}
@@ -0,0 +1,96 @@
+package cn.ianzhang.authapi.security;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 在独立的有界线程池中执行口令散列，避免 CPU 密集的散列计算占满 Tomcat 请求线程。
+// 队列已满时立即拒绝（抛出 HashingBusyException），而不是让请求无限排队。
+public class PasswordHashingService implements AutoCloseable {
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutNanos;
+    // 用于不存在的用户，使其校验耗时与真实用户一致，避免通过响应时间枚举用户名
+    private final String dummyHash;
+
+    public PasswordHashingService(PasswordHasher hasher, int threads, int queueCapacity, Duration timeout) {
+        this.hasher = hasher;
+        this.timeoutNanos = timeout.toNanos();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = hasher.hash("dummy-password");
+    }
+
+    public String hash(String password) {
+        return submit(() -> hasher.hash(password));
+    }
+
+    // 在调用线程上直接散列，不经过有界线程池；调用方需自行限制并行度，如批量导入的 fork-join 池
+    public String hashInline(String password) {
+        return hasher.hash(password);
+    }
+
+    public boolean verify(String password, String encoded) {
+        return submit(() -> hasher.verify(password, encoded));
+    }
+
+    public void verifyDummy(String password) {
+        verify(password, dummyHash);
+    }
+
+    public boolean needsRehash(String encoded) {
+        return hasher.needsRehash(encoded);
+    }
+
+    // 预散列的密码能否原样存储，只解析格式，不做散列计算
+    public boolean isAcceptableHash(String encoded) {
+        return hasher.isAcceptableHash(encoded);
+    }
+
+    // 当前排队中的散列任务数
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new HashingBusyException("Password hashing queue is full", e);
+        }
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HashingBusyException("Password hashing timed out", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingBusyException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,204 @@
+package cn.ianzhang.authapi.security;
+
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// 角色到权限位集的映射，支持角色继承：角色的有效权限是自身权限与全部祖先角色权限的并集。
+// 角色图被编译成传递闭包，即每个角色的有效权限位集，以不可变快照经 volatile 引用发布，读取不加锁，也不遍历继承关系。
+// 修改角色时只重新计算该角色及其全部后代，按拓扑序自上而下求值，再整体替换快照；写操作之间互斥。
+// 用户的权限位集是其各角色有效位集的按位或，连同快照版本记在 User 上，快照未变时每次鉴权只需一次版本比较和一次按位与。
+// 没有角色的用户按默认角色处理，未定义的角色不授予任何权限。权限只来自用户上持久化的角色，不按用户名授予。
+public class RolePermissions {
+    public static final String DEFAULT_ROLE = "user";
+    public static final String ADMIN_ROLE = "admin";
+    public static final long ALL = Permission.mask(EnumSet.allOf(Permission.class));
+    // 内置角色：普通用户可以搜索用户名，管理员拥有全部权限
+    public static final Map<String, Set<Permission>> BUILTIN_ROLES = Map.of(
+            DEFAULT_ROLE, Set.of(Permission.USER_SEARCH),
+            ADMIN_ROLE, Set.copyOf(EnumSet.allOf(Permission.class)));
+
+    private final String defaultRole;
+    // 以下三个映射只在持有 this 锁时访问
+    private final Map<String, Long> direct = new HashMap<>();
+    private final Map<String, Set<String>> parents = new HashMap<>();
+    private final Map<String, Set<String>> children = new HashMap<>();
+    private volatile Snapshot snapshot;
+
+    public RolePermissions(Map<String, ? extends Collection<Permission>> roles, String defaultRole) {
+        this(roles, Map.of(), defaultRole);
+    }
+
+    // parents 为角色到其父角色的映射；父角色未定义或继承关系成环时抛出 IllegalArgumentException
+    public RolePermissions(Map<String, ? extends Collection<Permission>> roles,
+                           Map<String, ? extends Collection<String>> parents,
+                           String defaultRole) {
+        if (defaultRole != null && !roles.containsKey(defaultRole)) {
+            throw new IllegalArgumentException("Default role is not defined: " + defaultRole);
+        }
+        this.defaultRole = defaultRole;
+        roles.forEach((role, permissions) -> {
+            direct.put(role, Permission.mask(permissions));
+            this.parents.put(role, Set.of());
+            children.put(role, new HashSet<>());
+        });
+        parents.forEach((role, roleParents) -> {
+            if (!roles.containsKey(role)) {
+                throw new IllegalArgumentException("Role is not defined: " + role);
+            }
+            link(role, Set.copyOf(roleParents));
+        });
+        // 版本从 1 开始，尚未解析过权限的 User 版本为 0（ResolvedPermissions.UNRESOLVED）
+        this.snapshot = new Snapshot(0, Map.of(), 0);
+        publish(direct.keySet());
+    }
+
+    public static RolePermissions defaults() {
+        return new RolePermissions(BUILTIN_ROLES, DEFAULT_ROLE);
+    }
+
+    public boolean isDefined(String role) {
+        return snapshot.effective().containsKey(role);
+    }
+
+    // 角色的有效权限位集，未定义的角色返回 0
+    public long effectiveBits(String role) {
+        return snapshot.effective().getOrDefault(role, 0L);
+    }
+
+    // 新增或修改角色，只重新计算该角色及其后代的闭包；父角色未定义或会形成环时抛出 IllegalArgumentException
+    public synchronized void defineRole(String role, Collection<Permission> permissions, Collection<String> roleParents) {
+        Set<String> newParents = Set.copyOf(roleParents);
+        Set<String> affected = descendants(role);
+        for (String parent : newParents) {
+            if (!direct.containsKey(parent)) {
+                throw new IllegalArgumentException("Parent role is not defined: " + parent);
+            }
+            // 父角色不能是该角色自身或其后代
+            if (affected.contains(parent)) {
+                throw new IllegalArgumentException("Role inheritance cycle: " + role + " -> " + parent);
+            }
+        }
+        if (!direct.containsKey(role)) {
+            children.put(role, new HashSet<>());
+            this.parents.put(role, Set.of());
+        }
+        direct.put(role, Permission.mask(permissions));
+        link(role, newParents);
+        publish(affected);
+    }
+
+    // 解析用户的权限位集，并连同当前快照版本记在 User 上
+    public long refresh(User user) {
+        Snapshot current = snapshot;
+        long bits = current.resolve(user);
+        user.setResolvedPermissions(new User.ResolvedPermissions(current.version(), bits));
+        return bits;
+    }
+
+    // 用户当前的权限位集：一次读取版本与位集，版本等于当前快照时直接返回位集，角色定义变化后的首次访问重新解析
+    public long permissionsOf(User user) {
+        User.ResolvedPermissions resolved = user.getResolvedPermissions();
+        if (resolved.version() == snapshot.version()) {
+            return resolved.bits();
+        }
+        return refresh(user);
+    }
+
+    // granted 是否包含 required 中的全部权限
+    public static boolean allows(long granted, long required) {
+        return (granted & required) == required;
+    }
+
+    private void link(String role, Set<String> newParents) {
+        for (String parent : parents.get(role)) {
+            children.get(parent).remove(role);
+        }
+        for (String parent : newParents) {
+            Set<String> siblings = children.get(parent);
+            if (siblings == null) {
+                throw new IllegalArgumentException("Parent role is not defined: " + parent);
+            }
+            siblings.add(role);
+        }
+        parents.put(role, newParents);
+    }
+
+    // role 本身及其全部后代
+    private Set<String> descendants(String role) {
+        Set<String> result = new LinkedHashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        queue.add(role);
+        while (!queue.isEmpty()) {
+            String next = queue.poll();
+            if (result.add(next)) {
+                queue.addAll(children.getOrDefault(next, Set.of()));
+            }
+        }
+        return result;
+    }
+
+    // 按拓扑序重新计算 affected 中各角色的有效位集（父角色先于子角色），其余角色沿用旧快照的结果，再发布新快照
+    private void publish(Set<String> affected) {
+        Snapshot previous = snapshot;
+        Map<String, Long> effective = new HashMap<>(previous.effective());
+        Map<String, Integer> pendingParents = new HashMap<>();
+        ArrayDeque<String> ready = new ArrayDeque<>();
+        for (String role : affected) {
+            int count = 0;
+            for (String parent : parents.get(role)) {
+                if (affected.contains(parent)) {
+                    count++;
+                }
+            }
+            pendingParents.put(role, count);
+            if (count == 0) {
+                ready.add(role);
+            }
+        }
+        int computed = 0;
+        while (!ready.isEmpty()) {
+            String role = ready.poll();
+            long bits = direct.get(role);
+            for (String parent : parents.get(role)) {
+                bits |= effective.get(parent);
+            }
+            effective.put(role, bits);
+            computed++;
+            for (String child : children.get(role)) {
+                if (affected.contains(child) && pendingParents.merge(child, -1, Integer::sum) == 0) {
+                    ready.add(child);
+                }
+            }
+        }
+        if (computed != affected.size()) {
+            throw new IllegalArgumentException("Role inheritance cycle among " + affected);
+        }
+        long defaultBits = defaultRole != null ? effective.get(defaultRole) : 0;
+        snapshot = new Snapshot(previous.version() + 1, Collections.unmodifiableMap(effective), defaultBits);
+    }
+
+    private record Snapshot(int version, Map<String, Long> effective, long defaultBits) {
+        long resolve(User user) {
+            Set<Role> roles = user.getRoles();
+            if (roles.isEmpty()) {
+                return defaultBits;
+            }
+            long bits = 0;
+            for (Role role : roles) {
+                bits |= effective.getOrDefault(role.getName(), 0L);
+            }
+            return bits;
+        }
+    }
+}
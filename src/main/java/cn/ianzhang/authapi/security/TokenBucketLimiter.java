@@ -0,0 +1,140 @@
+package cn.ianzhang.authapi.security;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// 按键限流的令牌桶：每个键最多积攒 capacity 个令牌，每隔 refillInterval 补充一个。
+// 每个桶只有一个 AtomicLong，记录令牌“用到”的时刻（GCRA 形式的令牌桶）：取令牌时按当前时间惰性补充，
+// 以 CAS 推进该时刻，不加锁，也不需要为每个键运行定时任务。
+// 桶的数量以 maxKeys 为上限。桶满时新键先触发一次增量清扫：从上次停下的位置起最多检查 SWEEP_BATCH 个桶，
+// 只淘汰已经攒满令牌的空闲桶（淘汰它们不改变限流结果），正在限流的桶从不被淘汰。
+// 清扫后仍然满时，新键不再建桶，而是按带随机种子的哈希落到一组溢出桶中的一个：大量新键只能分摊这几份令牌，
+// 挤不掉已有键的限流状态；一个持续被刷的键也只耗尽它所在的溢出桶，不会让其他所有新键（例如正常用户首次登录）一起被拒绝。
+// 种子每个实例随机生成，外部无法事先构造落在同一个溢出桶里的键。
+public class TokenBucketLimiter {
+    private static final int SWEEP_BATCH = 64;
+    static final int OVERFLOW_BUCKETS = 64;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    // 桶满时新键按哈希共用的桶
+    private final AtomicLong[] overflow;
+    private final long overflowSeed = ThreadLocalRandom.current().nextLong();
+    private final long intervalMillis;
+    private final long burstMillis;
+    private final int maxKeys;
+    private final Clock clock;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // 清扫位置，只在持有 evicting 时访问
+    private Iterator<AtomicLong> sweep;
+
+    public TokenBucketLimiter(int capacity, Duration refillInterval, int maxKeys) {
+        this(capacity, refillInterval, maxKeys, Clock.systemUTC());
+    }
+
+    TokenBucketLimiter(int capacity, Duration refillInterval, int maxKeys, Clock clock) {
+        this(capacity, refillInterval, maxKeys, OVERFLOW_BUCKETS, clock);
+    }
+
+    TokenBucketLimiter(int capacity, Duration refillInterval, int maxKeys, int overflowBuckets, Clock clock) {
+        if (capacity <= 0 || refillInterval.toMillis() <= 0 || maxKeys <= 0 || overflowBuckets <= 0) {
+            throw new IllegalArgumentException("capacity, refillInterval, maxKeys and overflowBuckets must be positive");
+        }
+        this.overflow = new AtomicLong[overflowBuckets];
+        for (int i = 0; i < overflowBuckets; i++) {
+            overflow[i] = new AtomicLong();
+        }
+        this.intervalMillis = refillInterval.toMillis();
+        this.burstMillis = intervalMillis * capacity;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    // 为 key 取一个令牌，令牌不足时返回 false
+    public boolean tryAcquire(String key) {
+        long now = clock.millis();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                sweep(now);
+            }
+            bucket = buckets.size() < maxKeys ? buckets.computeIfAbsent(key, k -> new AtomicLong(now)) : overflow(key);
+        }
+        while (true) {
+            long usedUntil = bucket.get();
+            long next = Math.max(usedUntil, now) + intervalMillis;
+            if (next - now > burstMillis) {
+                rejections.increment();
+                return false;
+            }
+            if (bucket.compareAndSet(usedUntil, next)) {
+                return true;
+            }
+        }
+    }
+
+    // 再过多久 key 可以取到令牌，立即可取时返回 0
+    public long millisUntilAvailable(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.size() >= maxKeys ? overflow(key) : null;
+        }
+        if (bucket == null) {
+            return 0;
+        }
+        long now = clock.millis();
+        return Math.max(0, bucket.get() + intervalMillis - burstMillis - now);
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // 按带种子的哈希选溢出桶；不用 String.hashCode，它的碰撞与种子无关，可以离线批量构造
+    private AtomicLong overflow(String key) {
+        long h = overflowSeed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x9E3779B97F4A7C15L;
+        }
+        h ^= h >>> 32;
+        return overflow[(int) Math.floorMod(h, (long) overflow.length)];
+    }
+
+    // 同一时刻只由一个线程清扫，每次最多检查 SWEEP_BATCH 个桶
+    private void sweep(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int examined = 0; examined < SWEEP_BATCH && buckets.size() >= maxKeys; examined++) {
+                if (sweep == null || !sweep.hasNext()) {
+                    sweep = buckets.values().iterator();
+                    if (!sweep.hasNext()) {
+                        return;
+                    }
+                }
+                if (sweep.next().get() <= now) {
+                    sweep.remove();
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package cn.ianzhang.authapi.service;
+
+// 一次批量导入或快照恢复的结果统计
+public class ImportSummary {
+    private long created;
+    private long exists;
+    private long invalid;
+    private long failed;
+    // 新建的用户中，快照里的角色没有（全部）恢复的用户数
+    private long rolesDropped;
+
+    void count(UserImportService.Status status) {
+        switch (status) {
+            case CREATED -> created++;
+            case EXISTS -> exists++;
+            case INVALID -> invalid++;
+            case FAILED -> failed++;
+        }
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getExists() {
+        return exists;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    void countRolesDropped() {
+        rolesDropped++;
+    }
+
+    public long getRolesDropped() {
+        return rolesDropped;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportSummary{" +
+                "created=" + created +
+                ", exists=" + exists +
+                ", invalid=" + invalid +
+                ", failed=" + failed +
+                ", rolesDropped=" + rolesDropped +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+package cn.ianzhang.authapi.service;
+
+import cn.ianzhang.authapi.model.User;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+// UserService 的响应式门面，供 WebFlux 控制器使用。
+// 注册、登录要等待密码散列线程池，查找用户在 jdbc 存储下可能访问数据库，这些调用切换到 blockingScheduler 执行，
+// 不占用事件循环。会话解析、登出通常只访问内存中的会话表和用户ID表，直接在调用线程（Netty 事件循环）上完成；
+// 签名会话在解析时按用户名查找用户，可能访问数据库，此时 sessionLookupBlocks 为 true，
+// 会话解析同样切换到 blockingScheduler。
+// 异常（HashingBusyException、AccountLockedException 等）以错误信号传递
+public class ReactiveUserService {
+    private final UserService userService;
+    private final Scheduler blockingScheduler;
+    private final boolean sessionLookupBlocks;
+
+    public ReactiveUserService(UserService userService, Scheduler blockingScheduler) {
+        this(userService, blockingScheduler, false);
+    }
+
+    public ReactiveUserService(UserService userService, Scheduler blockingScheduler, boolean sessionLookupBlocks) {
+        this.userService = userService;
+        this.blockingScheduler = blockingScheduler;
+        this.sessionLookupBlocks = sessionLookupBlocks;
+    }
+
+    public Mono<Boolean> register(User user) {
+        return Mono.fromCallable(() -> userService.register(user)).subscribeOn(blockingScheduler);
+    }
+
+    public Mono<UserService.RegistrationResult> registerAccount(User user) {
+        return Mono.fromCallable(() -> userService.registerAccount(user)).subscribeOn(blockingScheduler);
+    }
+
+    public Mono<Boolean> isEmailTaken(String email) {
+        return Mono.fromCallable(() -> userService.isEmailTaken(email)).subscribeOn(blockingScheduler);
+    }
+
+    // 登录成功时发出会话令牌，用户名或密码错误时为空
+    public Mono<String> login(String username, String password) {
+        return Mono.fromCallable(() -> userService.login(username, password)).subscribeOn(blockingScheduler);
+    }
+
+    public Mono<String> loginByEmail(String email, String password) {
+        return Mono.fromCallable(() -> userService.loginByEmail(email, password)).subscribeOn(blockingScheduler);
+    }
+
+    // 会话对应的用户，会话无效时为空
+    public Mono<User> getUserBySessionId(String sessionId) {
+        return sessionLookup(Mono.fromSupplier(() -> userService.getUserBySessionId(sessionId)));
+    }
+
+    public Mono<Void> logout(String sessionId) {
+        return Mono.fromRunnable(() -> userService.logout(sessionId));
+    }
+
+    // 注销会话所属用户的全部会话，会话无效时发出 -1
+    public Mono<Integer> logoutAll(String sessionId) {
+        return sessionLookup(Mono.fromSupplier(() -> userService.logoutAll(sessionId)));
+    }
+
+    private <T> Mono<T> sessionLookup(Mono<T> lookup) {
+        return sessionLookupBlocks ? lookup.subscribeOn(blockingScheduler) : lookup;
+    }
+}
@@ -0,0 +1,403 @@
+package cn.ianzhang.authapi.service;
+
+import cn.ianzhang.authapi.dto.RegisterRequest;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// 批量导入用户：流式读取 NDJSON 或 CSV，每 chunkSize 条记录为一块，
+// 在独立的 fork-join 池中并行校验和散列，再按块顺序写入 UserService，并按输入顺序逐条流式写回结果。
+// 散列当前块的同时解析下一块，内存中最多同时存在两块记录，与输入总量无关。
+// 单行最多 MAX_LINE_LENGTH 个字符，更长的行计为无效并跳到下一个换行符，没有换行的超大输入也不会整块缓冲在堆上。
+// 导入的散列不经过登录用的有界线程池，因此并行度最多为处理器数的一半，给登录和注册的散列留出 CPU。
+public class UserImportService implements AutoCloseable {
+    public static final String TOKEN_HEADER = "X-Import-Token";
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    public enum Status {
+        CREATED, EXISTS, INVALID, FAILED
+    }
+
+    private static final String[] CSV_COLUMNS = {"username", "password", "email"};
+
+    static final int MAX_LINE_LENGTH = 4096;
+
+    static final int MAX_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private final UserService userService;
+    private final PasswordHashingService passwordHashing;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final byte[] token;
+
+    public UserImportService(UserService userService, PasswordHashingService passwordHashing,
+                             ObjectMapper objectMapper, int parallelism, int chunkSize, String token) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.userService = userService;
+        this.passwordHashing = passwordHashing;
+        this.objectMapper = objectMapper;
+        this.pool = new ForkJoinPool(Math.min(Math.max(1, parallelism), MAX_PARALLELISM), pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("user-import-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.chunkSize = chunkSize;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 未配置导入令牌时一律拒绝
+    public boolean isAuthorized(String provided) {
+        return token.length > 0 && provided != null
+                && MessageDigest.isEqual(token, provided.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 导入 in 中的全部记录，每条记录的结果以一行 JSON 写入 out，最后一行为汇总
+    public ImportSummary importUsers(InputStream in, Format format, OutputStream out) throws IOException {
+        LineReader reader = new LineReader(new InputStreamReader(in, StandardCharsets.UTF_8), MAX_LINE_LENGTH);
+        RecordParser parser = format == Format.CSV ? new CsvParser() : new NdjsonParser();
+        ImportSummary summary = new ImportSummary();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // 输出流归调用方所有，关闭生成器时不关闭它
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            ForkJoinTask<List<Row>> inFlight = null;
+            List<Row> chunk;
+            while (!(chunk = readChunk(reader, parser)).isEmpty()) {
+                ForkJoinTask<List<Row>> next = pool.submit(prepare(chunk));
+                if (inFlight != null) {
+                    write(generator, register(inFlight.join()), summary);
+                }
+                inFlight = next;
+            }
+            if (inFlight != null) {
+                write(generator, register(inFlight.join()), summary);
+            }
+            generator.writeStartObject();
+            generator.writeNumberField("created", summary.getCreated());
+            generator.writeNumberField("exists", summary.getExists());
+            generator.writeNumberField("invalid", summary.getInvalid());
+            generator.writeNumberField("failed", summary.getFailed());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        return summary;
+    }
+
+    private List<Row> readChunk(LineReader reader, RecordParser parser) throws IOException {
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while (chunk.size() < chunkSize && (line = reader.readLine()) != null) {
+            Row row = reader.isOverlong()
+                    ? parser.overlong(reader.getLineNumber()) : parser.parse(reader.getLineNumber(), line);
+            if (row != null) {
+                chunk.add(row);
+            }
+        }
+        return chunk;
+    }
+
+    // 在 fork-join 池中并行执行：校验字段、散列密码；用户名和邮箱是否已占用由写入时的 saveIfAbsent 判定，不预先查询
+    private Callable<List<Row>> prepare(List<Row> chunk) {
+        return () -> {
+            chunk.parallelStream().forEach(this::prepare);
+            return chunk;
+        };
+    }
+
+    private void prepare(Row row) {
+        if (row.status != null) {
+            return;
+        }
+        if (isBlank(row.username) || isBlank(row.password) || isBlank(row.email)) {
+            row.reject(Status.INVALID, "用户名、密码和邮箱不能为空");
+            return;
+        }
+        if (User.isUsernameTooLong(row.username)) {
+            row.reject(Status.INVALID, "用户名超过 " + User.MAX_USERNAME_BYTES + " 字节");
+            return;
+        }
+        if (User.isEmailTooLong(row.email)) {
+            row.reject(Status.INVALID, "邮箱超过 " + User.MAX_EMAIL_LENGTH + " 个字符");
+            return;
+        }
+        row.user = new User(row.username, passwordHashing.hashInline(row.password), row.email);
+    }
+
+    // 整块顺序写入存储，jdbc 存储会把这些插入合并成批量写；
+    // 同一块内重复的用户名或邮箱由 saveIfAbsent 保证只有第一条成功，单条失败不影响其余记录
+    private List<Row> register(List<Row> chunk) {
+        for (Row row : chunk) {
+            if (row.user == null) {
+                continue;
+            }
+            try {
+                if (userService.registerHashed(row.user)) {
+                    row.status = Status.CREATED;
+                } else {
+                    row.reject(Status.EXISTS, "用户名或邮箱已存在");
+                }
+            } catch (RuntimeException e) {
+                row.reject(Status.FAILED, "用户存储暂不可用");
+            }
+            row.user = null;
+        }
+        return chunk;
+    }
+
+    private void write(JsonGenerator generator, List<Row> chunk, ImportSummary summary) throws IOException {
+        for (Row row : chunk) {
+            summary.count(row.status);
+            generator.writeStartObject();
+            generator.writeNumberField("line", row.line);
+            generator.writeStringField("username", row.username);
+            generator.writeStringField("status", row.status.name());
+            if (row.message != null) {
+                generator.writeStringField("message", row.message);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        // 每块写完就推送给客户端，不在服务端积压结果
+        generator.flush();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    int parallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private interface RecordParser {
+        // 解析一行输入，空行返回 null
+        Row parse(int lineNumber, String line);
+
+        // 超过长度上限的行，内容已被丢弃
+        default Row overlong(int lineNumber) {
+            Row row = new Row(lineNumber, null, null, null);
+            row.reject(Status.INVALID, "记录超过 " + MAX_LINE_LENGTH + " 个字符");
+            return row;
+        }
+    }
+
+    private final class NdjsonParser implements RecordParser {
+        @Override
+        public Row parse(int lineNumber, String line) {
+            if (line.isBlank()) {
+                return null;
+            }
+            try {
+                RegisterRequest request = objectMapper.readValue(line, RegisterRequest.class);
+                return new Row(lineNumber, request.getUsername(), request.getPassword(), request.getEmail());
+            } catch (JsonProcessingException e) {
+                Row row = new Row(lineNumber, null, null, null);
+                row.reject(Status.INVALID, "无法解析的 JSON 记录");
+                return row;
+            }
+        }
+    }
+
+    // 第一行为表头，列名为 username、password、email，顺序任意；字段支持 RFC 4180 双引号转义，不支持跨行字段
+    private static final class CsvParser implements RecordParser {
+        private final int[] columns = new int[CSV_COLUMNS.length];
+        private boolean headerRead;
+
+        @Override
+        public Row parse(int lineNumber, String line) {
+            if (line.isBlank()) {
+                return null;
+            }
+            List<String> fields = split(line);
+            if (!headerRead) {
+                headerRead = true;
+                readHeader(fields);
+                return null;
+            }
+            if (fields == null || columns[0] < 0) {
+                Row row = new Row(lineNumber, null, null, null);
+                row.reject(Status.INVALID, columns[0] < 0 ? "CSV 表头缺少必需的列" : "无法解析的 CSV 记录");
+                return row;
+            }
+            return new Row(lineNumber, field(fields, columns[0]), field(fields, columns[1]), field(fields, columns[2]));
+        }
+
+        // 表头超长时按缺少必需的列处理，之后的每一行都计为无效
+        @Override
+        public Row overlong(int lineNumber) {
+            if (!headerRead) {
+                headerRead = true;
+                readHeader(null);
+                return null;
+            }
+            return RecordParser.super.overlong(lineNumber);
+        }
+
+        private void readHeader(List<String> header) {
+            for (int i = 0; i < CSV_COLUMNS.length; i++) {
+                columns[i] = header != null ? indexOf(header, CSV_COLUMNS[i]) : -1;
+            }
+            if (columns[1] < 0 || columns[2] < 0) {
+                columns[0] = -1;
+            }
+        }
+
+        private static int indexOf(List<String> header, String column) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).trim().equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index < fields.size() ? fields.get(index) : null;
+        }
+
+        // 引号不配对时返回 null
+        static List<String> split(String line) {
+            List<String> fields = new ArrayList<>(CSV_COLUMNS.length);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    // 按 \n 分行并去掉行尾的 \r；超过 maxLength 的行不再缓冲，其余部分读到换行符为止直接丢弃
+    static final class LineReader {
+        private final Reader in;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private int lineNumber;
+        private boolean overlong;
+
+        LineReader(Reader in, int maxLength) {
+            this.in = in;
+            this.maxLength = maxLength;
+        }
+
+        // 返回下一行，输入结束时返回 null；超长的行返回空串，isOverlong 为 true
+        String readLine() throws IOException {
+            line.setLength(0);
+            overlong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(0, in.read(buffer));
+                    position = 0;
+                    if (limit == 0) {
+                        if (!read) {
+                            return null;
+                        }
+                        break;
+                    }
+                }
+                read = true;
+                char c = buffer[position++];
+                if (c == '\n') {
+                    break;
+                }
+                if (overlong) {
+                    continue;
+                }
+                if (line.length() >= maxLength) {
+                    overlong = true;
+                    line.setLength(0);
+                    continue;
+                }
+                line.append(c);
+            }
+            lineNumber++;
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(length - 1);
+            }
+            return line.toString();
+        }
+
+        boolean isOverlong() {
+            return overlong;
+        }
+
+        int getLineNumber() {
+            return lineNumber;
+        }
+    }
+
+    private static final class Row {
+        final int line;
+        final String username;
+        final String password;
+        final String email;
+        User user;
+        Status status;
+        String message;
+
+        Row(int line, String username, String password, String email) {
+            this.line = line;
+            this.username = username;
+            this.password = password;
+            this.email = email;
+        }
+
+        void reject(Status status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+}
@@ -1,57 +1,346 @@
 package cn.ianzhang.authapi.service;
 
+import cn.ianzhang.authapi.dto.UserSearchPage;
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.model.Role;
 import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.repository.EmailIndex;
+import cn.ianzhang.authapi.repository.UserIdTable;
+import cn.ianzhang.authapi.repository.UserRepository;
+import cn.ianzhang.authapi.security.AccountLockedException;
+import cn.ianzhang.authapi.security.CredentialCache;
+import cn.ianzhang.authapi.security.HashingBusyException;
+import cn.ianzhang.authapi.security.LoginFailureTracker;
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import cn.ianzhang.authapi.security.RolePermissions;
+import cn.ianzhang.authapi.session.SessionManager;
+import cn.ianzhang.authapi.session.SessionPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class UserService {
-    private final Map<String, User> userStore = new ConcurrentHashMap<>();
-    private final Map<String, String> sessionStore = new ConcurrentHashMap<>();
+    // 用户名搜索每页的最大条数
+    public static final int MAX_SEARCH_LIMIT = 100;
 
-    // 注册新用户
+    private final UserRepository userRepository;
+    private final UserIdTable userIds;
+    private final SessionManager sessionManager;
+    private final PasswordHashingService passwordHashing;
+    private final CredentialCache credentialCache;
+    private final RolePermissions rolePermissions;
+    private final LoginFailureTracker loginFailures;
+    // 配置为初始管理员、但启动时还不存在的用户名，不允许注册，避免他人抢注后在下次启动时获得管理员角色
+    private volatile Set<String> reservedUsernames = Set.of();
+
+    public UserService(UserRepository userRepository, UserIdTable userIds, SessionManager sessionManager,
+                       PasswordHashingService passwordHashing, CredentialCache credentialCache) {
+        this(userRepository, userIds, sessionManager, passwordHashing, credentialCache, RolePermissions.defaults());
+    }
+
+    public UserService(UserRepository userRepository, UserIdTable userIds, SessionManager sessionManager,
+                       PasswordHashingService passwordHashing, CredentialCache credentialCache,
+                       RolePermissions rolePermissions) {
+        this(userRepository, userIds, sessionManager, passwordHashing, credentialCache, rolePermissions,
+                LoginFailureTracker.disabled());
+    }
+
+    @Autowired
+    public UserService(UserRepository userRepository, UserIdTable userIds, SessionManager sessionManager,
+                       PasswordHashingService passwordHashing, CredentialCache credentialCache,
+                       RolePermissions rolePermissions, LoginFailureTracker loginFailures) {
+        this.userRepository = userRepository;
+        this.userIds = userIds;
+        this.sessionManager = sessionManager;
+        this.passwordHashing = passwordHashing;
+        this.credentialCache = credentialCache;
+        this.rolePermissions = rolePermissions;
+        this.loginFailures = loginFailures;
+    }
+
+    // 注册结果；用户名和邮箱是否被占用都由 saveIfAbsent 判定，失败后才区分是哪一个
+    public enum RegistrationResult {
+        CREATED, USERNAME_TAKEN, EMAIL_TAKEN
+    }
+
+    // 注册新用户，密码散列后再存储；用户名或邮箱已被占用时返回 false。散列线程池繁忙时抛出 HashingBusyException
     public boolean register(User user) {
-        // 检查用户名是否已存在
-        if (userStore.containsKey(user.getUsername())) {
+        return registerAccount(user) == RegistrationResult.CREATED;
+    }
+
+    // 同 register，但区分用户名和邮箱被占用。调用方不必也不应在注册前另行调用 isEmailTaken。
+    // 用户名或邮箱超出 User 中的长度上限时抛出 IllegalArgumentException
+    public RegistrationResult registerAccount(User user) {
+        checkStorable(user);
+        // 用户名和邮箱都不预先查询：saveIfAbsent 本身要查一次（jdbc 存储内存索引未命中时查库，集群模式下询问其他节点），
+        // 预查只会让每次注册多一轮同样的查询；代价是已被占用时密码仍要散列一次
+        if (reservedUsernames.contains(user.getUsername())) {
+            return RegistrationResult.USERNAME_TAKEN;
+        }
+        user.setPassword(passwordHashing.hash(user.getPassword()));
+        // 原子地存储用户信息，并发注册同一用户名或邮箱时只有一个成功
+        if (!userRepository.saveIfAbsent(user)) {
+            return rejectionOf(user);
+        }
+        intern(user);
+        return RegistrationResult.CREATED;
+    }
+
+    // 注册失败后才区分原因：邮箱属于另一个用户即为邮箱被占用，否则是用户名被占用
+    private RegistrationResult rejectionOf(User user) {
+        User holder = userRepository.findByEmail(user.getEmail());
+        return holder != null && !holder.getUsername().equals(user.getUsername())
+                ? RegistrationResult.EMAIL_TAKEN : RegistrationResult.USERNAME_TAKEN;
+    }
+
+    // 注册密码已散列的用户，供批量导入和快照恢复使用；与 register 一样拒绝保留的管理员用户名。
+    // 字段超长、散列格式不正确或迭代次数超出上限时抛出 IllegalArgumentException
+    public boolean registerHashed(User user) {
+        checkStorable(user);
+        if (user.getPassword() == null || user.getPassword().length() > User.MAX_PASSWORD_LENGTH
+                || !passwordHashing.isAcceptableHash(user.getPassword())) {
+            throw new IllegalArgumentException("Unacceptable password hash");
+        }
+        if (reservedUsernames.contains(user.getUsername()) || !userRepository.saveIfAbsent(user)) {
             return false;
         }
-        // 存储用户信息
-        userStore.put(user.getUsername(), user);
+        intern(user);
         return true;
     }
 
-    // 用户登录
+    // 超长的用户名无法签发签名会话令牌，注册后也无法登录；超出列宽的邮箱和角色列表会在写后批量写库时失败。都在存储之前拒绝
+    private static void checkStorable(User user) {
+        if (User.isUsernameTooLong(user.getUsername())) {
+            throw new IllegalArgumentException("Username exceeds " + User.MAX_USERNAME_BYTES + " UTF-8 bytes");
+        }
+        if (User.isEmailTooLong(user.getEmail())) {
+            throw new IllegalArgumentException("Email exceeds " + User.MAX_EMAIL_LENGTH + " characters");
+        }
+        if (User.rolesLength(user.getRoles()) > User.MAX_ROLES_LENGTH) {
+            throw new IllegalArgumentException("Role list exceeds " + User.MAX_ROLES_LENGTH + " characters");
+        }
+    }
+
+    public boolean isUsernameTaken(String username) {
+        return userRepository.existsByUsername(username);
+    }
+
+    public boolean isEmailTaken(String email) {
+        return userRepository.findByEmail(email) != null;
+    }
+
+    // 弱一致地遍历所有用户，供导出使用
+    public void forEachUser(Consumer<User> action) {
+        userRepository.forEach(action);
+    }
+
+    // 用户登录；散列线程池繁忙时抛出 HashingBusyException，账号被临时锁定时抛出 AccountLockedException
     public String login(String username, String password) {
-        User user = userStore.get(username);
-        // 验证用户是否存在且密码正确
-        if (user != null && user.getPassword().equals(password)) {
-            // 生成简单的会话ID（实际应用中应使用更安全的方式）
-            String sessionId = "session-" + System.currentTimeMillis() + "-" + username;
-            sessionStore.put(sessionId, username);
-            return sessionId;
+        return authenticate(userRepository.findByUsername(username), "username:" + username, password);
+    }
+
+    // 以邮箱登录，邮箱不区分大小写；散列线程池繁忙时抛出 HashingBusyException，账号被临时锁定时抛出 AccountLockedException
+    public String loginByEmail(String email, String password) {
+        return authenticate(userRepository.findByEmail(email), "email:" + EmailIndex.normalize(email), password);
+    }
+
+    // 已存在的账号按用户名计失败次数，用户名登录和邮箱登录共用；不存在的账号按尝试的用户名或邮箱计。
+    // 锁定期间不校验密码，存在与不存在的账号同样快速拒绝
+    private String authenticate(User user, String attempted, String password) {
+        String account = user != null ? user.getUsername() : attempted;
+        long lockedMillis = loginFailures.lockedMillis(account, user != null);
+        if (lockedMillis > 0) {
+            throw new AccountLockedException(lockedMillis);
+        }
+        if (user == null) {
+            // 用户不存在时同样执行一次散列，避免通过响应时间区分用户是否存在
+            passwordHashing.verifyDummy(password);
+            loginFailures.recordFailure(account, false);
+            return null;
         }
-        return null;
+        // 验证密码是否正确，缓存命中时跳过慢速散列
+        String username = user.getUsername();
+        String storedHash = user.getPassword();
+        if (!credentialCache.verify(username, password, storedHash)) {
+            if (!passwordHashing.verify(password, storedHash)) {
+                loginFailures.recordFailure(account, true);
+                return null;
+            }
+            if (passwordHashing.needsRehash(storedHash)) {
+                upgradePasswordHash(user, password);
+            }
+            credentialCache.put(username, password, user.getPassword());
+        }
+        loginFailures.recordSuccess(account);
+        // 按配置的会话模式签发令牌，会话只记录用户ID
+        while (true) {
+            int userId = intern(user);
+            String token = sessionManager.create(userId, user.getUsername());
+            // 创建会话前ID可能恰好被并发释放；创建后仍在表中说明 release 已能看到这个会话
+            if (userIds.isAssigned(userId)) {
+                return token;
+            }
+            sessionManager.invalidate(token);
+        }
+    }
+
+    // 分配用户ID，同时按用户当前的角色重新计算权限位集
+    private int intern(User user) {
+        rolePermissions.refresh(user);
+        return userIds.intern(user);
     }
 
-    // 验证会话是否有效
+    // 释放不再被会话引用的用户ID，供近端缓存淘汰用户时回收ID表槽位；返回是否释放
+    public boolean releaseUserId(String username) {
+        return userIds.release(username, sessionManager::hasSessions);
+    }
+
+    // 把旧版明文或低迭代次数的散列升级为当前参数；线程池繁忙时跳过，下次登录再试
+    private void upgradePasswordHash(User user, String password) {
+        try {
+            user.setPassword(passwordHashing.hash(password));
+            userRepository.update(user);
+        } catch (HashingBusyException e) {
+            // 升级不影响本次登录结果
+        }
+    }
+
+    // 验证会话是否有效，已过期的会话视为无效
     public boolean isSessionValid(String sessionId) {
-        return sessionStore.containsKey(sessionId);
+        return sessionManager.resolve(sessionId) != SessionManager.NO_USER;
     }
 
     // 根据会话ID获取用户名
     public String getUsernameBySessionId(String sessionId) {
-        return sessionStore.get(sessionId);
+        SessionPrincipal principal = resolvePrincipal(sessionId);
+        return principal != null ? principal.username() : null;
+    }
+
+    // 根据会话ID解析会话主体：只探查一次会话表，再以用户ID做一次数组访问，会话无效时返回 null。
+    // 先 isSessionValid 再取用户名要查两次会话表，两次之间会话可能已被注销
+    public SessionPrincipal resolvePrincipal(String sessionId) {
+        int userId = sessionManager.resolve(sessionId);
+        User user = userIds.get(userId);
+        return user != null ? new SessionPrincipal(sessionId, userId, user.getUsername()) : null;
+    }
+
+    // 根据会话ID获取用户：一次会话解析加一次数组访问，会话无效时返回 null
+    public User getUserBySessionId(String sessionId) {
+        return userIds.get(sessionManager.resolve(sessionId));
     }
 
     // 用户登出
     public void logout(String sessionId) {
-        sessionStore.remove(sessionId);
+        sessionManager.invalidate(sessionId);
+    }
+
+    // 注销会话所属用户的全部会话（包括该会话本身），返回注销的条数；会话无效时返回 -1。
+    // 自定义的会话管理实现不支持时抛出 SessionOperationUnsupportedException
+    public int logoutAll(String sessionId) {
+        SessionPrincipal principal = resolvePrincipal(sessionId);
+        if (principal == null) {
+            return -1;
+        }
+        return sessionManager.invalidateAll(principal.userId(), principal.username());
     }
 
     // 根据用户名获取用户信息
     public User getUserByUsername(String username) {
-        return userStore.get(username);
+        return userRepository.findByUsername(username);
+    }
+
+    // 用户当前的权限位集，角色定义变化后会重新解析
+    public long permissionsOf(User user) {
+        return rolePermissions.permissionsOf(user);
+    }
+
+    // 会话所属用户是否具有指定权限；会话无效时返回 false
+    public boolean hasPermission(String sessionId, Permission permission) {
+        User user = getUserBySessionId(sessionId);
+        return user != null && RolePermissions.allows(rolePermissions.permissionsOf(user), permission.bit());
+    }
+
+    public boolean isRoleDefined(String role) {
+        return rolePermissions.isDefined(role);
+    }
+
+    public long permissionsOf(SessionPrincipal principal) {
+        User user = userIds.get(principal.userId());
+        return user != null ? rolePermissions.permissionsOf(user) : 0;
+    }
+
+    // 新增或修改角色定义；已登录用户的权限在下次鉴权时按新定义重新解析。
+    // 父角色未定义或继承成环时抛出 IllegalArgumentException
+    public void defineRole(String role, Collection<Permission> permissions, Collection<String> parents) {
+        rolePermissions.defineRole(role, permissions, parents);
+    }
+
+    // 替换用户的角色；用户不存在时返回 false，包含未定义的角色或角色列表超出 User.MAX_ROLES_LENGTH 时抛出 IllegalArgumentException。
+    // 新权限对该用户已有的会话立即生效；集群模式下其他节点上的会话要等用户重新登录才生效
+    public boolean assignRoles(String username, Set<String> roleNames) {
+        Set<Role> roles = new HashSet<>();
+        for (String name : roleNames) {
+            if (!rolePermissions.isDefined(name)) {
+                throw new IllegalArgumentException("Undefined role: " + name);
+            }
+            roles.add(new Role(name));
+        }
+        if (User.rolesLength(roles) > User.MAX_ROLES_LENGTH) {
+            throw new IllegalArgumentException("Role list exceeds " + User.MAX_ROLES_LENGTH + " characters");
+        }
+        User user = userRepository.findByUsername(username);
+        if (user == null) {
+            return false;
+        }
+        user.setRoles(Set.copyOf(roles));
+        userRepository.update(user);
+        intern(user);
+        return true;
+    }
+
+    // 启动时为已存在的账号持久化地加上管理员角色，已有该角色的账号不变；返回本次新授予的用户名。
+    // 不存在的用户名被保留，不允许注册；要初始化第一个管理员，先注册该账号再把它加入配置并重启
+    public List<String> bootstrapAdmins(Collection<String> usernames) {
+        if (!usernames.isEmpty() && !rolePermissions.isDefined(RolePermissions.ADMIN_ROLE)) {
+            throw new IllegalArgumentException("Undefined role: " + RolePermissions.ADMIN_ROLE);
+        }
+        Role admin = new Role(RolePermissions.ADMIN_ROLE);
+        List<String> granted = new ArrayList<>();
+        Set<String> missing = new HashSet<>();
+        for (String username : usernames) {
+            User user = userRepository.findByUsername(username);
+            if (user == null) {
+                missing.add(username);
+            } else if (!user.getRoles().contains(admin)) {
+                Set<Role> roles = new HashSet<>(user.getRoles());
+                roles.add(admin);
+                user.setRoles(Set.copyOf(roles));
+                userRepository.update(user);
+                intern(user);
+                granted.add(username);
+            }
+        }
+        reservedUsernames = Set.copyOf(missing);
+        return granted;
+    }
+
+    // 按前缀搜索用户名，limit 限制在 [1, MAX_SEARCH_LIMIT]；返回满页时以最后一个用户名作为下一页的游标
+    public UserSearchPage searchUsernames(String prefix, String after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        List<String> usernames = userRepository.findUsernamesByPrefix(prefix, after, pageSize);
+        String next = usernames.size() == pageSize ? usernames.get(pageSize - 1) : null;
+        return new UserSearchPage(usernames, next);
+    }
+
+    // 根据邮箱获取用户信息，邮箱不区分大小写
+    public User getUserByEmail(String email) {
+        return userRepository.findByEmail(email);
     }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package cn.ianzhang.authapi.service;
+
+import cn.ianzhang.authapi.cluster.UserCodec;
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Set;
+
+// 用户导出与快照：边遍历存储边写出，不把用户收集成列表，内存占用只有一个固定大小的写缓冲。
+// NDJSON 便于查看和对接其他系统；二进制快照更紧凑，并可用 restore 恢复。
+// 快照格式：[魔数 "USNP"][版本]，之后每个用户为 [int 长度][UserCodec 编码]，以长度 0 结尾，截断的快照可被识别。
+// 导出内容包含密码散列，接口由单独的导出令牌保护，持有导入令牌不能导出。
+// 恢复接口只要求导入令牌，快照中的角色只有在调用方另外具有 ROLE_MANAGE 权限时才恢复（未定义的角色仍被丢弃），
+// 否则丢弃，恢复出的用户按默认角色处理；角色未恢复的用户数记入 ImportSummary.rolesDropped。
+// 密码散列格式不正确或迭代次数超出上限的记录计为无效，不会存储。
+public class UserSnapshotService {
+    public static final String EXPORT_TOKEN_HEADER = "X-Export-Token";
+
+    private static final int MAGIC = 0x55534E50;
+    private static final byte VERSION = 1;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // 单条记录的长度上限，防止格式错误的快照申请超大缓冲
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final byte[] exportToken;
+
+    public UserSnapshotService(UserService userService, ObjectMapper objectMapper, String exportToken) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.exportToken = exportToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 未配置导出令牌时一律拒绝
+    public boolean isExportAuthorized(String provided) {
+        return exportToken.length > 0 && provided != null
+                && MessageDigest.isEqual(exportToken, provided.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 每个用户一行 JSON，返回导出的用户数
+    public long exportNdjson(OutputStream out) throws IOException {
+        long[] count = new long[1];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(new BufferedOutputStream(out, BUFFER_SIZE))) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            forEachUser(user -> {
+                generator.writeStartObject();
+                generator.writeStringField("username", user.getUsername());
+                generator.writeStringField("password", user.getPassword());
+                generator.writeStringField("email", user.getEmail());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    // 写出二进制快照，返回写出的用户数
+    public long writeSnapshot(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        long[] count = new long[1];
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        forEachUser(user -> {
+            byte[] record = UserCodec.encode(user);
+            data.writeInt(record.length);
+            data.write(record);
+            count[0]++;
+        });
+        data.writeInt(0);
+        data.flush();
+        return count[0];
+    }
+
+    // 从快照恢复用户，丢弃快照中的角色
+    public ImportSummary restoreSnapshot(InputStream in) throws IOException {
+        return restoreSnapshot(in, false);
+    }
+
+    // 从快照恢复用户：已存在的用户名保持不变；keepRoles 为 true 时恢复快照中已定义的角色。
+    // 快照格式错误时抛出 IllegalArgumentException，此前的记录已经恢复
+    public ImportSummary restoreSnapshot(InputStream in, boolean keepRoles) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        ImportSummary summary = new ImportSummary();
+        try {
+            if (data.readInt() != MAGIC || data.readByte() != VERSION) {
+                throw new IllegalArgumentException("Not a user snapshot");
+            }
+            int length;
+            while ((length = data.readInt()) != 0) {
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    throw new IllegalArgumentException("Malformed snapshot record length " + length);
+                }
+                byte[] record = new byte[length];
+                data.readFully(record);
+                restore(UserCodec.decode(record), keepRoles, summary);
+            }
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated user snapshot", e);
+        }
+        return summary;
+    }
+
+    private void restore(User user, boolean keepRoles, ImportSummary summary) {
+        Set<Role> roles = new HashSet<>();
+        if (keepRoles) {
+            for (Role role : user.getRoles()) {
+                if (userService.isRoleDefined(role.getName())) {
+                    roles.add(role);
+                }
+            }
+        }
+        boolean rolesDropped = roles.size() < user.getRoles().size();
+        user.setRoles(Set.copyOf(roles));
+        UserImportService.Status status;
+        try {
+            status = userService.registerHashed(user)
+                    ? UserImportService.Status.CREATED : UserImportService.Status.EXISTS;
+        } catch (IllegalArgumentException e) {
+            status = UserImportService.Status.INVALID;
+        }
+        summary.count(status);
+        if (rolesDropped && status == UserImportService.Status.CREATED) {
+            summary.countRolesDropped();
+        }
+    }
+
+    // 遍历回调中不能抛出受检异常，IOException 经 UncheckedIOException 带出后还原
+    private void forEachUser(UserWriter writer) throws IOException {
+        try {
+            userService.forEachUser(user -> {
+                try {
+                    writer.write(user);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface UserWriter {
+        void write(User user) throws IOException;
+    }
+}
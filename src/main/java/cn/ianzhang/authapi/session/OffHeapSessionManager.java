@@ -0,0 +1,109 @@
+package cn.ianzhang.authapi.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 堆外会话（off-heap 模式）：令牌是 128 位随机数，会话以定长记录存放在 OffHeapSessionTable 中，
+// 适合数百万在线会话的场景。过期会话由后台线程定期整表扫描回收；该模式不支持会话日志。
+// 会话表不按用户建索引，因此不限制每个用户的会话数（auth.session.max-sessions-per-user 不生效，启动时记 WARN），
+// 登出全部会话需要扫描整张表。
+public class OffHeapSessionManager implements SessionManager, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OffHeapSessionManager.class);
+    // 访问时间的刷新粒度，与 SessionStore 一致
+    private static final long TOUCH_GRANULARITY_MILLIS = 1000;
+
+    private final OffHeapSessionTable table;
+    private final RandomSessionIdGenerator generator = new RandomSessionIdGenerator();
+    private final long absoluteTimeoutMillis;
+    private final Clock clock;
+    private final ScheduledExecutorService sweeper;
+
+    public OffHeapSessionManager(Duration idleTimeout, Duration absoluteTimeout, Duration sweepInterval,
+                                 int stripes, int initialCapacity) {
+        this(idleTimeout, absoluteTimeout, sweepInterval, stripes, initialCapacity, Clock.systemUTC(), true);
+    }
+
+    OffHeapSessionManager(Duration idleTimeout, Duration absoluteTimeout, Duration sweepInterval,
+                          int stripes, int initialCapacity, Clock clock, boolean startSweeper) {
+        this.table = new OffHeapSessionTable(stripes, initialCapacity, idleTimeout.toMillis(), TOUCH_GRANULARITY_MILLIS);
+        this.absoluteTimeoutMillis = absoluteTimeout.toMillis();
+        this.clock = clock;
+        if (startSweeper) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "off-heap-session-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = sweepInterval.toMillis();
+            this.sweeper.scheduleWithFixedDelay(this::sweepSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    @Override
+    public String create(int userId, String username) {
+        long now = clock.millis();
+        // 极小概率冲突时重新生成
+        while (true) {
+            String token = generator.generate();
+            if (table.put(RandomSessionIdGenerator.decodeHigh(token), RandomSessionIdGenerator.decodeLow(token),
+                    userId, now, now + absoluteTimeoutMillis, true)) {
+                return token;
+            }
+        }
+    }
+
+    @Override
+    public int resolve(String token) {
+        if (!RandomSessionIdGenerator.isWellFormed(token)) {
+            return NO_USER;
+        }
+        int userId = table.get(RandomSessionIdGenerator.decodeHigh(token), RandomSessionIdGenerator.decodeLow(token),
+                clock.millis());
+        return userId != OffHeapSessionTable.NOT_FOUND ? userId : NO_USER;
+    }
+
+    @Override
+    public void invalidate(String token) {
+        if (RandomSessionIdGenerator.isWellFormed(token)) {
+            table.remove(RandomSessionIdGenerator.decodeHigh(token), RandomSessionIdGenerator.decodeLow(token));
+        }
+    }
+
+    // 会话表不按用户建索引，逐段扫描整张表；登出全部会话是低频操作，扫描期间每次只锁一段
+    @Override
+    public int invalidateAll(int userId, String username) {
+        return table.removeUser(userId);
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    // 回收已过期的会话，返回回收的条数
+    int sweep() {
+        return table.removeExpired(clock.millis());
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Off-heap session sweep failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+}
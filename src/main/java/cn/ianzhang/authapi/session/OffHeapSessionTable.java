@@ -0,0 +1,310 @@
+package cn.ianzhang.authapi.session;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.StampedLock;
+
+// 堆外会话表：128 位令牌映射到 int 用户ID，数据存放在直接内存（direct ByteBuffer）中，
+// 每个会话只占固定 40 字节、不产生任何 Java 对象，老年代不再被海量会话撑大。
+// 表按令牌散列分段，每段是一张线性探测的开放寻址表，由一把 StampedLock 保护：
+// 读操作先走乐观读，校验失败再退回读锁；写操作持写锁，删除采用向后移位，不留墓碑。
+// 每个槽位布局：[0-7] 令牌高 64 位 [8-15] 令牌低 64 位 [16-23] 绝对过期时间
+//              [24-31] 最近访问时间 [32-35] 用户ID [36-39] 状态（0 空 1 占用）
+public class OffHeapSessionTable {
+    public static final int NOT_FOUND = -1;
+
+    static final int ENTRY_BYTES = 40;
+    private static final int HI = 0;
+    private static final int LO = 8;
+    private static final int ABSOLUTE_EXPIRES_AT = 16;
+    private static final int LAST_ACCESSED_AT = 24;
+    private static final int USER_ID = 32;
+    private static final int STATE = 36;
+    private static final int OCCUPIED = 1;
+    // probe 返回值中表示需要刷新访问时间的标志位
+    private static final long NEEDS_TOUCH = 1L << 32;
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / ENTRY_BYTES;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final long idleTimeoutMillis;
+    private final long touchGranularityMillis;
+
+    public OffHeapSessionTable(int stripes, int initialCapacity, long idleTimeoutMillis, long touchGranularityMillis) {
+        int stripeCount = ceilPowerOfTwo(stripes);
+        this.stripes = new Stripe[stripeCount];
+        // 按 3/4 的装载因子预留槽位，装入 initialCapacity 个会话前不必扩容
+        long slots = (initialCapacity * 4L / 3 + stripeCount - 1) / stripeCount;
+        int perStripe = Math.max(MIN_CAPACITY, ceilPowerOfTwo((int) Math.min(MAX_CAPACITY, slots)));
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(perStripe);
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.touchGranularityMillis = touchGranularityMillis;
+    }
+
+    // 插入或覆盖一条会话；返回 false 表示令牌已存在且未被覆盖（onlyIfAbsent 为 true 时）
+    public boolean put(long hi, long lo, int userId, long now, long absoluteExpiresAt, boolean onlyIfAbsent) {
+        long hash = hash(hi, lo);
+        Stripe stripe = stripeFor(hash);
+        long stamp = stripe.lock.writeLock();
+        try {
+            if ((stripe.size + 1) * 4L > stripe.capacity * 3L) {
+                stripe.resize(stripe.capacity << 1);
+            }
+            int slot = stripe.find(hash, hi, lo);
+            if (slot >= 0) {
+                if (onlyIfAbsent && !isExpired(stripe.table, slot * ENTRY_BYTES, now)) {
+                    return false;
+                }
+            } else {
+                slot = -slot - 1;
+                stripe.size++;
+            }
+            int base = slot * ENTRY_BYTES;
+            ByteBuffer table = stripe.table;
+            table.putLong(base + HI, hi);
+            table.putLong(base + LO, lo);
+            table.putLong(base + ABSOLUTE_EXPIRES_AT, absoluteExpiresAt);
+            table.putLong(base + LAST_ACCESSED_AT, now);
+            table.putInt(base + USER_ID, userId);
+            table.putInt(base + STATE, OCCUPIED);
+            return true;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    // 查找令牌对应的用户ID，不存在或已过期时返回 NOT_FOUND；命中时按粒度刷新访问时间
+    public int get(long hi, long lo, long now) {
+        long hash = hash(hi, lo);
+        Stripe stripe = stripeFor(hash);
+        long stamp = stripe.lock.tryOptimisticRead();
+        long result = stripe.probe(hash, hi, lo, now, idleTimeoutMillis, touchGranularityMillis);
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                result = stripe.probe(hash, hi, lo, now, idleTimeoutMillis, touchGranularityMillis);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        if (result == Long.MIN_VALUE) {
+            return NOT_FOUND;
+        }
+        if ((result & NEEDS_TOUCH) != 0) {
+            touch(stripe, hash, hi, lo, now);
+        }
+        return (int) result;
+    }
+
+    public boolean remove(long hi, long lo) {
+        long hash = hash(hi, lo);
+        Stripe stripe = stripeFor(hash);
+        long stamp = stripe.lock.writeLock();
+        try {
+            int slot = stripe.find(hash, hi, lo);
+            if (slot < 0) {
+                return false;
+            }
+            stripe.delete(slot);
+            return true;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    // 逐段扫描并删除已过期的会话，返回删除的条数；由后台线程周期调用
+    public int removeExpired(long now) {
+        return removeWhere((table, base) -> isExpired(table, base, now));
+    }
+
+    // 逐段扫描并删除某个用户的全部会话，返回删除的条数；供登出全部会话使用，代价与表容量成正比
+    public int removeUser(int userId) {
+        return removeWhere((table, base) -> table.getInt(base + USER_ID) == userId);
+    }
+
+    private int removeWhere(EntryPredicate predicate) {
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                int slot = 0;
+                while (slot < stripe.capacity) {
+                    int base = slot * ENTRY_BYTES;
+                    if (stripe.table.getInt(base + STATE) == OCCUPIED && predicate.test(stripe.table, base)) {
+                        // 向后移位后当前槽位可能换成了另一条记录，需要重新检查
+                        stripe.delete(slot);
+                        removed++;
+                    } else {
+                        slot++;
+                    }
+                }
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.size;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    // 已分配的堆外内存字节数
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                bytes += (long) stripe.capacity * ENTRY_BYTES;
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return bytes;
+    }
+
+    private void touch(Stripe stripe, long hash, long hi, long lo, long now) {
+        long stamp = stripe.lock.writeLock();
+        try {
+            int slot = stripe.find(hash, hi, lo);
+            if (slot >= 0) {
+                stripe.table.putLong(slot * ENTRY_BYTES + LAST_ACCESSED_AT, now);
+            }
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean isExpired(ByteBuffer table, int base, long now) {
+        long absoluteExpiresAt = table.getLong(base + ABSOLUTE_EXPIRES_AT);
+        long lastAccessedAt = table.getLong(base + LAST_ACCESSED_AT);
+        return now >= Math.min(absoluteExpiresAt, lastAccessedAt + idleTimeoutMillis);
+    }
+
+    private Stripe stripeFor(long hash) {
+        return stripes[stripeShift == 64 ? 0 : (int) (hash >>> stripeShift)];
+    }
+
+    private static int ceilPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    // 令牌本身是随机数，这里只做一次乘法混合，让段号和槽位取自不同的位
+    private static long hash(long hi, long lo) {
+        return (hi ^ Long.rotateLeft(lo, 32)) * 0x9E3779B97F4A7C15L;
+    }
+
+    private interface EntryPredicate {
+        boolean test(ByteBuffer table, int base);
+    }
+
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        ByteBuffer table;
+        int capacity;
+        int size;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.table = ByteBuffer.allocateDirect(capacity * ENTRY_BYTES);
+        }
+
+        // 返回命中的槽位；未命中时返回 -(可插入槽位 + 1)
+        int find(long hash, long hi, long lo) {
+            int mask = capacity - 1;
+            int slot = (int) hash & mask;
+            while (true) {
+                int base = slot * ENTRY_BYTES;
+                if (table.getInt(base + STATE) != OCCUPIED) {
+                    return -slot - 1;
+                }
+                if (table.getLong(base + HI) == hi && table.getLong(base + LO) == lo) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        // 无锁探测，可能读到并发写入中的数据，调用方必须校验乐观读戳；
+        // 探测步数以容量为上限，读到脏数据也不会死循环。
+        // 命中且未过期时低 32 位为用户ID，需要刷新访问时间时置 NEEDS_TOUCH 位；否则返回 Long.MIN_VALUE
+        long probe(long hash, long hi, long lo, long now, long idleTimeoutMillis, long touchGranularityMillis) {
+            ByteBuffer snapshot = table;
+            int limit = snapshot.capacity() / ENTRY_BYTES;
+            int mask = limit - 1;
+            int slot = (int) hash & mask;
+            for (int i = 0; i < limit; i++) {
+                int base = slot * ENTRY_BYTES;
+                if (snapshot.getInt(base + STATE) != OCCUPIED) {
+                    return Long.MIN_VALUE;
+                }
+                if (snapshot.getLong(base + HI) == hi && snapshot.getLong(base + LO) == lo) {
+                    long lastAccessedAt = snapshot.getLong(base + LAST_ACCESSED_AT);
+                    long expiresAt = Math.min(snapshot.getLong(base + ABSOLUTE_EXPIRES_AT),
+                            lastAccessedAt + idleTimeoutMillis);
+                    if (now >= expiresAt) {
+                        return Long.MIN_VALUE;
+                    }
+                    long userId = snapshot.getInt(base + USER_ID) & 0xffffffffL;
+                    return now - lastAccessedAt >= touchGranularityMillis ? userId | NEEDS_TOUCH : userId;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return Long.MIN_VALUE;
+        }
+
+        // 线性探测的向后移位删除：把后续因冲突而后移的记录前移填补空位
+        void delete(int slot) {
+            int mask = capacity - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (table.getInt(next * ENTRY_BYTES + STATE) == OCCUPIED) {
+                int base = next * ENTRY_BYTES;
+                int home = (int) hash(table.getLong(base + HI), table.getLong(base + LO)) & mask;
+                boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+                if (movable) {
+                    copy(next, hole);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            table.putInt(hole * ENTRY_BYTES + STATE, 0);
+            size--;
+        }
+
+        void resize(int newCapacity) {
+            if (newCapacity > MAX_CAPACITY) {
+                throw new IllegalStateException("Off-heap session stripe is full");
+            }
+            ByteBuffer old = table;
+            int oldCapacity = capacity;
+            table = ByteBuffer.allocateDirect(newCapacity * ENTRY_BYTES);
+            capacity = newCapacity;
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                int base = slot * ENTRY_BYTES;
+                if (old.getInt(base + STATE) == OCCUPIED) {
+                    long hi = old.getLong(base + HI);
+                    long lo = old.getLong(base + LO);
+                    int target = -find(hash(hi, lo), hi, lo) - 1;
+                    table.put(target * ENTRY_BYTES, old, base, ENTRY_BYTES);
+                }
+            }
+        }
+
+        private void copy(int from, int to) {
+            table.put(to * ENTRY_BYTES, table, from * ENTRY_BYTES, ENTRY_BYTES);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package cn.ianzhang.authapi.session;
+
+import cn.ianzhang.authapi.security.InstancePool;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+// 生成 128 位随机会话ID，编码为定长 22 个字符的 URL 安全 Base64（无填充）。
+// DRBG 实例和缓冲区从有界实例池借用，热路径上没有共享锁，也不依赖系统时间；
+// 池的大小与线程数无关，虚拟线程下不会为每个请求新建 DRBG。
+public class RandomSessionIdGenerator implements SessionIdGenerator {
+    public static final int TOKEN_LENGTH = 22;
+
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private static final InstancePool<Source> SOURCES = new InstancePool<>(Source::new);
+
+    @Override
+    public String generate() {
+        Source source = SOURCES.acquire();
+        byte[] buffer = source.buffer;
+        source.random.nextBytes(buffer);
+        long hi = readLong(buffer, 0);
+        long lo = readLong(buffer, 8);
+        SOURCES.release(source);
+        return encode(hi, lo);
+    }
+
+    // 把 128 位整数编码为 22 个字符：前 21 个字符各承载 6 位，最后一个字符承载剩余 2 位
+    static String encode(long hi, long lo) {
+        byte[] out = new byte[TOKEN_LENGTH];
+        for (int i = 0; i < 10; i++) {
+            out[i] = ALPHABET[(int) (hi >>> (58 - 6 * i)) & 0x3f];
+        }
+        out[10] = ALPHABET[(int) (((hi & 0xf) << 2) | (lo >>> 62))];
+        for (int i = 0; i < 10; i++) {
+            out[11 + i] = ALPHABET[(int) (lo >>> (56 - 6 * i)) & 0x3f];
+        }
+        out[21] = ALPHABET[(int) ((lo & 0x3) << 4)];
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    // 判断令牌是否符合本生成器的格式：22 个字母表内字符，且最后一个字符只携带 2 位
+    public static boolean isWellFormed(String token) {
+        if (token == null || token.length() != TOKEN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < TOKEN_LENGTH; i++) {
+            if (digit(token.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return (digit(token.charAt(TOKEN_LENGTH - 1)) & 0xf) == 0;
+    }
+
+    // 解码令牌的高 64 位，调用前应先用 isWellFormed 校验
+    public static long decodeHigh(String token) {
+        long value = 0;
+        for (int i = 0; i < 10; i++) {
+            value = (value << 6) | digit(token.charAt(i));
+        }
+        return (value << 4) | (digit(token.charAt(10)) >>> 2);
+    }
+
+    // 解码令牌的低 64 位，调用前应先用 isWellFormed 校验
+    public static long decodeLow(String token) {
+        long value = digit(token.charAt(10)) & 0x3;
+        for (int i = 11; i < 21; i++) {
+            value = (value << 6) | digit(token.charAt(i));
+        }
+        return (value << 2) | (digit(token.charAt(21)) >>> 4);
+    }
+
+    private static int digit(char c) {
+        return c < 128 ? DECODE[c] : -1;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static final class Source {
+        private final SecureRandom random = newRandom();
+        private final byte[] buffer = new byte[16];
+
+        private static SecureRandom newRandom() {
+            try {
+                // DRBG 实例内部状态独立，避免 NativePRNG 在多线程下争用同一把全局锁
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+    }
+}
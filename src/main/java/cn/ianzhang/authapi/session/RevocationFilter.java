@@ -0,0 +1,76 @@
+package cn.ianzhang.authapi.session;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 已吊销令牌的布隆过滤器，按 1/1000 的误判率为 capacity 条吊销记录分配位数。
+// 令牌最长有效期为 rotationMillis，过滤器分两代：每隔 rotationMillis 丢弃上一代、当前代降为上一代，
+// 被吊销的令牌至少保留一个完整周期，届时令牌本身也已过期，内存占用不随时间增长。
+// 误判只会让极少数有效令牌被当作已登出，不会放行已吊销的令牌。
+final class RevocationFilter {
+    private static final int HASHES = 10;
+
+    private final int mask;
+    private final long rotationMillis;
+    private final Clock clock;
+    private volatile AtomicLongArray current;
+    private volatile AtomicLongArray previous;
+    private volatile long nextRotation;
+
+    RevocationFilter(int capacity, long rotationMillis, Clock clock) {
+        // 每条记录约 14.4 位，向上取整到 2 的幂
+        long bits = Math.max(64, (long) Math.ceil(Math.max(1, capacity) * 14.4));
+        int size = (int) Math.min(1L << 30, Long.highestOneBit(bits - 1) << 1);
+        this.mask = size - 1;
+        this.rotationMillis = rotationMillis;
+        this.clock = clock;
+        this.current = new AtomicLongArray(size >>> 6);
+        this.previous = new AtomicLongArray(size >>> 6);
+        this.nextRotation = clock.millis() + rotationMillis;
+    }
+
+    // h1/h2 取自令牌签名，本身即均匀分布，直接做双重散列
+    void add(long h1, long h2) {
+        rotateIfNeeded();
+        AtomicLongArray words = current;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (int) ((h1 + i * h2) & mask);
+            long word;
+            long updated;
+            do {
+                word = words.get(bit >>> 6);
+                updated = word | (1L << bit);
+            } while (word != updated && !words.compareAndSet(bit >>> 6, word, updated));
+        }
+    }
+
+    boolean mightContain(long h1, long h2) {
+        rotateIfNeeded();
+        return contains(current, h1, h2) || contains(previous, h1, h2);
+    }
+
+    private boolean contains(AtomicLongArray words, long h1, long h2) {
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (int) ((h1 + i * h2) & mask);
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rotateIfNeeded() {
+        long now = clock.millis();
+        if (now < nextRotation) {
+            return;
+        }
+        synchronized (this) {
+            if (now >= nextRotation) {
+                // 先降级当前代再换上新的一代，并发读取不会漏掉当前代中的记录
+                previous = current;
+                current = new AtomicLongArray(previous.length());
+                nextRotation = now + rotationMillis;
+            }
+        }
+    }
+}
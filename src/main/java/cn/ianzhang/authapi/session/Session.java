@@ -0,0 +1,80 @@
+package cn.ianzhang.authapi.session;
+
+public class Session {
+    private final String id;
+    private final int userId;
+    private final String username;
+    private final long createdAt;
+    private final long absoluteExpiresAt;
+    private volatile long lastAccessedAt;
+    // 标记会话已被移除，由清理线程据此从时间轮中摘除
+    volatile boolean removed;
+
+    // 以下字段只由时间轮所在的清理线程读写
+    Session wheelPrev;
+    Session wheelNext;
+    long wheelDeadline;
+
+    public Session(String id, int userId, String username, long createdAt, long absoluteExpiresAt) {
+        this(id, userId, username, createdAt, absoluteExpiresAt, createdAt);
+    }
+
+    Session(String id, int userId, String username, long createdAt, long absoluteExpiresAt, long lastAccessedAt) {
+        this.id = id;
+        this.userId = userId;
+        this.username = username;
+        this.createdAt = createdAt;
+        this.absoluteExpiresAt = absoluteExpiresAt;
+        this.lastAccessedAt = lastAccessedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getAbsoluteExpiresAt() {
+        return absoluteExpiresAt;
+    }
+
+    public long getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    // 计算会话的实际过期时间：空闲过期与绝对过期取较早者
+    public long expiresAt(long idleTimeoutMillis) {
+        return Math.min(absoluteExpiresAt, lastAccessedAt + idleTimeoutMillis);
+    }
+
+    public boolean isExpired(long now, long idleTimeoutMillis) {
+        return now >= expiresAt(idleTimeoutMillis);
+    }
+
+    // 刷新最近访问时间；小于粒度的刷新直接跳过，避免热点会话反复写同一缓存行
+    void touch(long now, long granularityMillis) {
+        if (now - lastAccessedAt >= granularityMillis) {
+            lastAccessedAt = now;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Session{" +
+                "userId=" + userId +
+                ", username='" + username + '\'' +
+                ", createdAt=" + createdAt +
+                ", absoluteExpiresAt=" + absoluteExpiresAt +
+                '}';
+    }
+}
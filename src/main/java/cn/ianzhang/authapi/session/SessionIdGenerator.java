@@ -0,0 +1,7 @@
+package cn.ianzhang.authapi.session;
+
+// 会话ID生成器，实现必须是线程安全的
+public interface SessionIdGenerator {
+
+    String generate();
+}
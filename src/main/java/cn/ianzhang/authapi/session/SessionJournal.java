@@ -0,0 +1,449 @@
+package cn.ianzhang.authapi.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import java.util.stream.LongStream;
+import java.util.zip.CRC32C;
+
+// 只追加的会话日志，使会话在重启后依然有效，避免发布后所有客户端同时重新登录。
+// 每条记录定长 384 字节，用户名区能放下 User.MAX_USERNAME_BYTES（255 字节）：
+//   [0] 类型 [1] ID 长度 [2-3] 用户名长度 [4-11] 创建时间 [12-19] 绝对过期时间
+//   [20-23] CRC32C [24-127] 会话ID [128-383] 用户名
+// 文件的第一条记录是格式头（类型 HEADER，[4-7] 为格式版本）。没有格式头的文件是旧版 128 字节记录
+// （会话ID [24-55]，用户名 [56-127]）：打开时改名为 <path>.v1，回放时按旧格式读出，压缩成新格式后删除。
+// 仍然放不下的会话（自定义的超长会话ID）不落日志，只保留在内存中，并记入 WARN 日志。
+// 写入：请求线程只把事件放入队列，后台线程每隔 syncInterval 批量写入并 fsync 一次（组提交）。
+// 回放：按记录边界把文件切成多个块，以 MappedByteBuffer 并行解析。
+// 压缩：日志记录数远大于存活会话数时，把存活会话重写到新文件后原子替换。
+// 访问时间不写入日志，恢复的会话从重启时刻重新计算空闲时间。
+// 用户ID只在进程内有效，日志里记录用户名，回放时再经 userIdResolver 换算成当前的用户ID，每个用户名只换算一次。
+// 换算不到的用户（已删除，或内存用户存储在重启后为空）的会话被丢弃并计入 WARN 日志。
+// 会话ID即持有者凭证，日志和压缩用的临时文件在支持 POSIX 权限的文件系统上只对属主可读写（rw-------），
+// 不受进程 umask 影响；已存在的日志在打开时同样收紧权限。
+public class SessionJournal implements SessionListener, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SessionJournal.class);
+
+    static final int RECORD_SIZE = 384;
+    static final int LEGACY_RECORD_SIZE = 128;
+    private static final byte CREATE = 1;
+    private static final byte REMOVE = 2;
+    private static final byte HEADER = 3;
+    private static final int FORMAT_VERSION = 2;
+    private static final int CRC_OFFSET = 20;
+    private static final int ID_OFFSET = 24;
+    private static final Layout CURRENT = new Layout(RECORD_SIZE, 128);
+    private static final Layout LEGACY = new Layout(LEGACY_RECORD_SIZE, 56);
+    // 回放时每个块包含的记录数，块的大小因此总是记录长度的整数倍
+    private static final long CHUNK_RECORDS = 262_144L;
+    private static final int WRITE_BUFFER_RECORDS = 1024;
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+    private final Path path;
+    private final SessionStore store;
+    private final ToIntFunction<String> userIdResolver;
+    private final Clock clock;
+    private final long compactionThreshold;
+    private final Queue<Event> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService writer;
+    // 以下字段只由写线程访问
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * WRITE_BUFFER_RECORDS);
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final CRC32C crc = new CRC32C();
+    private FileChannel channel;
+    private long recordCount;
+    private int droppedOnReplay;
+    private int skipped;
+
+    public SessionJournal(Path path, SessionStore store, ToIntFunction<String> userIdResolver,
+                          Duration syncInterval, long compactionThreshold) {
+        this(path, store, userIdResolver, syncInterval, compactionThreshold, Clock.systemUTC());
+    }
+
+    SessionJournal(Path path, SessionStore store, ToIntFunction<String> userIdResolver,
+                   Duration syncInterval, long compactionThreshold, Clock clock) {
+        this.path = path;
+        this.store = store;
+        this.userIdResolver = userIdResolver;
+        this.clock = clock;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            if (isLegacy(path)) {
+                Files.move(path, legacyPath(), StandardCopyOption.ATOMIC_MOVE);
+                log.info("Session journal {} uses the legacy record format; it is migrated on replay", path);
+            }
+            this.channel = openForAppend(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open session journal " + path, e);
+        }
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = syncInterval.toMillis();
+        this.writer.scheduleWithFixedDelay(this::flushSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 回放日志，把未登出且未过期的会话恢复到存储中，返回恢复的会话数；
+    // 存在待迁移的旧格式日志时一并回放，恢复后压缩成新格式并删除旧文件
+    public int replay() throws IOException {
+        Set<String> removed = ConcurrentHashMap.newKeySet();
+        ConcurrentHashMap<String, Event> created = new ConcurrentHashMap<>();
+        long now = clock.millis();
+        Path legacy = legacyPath();
+        boolean migrating = Files.exists(legacy);
+        if (migrating) {
+            replayFile(legacy, LEGACY, now, created, removed);
+        }
+        replayFile(path, CURRENT, now, created, removed);
+
+        // 会话ID不会重复使用，因此只要出现过移除记录即视为已失效，与记录顺序无关；
+        // 用户已不存在（解析出负数ID）的会话不再恢复。换算可能访问数据库或其他节点，同一用户名的会话共用一次结果
+        ConcurrentHashMap<String, Integer> userIds = new ConcurrentHashMap<>();
+        AtomicInteger restored = new AtomicInteger();
+        AtomicInteger dropped = new AtomicInteger();
+        created.forEach(10_000, (id, event) -> {
+            if (removed.contains(id)) {
+                return;
+            }
+            int userId = userIds.computeIfAbsent(event.username(), userIdResolver::applyAsInt);
+            if (userId < 0) {
+                dropped.incrementAndGet();
+            } else if (store.restore(id, userId, event.username(), event.createdAt(),
+                    event.absoluteExpiresAt()) != null) {
+                restored.incrementAndGet();
+            }
+        });
+        log.info("Replayed session journal {}: {} created, {} removed, {} sessions restored",
+                path, created.size(), removed.size(), restored.get());
+        if (dropped.get() > 0) {
+            long missing = userIds.values().stream().filter(userId -> userId < 0).count();
+            log.warn("Dropped {} journaled sessions of {} users that no longer exist in the user store",
+                    dropped.get(), missing);
+        }
+        droppedOnReplay = dropped.get();
+        if (migrating) {
+            compact();
+            Files.delete(legacy);
+            log.info("Migrated legacy session journal {} to the current record format", legacy);
+        }
+        return restored.get();
+    }
+
+    @Override
+    public void sessionCreated(Session session) {
+        pending.offer(new Event(CREATE, session.getId(), session.getUsername(),
+                session.getCreatedAt(), session.getAbsoluteExpiresAt()));
+    }
+
+    @Override
+    public void sessionRemoved(Session session) {
+        pending.offer(new Event(REMOVE, session.getId(), null, 0, 0));
+    }
+
+    // 回放时因用户不存在而丢弃的会话数（仅供测试使用）
+    int getDroppedOnReplay() {
+        return droppedOnReplay;
+    }
+
+    // 因会话ID或用户名超长而没有落日志的会话数（仅供写线程和测试使用）
+    int getSkipped() {
+        return skipped;
+    }
+
+    // 当前日志文件中的记录数（仅供写线程和测试使用）
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    // 把队列中的事件写入文件并 fsync；必要时触发压缩
+    synchronized void flush() throws IOException {
+        boolean written = false;
+        Event event;
+        while ((event = pending.poll()) != null) {
+            if (encode(event)) {
+                written = true;
+            }
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+        }
+        writeBuffer();
+        if (written) {
+            channel.force(false);
+        }
+        if (recordCount >= compactionThreshold && recordCount > 2L * store.size()) {
+            compact();
+        }
+    }
+
+    // 把存活会话重写到临时文件，fsync 后原子替换原日志；失败时继续使用原日志
+    synchronized void compact() throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel previous = channel;
+        long previousCount = recordCount;
+        channel = openOwnerOnly(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        recordCount = 0;
+        try {
+            writeHeader(channel);
+            store.forEach(session -> {
+                encode(new Event(CREATE, session.getId(), session.getUsername(),
+                        session.getCreatedAt(), session.getAbsoluteExpiresAt()));
+                if (!buffer.hasRemaining()) {
+                    writeBufferUnchecked();
+                }
+            });
+            writeBuffer();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            buffer.clear();
+            channel.close();
+            channel = previous;
+            recordCount = previousCount;
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        channel.close();
+        previous.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = openForAppend(path);
+        log.info("Compacted session journal {}: {} -> {} records", path, previousCount, recordCount);
+    }
+
+    private static void replayFile(Path file, Layout layout, long now,
+                                   ConcurrentHashMap<String, Event> created, Set<String> removed) throws IOException {
+        long chunkBytes = layout.recordSize() * CHUNK_RECORDS;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size() - in.size() % layout.recordSize();
+            long chunks = (size + chunkBytes - 1) / chunkBytes;
+            LongStream.range(0, chunks).parallel().forEach(chunk -> {
+                long offset = chunk * chunkBytes;
+                long length = Math.min(chunkBytes, size - offset);
+                try {
+                    replayChunk(in.map(FileChannel.MapMode.READ_ONLY, offset, length), layout, now, created, removed);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void replayChunk(MappedByteBuffer chunk, Layout layout, long now,
+                                    ConcurrentHashMap<String, Event> created, Set<String> removed) {
+        byte[] record = new byte[layout.recordSize()];
+        CRC32C checksum = new CRC32C();
+        while (chunk.remaining() >= record.length) {
+            chunk.get(record);
+            Event event = decode(record, layout, checksum);
+            if (event == null) {
+                continue;
+            }
+            if (event.type() == REMOVE) {
+                removed.add(event.id());
+            } else if (event.absoluteExpiresAt() > now) {
+                created.put(event.id(), event);
+            }
+        }
+    }
+
+    // 写入写缓冲区；ID 或用户名超长的会话不落日志，只保留在内存中，重启后失效。
+    // 会话ID即凭证，WARN 日志里只记录用户名和长度
+    private boolean encode(Event event) {
+        byte[] id = event.id().getBytes(StandardCharsets.UTF_8);
+        byte[] username = event.username() != null
+                ? event.username().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (id.length > CURRENT.maxIdBytes() || username.length > CURRENT.maxUsernameBytes()) {
+            skipped++;
+            log.warn("Session of user {} is not journaled and will not survive a restart: "
+                            + "id is {} bytes (max {}), username is {} bytes (max {})", event.username(),
+                    id.length, CURRENT.maxIdBytes(), username.length, CURRENT.maxUsernameBytes());
+            return false;
+        }
+        ByteBuffer record = ByteBuffer.wrap(scratch);
+        Arrays.fill(scratch, (byte) 0);
+        record.put(0, event.type());
+        record.put(1, (byte) id.length);
+        record.putShort(2, (short) username.length);
+        record.putLong(4, event.createdAt());
+        record.putLong(12, event.absoluteExpiresAt());
+        record.put(ID_OFFSET, id);
+        record.put(CURRENT.usernameOffset(), username);
+        record.putInt(CRC_OFFSET, checksum(crc, scratch));
+        buffer.put(scratch);
+        recordCount++;
+        return true;
+    }
+
+    // 校验失败（例如崩溃时写了一半）的记录和格式头直接跳过
+    private static Event decode(byte[] record, Layout layout, CRC32C checksum) {
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        byte type = buf.get(0);
+        if (type != CREATE && type != REMOVE) {
+            return null;
+        }
+        int idLength = buf.get(1) & 0xff;
+        int usernameLength = buf.getShort(2) & 0xffff;
+        if (idLength > layout.maxIdBytes() || usernameLength > layout.maxUsernameBytes()
+                || buf.getInt(CRC_OFFSET) != checksum(checksum, record)) {
+            return null;
+        }
+        String id = new String(record, ID_OFFSET, idLength, StandardCharsets.UTF_8);
+        if (type == REMOVE) {
+            return new Event(REMOVE, id, null, 0, 0);
+        }
+        String username = new String(record, layout.usernameOffset(), usernameLength, StandardCharsets.UTF_8);
+        return new Event(CREATE, id, username, buf.getLong(4), buf.getLong(12));
+    }
+
+    private static int checksum(CRC32C checksum, byte[] record) {
+        checksum.reset();
+        checksum.update(record, 0, CRC_OFFSET);
+        checksum.update(record, ID_OFFSET, record.length - ID_OFFSET);
+        return (int) checksum.getValue();
+    }
+
+    // 首条记录不是格式头的日志为旧格式；不足 8 个字节的文件里没有完整记录，按新格式重写格式头
+    private static boolean isLegacy(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (in.size() < 8) {
+                return false;
+            }
+            ByteBuffer head = ByteBuffer.allocate(8);
+            in.read(head, 0);
+            return head.get(0) != HEADER || head.getInt(4) != FORMAT_VERSION;
+        }
+    }
+
+    private Path legacyPath() {
+        return path.resolveSibling(path.getFileName() + ".v1");
+    }
+
+    private void writeHeader(FileChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+        header.put(0, HEADER);
+        header.putInt(4, FORMAT_VERSION);
+        while (header.hasRemaining()) {
+            target.write(header);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeBufferUnchecked() {
+        try {
+            writeBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 以追加方式打开日志，并截掉崩溃时可能残留的半条记录；新文件（或只写了半个格式头的文件）先写入格式头
+    private FileChannel openForAppend(Path file) throws IOException {
+        FileChannel opened = openOwnerOnly(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        long size = opened.size();
+        long aligned = size - size % RECORD_SIZE;
+        if (aligned != size) {
+            opened.truncate(aligned);
+        }
+        opened.position(aligned);
+        if (aligned == 0) {
+            writeHeader(opened);
+            opened.force(false);
+            aligned = RECORD_SIZE;
+        }
+        recordCount = aligned / RECORD_SIZE - 1;
+        return opened;
+    }
+
+    // 新建的文件直接以属主读写权限创建；文件已存在时创建属性不生效，再显式收紧权限
+    private static FileChannel openOwnerOnly(Path file, StandardOpenOption... options) throws IOException {
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return FileChannel.open(file, options);
+        }
+        FileAttribute<Set<PosixFilePermission>> ownerOnly = PosixFilePermissions.asFileAttribute(OWNER_ONLY);
+        FileChannel opened = FileChannel.open(file, Set.of(options), ownerOnly);
+        try {
+            Files.setPosixFilePermissions(file, OWNER_ONLY);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            log.error("Session journal flush failed", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        channel.close();
+    }
+
+    private record Event(byte type, String id, String username, long createdAt, long absoluteExpiresAt) {
+    }
+
+    // 记录格式：记录长度和用户名的起始位置，会话ID总是从 ID_OFFSET 开始
+    private record Layout(int recordSize, int usernameOffset) {
+        int maxIdBytes() {
+            return usernameOffset - ID_OFFSET;
+        }
+
+        int maxUsernameBytes() {
+            return recordSize - usernameOffset;
+        }
+    }
+}
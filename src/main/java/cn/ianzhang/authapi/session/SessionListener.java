@@ -0,0 +1,10 @@
+package cn.ianzhang.authapi.session;
+
+// 会话生命周期回调，在调用 SessionStore 的线程上同步执行，实现应尽量轻量
+public interface SessionListener {
+
+    void sessionCreated(Session session);
+
+    // 登出、过期回收或被同 ID 会话替换时触发
+    void sessionRemoved(Session session);
+}
@@ -0,0 +1,27 @@
+package cn.ianzhang.authapi.session;
+
+// 会话管理方式：负责签发、解析和吊销会话令牌，由 auth.session.mode 选择实现。
+// 实现必须是线程安全的
+public interface SessionManager {
+    // 令牌无效、已过期或已吊销
+    int NO_USER = -1;
+
+    // 为用户创建会话，返回令牌
+    String create(int userId, String username);
+
+    // 解析令牌对应的用户ID，令牌为 null 或无效时返回 NO_USER
+    int resolve(String token);
+
+    void invalidate(String token);
+
+    // 吊销用户的全部会话，返回吊销的条数（无法逐条计数的实现返回 0）；
+    // 内置的三种模式都已实现，不支持的自定义实现抛出 SessionOperationUnsupportedException
+    default int invalidateAll(int userId, String username) {
+        throw new SessionOperationUnsupportedException("Session manager cannot revoke all sessions of a user");
+    }
+
+    // 是否仍有会话以用户ID引用该用户；为 false 时用户ID可以被释放复用，无法判断的实现保守地返回 true
+    default boolean hasSessions(int userId) {
+        return true;
+    }
+}
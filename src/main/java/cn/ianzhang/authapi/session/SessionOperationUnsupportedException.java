@@ -0,0 +1,9 @@
+package cn.ianzhang.authapi.session;
+
+// 当前 SessionManager 实现不支持所请求的会话操作，调用方应返回 501
+public class SessionOperationUnsupportedException extends RuntimeException {
+
+    public SessionOperationUnsupportedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,6 @@
+package cn.ianzhang.authapi.session;
+
+// 已通过会话认证的调用者，由 UserService.resolvePrincipal 一次解析得到，创建后不再变化。
+// 处理方法声明该类型的参数即可拿到当前用户，不必自行读取 Authorization 头、查会话表
+public record SessionPrincipal(String sessionId, int userId, String username) {
+}
@@ -0,0 +1,299 @@
+package cn.ianzhang.authapi.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// 带空闲过期和绝对过期的会话存储。
+// 读路径只做一次 ConcurrentHashMap 查找并就地判断是否过期，不持有任何全局锁；
+// 过期会话由单个清理线程借助分层时间轮回收，避免全表扫描。
+// 另按用户ID维护会话索引：每个用户的会话按创建顺序排成一个双端队列，超出 maxSessionsPerUser 时淘汰最早的会话，
+// 注销某个用户的全部会话只需处理该用户自己的队列。队列的读写都在 ConcurrentHashMap.compute 中进行，以该用户所在的桶为锁。
+public class SessionStore implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SessionStore.class);
+    // 访问时间的刷新粒度
+    private static final long TOUCH_GRANULARITY_MILLIS = 1000;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, ArrayDeque<Session>> byUser = new ConcurrentHashMap<>();
+    // 新建/移除的会话先进入该队列，由清理线程统一挂入或摘出时间轮
+    private final Queue<Session> pending = new ConcurrentLinkedQueue<>();
+    private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+    private final long idleTimeoutMillis;
+    private final long absoluteTimeoutMillis;
+    private final int maxSessionsPerUser;
+    private final Clock clock;
+    private final TimerWheel wheel;
+    private final ScheduledExecutorService sweeper;
+
+    public SessionStore(Duration idleTimeout, Duration absoluteTimeout, Duration sweepInterval) {
+        this(idleTimeout, absoluteTimeout, sweepInterval, 0);
+    }
+
+    // maxSessionsPerUser 小于等于 0 表示不限制每个用户的会话数
+    public SessionStore(Duration idleTimeout, Duration absoluteTimeout, Duration sweepInterval,
+                        int maxSessionsPerUser) {
+        this(idleTimeout, absoluteTimeout, sweepInterval, maxSessionsPerUser, Clock.systemUTC(), true);
+    }
+
+    SessionStore(Duration idleTimeout, Duration absoluteTimeout, Duration sweepInterval,
+                 Clock clock, boolean startSweeper) {
+        this(idleTimeout, absoluteTimeout, sweepInterval, 0, clock, startSweeper);
+    }
+
+    SessionStore(Duration idleTimeout, Duration absoluteTimeout, Duration sweepInterval, int maxSessionsPerUser,
+                 Clock clock, boolean startSweeper) {
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.absoluteTimeoutMillis = absoluteTimeout.toMillis();
+        this.maxSessionsPerUser = maxSessionsPerUser;
+        this.clock = clock;
+        long tickMillis = sweepInterval.toMillis();
+        this.wheel = new TimerWheel(tickMillis, clock.millis());
+        if (startSweeper) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "session-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.sweeper.scheduleWithFixedDelay(this::sweepSafely, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    public void addListener(SessionListener listener) {
+        listeners.add(listener);
+    }
+
+    // 保存会话，返回新建的会话对象
+    public Session put(String sessionId, int userId, String username) {
+        long now = clock.millis();
+        Session session = new Session(sessionId, userId, username, now, now + absoluteTimeoutMillis);
+        Session previous = sessions.put(sessionId, session);
+        if (previous != null) {
+            unindex(previous);
+            previous.removed = true;
+            pending.offer(previous);
+            fireRemoved(previous);
+        }
+        pending.offer(session);
+        fireCreated(session);
+        index(session);
+        return session;
+    }
+
+    // 仅当会话ID未被占用时保存，返回新建的会话对象；ID冲突时返回 null
+    public Session putIfAbsent(String sessionId, int userId, String username) {
+        long now = clock.millis();
+        Session session = new Session(sessionId, userId, username, now, now + absoluteTimeoutMillis);
+        if (sessions.putIfAbsent(sessionId, session) != null) {
+            return null;
+        }
+        pending.offer(session);
+        fireCreated(session);
+        index(session);
+        return session;
+    }
+
+    // 从持久化记录恢复会话，不触发监听器；恢复的会话从当前时刻重新计算空闲时间
+    public Session restore(String sessionId, int userId, String username, long createdAt, long absoluteExpiresAt) {
+        long now = clock.millis();
+        if (absoluteExpiresAt <= now) {
+            return null;
+        }
+        Session session = new Session(sessionId, userId, username, createdAt, absoluteExpiresAt, now);
+        if (sessions.putIfAbsent(sessionId, session) != null) {
+            return null;
+        }
+        pending.offer(session);
+        index(session);
+        return session;
+    }
+
+    // 获取有效会话，过期的会话视为不存在
+    public Session get(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        long now = clock.millis();
+        if (session.isExpired(now, idleTimeoutMillis)) {
+            evict(session);
+            return null;
+        }
+        session.touch(now, TOUCH_GRANULARITY_MILLIS);
+        return session;
+    }
+
+    public String getUsername(String sessionId) {
+        Session session = get(sessionId);
+        return session != null ? session.getUsername() : null;
+    }
+
+    public boolean contains(String sessionId) {
+        return get(sessionId) != null;
+    }
+
+    public void remove(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        Session session = sessions.remove(sessionId);
+        if (session != null) {
+            unindex(session);
+            session.removed = true;
+            pending.offer(session);
+            fireRemoved(session);
+        }
+    }
+
+    // 移除用户的全部会话，返回移除的条数；只遍历该用户自己的会话
+    public int removeAll(int userId) {
+        ArrayDeque<Session> userSessions = byUser.remove(userId);
+        if (userSessions == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (Session session : userSessions) {
+            if (discard(session)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // 用户当前在索引中的会话数（可能包含尚未被回收的过期会话）
+    public int sessionCount(int userId) {
+        ArrayDeque<Session> userSessions = byUser.get(userId);
+        if (userSessions == null) {
+            return 0;
+        }
+        synchronized (userSessions) {
+            return userSessions.size();
+        }
+    }
+
+    // 当前存储中的会话数（可能包含尚未被回收的过期会话）
+    public int size() {
+        return sessions.size();
+    }
+
+    // 弱一致地遍历所有未过期的会话
+    public void forEach(Consumer<Session> action) {
+        long now = clock.millis();
+        for (Session session : sessions.values()) {
+            if (!session.isExpired(now, idleTimeoutMillis)) {
+                action.accept(session);
+            }
+        }
+    }
+
+    // 处理待处理队列并推进时间轮；只能在清理线程（或测试线程）中调用
+    void sweep() {
+        Session session;
+        while ((session = pending.poll()) != null) {
+            if (session.removed) {
+                wheel.cancel(session);
+            } else {
+                wheel.schedule(session, session.expiresAt(idleTimeoutMillis));
+            }
+        }
+        wheel.advance(clock.millis(), idleTimeoutMillis, this::evict);
+    }
+
+    int scheduledCount() {
+        return wheel.size();
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Session sweep failed", e);
+        }
+    }
+
+    private void evict(Session session) {
+        unindex(session);
+        discard(session);
+    }
+
+    // 仅当映射仍指向同一个会话对象时才移除，避免误删同 ID 的新会话；不改动用户索引
+    private boolean discard(Session session) {
+        if (sessions.remove(session.getId(), session)) {
+            session.removed = true;
+            pending.offer(session);
+            fireRemoved(session);
+            return true;
+        }
+        return false;
+    }
+
+    // 把会话加入用户索引的队尾，超出上限时移除该用户最早的会话
+    private void index(Session session) {
+        Session[] oldest = new Session[1];
+        byUser.compute(session.getUserId(), (userId, userSessions) -> {
+            if (userSessions == null) {
+                userSessions = new ArrayDeque<>();
+            }
+            synchronized (userSessions) {
+                userSessions.addLast(session);
+                if (maxSessionsPerUser > 0 && userSessions.size() > maxSessionsPerUser) {
+                    oldest[0] = userSessions.pollFirst();
+                }
+            }
+            return userSessions;
+        });
+        if (oldest[0] != null) {
+            discard(oldest[0]);
+        }
+        // 会话在加入索引前已被并发移除时，摘掉索引中的残留
+        if (sessions.get(session.getId()) != session) {
+            unindex(session);
+        }
+    }
+
+    // 从用户索引中摘除会话，队列为空时一并移除该用户的条目；会话数受上限约束，线性查找的代价很小
+    private void unindex(Session session) {
+        byUser.computeIfPresent(session.getUserId(), (userId, userSessions) -> {
+            synchronized (userSessions) {
+                userSessions.removeFirstOccurrence(session);
+                return userSessions.isEmpty() ? null : userSessions;
+            }
+        });
+    }
+
+    private void fireCreated(Session session) {
+        for (SessionListener listener : listeners) {
+            listener.sessionCreated(session);
+        }
+    }
+
+    private void fireRemoved(Session session) {
+        for (SessionListener listener : listeners) {
+            listener.sessionRemoved(session);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+}
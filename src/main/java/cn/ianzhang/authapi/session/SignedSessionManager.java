@@ -0,0 +1,244 @@
+package cn.ianzhang.authapi.session;
+
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.InstancePool;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+// 无状态签名令牌（signed 模式）：令牌自带用户名、签发时间和过期时间，并附 HMAC-SHA256 签名，
+// 校验时只需重算签名，不查任何会话表，多个节点共用同一签名密钥即可互认令牌。
+// 令牌布局（URL 安全 Base64，无填充）：
+//   [0] 版本 [1-8] 签发时间 [9-16] 过期时间 [17] 用户名长度 [18..] 用户名 UTF-8 [末 16 字节] 截断的签名
+// 用户ID只在进程内有效，因此令牌记录用户名，校验通过后再经 userIdResolver 换算。
+// 令牌只有绝对过期，没有空闲过期；登出的令牌记入本节点的吊销布隆过滤器直至过期。
+// 登出全部会话记录该用户名的截止时刻，此前签发的令牌一律无效；截止时刻同样只在本节点生效。
+// 校验路径从有界实例池借用缓冲区和 Mac 实例，除用户名字符串外不分配对象；虚拟线程下同样复用。
+public class SignedSessionManager implements SessionManager {
+    private static final byte VERSION = 1;
+    private static final int ISSUED_AT = 1;
+    private static final int EXPIRES_AT = 9;
+    private static final int USERNAME_LENGTH = 17;
+    private static final int USERNAME = 18;
+    private static final int MAC_BYTES = 16;
+    private static final int MAX_USERNAME_BYTES = User.MAX_USERNAME_BYTES;
+    private static final int MAX_TOKEN_BYTES = USERNAME + MAX_USERNAME_BYTES + MAC_BYTES;
+    private static final int MAX_TOKEN_CHARS = (MAX_TOKEN_BYTES * 8 + 5) / 6;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        byte[] alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+                .getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < alphabet.length; i++) {
+            DECODE[alphabet[i]] = (byte) i;
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final long absoluteTimeoutMillis;
+    private final ToIntFunction<String> userIdResolver;
+    private final Clock clock;
+    private final RevocationFilter revocations;
+    private final InstancePool<Scratch> scratch;
+    // 用户名到截止时刻：签发时间不晚于它的令牌无效；超过绝对过期时间的条目在写入时清理
+    private final ConcurrentHashMap<String, Long> notBefore = new ConcurrentHashMap<>();
+
+    public SignedSessionManager(byte[] signingKey, Duration absoluteTimeout, int revocationCapacity,
+                                ToIntFunction<String> userIdResolver) {
+        this(signingKey, absoluteTimeout, revocationCapacity, userIdResolver, Clock.systemUTC());
+    }
+
+    SignedSessionManager(byte[] signingKey, Duration absoluteTimeout, int revocationCapacity,
+                         ToIntFunction<String> userIdResolver, Clock clock) {
+        if (signingKey.length < 32) {
+            throw new IllegalArgumentException("Signing key must be at least 256 bits");
+        }
+        this.key = new SecretKeySpec(signingKey.clone(), ALGORITHM);
+        this.absoluteTimeoutMillis = absoluteTimeout.toMillis();
+        this.userIdResolver = userIdResolver;
+        this.clock = clock;
+        this.revocations = new RevocationFilter(revocationCapacity, absoluteTimeoutMillis, clock);
+        this.scratch = new InstancePool<>(() -> new Scratch(newMac()));
+        // 提前暴露密钥或算法配置问题
+        newMac();
+    }
+
+    @Override
+    public String create(int userId, String username) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_USERNAME_BYTES) {
+            throw new IllegalArgumentException("Username is too long for a signed token");
+        }
+        long now = clock.millis();
+        Long cutoff = notBefore.isEmpty() ? null : notBefore.get(username);
+        if (cutoff != null && now <= cutoff) {
+            // 与登出全部会话落在同一毫秒的新令牌不应被截止时刻误伤
+            now = cutoff + 1;
+        }
+        byte[] token = new byte[USERNAME + name.length + MAC_BYTES];
+        token[0] = VERSION;
+        writeLong(token, ISSUED_AT, now);
+        writeLong(token, EXPIRES_AT, now + absoluteTimeoutMillis);
+        token[USERNAME_LENGTH] = (byte) name.length;
+        System.arraycopy(name, 0, token, USERNAME, name.length);
+        Scratch s = scratch.acquire();
+        sign(s, token, USERNAME + name.length);
+        System.arraycopy(s.mac, 0, token, USERNAME + name.length, MAC_BYTES);
+        scratch.release(s);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    @Override
+    public int resolve(String token) {
+        Scratch s = scratch.acquire();
+        int length = verify(token, s);
+        byte[] bytes = s.token;
+        String username = length >= 0
+                && !revocations.mightContain(readLong(bytes, length - MAC_BYTES), readLong(bytes, length - 8))
+                ? new String(bytes, USERNAME, bytes[USERNAME_LENGTH] & 0xff, StandardCharsets.UTF_8) : null;
+        long issuedAt = readLong(bytes, ISSUED_AT);
+        // 换算用户ID可能跨节点查询，先归还缓冲区
+        scratch.release(s);
+        if (username == null) {
+            return NO_USER;
+        }
+        if (!notBefore.isEmpty()) {
+            Long cutoff = notBefore.get(username);
+            if (cutoff != null && issuedAt <= cutoff) {
+                return NO_USER;
+            }
+        }
+        int userId = userIdResolver.applyAsInt(username);
+        return userId >= 0 ? userId : NO_USER;
+    }
+
+    // 只吊销签名正确且未过期的令牌，伪造的令牌不会占用过滤器容量
+    @Override
+    public void invalidate(String token) {
+        Scratch s = scratch.acquire();
+        int length = verify(token, s);
+        if (length >= 0) {
+            revocations.add(readLong(s.token, length - MAC_BYTES), readLong(s.token, length - 8));
+        }
+        scratch.release(s);
+    }
+
+    // 令牌不在服务端登记，无法逐条计数，返回 0
+    @Override
+    public int invalidateAll(int userId, String username) {
+        long now = clock.millis();
+        notBefore.values().removeIf(cutoff -> cutoff + absoluteTimeoutMillis <= now);
+        notBefore.merge(username, now, Math::max);
+        return 0;
+    }
+
+    // 令牌记录的是用户名，每次解析都经 userIdResolver 重新换算，不会固定引用某个用户ID
+    @Override
+    public boolean hasSessions(int userId) {
+        return false;
+    }
+
+    // 解码到借用的缓冲区并校验格式、签名和过期时间，成功时返回令牌字节数，否则返回 -1
+    private int verify(String token, Scratch s) {
+        if (token == null || token.length() > MAX_TOKEN_CHARS) {
+            return -1;
+        }
+        byte[] bytes = s.token;
+        int length = decode(token, bytes);
+        if (length < USERNAME + MAC_BYTES || bytes[0] != VERSION
+                || length != USERNAME + (bytes[USERNAME_LENGTH] & 0xff) + MAC_BYTES) {
+            return -1;
+        }
+        int signedLength = length - MAC_BYTES;
+        sign(s, bytes, signedLength);
+        if (!signatureMatches(s.mac, bytes, signedLength)) {
+            return -1;
+        }
+        return clock.millis() < readLong(bytes, EXPIRES_AT) ? length : -1;
+    }
+
+    private static void sign(Scratch s, byte[] data, int length) {
+        try {
+            s.hmac.update(data, 0, length);
+            s.hmac.doFinal(s.mac, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign session token", e);
+        }
+    }
+
+    // 常量时间比较，避免通过响应时间逐字节猜出签名
+    private static boolean signatureMatches(byte[] expected, byte[] token, int offset) {
+        int diff = 0;
+        for (int i = 0; i < MAC_BYTES; i++) {
+            diff |= expected[i] ^ token[offset + i];
+        }
+        return diff == 0;
+    }
+
+    // URL 安全 Base64（无填充）解码，返回字节数；包含非法字符时返回 -1
+    private static int decode(String token, byte[] out) {
+        int length = 0;
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            int digit = c < 128 ? DECODE[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            buffer = (buffer << 6) | digit;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[length++] = (byte) (buffer >>> bits);
+            }
+        }
+        return length;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+        }
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static final class Scratch {
+        private final Mac hmac;
+        private final byte[] token = new byte[MAX_TOKEN_BYTES + 1];
+        private final byte[] mac = new byte[32];
+
+        Scratch(Mac hmac) {
+            this.hmac = hmac;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package cn.ianzhang.authapi.session;
+
+// 有状态会话（默认模式）：令牌是随机ID，会话保存在 SessionStore 中
+public class StoreSessionManager implements SessionManager {
+    private final SessionStore store;
+    private final SessionIdGenerator generator;
+
+    public StoreSessionManager(SessionStore store, SessionIdGenerator generator) {
+        this.store = store;
+        this.generator = generator;
+    }
+
+    @Override
+    public String create(int userId, String username) {
+        // 极小概率冲突时重新生成
+        String sessionId;
+        do {
+            sessionId = generator.generate();
+        } while (store.putIfAbsent(sessionId, userId, username) == null);
+        return sessionId;
+    }
+
+    @Override
+    public int resolve(String token) {
+        Session session = store.get(token);
+        return session != null ? session.getUserId() : NO_USER;
+    }
+
+    @Override
+    public void invalidate(String token) {
+        store.remove(token);
+    }
+
+    @Override
+    public int invalidateAll(int userId, String username) {
+        return store.removeAll(userId);
+    }
+
+    @Override
+    public boolean hasSessions(int userId) {
+        return store.sessionCount(userId) > 0;
+    }
+}
@@ -0,0 +1,130 @@
+package cn.ianzhang.authapi.session;
+
+import java.util.function.Consumer;
+
+// 分层时间轮：每层 64 个槽，共 4 层，按过期时间 O(1) 挂入/摘除会话。
+// 非线程安全，只允许清理线程访问；其他线程通过 SessionStore 的待处理队列提交变更。
+final class TimerWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = 1L << (BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Session[][] heads = new Session[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    TimerWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Session sentinel = new Session(null, -1, null, 0, 0);
+                sentinel.wheelPrev = sentinel;
+                sentinel.wheelNext = sentinel;
+                heads[level][slot] = sentinel;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // 按绝对过期时间挂入时间轮，已挂入的会话会先被摘除
+    void schedule(Session session, long deadline) {
+        schedule(session, deadline, currentTick + 1);
+    }
+
+    void cancel(Session session) {
+        if (session.wheelNext != null) {
+            unlink(session);
+        }
+    }
+
+    // 推进到 now：逐 tick 先把高层槽位降级，再处理第 0 层到期槽位。
+    // 到期但在空闲期内被访问过的会话按新的过期时间重新挂入。
+    void advance(long nowMillis, long idleTimeoutMillis, Consumer<Session> onExpired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                Session head = heads[level][(int) ((currentTick >>> (BITS * level)) & MASK)];
+                Session node = detach(head);
+                while (node != head) {
+                    Session next = node.wheelNext;
+                    node.wheelPrev = null;
+                    node.wheelNext = null;
+                    size--;
+                    schedule(node, node.wheelDeadline, currentTick);
+                    node = next;
+                }
+            }
+
+            Session head = heads[0][(int) (currentTick & MASK)];
+            Session node = detach(head);
+            while (node != head) {
+                Session next = node.wheelNext;
+                node.wheelPrev = null;
+                node.wheelNext = null;
+                size--;
+                if (!node.removed) {
+                    long expiresAt = node.expiresAt(idleTimeoutMillis);
+                    if (expiresAt <= nowMillis) {
+                        onExpired.accept(node);
+                    } else {
+                        schedule(node, expiresAt, currentTick + 1);
+                    }
+                }
+                node = next;
+            }
+        }
+    }
+
+    private void schedule(Session session, long deadline, long minTick) {
+        cancel(session);
+        session.wheelDeadline = deadline;
+        // 向上取整，保证槽位触发时会话确实已到期
+        long ticks = Math.max(Math.ceilDiv(deadline, tickMillis), minTick);
+        long delta = ticks - currentTick;
+        if (delta >= MAX_DELTA) {
+            // 超出时间轮跨度的先挂在最远的槽位，降级时会重新计算
+            delta = MAX_DELTA - 1;
+            ticks = currentTick + delta;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        Session head = heads[level][(int) ((ticks >>> (BITS * level)) & MASK)];
+        session.wheelNext = head;
+        session.wheelPrev = head.wheelPrev;
+        head.wheelPrev.wheelNext = session;
+        head.wheelPrev = session;
+        size++;
+    }
+
+    private void unlink(Session session) {
+        session.wheelPrev.wheelNext = session.wheelNext;
+        session.wheelNext.wheelPrev = session.wheelPrev;
+        session.wheelPrev = null;
+        session.wheelNext = null;
+        size--;
+    }
+
+    // 把整条链表从槽位上摘下，返回第一个节点；遍历到 head 即结束
+    private static Session detach(Session head) {
+        Session first = head.wheelNext;
+        head.wheelNext = head;
+        head.wheelPrev = head;
+        return first;
+    }
+}
@@ -0,0 +1,111 @@
+package cn.ianzhang.authapi.cluster;
+
+import cn.ianzhang.authapi.AuthApiApplication;
+import cn.ianzhang.authapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 在同一进程内以不同端口启动三个 Spring 上下文组成集群，验证跨节点注册与登录
+@Disabled
+class ClusterTest {
+
+    private static final int NODES = 3;
+    private static final String SECRET = "cluster-test-secret";
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private int[] ports;
+
+    @BeforeEach
+    void startCluster() throws IOException {
+        ports = new int[NODES];
+        for (int i = 0; i < NODES; i++) {
+            ports[i] = freePort();
+        }
+        for (int i = 0; i < NODES; i++) {
+            List<String> properties = new ArrayList<>(List.of(
+                    "server.port=" + ports[i],
+                    "spring.datasource.url=jdbc:h2:mem:cluster-node-" + i,
+                    "auth.password.min-iterations=1000",
+                    "auth.password.target-hash-time=1ms",
+                    "auth.cluster.enabled=true",
+                    "auth.cluster.self=node-" + i,
+                    "auth.cluster.secret=" + SECRET));
+            for (int j = 0; j < NODES; j++) {
+                properties.add("auth.cluster.peers.node-" + j + "=http://localhost:" + ports[j]);
+            }
+            // 以命令行参数传入，优先级高于 application.properties 中的 server.port 等配置
+            contexts.add(new SpringApplicationBuilder(AuthApiApplication.class)
+                    .run(properties.stream().map(property -> "--" + property).toArray(String[]::new)));
+        }
+    }
+
+    @AfterEach
+    void stopCluster() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void userRegisteredOnOneNodeCanLogInOnEveryNode() throws Exception {
+        for (int u = 0; u < 20; u++) {
+            String username = "user" + u;
+            assertEquals(201, post(u % NODES, "/api/auth/register",
+                    "{\"username\":\"" + username + "\",\"password\":\"secret\",\"email\":\"" + username + "@example.com\"}"));
+            for (int node = 0; node < NODES; node++) {
+                assertEquals(200, post(node, "/api/auth/login",
+                        "{\"username\":\"" + username + "\",\"password\":\"secret\"}"));
+            }
+            // 重复注册在任何节点上都会被拒绝
+            assertEquals(409, post((u + 1) % NODES, "/api/auth/register",
+                    "{\"username\":\"" + username + "\",\"password\":\"other\",\"email\":\"x@example.com\"}"));
+
+            int owners = 0;
+            for (ConfigurableApplicationContext context : contexts) {
+                UserRepository local = BeanFactoryAnnotationUtils.qualifiedBeanOfType(context.getBeanFactory(),
+                        UserRepository.class, "localUserRepository");
+                if (local.existsByUsername(username)) {
+                    owners++;
+                }
+            }
+            assertEquals(1, owners);
+        }
+    }
+
+    @Test
+    void peerEndpointRequiresSecret() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + ports[0] + HttpUserPeer.PATH + "?username=alice")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(403, response.statusCode());
+    }
+
+    private int post(int node, String path, String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + ports[node] + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
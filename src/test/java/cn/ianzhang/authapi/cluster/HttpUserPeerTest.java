@@ -0,0 +1,84 @@
+package cn.ianzhang.authapi.cluster;
+
+import cn.ianzhang.authapi.model.User;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 用 JDK 自带的 HttpServer 模拟对端，按请求方法返回预设的状态码
+@Disabled
+class HttpUserPeerTest {
+
+    private HttpServer server;
+    private HttpUserPeer peer;
+    private volatile int getStatus;
+    private volatile int postStatus;
+    private volatile int putStatus;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            int status = switch (exchange.getRequestMethod()) {
+                case "POST" -> postStatus;
+                case "PUT" -> putStatus;
+                default -> getStatus;
+            };
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        peer = new HttpUserPeer(HttpClient.newHttpClient(),
+                URI.create("http://localhost:" + server.getAddress().getPort()), "secret", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void saveIfAbsentDistinguishesCreatedConflictAndMissingEndpoint() {
+        User user = new User("alice", "hash", "alice@example.com");
+        postStatus = 201;
+        assertTrue(peer.saveIfAbsent(user));
+        postStatus = 409;
+        assertFalse(peer.saveIfAbsent(user));
+        // 对端没有集群接口时不能当作注册成功
+        postStatus = 404;
+        assertThrows(PeerUnavailableException.class, () -> peer.saveIfAbsent(user));
+    }
+
+    @Test
+    void updateRequiresSuccess() {
+        User user = new User("alice", "hash", "alice@example.com");
+        putStatus = 204;
+        peer.update(user);
+        putStatus = 404;
+        assertThrows(PeerUnavailableException.class, () -> peer.update(user));
+        putStatus = 409;
+        assertThrows(PeerUnavailableException.class, () -> peer.update(user));
+    }
+
+    @Test
+    void notFoundMeansMissingUserOnlyForLookups() {
+        getStatus = 404;
+        assertNull(peer.fetch("alice"));
+        assertNull(peer.fetchByEmail("alice@example.com"));
+        assertNull(peer.fetchByEmailAsync("alice@example.com").join());
+        assertThrows(PeerUnavailableException.class, () -> peer.searchUsernames("a", null, 10));
+        getStatus = 500;
+        assertThrows(PeerUnavailableException.class, () -> peer.fetch("alice"));
+    }
+}
@@ -0,0 +1,75 @@
+package cn.ianzhang.authapi.cluster;
+
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class UserCodecTest {
+
+    @Test
+    void roundTrip() {
+        User user = new User("张三", "pbkdf2-sha256$1000$salt$hash", "zhang@example.com");
+        User decoded = UserCodec.decode(UserCodec.encode(user));
+        assertEquals(user.getUsername(), decoded.getUsername());
+        assertEquals(user.getPassword(), decoded.getPassword());
+        assertEquals(user.getEmail(), decoded.getEmail());
+        assertEquals(User.NO_ID, decoded.getId());
+    }
+
+    @Test
+    void rolesRoundTrip() {
+        User user = new User("alice", "hash", "alice@example.com");
+        user.setRoles(Set.of(new Role("admin"), new Role("user")));
+        user.setResolvedPermissions(new User.ResolvedPermissions(1, -1L));
+        User decoded = UserCodec.decode(UserCodec.encode(user));
+        assertEquals(user.getRoles(), decoded.getRoles());
+        // 权限位集不参与传输，由接收方按角色重新计算
+        assertEquals(0, decoded.getPermissions());
+    }
+
+    @Test
+    void decodesVersionOneWithoutRoles() {
+        byte[] v1 = {1, 1, 0, 5, 'a', 'l', 'i', 'c', 'e', 0, 0};
+        User decoded = UserCodec.decode(v1);
+        assertEquals("alice", decoded.getUsername());
+        assertTrue(decoded.getRoles().isEmpty());
+    }
+
+    @Test
+    void nullFieldsRoundTrip() {
+        User decoded = UserCodec.decode(UserCodec.encode(new User("alice", null, null)));
+        assertEquals("alice", decoded.getUsername());
+        assertNull(decoded.getPassword());
+        assertNull(decoded.getEmail());
+    }
+
+    @Test
+    void usernameListRoundTrip() {
+        List<String> usernames = List.of("alice", "张三", "");
+        assertEquals(usernames, UserCodec.decodeUsernames(UserCodec.encodeUsernames(usernames)));
+        assertEquals(List.of(), UserCodec.decodeUsernames(UserCodec.encodeUsernames(List.of())));
+        byte[] encoded = UserCodec.encodeUsernames(usernames);
+        assertThrows(IllegalArgumentException.class,
+                () -> UserCodec.decodeUsernames(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> UserCodec.decodeUsernames(new byte[0]));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> UserCodec.decode(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> UserCodec.decode(new byte[]{9}));
+        assertThrows(IllegalArgumentException.class, () -> UserCodec.decode(new byte[]{1, 1, 0, 10}));
+        byte[] trailing = UserCodec.encode(new User("alice", "pw", "e"));
+        byte[] withGarbage = Arrays.copyOf(trailing, trailing.length + 1);
+        assertThrows(IllegalArgumentException.class, () -> UserCodec.decode(withGarbage));
+        assertThrows(IllegalArgumentException.class, () -> UserCodec.decode(UserCodec.encode(new User())));
+    }
+}
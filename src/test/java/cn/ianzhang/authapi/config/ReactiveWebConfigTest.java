@@ -0,0 +1,26 @@
+package cn.ianzhang.authapi.config;
+
+import cn.ianzhang.authapi.service.UserService;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@Disabled
+class ReactiveWebConfigTest {
+
+    @Test
+    void clusterModeIsRejectedOnReactiveNodes() {
+        AuthProperties properties = new AuthProperties();
+        properties.getCluster().setEnabled(true);
+        // 集群内部接口只在 Servlet 模式下提供，归属于响应式节点的用户会在其他节点上丢失
+        assertThrows(IllegalStateException.class,
+                () -> new ReactiveWebConfig().reactiveUserService(mock(UserService.class), properties));
+    }
+
+    @Test
+    void standaloneReactiveNodeStarts() {
+        assertNotNull(new ReactiveWebConfig().reactiveUserService(mock(UserService.class), new AuthProperties()));
+    }
+}
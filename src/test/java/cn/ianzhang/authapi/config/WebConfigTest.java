@@ -1,19 +1,28 @@
 package cn.ianzhang.authapi.config;
 
 import cn.ianzhang.authapi.controller.AuthHeader;
+import cn.ianzhang.authapi.controller.PermissionInterceptor;
+import cn.ianzhang.authapi.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import java.util.ArrayList;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 @Disabled
 public class WebConfigTest {
 
     @Test
     void addArgumentResolversAddsAuthHeaderResolver() {
-        WebConfig webConfig = new WebConfig();
+        WebConfig webConfig = new WebConfig(mock(UserService.class), new ObjectMapper());
         List<HandlerMethodArgumentResolver> resolvers = new ArrayList<>();
         webConfig.addArgumentResolvers(resolvers);
         assertEquals(1, resolvers.size());
@@ -22,11 +31,20 @@ public class WebConfigTest {
 
     @Test
     void addArgumentResolversAddsToExistingResolvers() {
-        WebConfig webConfig = new WebConfig();
+        WebConfig webConfig = new WebConfig(mock(UserService.class), new ObjectMapper());
         List<HandlerMethodArgumentResolver> resolvers = new ArrayList<>();
         resolvers.add(mock(HandlerMethodArgumentResolver.class));
         webConfig.addArgumentResolvers(resolvers);
         assertEquals(2, resolvers.size());
         assertTrue(resolvers.get(1) instanceof AuthHeader.AuthHeaderResolver);
     }
+
+    @Test
+    void addInterceptorsRegistersPermissionInterceptor() {
+        WebConfig webConfig = new WebConfig(mock(UserService.class), new ObjectMapper());
+        InterceptorRegistry registry = mock(InterceptorRegistry.class);
+        when(registry.addInterceptor(any())).thenReturn(mock(InterceptorRegistration.class));
+        webConfig.addInterceptors(registry);
+        verify(registry).addInterceptor(isA(PermissionInterceptor.class));
+    }
 }
@@ -1,9 +1,19 @@
 package cn.ianzhang.authapi.controller;
 
+import cn.ianzhang.authapi.cluster.PeerUnavailableException;
+import cn.ianzhang.authapi.dto.EmailLoginRequest;
 import cn.ianzhang.authapi.dto.LoginRequest;
 import cn.ianzhang.authapi.dto.RegisterRequest;
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.security.AccountLockedException;
+import cn.ianzhang.authapi.security.HashingBusyException;
+import cn.ianzhang.authapi.service.ImportSummary;
+import cn.ianzhang.authapi.service.UserImportService;
 import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.service.UserSnapshotService;
+import cn.ianzhang.authapi.session.SessionOperationUnsupportedException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -14,7 +24,12 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 @Disabled
@@ -27,13 +42,19 @@ class AuthControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserImportService userImportService;
+
+    @MockBean
+    private UserSnapshotService userSnapshotService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @BeforeEach
     void setUp() {
         // 重置mock状态
-        Mockito.reset(userService);
+        Mockito.reset(userService, userImportService, userSnapshotService);
     }
 
     @Test
@@ -43,7 +64,7 @@ class AuthControllerTest {
         request.setPassword("password123");
         request.setEmail("test@example.com");
 
-        when(userService.register(Mockito.any())).thenReturn(true);
+        when(userService.registerAccount(Mockito.any())).thenReturn(UserService.RegistrationResult.CREATED);
 
         mockMvc.perform(post("/api/auth/register")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -60,7 +81,7 @@ class AuthControllerTest {
         request.setPassword("password123");
         request.setEmail("test@example.com");
 
-        when(userService.register(Mockito.any())).thenReturn(false);
+        when(userService.registerAccount(Mockito.any())).thenReturn(UserService.RegistrationResult.USERNAME_TAKEN);
 
         mockMvc.perform(post("/api/auth/register")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -70,6 +91,55 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.message").value("用户名已存在"));
     }
 
+    @Test
+    void testRegister_emailTaken() throws Exception {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername("newuser");
+        request.setPassword("password123");
+        request.setEmail("taken@example.com");
+
+        when(userService.registerAccount(Mockito.any())).thenReturn(UserService.RegistrationResult.EMAIL_TAKEN);
+
+        mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("邮箱已被注册"));
+
+        // 邮箱只由 registerAccount 查一次，控制器不再预先检查
+        Mockito.verify(userService, Mockito.never()).isEmailTaken(Mockito.any());
+    }
+
+    @Test
+    void testRegister_usernameTooLong() throws Exception {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername("u".repeat(256));
+        request.setPassword("password123");
+        request.setEmail("long@example.com");
+
+        mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("用户名不能超过 255 字节"));
+        Mockito.verify(userService, Mockito.never()).registerAccount(Mockito.any());
+    }
+
+    @Test
+    void testRegister_emailTooLong() throws Exception {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername("newuser");
+        request.setPassword("password123");
+        request.setEmail("e".repeat(256) + "@example.com");
+
+        mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("邮箱不能超过 255 个字符"));
+        Mockito.verify(userService, Mockito.never()).registerAccount(Mockito.any());
+    }
+
     @Test
     void testRegister_invalidRequest() throws Exception {
         RegisterRequest request = new RegisterRequest();
@@ -118,6 +188,84 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.message").value("用户名或密码错误"));
     }
 
+    @Test
+    void testLoginByEmail_success() throws Exception {
+        EmailLoginRequest request = new EmailLoginRequest();
+        request.setEmail("Test@Example.com");
+        request.setPassword("password123");
+
+        when(userService.loginByEmail("Test@Example.com", "password123")).thenReturn("session-test-123");
+
+        mockMvc.perform(post("/api/auth/login/email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Authorization", "session-test-123"))
+                .andExpect(jsonPath("$.data").value("session-test-123"));
+    }
+
+    @Test
+    void testLoginByEmail_invalidCredentials() throws Exception {
+        EmailLoginRequest request = new EmailLoginRequest();
+        request.setEmail("test@example.com");
+        request.setPassword("wrongpassword");
+
+        mockMvc.perform(post("/api/auth/login/email")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("邮箱或密码错误"));
+    }
+
+    @Test
+    void testLogin_hashingBusy() throws Exception {
+        LoginRequest request = new LoginRequest();
+        request.setUsername("testuser");
+        request.setPassword("password123");
+
+        when(userService.login("testuser", "password123")).thenThrow(new HashingBusyException("busy"));
+
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void testLogin_accountLocked() throws Exception {
+        LoginRequest request = new LoginRequest();
+        request.setUsername("testuser");
+        request.setPassword("password123");
+
+        when(userService.login("testuser", "password123")).thenThrow(new AccountLockedException(90_500));
+
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isLocked())
+                .andExpect(header().string("Retry-After", "91"))
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void testRegister_peerUnavailable() throws Exception {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername("testuser");
+        request.setPassword("password123");
+        request.setEmail("test@example.com");
+
+        when(userService.registerAccount(Mockito.any())).thenThrow(new PeerUnavailableException("down"));
+
+        mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     void testLogout() throws Exception {
         String sessionId = "session-test-123";
@@ -131,4 +279,150 @@ class AuthControllerTest {
 
         Mockito.verify(userService).logout(sessionId);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLogoutAll() throws Exception {
+        when(userService.logoutAll("session-test-123")).thenReturn(3);
+
+        mockMvc.perform(post("/api/auth/logout/all")
+                .header("Authorization", "session-test-123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").value(3));
+    }
+
+    @Test
+    void testLogoutAll_requiresValidSession() throws Exception {
+        when(userService.logoutAll("expired")).thenReturn(-1);
+
+        mockMvc.perform(post("/api/auth/logout/all")
+                .header("Authorization", "expired"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/auth/logout/all"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testLogoutAll_unsupportedSessionMode() throws Exception {
+        when(userService.logoutAll("signed-token")).thenThrow(new SessionOperationUnsupportedException("unsupported"));
+
+        mockMvc.perform(post("/api/auth/logout/all")
+                .header("Authorization", "signed-token"))
+                .andExpect(status().isNotImplemented());
+    }
+
+    @Test
+    void testLogoutAll_otherUnsupportedOperationIsNotReportedAsUnsupportedMode() {
+        when(userService.logoutAll("session-test-123")).thenThrow(new UnsupportedOperationException());
+
+        assertThrows(ServletException.class, () -> mockMvc.perform(post("/api/auth/logout/all")
+                .header("Authorization", "session-test-123")));
+    }
+
+    @Test
+    void testImport_requiresToken() throws Exception {
+        when(userImportService.isAuthorized(Mockito.any())).thenReturn(false);
+
+        mockMvc.perform(post("/api/auth/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"username\":\"alice\",\"password\":\"p\",\"email\":\"a@example.com\"}\n"))
+                .andExpect(status().isForbidden());
+
+        Mockito.verify(userImportService, Mockito.never()).importUsers(any(), any(), any());
+    }
+
+    @Test
+    void testImport_selectsFormatFromContentType() throws Exception {
+        when(userImportService.isAuthorized("secret")).thenReturn(true);
+
+        mockMvc.perform(post("/api/auth/import")
+                .header(UserImportService.TOKEN_HEADER, "secret")
+                .contentType("text/csv")
+                .content("username,password,email\nalice,p,a@example.com\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+
+        Mockito.verify(userImportService).importUsers(any(), eq(UserImportService.Format.CSV), any());
+    }
+
+    @Test
+    void testExport_snapshotFormat() throws Exception {
+        when(userSnapshotService.isExportAuthorized("secret")).thenReturn(true);
+
+        mockMvc.perform(get("/api/auth/export")
+                .header(UserSnapshotService.EXPORT_TOKEN_HEADER, "secret")
+                .param("format", "snapshot"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM));
+
+        Mockito.verify(userSnapshotService).writeSnapshot(any());
+        Mockito.verify(userSnapshotService, Mockito.never()).exportNdjson(any());
+    }
+
+    @Test
+    void testExport_requiresToken() throws Exception {
+        when(userSnapshotService.isExportAuthorized(Mockito.any())).thenReturn(false);
+
+        mockMvc.perform(get("/api/auth/export"))
+                .andExpect(status().isForbidden());
+
+        Mockito.verify(userSnapshotService, Mockito.never()).exportNdjson(any());
+        Mockito.verify(userSnapshotService, Mockito.never()).writeSnapshot(any());
+    }
+
+    @Test
+    void testExport_importTokenIsNotAccepted() throws Exception {
+        when(userImportService.isAuthorized("secret")).thenReturn(true);
+
+        mockMvc.perform(get("/api/auth/export")
+                .header(UserImportService.TOKEN_HEADER, "secret"))
+                .andExpect(status().isForbidden());
+
+        Mockito.verify(userSnapshotService, Mockito.never()).exportNdjson(any());
+    }
+
+    @Test
+    void testRestore_dropsRolesWithoutRoleManage() throws Exception {
+        when(userImportService.isAuthorized("secret")).thenReturn(true);
+        ImportSummary summary = Mockito.spy(new ImportSummary());
+        Mockito.doReturn(2L).when(summary).getRolesDropped();
+        when(userSnapshotService.restoreSnapshot(any(), eq(false))).thenReturn(summary);
+
+        mockMvc.perform(post("/api/auth/restore")
+                .header(UserImportService.TOKEN_HEADER, "secret")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(new byte[]{1, 2, 3}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("恢复完成，2 个用户的角色未恢复（需要具有 ROLE_MANAGE 权限的会话）"))
+                .andExpect(jsonPath("$.data.rolesDropped").value(2));
+    }
+
+    @Test
+    void testRestore_keepsRolesForRoleManager() throws Exception {
+        when(userImportService.isAuthorized("secret")).thenReturn(true);
+        when(userService.hasPermission("session-test-123", Permission.ROLE_MANAGE)).thenReturn(true);
+        when(userSnapshotService.restoreSnapshot(any(), eq(true))).thenReturn(new ImportSummary());
+
+        mockMvc.perform(post("/api/auth/restore")
+                .header(UserImportService.TOKEN_HEADER, "secret")
+                .header("Authorization", "session-test-123")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(new byte[]{1, 2, 3}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("恢复完成"));
+
+        Mockito.verify(userSnapshotService).restoreSnapshot(any(), eq(true));
+    }
+
+    @Test
+    void testRestore_malformedSnapshot() throws Exception {
+        when(userImportService.isAuthorized("secret")).thenReturn(true);
+        when(userSnapshotService.restoreSnapshot(any(), anyBoolean())).thenThrow(new IllegalArgumentException("bad"));
+
+        mockMvc.perform(post("/api/auth/restore")
+                .header(UserImportService.TOKEN_HEADER, "secret")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(new byte[]{1, 2, 3}))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+}
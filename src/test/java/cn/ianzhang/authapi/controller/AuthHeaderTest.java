@@ -1,5 +1,7 @@
 package cn.ianzhang.authapi.controller;
 
+import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.session.SessionPrincipal;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -81,7 +83,7 @@ public class AuthHeaderTest {
     }
 
     @Test
-    void resolveArgumentReturnsEmptyStringWhenHeaderIsEmpty() throws Exception {
+    void resolveArgumentReturnsEmptyWhenHeaderIsEmpty() throws Exception {
         AuthHeader.AuthHeaderResolver resolver = new AuthHeader.AuthHeaderResolver();
         NativeWebRequest webRequest = mock(NativeWebRequest.class);
         HttpServletRequest request = mock(HttpServletRequest.class);
@@ -89,6 +91,119 @@ public class AuthHeaderTest {
         when(request.getHeader("Authorization")).thenReturn("");
 
         AuthHeader result = (AuthHeader) resolver.resolveArgument(null, null, webRequest, null);
-        assertEquals("", result.getSessionId());
+        assertSame(AuthHeader.EMPTY, result);
+        assertNull(result.getSessionId());
+    }
+
+    @Test
+    void resolveArgumentReadsSessionCookie() throws Exception {
+        AuthHeader.AuthHeaderResolver resolver = new AuthHeader.AuthHeaderResolver();
+        NativeWebRequest webRequest = mock(NativeWebRequest.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(webRequest.getNativeRequest(HttpServletRequest.class)).thenReturn(request);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getHeader("Cookie")).thenReturn("theme=dark; SESSION=session123");
+
+        AuthHeader result = (AuthHeader) resolver.resolveArgument(null, null, webRequest, null);
+        assertEquals("session123", result.getSessionId());
+    }
+
+    @Test
+    void sessionCookieIsIgnoredOnUnsafeMethodsWithoutRequestedWith() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getHeader("Cookie")).thenReturn("SESSION=session123");
+        assertSame(AuthHeader.EMPTY, AuthHeader.from(request));
+
+        // 跨站表单无法设置自定义头，带 X-Requested-With 的请求可以使用 Cookie
+        when(request.getHeader(AuthHeader.REQUESTED_WITH)).thenReturn("XMLHttpRequest");
+        assertEquals("session123", AuthHeader.from(request).getSessionId());
+
+        // Authorization 头不受影响
+        when(request.getHeader(AuthHeader.REQUESTED_WITH)).thenReturn(null);
+        when(request.getHeader("Authorization")).thenReturn("Bearer header");
+        assertEquals("header", AuthHeader.from(request).getSessionId());
+    }
+
+    @Test
+    void ofReturnsSharedEmptyWithoutCredential() {
+        assertSame(AuthHeader.EMPTY, AuthHeader.of(null, null));
+        assertSame(AuthHeader.EMPTY, AuthHeader.of("   ", "theme=dark"));
+        assertSame(AuthHeader.EMPTY, AuthHeader.of("Bearer", null));
+    }
+
+    @Test
+    void credentialParsesBearerAndRawTokens() {
+        String raw = "q3Jf0x_Lm9ZtR2wE-8vYbA";
+        assertSame(raw, AuthHeader.credential(raw, null));
+        assertEquals(raw, AuthHeader.credential("Bearer " + raw, null));
+        assertEquals(raw, AuthHeader.credential("  bearer   " + raw + "  ", null));
+        assertEquals("BearerX", AuthHeader.credential("BearerX", null));
+    }
+
+    @Test
+    void credentialParsesSessionCookie() {
+        assertEquals("tok", AuthHeader.credential(null, "SESSION=tok"));
+        assertEquals("tok", AuthHeader.credential(null, "a=1;SESSION = \"tok\" ; b=2"));
+        assertEquals("tok", AuthHeader.credential(null, "SESSIONID=other; SESSION=tok"));
+        assertNull(AuthHeader.credential(null, "XSESSION=tok"));
+        assertNull(AuthHeader.credential(null, "SESSION="));
+        // Authorization 头无效时退回 Cookie，有效时以 Authorization 头为准
+        assertEquals("tok", AuthHeader.credential("not a token", "SESSION=tok"));
+        assertEquals("header", AuthHeader.credential("header", "SESSION=tok"));
+    }
+
+    @Test
+    void credentialRejectsMalformedTokens() {
+        assertNull(AuthHeader.credential("Basic dXNlcjpwYXNz", null));
+        assertNull(AuthHeader.credential("a.b.c", null));
+        assertNull(AuthHeader.credential("caf\u00e9", null));
+        assertNull(AuthHeader.credential("x".repeat(AuthHeader.MAX_TOKEN_LENGTH + 1), null));
+        assertNotNull(AuthHeader.credential("x".repeat(AuthHeader.MAX_TOKEN_LENGTH), null));
+    }
+
+    @Test
+    void authHeaderResolverSupportsSessionPrincipalParameter() throws Exception {
+        AuthHeader.AuthHeaderResolver resolver = new AuthHeader.AuthHeaderResolver();
+        MethodParameter parameter = mock(MethodParameter.class);
+        when(parameter.getParameterType()).thenReturn((Class) SessionPrincipal.class);
+        assertTrue(resolver.supportsParameter(parameter));
+    }
+
+    @Test
+    void resolveArgumentPrefersPrincipalFromFilter() throws Exception {
+        UserService userService = mock(UserService.class);
+        AuthHeader.AuthHeaderResolver resolver = new AuthHeader.AuthHeaderResolver(userService);
+        MethodParameter parameter = mock(MethodParameter.class);
+        when(parameter.getParameterType()).thenReturn((Class) SessionPrincipal.class);
+        NativeWebRequest webRequest = mock(NativeWebRequest.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        SessionPrincipal principal = new SessionPrincipal("session123", 0, "testuser");
+        when(webRequest.getNativeRequest(HttpServletRequest.class)).thenReturn(request);
+        when(request.getHeader("Authorization")).thenReturn("session123");
+        when(request.getAttribute(SessionAuthenticationFilter.PRINCIPAL)).thenReturn(principal);
+
+        assertSame(principal, resolver.resolveArgument(parameter, null, webRequest, null));
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void resolveArgumentResolvesPrincipalOnce() throws Exception {
+        UserService userService = mock(UserService.class);
+        AuthHeader.AuthHeaderResolver resolver = new AuthHeader.AuthHeaderResolver(userService);
+        MethodParameter parameter = mock(MethodParameter.class);
+        when(parameter.getParameterType()).thenReturn((Class) SessionPrincipal.class);
+        NativeWebRequest webRequest = mock(NativeWebRequest.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        SessionPrincipal principal = new SessionPrincipal("session123", 0, "testuser");
+        when(webRequest.getNativeRequest(HttpServletRequest.class)).thenReturn(request);
+        when(request.getHeader("Authorization")).thenReturn("session123");
+        when(userService.resolvePrincipal("session123")).thenReturn(principal);
+
+        assertSame(principal, resolver.resolveArgument(parameter, null, webRequest, null));
+        verify(userService, times(1)).resolvePrincipal("session123");
+
+        when(request.getHeader("Authorization")).thenReturn(null);
+        assertNull(resolver.resolveArgument(parameter, null, webRequest, null));
     }
 }
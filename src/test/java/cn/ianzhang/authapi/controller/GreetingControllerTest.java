@@ -1,6 +1,7 @@
 package cn.ianzhang.authapi.controller;
 
 import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.session.SessionPrincipal;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,8 +37,7 @@ class GreetingControllerTest {
         String sessionId = "session-test-123";
         String username = "testuser";
 
-        when(userService.isSessionValid(sessionId)).thenReturn(true);
-        when(userService.getUsernameBySessionId(sessionId)).thenReturn(username);
+        when(userService.resolvePrincipal(sessionId)).thenReturn(new SessionPrincipal(sessionId, 0, username));
 
         mockMvc.perform(get("/api/greeting/protected")
                 .header("Authorization", sessionId))
@@ -56,7 +56,7 @@ class GreetingControllerTest {
 
         // 无效的sessionId
         String invalidSessionId = "invalid-session";
-        when(userService.isSessionValid(invalidSessionId)).thenReturn(false);
+        when(userService.resolvePrincipal(invalidSessionId)).thenReturn(null);
 
         mockMvc.perform(get("/api/greeting/protected")
                 .header("Authorization", invalidSessionId))
@@ -0,0 +1,173 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.security.TokenBucketLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class LoginRateLimitFilterTest {
+
+    private final TokenBucketLimiter byIp = new TokenBucketLimiter(3, Duration.ofMinutes(1), 100);
+    private final TokenBucketLimiter byAccount = new TokenBucketLimiter(2, Duration.ofMinutes(1), 100);
+    private final LoginRateLimitFilter filter = new LoginRateLimitFilter(byIp, byAccount, new ObjectMapper());
+
+    private MockHttpServletRequest login(String uri, String ip, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, MockFilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @Test
+    void passesBodyThroughUnchanged() throws Exception {
+        String body = "{\"username\":\"alice\",\"password\":\"secret\"}";
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform(login("/api/auth/login", "10.0.0.1", body), chain);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(body, new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void nonBlockingReadDeliversCachedBody() throws Exception {
+        String body = "{\"username\":\"alice\",\"password\":\"secret\"}";
+        MockHttpServletRequest request = login("/api/auth/login", "10.0.0.1", body);
+        request.setAsyncSupported(true);
+        MockFilterChain chain = new MockFilterChain();
+        perform(request, chain);
+
+        ServletRequest wrapped = chain.getRequest();
+        ServletInputStream in = wrapped.getInputStream();
+        // 未开始异步处理时与容器一样拒绝非阻塞读取
+        assertThrows(IllegalStateException.class, () -> in.setReadListener(new CollectingListener(in)));
+
+        wrapped.startAsync();
+        CollectingListener listener = new CollectingListener(in);
+        in.setReadListener(listener);
+        assertEquals(body, listener.read.toString(StandardCharsets.UTF_8));
+        assertTrue(listener.allDataRead);
+        assertNull(listener.error);
+        assertThrows(IllegalStateException.class, () -> in.setReadListener(new CollectingListener(in)));
+    }
+
+    @Test
+    void rejectsAccountOverLimitWithRetryAfter() throws Exception {
+        String body = "{\"username\":\"alice\",\"password\":\"wrong\"}";
+        perform(login("/api/auth/login", "10.0.0.1", body), new MockFilterChain());
+        perform(login("/api/auth/login", "10.0.0.2", body), new MockFilterChain());
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform(login("/api/auth/login", "10.0.0.3", body), chain);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("60", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString(StandardCharsets.UTF_8).contains("登录尝试过于频繁"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void rejectsIpOverLimitBeforeReadingBody() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            perform(login("/api/auth/login", "10.0.0.1", "{\"username\":\"user" + i + "\"}"), new MockFilterChain());
+        }
+        MockHttpServletRequest request = login("/api/auth/login", "10.0.0.1", "{\"username\":\"bob\"}");
+        MockHttpServletResponse response = perform(request, new MockFilterChain());
+
+        assertEquals(429, response.getStatus());
+        // 请求体未被读取，bob 的令牌也没有被消耗
+        assertEquals(0, byAccount.millisUntilAvailable("username:bob"));
+        assertEquals(3, byAccount.size());
+    }
+
+    @Test
+    void duplicateFieldUsesLastValue() {
+        assertEquals("username:bob",
+                filter.accountKey("{\"username\":\"alice\",\"username\":\"bob\"}".getBytes(StandardCharsets.UTF_8), "username"));
+        assertEquals("email:alice@example.com",
+                filter.accountKey(" {\"email\":\" Alice@Example.com \"}".getBytes(StandardCharsets.UTF_8), "email"));
+        assertNull(filter.accountKey("{\"username\":{\"nested\":1}}".getBytes(StandardCharsets.UTF_8), "username"));
+        assertNull(filter.accountKey("not json".getBytes(StandardCharsets.UTF_8), "username"));
+    }
+
+    @Test
+    void emailLoginIsLimitedByNormalizedEmail() throws Exception {
+        perform(login("/api/auth/login/email", "10.0.0.1", "{\"email\":\"Alice@Example.com\"}"), new MockFilterChain());
+        perform(login("/api/auth/login/email", "10.0.0.2", "{\"email\":\"alice@example.com\"}"), new MockFilterChain());
+        MockHttpServletResponse response = perform(
+                login("/api/auth/login/email", "10.0.0.3", "{\"email\":\"ALICE@example.com\"}"), new MockFilterChain());
+
+        assertEquals(429, response.getStatus());
+    }
+
+    @Test
+    void rejectsOversizedBody() throws Exception {
+        String body = "{\"username\":\"" + "a".repeat(LoginRateLimitFilter.MAX_BODY_BYTES) + "\"}";
+        MockHttpServletResponse response = perform(login("/api/auth/login", "10.0.0.1", body), new MockFilterChain());
+
+        assertEquals(413, response.getStatus());
+    }
+
+    @Test
+    void ignoresNonPostRequests() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/auth/login");
+        MockFilterChain chain = new MockFilterChain();
+        perform(request, chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(0, byIp.size());
+    }
+
+    private static class CollectingListener implements ReadListener {
+        private final ServletInputStream in;
+        private final ByteArrayOutputStream read = new ByteArrayOutputStream();
+        private boolean allDataRead;
+        private Throwable error;
+
+        CollectingListener(ServletInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            byte[] buffer = new byte[8];
+            while (in.isReady() && !in.isFinished()) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    break;
+                }
+                read.write(buffer, 0, n);
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            allDataRead = true;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+    }
+}
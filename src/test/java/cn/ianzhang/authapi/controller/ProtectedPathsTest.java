@@ -0,0 +1,93 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.RoleAssignmentRequest;
+import cn.ianzhang.authapi.session.SessionPrincipal;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class ProtectedPathsTest {
+
+    private static Map<RequestMappingInfo, HandlerMethod> greetingHandlers() throws Exception {
+        GreetingController controller = new GreetingController();
+        Map<RequestMappingInfo, HandlerMethod> handlers = new LinkedHashMap<>();
+        handlers.put(RequestMappingInfo.paths("/api/greeting/public").methods(RequestMethod.GET).build(),
+                new HandlerMethod(controller, GreetingController.class.getMethod("publicGreeting")));
+        handlers.put(RequestMappingInfo.paths("/api/greeting/protected").methods(RequestMethod.GET).build(),
+                new HandlerMethod(controller, GreetingController.class.getMethod("protectedGreeting",
+                        SessionPrincipal.class)));
+        return handlers;
+    }
+
+    @Test
+    void annotatedHandlersAreProtected() throws Exception {
+        ProtectedPaths paths = ProtectedPaths.compile(List.of(), greetingHandlers());
+
+        assertTrue(paths.matches("GET", "/api/greeting/protected"));
+        assertFalse(paths.matches("POST", "/api/greeting/protected"));
+        assertFalse(paths.matches("GET", "/api/greeting/public"));
+        assertFalse(paths.matches("GET", "/api/greeting/protected/extra"));
+    }
+
+    @Test
+    void permissionHandlersWithPathVariablesAreProtected() throws Exception {
+        UserController controller = new UserController(null);
+        Map<RequestMappingInfo, HandlerMethod> handlers = Map.of(
+                RequestMappingInfo.paths("/api/users/{username}/roles").methods(RequestMethod.PUT).build(),
+                new HandlerMethod(controller, "assignRoles",
+                        String.class, RoleAssignmentRequest.class));
+        ProtectedPaths paths = ProtectedPaths.compile(List.of(), handlers);
+
+        assertTrue(paths.matches("PUT", "/api/users/alice/roles"));
+        assertFalse(paths.matches("GET", "/api/users/alice/roles"));
+        assertFalse(paths.matches("PUT", "/api/users/alice"));
+    }
+
+    @Test
+    void configuredPatterns() {
+        ProtectedPaths paths = ProtectedPaths.compile(
+                List.of("/api/reports/**", "get /api/items/{id}", " /api/exact "), Map.of());
+
+        assertTrue(paths.matches("GET", "/api/reports"));
+        assertTrue(paths.matches("DELETE", "/api/reports/2024/q1"));
+        assertTrue(paths.matches("GET", "/api/items/42"));
+        assertFalse(paths.matches("POST", "/api/items/42"));
+        assertTrue(paths.matches("PATCH", "/api/exact"));
+        assertFalse(paths.matches("GET", "/api/other"));
+    }
+
+    @Test
+    void encodedAndParameterizedPathsMatchLikeMvc() {
+        ProtectedPaths paths = ProtectedPaths.compile(List.of("/api/reports", "/api/items/**"), Map.of());
+
+        // 编码的字符和 ;参数 不能绕过检查
+        assertTrue(paths.matches("GET", "/api/report%73"));
+        assertTrue(paths.matches("GET", "/api/reports;x=1"));
+        assertTrue(paths.matches("GET", "/api/%72eports;jsessionid=abc"));
+        assertTrue(paths.matches("GET", "/api/item%73/42"));
+        assertTrue(paths.matches("GET", "/api/items;x=1/42"));
+        assertFalse(paths.matches("GET", "/api/reportsx"));
+    }
+
+    @Test
+    void emptyWhenNothingDeclared() {
+        ProtectedPaths paths = ProtectedPaths.compile(List.of("", "  "), Map.of());
+        assertTrue(paths.isEmpty());
+        assertFalse(paths.matches("GET", "/api/greeting/protected"));
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        assertThrows(IllegalArgumentException.class, () -> ProtectedPaths.compile(List.of("FETCH /api/x"), Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> ProtectedPaths.compile(List.of("api/x"), Map.of()));
+    }
+}
@@ -0,0 +1,127 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.config.ReactiveWebConfig;
+import cn.ianzhang.authapi.dto.LoginRequest;
+import cn.ianzhang.authapi.dto.RegisterRequest;
+import cn.ianzhang.authapi.security.AccountLockedException;
+import cn.ianzhang.authapi.service.UserService;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Disabled
+@WebFluxTest(ReactiveAuthController.class)
+@Import(ReactiveWebConfig.class)
+class ReactiveAuthControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserService userService;
+
+    @Test
+    void testRegister_success() {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername("testuser");
+        request.setPassword("password123");
+        request.setEmail("test@example.com");
+        when(userService.registerAccount(ArgumentMatchers.any())).thenReturn(UserService.RegistrationResult.CREATED);
+
+        webTestClient.post().uri("/api/auth/register").bodyValue(request)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.success").isEqualTo(true)
+                .jsonPath("$.message").isEqualTo("注册成功");
+    }
+
+    @Test
+    void testRegister_emailTaken() {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername("testuser");
+        request.setPassword("password123");
+        request.setEmail("test@example.com");
+        when(userService.registerAccount(ArgumentMatchers.any())).thenReturn(UserService.RegistrationResult.EMAIL_TAKEN);
+
+        webTestClient.post().uri("/api/auth/register").bodyValue(request)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("邮箱已被注册");
+    }
+
+    @Test
+    void testLogin_success() {
+        LoginRequest request = new LoginRequest();
+        request.setUsername("testuser");
+        request.setPassword("password123");
+        when(userService.login("testuser", "password123")).thenReturn("session-123");
+
+        webTestClient.post().uri("/api/auth/login").bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Authorization", "session-123")
+                .expectBody()
+                .jsonPath("$.data").isEqualTo("session-123");
+    }
+
+    @Test
+    void testLogin_wrongPassword() {
+        LoginRequest request = new LoginRequest();
+        request.setUsername("testuser");
+        request.setPassword("wrong");
+        when(userService.login("testuser", "wrong")).thenReturn(null);
+
+        webTestClient.post().uri("/api/auth/login").bodyValue(request)
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("用户名或密码错误");
+    }
+
+    @Test
+    void testLogin_accountLocked() {
+        LoginRequest request = new LoginRequest();
+        request.setUsername("testuser");
+        request.setPassword("password123");
+        when(userService.login("testuser", "password123")).thenThrow(new AccountLockedException(90_500));
+
+        webTestClient.post().uri("/api/auth/login").bodyValue(request)
+                .exchange()
+                .expectStatus().isEqualTo(423)
+                .expectHeader().valueEquals("Retry-After", "91");
+    }
+
+    @Test
+    void testLogout() {
+        webTestClient.post().uri("/api/auth/logout").header("Authorization", "session-123")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("登出成功");
+        verify(userService).logout("session-123");
+    }
+
+    @Test
+    void testLogoutAll() {
+        when(userService.logoutAll("session-123")).thenReturn(2);
+        webTestClient.post().uri("/api/auth/logout/all").header("Authorization", "session-123")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data").isEqualTo(2);
+
+        webTestClient.post().uri("/api/auth/logout/all")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+}
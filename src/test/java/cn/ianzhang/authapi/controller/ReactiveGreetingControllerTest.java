@@ -0,0 +1,61 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.config.ReactiveWebConfig;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.service.UserService;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.mockito.Mockito.when;
+
+@Disabled
+@WebFluxTest(ReactiveGreetingController.class)
+@Import(ReactiveWebConfig.class)
+class ReactiveGreetingControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserService userService;
+
+    @Test
+    void testPublicGreeting() {
+        webTestClient.get().uri("/api/greeting/public")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data").isEqualTo("Hello, welcome to our service!");
+    }
+
+    @Test
+    void testProtectedGreeting_authenticated() {
+        when(userService.getUserBySessionId("session-test-123"))
+                .thenReturn(new User("testuser", "hash", "test@example.com"));
+
+        webTestClient.get().uri("/api/greeting/protected").header("Authorization", "session-test-123")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data").isEqualTo("Hello, testuser! Welcome back!");
+    }
+
+    @Test
+    void testProtectedGreeting_unauthorized() {
+        webTestClient.get().uri("/api/greeting/protected")
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("请先登录");
+
+        when(userService.getUserBySessionId("invalid-session")).thenReturn(null);
+        webTestClient.get().uri("/api/greeting/protected").header("Authorization", "invalid-session")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+}
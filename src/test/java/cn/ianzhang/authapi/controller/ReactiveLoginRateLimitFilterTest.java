@@ -0,0 +1,105 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.security.TokenBucketLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class ReactiveLoginRateLimitFilterTest {
+
+    private final TokenBucketLimiter byIp = new TokenBucketLimiter(3, Duration.ofMinutes(1), 100);
+    private final TokenBucketLimiter byAccount = new TokenBucketLimiter(2, Duration.ofMinutes(1), 100);
+    private final ReactiveLoginRateLimitFilter filter =
+            new ReactiveLoginRateLimitFilter(byIp, byAccount, new ObjectMapper());
+
+    // 记录传到下游的请求体，未传到下游时为 null
+    private final AtomicReference<String> forwardedBody = new AtomicReference<>();
+    private final WebFilterChain chain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+            .doOnNext(buffer -> forwardedBody.set(buffer.toString(StandardCharsets.UTF_8)))
+            .then();
+
+    private MockServerWebExchange login(String path, String ip, String body) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post(path)
+                .remoteAddress(new InetSocketAddress(ip, 40000))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body));
+    }
+
+    private ServerWebExchange perform(MockServerWebExchange exchange) {
+        forwardedBody.set(null);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Test
+    void passesBodyThroughUnchanged() {
+        String body = "{\"username\":\"alice\",\"password\":\"secret\"}";
+        ServerWebExchange exchange = perform(login("/api/auth/login", "10.0.0.1", body));
+
+        assertNull(exchange.getResponse().getStatusCode());
+        assertEquals(body, forwardedBody.get());
+    }
+
+    @Test
+    void rejectsAccountOverLimitWithRetryAfter() {
+        String body = "{\"username\":\"alice\",\"password\":\"wrong\"}";
+        perform(login("/api/auth/login", "10.0.0.1", body));
+        perform(login("/api/auth/login", "10.0.0.2", body));
+
+        MockServerWebExchange exchange = login("/api/auth/login", "10.0.0.3", body);
+        perform(exchange);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        assertEquals("60", exchange.getResponse().getHeaders().getFirst("Retry-After"));
+        assertTrue(exchange.getResponse().getBodyAsString().block().contains("登录尝试过于频繁"));
+        assertNull(forwardedBody.get());
+    }
+
+    @Test
+    void rejectsIpOverLimitBeforeReadingBody() {
+        for (int i = 0; i < 3; i++) {
+            perform(login("/api/auth/login/email", "10.0.0.1", "{\"email\":\"user" + i + "@example.com\"}"));
+        }
+        MockServerWebExchange exchange = login("/api/auth/login/email", "10.0.0.1", "{\"email\":\"bob@example.com\"}");
+        perform(exchange);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        assertEquals(0, byAccount.millisUntilAvailable("email:bob@example.com"));
+        assertEquals(3, byAccount.size());
+    }
+
+    @Test
+    void rejectsOversizedBody() {
+        String body = "{\"username\":\"" + "a".repeat(LoginRateLimitFilter.MAX_BODY_BYTES) + "\"}";
+        MockServerWebExchange exchange = login("/api/auth/login", "10.0.0.1", body);
+        perform(exchange);
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exchange.getResponse().getStatusCode());
+        assertNull(forwardedBody.get());
+    }
+
+    @Test
+    void ignoresOtherRequests() {
+        WebFilterChain passThrough = exchange -> Mono.empty();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/auth/login")), passThrough).block();
+        filter.filter(login("/api/auth/register", "10.0.0.1", "{}"), passThrough).block();
+
+        assertEquals(0, byIp.size());
+    }
+}
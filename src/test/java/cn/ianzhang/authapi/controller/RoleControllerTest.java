@@ -0,0 +1,77 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.RolePermissions;
+import cn.ianzhang.authapi.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Disabled
+@WebMvcTest(RoleController.class)
+class RoleControllerTest {
+
+    private static final String ADMIN_SESSION = "session-admin";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.reset(userService);
+        User admin = new User("admin", "hash", "admin@example.com");
+        when(userService.getUserBySessionId(ADMIN_SESSION)).thenReturn(admin);
+        when(userService.permissionsOf(admin)).thenReturn(RolePermissions.ALL);
+    }
+
+    @Test
+    void testDefineRole_success() throws Exception {
+        mockMvc.perform(put("/api/roles/auditor")
+                .header("Authorization", ADMIN_SESSION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"permissions\":[\"USER_SEARCH\"],\"parents\":[\"user\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("角色已更新"));
+
+        Mockito.verify(userService).defineRole("auditor", List.of(Permission.USER_SEARCH), List.of("user"));
+    }
+
+    @Test
+    void testDefineRole_cycleRejected() throws Exception {
+        Mockito.doThrow(new IllegalArgumentException("cycle"))
+                .when(userService).defineRole("user", List.of(), List.of("admin"));
+
+        mockMvc.perform(put("/api/roles/user")
+                .header("Authorization", ADMIN_SESSION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"parents\":[\"admin\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void testDefineRole_requiresRoleManage() throws Exception {
+        mockMvc.perform(put("/api/roles/auditor")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"permissions\":[]}"))
+                .andExpect(status().isUnauthorized());
+
+        Mockito.verify(userService, Mockito.never()).defineRole(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+}
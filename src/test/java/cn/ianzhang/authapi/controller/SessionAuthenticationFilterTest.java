@@ -0,0 +1,127 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.service.UserService;
+import cn.ianzhang.authapi.session.SessionPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@Disabled
+class SessionAuthenticationFilterTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final SessionAuthenticationFilter filter = new SessionAuthenticationFilter(userService,
+            ProtectedPaths.compile(List.of("GET /api/greeting/protected"), Map.of()), new ObjectMapper());
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, MockFilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @Test
+    void rejectsMissingSessionBeforeDispatch() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform(new MockHttpServletRequest("GET", "/api/greeting/protected"), chain);
+
+        assertEquals(401, response.getStatus());
+        assertTrue(response.getContentAsString(StandardCharsets.UTF_8).contains("请先登录"));
+        assertNull(chain.getRequest());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void rejectsInvalidSession() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/greeting/protected");
+        request.addHeader("Authorization", "invalid-session");
+        MockFilterChain chain = new MockFilterChain();
+
+        assertEquals(401, perform(request, chain).getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void storesPrincipalForValidSession() throws Exception {
+        SessionPrincipal principal = new SessionPrincipal("session-123", 0, "testuser");
+        when(userService.resolvePrincipal("session-123")).thenReturn(principal);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/greeting/protected");
+        request.addHeader("Authorization", "session-123");
+        MockFilterChain chain = new MockFilterChain();
+
+        assertEquals(200, perform(request, chain).getStatus());
+        assertSame(principal, chain.getRequest().getAttribute(SessionAuthenticationFilter.PRINCIPAL));
+        verify(userService, times(1)).resolvePrincipal("session-123");
+    }
+
+    @Test
+    void ignoresUnprotectedPaths() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = perform(new MockHttpServletRequest("GET", "/api/greeting/public"), chain);
+
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void stripsContextPath() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/api/greeting/protected");
+        request.setContextPath("/app");
+        MockFilterChain chain = new MockFilterChain();
+
+        assertEquals(401, perform(request, chain).getStatus());
+    }
+
+    @Test
+    void matchesDecodedPath() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/greeting/protecte%64");
+        MockFilterChain chain = new MockFilterChain();
+
+        assertEquals(401, perform(request, chain).getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void ignoresPathParameters() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/greeting/protected;x=1");
+        MockFilterChain chain = new MockFilterChain();
+
+        assertEquals(401, perform(request, chain).getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void sessionCookieRequiresSafeMethodOrRequestedWith() throws Exception {
+        SessionAuthenticationFilter postFilter = new SessionAuthenticationFilter(userService,
+                ProtectedPaths.compile(List.of("/api/items"), Map.of()), new ObjectMapper());
+        SessionPrincipal principal = new SessionPrincipal("session-123", 0, "testuser");
+        when(userService.resolvePrincipal("session-123")).thenReturn(principal);
+
+        MockHttpServletRequest crossSite = new MockHttpServletRequest("POST", "/api/items");
+        crossSite.addHeader("Cookie", "SESSION=session-123");
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        postFilter.doFilter(crossSite, rejected, new MockFilterChain());
+        assertEquals(401, rejected.getStatus());
+
+        MockHttpServletRequest xhr = new MockHttpServletRequest("POST", "/api/items");
+        xhr.addHeader("Cookie", "SESSION=session-123");
+        xhr.addHeader(AuthHeader.REQUESTED_WITH, "XMLHttpRequest");
+        MockFilterChain chain = new MockFilterChain();
+        postFilter.doFilter(xhr, new MockHttpServletResponse(), chain);
+        assertSame(principal, chain.getRequest().getAttribute(SessionAuthenticationFilter.PRINCIPAL));
+    }
+}
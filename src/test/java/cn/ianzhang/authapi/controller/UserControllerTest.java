@@ -0,0 +1,132 @@
+package cn.ianzhang.authapi.controller;
+
+import cn.ianzhang.authapi.dto.UserSearchPage;
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.RolePermissions;
+import cn.ianzhang.authapi.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Disabled
+@WebMvcTest(UserController.class)
+class UserControllerTest {
+
+    private static final String MEMBER_SESSION = "session-member";
+    private static final String ADMIN_SESSION = "session-admin";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.reset(userService);
+        User member = new User("member", "hash", "member@example.com");
+        User admin = new User("admin", "hash", "admin@example.com");
+        when(userService.getUserBySessionId(MEMBER_SESSION)).thenReturn(member);
+        when(userService.getUserBySessionId(ADMIN_SESSION)).thenReturn(admin);
+        when(userService.permissionsOf(member)).thenReturn(Permission.USER_SEARCH.bit());
+        when(userService.permissionsOf(admin)).thenReturn(RolePermissions.ALL);
+    }
+
+    @Test
+    void testSearch_returnsPageAndCursor() throws Exception {
+        when(userService.searchUsernames("al", "albert", 2))
+                .thenReturn(new UserSearchPage(List.of("alex", "alice"), "alice"));
+
+        mockMvc.perform(get("/api/users/search")
+                .header("Authorization", MEMBER_SESSION)
+                .param("prefix", "al")
+                .param("after", "albert")
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.usernames[0]").value("alex"))
+                .andExpect(jsonPath("$.data.usernames[1]").value("alice"))
+                .andExpect(jsonPath("$.data.next").value("alice"));
+    }
+
+    @Test
+    void testSearch_unauthorized() throws Exception {
+        mockMvc.perform(get("/api/users/search").param("prefix", "al"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("请先登录"));
+
+        Mockito.verify(userService, Mockito.never()).searchUsernames(Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void testSearch_forbiddenWithoutPermission() throws Exception {
+        when(userService.getUserBySessionId("session-guest")).thenReturn(new User("guest", "hash", "guest@example.com"));
+
+        mockMvc.perform(get("/api/users/search")
+                .header("Authorization", "session-guest")
+                .param("prefix", "al"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.message").value("权限不足"));
+
+        Mockito.verify(userService, Mockito.never()).searchUsernames(Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void testAssignRoles_requiresRoleManage() throws Exception {
+        mockMvc.perform(put("/api/users/alice/roles")
+                .header("Authorization", MEMBER_SESSION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"roles\":[\"admin\"]}"))
+                .andExpect(status().isForbidden());
+
+        Mockito.verify(userService, Mockito.never()).assignRoles(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void testAssignRoles_success() throws Exception {
+        when(userService.assignRoles("alice", Set.of("admin"))).thenReturn(true);
+
+        mockMvc.perform(put("/api/users/alice/roles")
+                .header("Authorization", ADMIN_SESSION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"roles\":[\"admin\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("角色已更新"));
+    }
+
+    @Test
+    void testAssignRoles_unknownUserOrRole() throws Exception {
+        when(userService.assignRoles("nobody", Set.of("admin"))).thenReturn(false);
+        when(userService.assignRoles("alice", Set.of("ghost"))).thenThrow(new IllegalArgumentException("Undefined role: ghost"));
+
+        mockMvc.perform(put("/api/users/nobody/roles")
+                .header("Authorization", ADMIN_SESSION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"roles\":[\"admin\"]}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("用户不存在"));
+
+        mockMvc.perform(put("/api/users/alice/roles")
+                .header("Authorization", ADMIN_SESSION)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"roles\":[\"ghost\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("未定义的角色或角色列表过长"));
+    }
+}
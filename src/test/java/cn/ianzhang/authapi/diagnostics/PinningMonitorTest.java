@@ -0,0 +1,63 @@
+package cn.ianzhang.authapi.diagnostics;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class PinningMonitorTest {
+
+    private final Object monitor = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private void sleepInsideSynchronized() {
+        synchronized (monitor) {
+            sleep();
+        }
+    }
+
+    private void sleepInsideLock() {
+        lock.lock();
+        try {
+            sleep();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void reportsSynchronizedBlockThatPinsCarrier() throws Exception {
+        try (PinningMonitor pinning = new PinningMonitor(Duration.ofMillis(10))) {
+            Thread.ofVirtual().start(this::sleepInsideLock).join();
+            Thread.ofVirtual().start(this::sleepInsideSynchronized).join();
+
+            // JFR 按周期把事件推给订阅方，最多等几秒
+            List<PinningMonitor.PinnedSite> report = List.of();
+            for (int i = 0; i < 100 && report.isEmpty(); i++) {
+                Thread.sleep(100);
+                report = pinning.report();
+            }
+            assertEquals(1, report.size());
+            PinningMonitor.PinnedSite site = report.get(0);
+            assertTrue(site.location().startsWith(PinningMonitorTest.class.getName() + ".sleep:"), site.location());
+            // ReentrantLock 不会钉住载体线程，只有 synchronized 的调用链被记录
+            assertTrue(site.stackTrace().contains("sleepInsideSynchronized"));
+            assertFalse(site.stackTrace().contains("sleepInsideLock"));
+            assertEquals(1, site.count());
+            assertTrue(site.max().toMillis() >= 10);
+        }
+    }
+}
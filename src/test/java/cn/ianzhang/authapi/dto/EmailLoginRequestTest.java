@@ -0,0 +1,26 @@
+package cn.ianzhang.authapi.dto;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class EmailLoginRequestTest {
+
+    @Test
+    void defaultConstructorCreatesRequestWithNullFields() {
+        EmailLoginRequest request = new EmailLoginRequest();
+        assertNull(request.getEmail());
+        assertNull(request.getPassword());
+    }
+
+    @Test
+    void settersUpdateFields() {
+        EmailLoginRequest request = new EmailLoginRequest();
+        request.setEmail("alice@example.com");
+        request.setPassword("password123");
+        assertEquals("alice@example.com", request.getEmail());
+        assertEquals("password123", request.getPassword());
+    }
+}
@@ -12,6 +12,7 @@ class UserTest {
         assertNull(user.getUsername());
         assertNull(user.getPassword());
         assertNull(user.getEmail());
+        assertEquals(User.NO_ID, user.getId());
     }
 
     @Test
@@ -36,6 +37,13 @@ class UserTest {
         assertEquals("newpass", user.getPassword());
     }
 
+    @Test
+    void setIdUpdatesId() {
+        User user = new User();
+        user.setId(42);
+        assertEquals(42, user.getId());
+    }
+
     @Test
     void setEmailUpdatesEmail() {
         User user = new User();
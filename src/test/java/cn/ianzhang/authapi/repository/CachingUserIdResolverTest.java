@@ -0,0 +1,97 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class CachingUserIdResolverTest {
+
+    private final MutableClock clock = new MutableClock(0);
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final UserIdTable userIds = new UserIdTable();
+    private InMemoryUserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryUserRepository() {
+            @Override
+            public User findByUsername(String username) {
+                lookups.incrementAndGet();
+                return super.findByUsername(username);
+            }
+        };
+        repository.saveIfAbsent(new User("alice", "hash", "alice@example.com"));
+        repository.saveIfAbsent(new User("bob", "hash", "bob@example.com"));
+    }
+
+    private CachingUserIdResolver resolver(int maxEntries) {
+        return new CachingUserIdResolver(repository, userIds, Duration.ofSeconds(5), maxEntries, clock);
+    }
+
+    @Test
+    void repeatedResolveSkipsRepository() {
+        CachingUserIdResolver resolver = resolver(100);
+        int id = resolver.applyAsInt("alice");
+        assertEquals(id, resolver.applyAsInt("alice"));
+        assertEquals(id, resolver.applyAsInt("alice"));
+        assertEquals(1, lookups.get());
+        assertEquals(2, resolver.getHits());
+        assertSame(repository.findByUsername("alice"), userIds.get(id));
+    }
+
+    @Test
+    void expiredEntryIsResolvedAgain() {
+        CachingUserIdResolver resolver = resolver(100);
+        int id = resolver.applyAsInt("alice");
+        clock.advance(5_000);
+        assertEquals(id, resolver.applyAsInt("alice"));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void releasedIdIsNotServedFromCache() {
+        CachingUserIdResolver resolver = resolver(100);
+        int id = resolver.applyAsInt("alice");
+        assertTrue(userIds.release("alice"));
+
+        int reassigned = resolver.applyAsInt("alice");
+        assertNotEquals(id, reassigned);
+        assertNotNull(userIds.get(reassigned));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void missingUserIsNotCached() {
+        CachingUserIdResolver resolver = resolver(100);
+        assertEquals(User.NO_ID, resolver.applyAsInt("carol"));
+        repository.saveIfAbsent(new User("carol", "hash", "carol@example.com"));
+        assertTrue(resolver.applyAsInt("carol") >= 0);
+        assertEquals(0, resolver.getHits());
+    }
+
+    @Test
+    void cacheStaysWithinMaxEntries() {
+        CachingUserIdResolver resolver = resolver(1);
+        resolver.applyAsInt("alice");
+        resolver.applyAsInt("bob");
+        assertEquals(1, resolver.size());
+        assertEquals(1, resolver.getEvictions());
+    }
+
+    @Test
+    void zeroMaxEntriesDisablesCache() {
+        CachingUserIdResolver resolver = resolver(0);
+        resolver.applyAsInt("alice");
+        resolver.applyAsInt("alice");
+        assertEquals(2, lookups.get());
+        assertEquals(0, resolver.size());
+    }
+}
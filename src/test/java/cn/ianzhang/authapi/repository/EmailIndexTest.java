@@ -0,0 +1,58 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class EmailIndexTest {
+
+    private final EmailIndex index = new EmailIndex();
+
+    @Test
+    void lookupsAreCaseAndWhitespaceInsensitive() {
+        User alice = new User("alice", "hash", "Alice@Example.com");
+        assertTrue(index.claim(alice));
+        assertSame(alice, index.get("alice@example.com"));
+        assertSame(alice, index.get("  ALICE@EXAMPLE.COM "));
+        assertNull(index.get("bob@example.com"));
+        assertNull(index.get(null));
+    }
+
+    @Test
+    void emailCanOnlyBeClaimedOnce() {
+        assertTrue(index.claim(new User("alice", "hash", "shared@example.com")));
+        assertFalse(index.claim(new User("bob", "hash", "SHARED@example.com")));
+        // 没有邮箱的用户不占用索引
+        assertTrue(index.claim(new User("carol", "hash", null)));
+        assertTrue(index.claim(new User("dave", "hash", null)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void releaseOnlyRemovesOwnMapping() {
+        User alice = new User("alice", "hash", "shared@example.com");
+        index.claim(alice);
+        index.release(new User("bob", "hash", "shared@example.com"));
+        assertSame(alice, index.get("shared@example.com"));
+        index.release(alice);
+        assertNull(index.get("shared@example.com"));
+    }
+
+    @Test
+    void replaceMovesIndexWhenEmailChanges() {
+        User before = new User("alice", "hash", "old@example.com");
+        index.claim(before);
+        User after = new User("alice", "hash", "new@example.com");
+        index.replace(before, after);
+        assertNull(index.get("old@example.com"));
+        assertSame(after, index.get("new@example.com"));
+
+        // 新邮箱已属于其他用户时不抢占
+        index.claim(new User("bob", "hash", "bob@example.com"));
+        index.replace(after, new User("alice", "hash", "bob@example.com"));
+        assertEquals("bob", index.get("bob@example.com").getUsername());
+    }
+}
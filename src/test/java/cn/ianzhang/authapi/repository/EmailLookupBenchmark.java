@@ -0,0 +1,71 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 按邮箱查找的耗时随用户数的变化：邮箱二级索引 vs 按用户名查找 vs 没有索引时的全量扫描。
+// 索引查找与用户名查找一样与用户数无关，全量扫描随用户数线性增长。
+// 运行：mvn -Pbenchmark -DskipTests test -Dbenchmark.include=EmailLookupBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class EmailLookupBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    private int users;
+
+    private InMemoryUserRepository repository;
+    private User[] all;
+    private String[] emails;
+
+    @Setup
+    public void setUp() {
+        repository = new InMemoryUserRepository();
+        all = new User[users];
+        emails = new String[users];
+        for (int i = 0; i < users; i++) {
+            User user = new User("user" + i, "hash", "User" + i + "@Example.com");
+            repository.saveIfAbsent(user);
+            all[i] = user;
+            // 查询时使用与存储不同的大小写，走规范化路径
+            emails[i] = "user" + i + "@example.com";
+        }
+    }
+
+    @Benchmark
+    public User findByEmail() {
+        return repository.findByEmail(emails[ThreadLocalRandom.current().nextInt(users)]);
+    }
+
+    @Benchmark
+    public User findByUsername() {
+        return repository.findByUsername("user" + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public User scanWithoutIndex() {
+        String email = emails[ThreadLocalRandom.current().nextInt(users)];
+        for (User user : all) {
+            if (user.getEmail().equalsIgnoreCase(email)) {
+                return user;
+            }
+        }
+        return null;
+    }
+}
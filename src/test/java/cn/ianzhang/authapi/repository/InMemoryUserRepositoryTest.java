@@ -0,0 +1,99 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class InMemoryUserRepositoryTest {
+
+    private final InMemoryUserRepository repository = new InMemoryUserRepository();
+
+    @Test
+    void saveAndFind() {
+        User user = new User("alice", "hash", "alice@example.com");
+        repository.save(user);
+        assertSame(user, repository.findByUsername("alice"));
+        assertTrue(repository.existsByUsername("alice"));
+    }
+
+    @Test
+    void missingUser() {
+        assertNull(repository.findByUsername("nobody"));
+        assertNull(repository.findByUsername(null));
+        assertFalse(repository.existsByUsername("nobody"));
+        assertFalse(repository.existsByUsername(null));
+    }
+
+    @Test
+    void saveIfAbsentKeepsFirstUser() {
+        User first = new User("alice", "hash", "alice@example.com");
+        assertTrue(repository.saveIfAbsent(first));
+        assertFalse(repository.saveIfAbsent(new User("alice", "other", "other@example.com")));
+        assertSame(first, repository.findByUsername("alice"));
+    }
+
+    @Test
+    void findByEmailIgnoresCase() {
+        User user = new User("alice", "hash", "Alice@Example.com");
+        repository.save(user);
+        assertSame(user, repository.findByEmail("alice@example.com"));
+        assertNull(repository.findByEmail("bob@example.com"));
+        assertNull(repository.findByEmail(null));
+    }
+
+    @Test
+    void saveIfAbsentRejectsTakenEmail() {
+        assertTrue(repository.saveIfAbsent(new User("alice", "hash", "alice@example.com")));
+        assertFalse(repository.saveIfAbsent(new User("bob", "hash", "ALICE@example.com")));
+        assertNull(repository.findByUsername("bob"));
+        // 用户名冲突时归还已占用的邮箱
+        assertFalse(repository.saveIfAbsent(new User("alice", "hash", "carol@example.com")));
+        assertTrue(repository.saveIfAbsent(new User("carol", "hash", "carol@example.com")));
+    }
+
+    @Test
+    void updateKeepsEmailIndexInSync() {
+        repository.save(new User("alice", "hash", "old@example.com"));
+        repository.update(new User("alice", "hash", "new@example.com"));
+        assertNull(repository.findByEmail("old@example.com"));
+        assertEquals("alice", repository.findByEmail("new@example.com").getUsername());
+        assertTrue(repository.saveIfAbsent(new User("bob", "hash", "old@example.com")));
+    }
+
+    @Test
+    void forEachVisitsAllUsers() {
+        repository.save(new User("alice", "hash", "alice@example.com"));
+        repository.save(new User("bob", "hash", "bob@example.com"));
+        Set<String> visited = new HashSet<>();
+        repository.forEach(user -> visited.add(user.getUsername()));
+        assertEquals(Set.of("alice", "bob"), visited);
+    }
+
+    @Test
+    void findUsernamesByPrefixPagesInOrder() {
+        for (String name : new String[]{"bob", "alice", "alex", "albert", "al"}) {
+            repository.save(new User(name, "hash", name + "@example.com"));
+        }
+        assertEquals(List.of("al", "albert"), repository.findUsernamesByPrefix("al", null, 2));
+        assertEquals(List.of("alex", "alice"), repository.findUsernamesByPrefix("al", "albert", 2));
+        assertEquals(List.of(), repository.findUsernamesByPrefix("al", "alice", 2));
+        // 注册失败的用户名不进入索引
+        assertFalse(repository.saveIfAbsent(new User("alex", "hash", "x@example.com")));
+        assertTrue(repository.saveIfAbsent(new User("alfred", "hash", "alfred@example.com")));
+        assertEquals(List.of("alex", "alfred", "alice"), repository.findUsernamesByPrefix("al", "albert", 10));
+    }
+
+    @Test
+    void updateReplacesUser() {
+        repository.save(new User("alice", "hash", "alice@example.com"));
+        repository.update(new User("alice", "new-hash", "alice@example.com"));
+        assertEquals("new-hash", repository.findByUsername("alice").getPassword());
+    }
+}
@@ -0,0 +1,337 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class JdbcUserRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private JdbcUserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:users-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // 定时刷新间隔设得很长，测试中由批量阈值或显式 flush 触发写入
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    private int rowCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+    }
+
+    @Test
+    void savedUserIsVisibleBeforeFlush() {
+        repository.save(new User("alice", "hash", "alice@example.com"));
+        assertEquals(0, rowCount());
+        assertEquals(1, repository.getPendingCount());
+        assertEquals("alice@example.com", repository.findByUsername("alice").getEmail());
+        assertTrue(repository.existsByUsername("alice"));
+    }
+
+    @Test
+    void flushWritesPendingUsersInBatches() {
+        for (int i = 0; i < 250; i++) {
+            repository.save(new User("user" + i, "hash", "user" + i + "@example.com"));
+        }
+        repository.flush();
+        assertEquals(250, rowCount());
+        assertEquals(0, repository.getPendingCount());
+    }
+
+    @Test
+    void flushWaitsForBatchAlreadyTakenByBackgroundWriter() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcTemplate blocking = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                writing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.batchUpdate(sql, batchArgs);
+            }
+        };
+        repository.close();
+        repository = new JdbcUserRepository(blocking, 100, Duration.ofHours(1), 1_000);
+        // 攒满一批后后台线程取走这批记录，在写入时被挡住，队列此时已空
+        for (int i = 0; i < 100; i++) {
+            repository.save(new User("user" + i, "hash", "user" + i + "@example.com"));
+        }
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> flushed = CompletableFuture.runAsync(repository::flush);
+        Thread.sleep(100);
+        assertFalse(flushed.isDone());
+        release.countDown();
+        flushed.get(5, TimeUnit.SECONDS);
+        assertEquals(100, rowCount());
+    }
+
+    @Test
+    void fullBatchIsFlushedWithoutWaitingForInterval() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            repository.save(new User("user" + i, "hash", "user" + i + "@example.com"));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (rowCount() < 100 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(100, rowCount());
+    }
+
+    @Test
+    void updateIsWrittenAfterInsert() {
+        User user = new User("alice", "hash", "alice@example.com");
+        repository.save(user);
+        user.setPassword("new-hash");
+        repository.update(user);
+        repository.flush();
+        assertEquals("new-hash",
+                jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = ?", String.class, "alice"));
+    }
+
+    @Test
+    void readThroughLoadsUsersFromDatabase() {
+        jdbcTemplate.update("INSERT INTO users (username, password, email) VALUES (?, ?, ?)",
+                "bob", "hash", "bob@example.com");
+        User loaded = repository.findByUsername("bob");
+        assertNotNull(loaded);
+        assertEquals("bob@example.com", loaded.getEmail());
+        // 第二次读取命中内存索引
+        assertSame(loaded, repository.findByUsername("bob"));
+        assertNull(repository.findByUsername("nobody"));
+    }
+
+    @Test
+    void readThroughFindsEmailInsertedAfterStartup() {
+        jdbcTemplate.update("INSERT INTO users (username, password, email, email_key) VALUES (?, ?, ?, ?)",
+                "bob", "hash", "Bob@Example.com", "bob@example.com");
+        assertEquals("bob", repository.findByEmail("bob@example.com").getUsername());
+        assertFalse(repository.saveIfAbsent(new User("carol", "hash", "BOB@example.com")));
+    }
+
+    @Test
+    void soleWriterSkipsDatabaseOnFilterMiss() {
+        repository.close();
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000,
+                JdbcUserRepository.DEFAULT_MAX_WRITE_ATTEMPTS, true);
+        jdbcTemplate.update("INSERT INTO users (username, password, email, email_key) VALUES (?, ?, ?, ?)",
+                "bob", "hash", "bob@example.com", "bob@example.com");
+        // 启动后绕过本实例插入的行不在过滤器中，唯一写入方不再为它查询数据库
+        assertNull(repository.findByUsername("bob"));
+        assertNull(repository.findByEmail("bob@example.com"));
+
+        repository.close();
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000,
+                JdbcUserRepository.DEFAULT_MAX_WRITE_ATTEMPTS, true);
+        assertEquals("bob@example.com", repository.findByUsername("bob").getEmail());
+    }
+
+    @Test
+    void saveIfAbsentRejectsDuplicateBeforeAndAfterFlush() {
+        assertTrue(repository.saveIfAbsent(new User("alice", "hash", "alice@example.com")));
+        assertFalse(repository.saveIfAbsent(new User("alice", "other", "other@example.com")));
+        repository.flush();
+        assertFalse(repository.saveIfAbsent(new User("alice", "other", "other@example.com")));
+        assertEquals(1, rowCount());
+    }
+
+    @Test
+    void existingRowsAreLoadedIntoFilterOnStartup() {
+        jdbcTemplate.update("INSERT INTO users (username, password, email) VALUES (?, ?, ?)",
+                "bob", "hash", "bob@example.com");
+        repository.close();
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000);
+        // 启动前已存在的用户不会被过滤器误判为不存在
+        assertTrue(repository.existsByUsername("bob"));
+        assertFalse(repository.saveIfAbsent(new User("bob", "other", "other@example.com")));
+        assertTrue(repository.saveIfAbsent(new User("carol", "hash", "carol@example.com")));
+    }
+
+    @Test
+    void findByEmailReadsThroughAndRejectsTakenEmail() {
+        assertTrue(repository.saveIfAbsent(new User("alice", "hash", "Alice@Example.com")));
+        repository.flush();
+        repository.close();
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000);
+
+        assertEquals("alice", repository.findByEmail("alice@example.com").getUsername());
+        assertFalse(repository.saveIfAbsent(new User("bob", "hash", "ALICE@example.com")));
+        assertNull(repository.findByEmail("nobody@example.com"));
+    }
+
+    @Test
+    void legacyRowsGetEmailKeyOnStartup() {
+        jdbcTemplate.update("INSERT INTO users (username, password, email) VALUES (?, ?, ?)",
+                "bob", "hash", "Bob@Example.com");
+        repository.close();
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000);
+        assertEquals("bob", repository.findByEmail("bob@example.com").getUsername());
+    }
+
+    @Test
+    void forEachCoversDatabaseRowsAndPendingWrites() {
+        jdbcTemplate.update("INSERT INTO users (username, password, email) VALUES (?, ?, ?)",
+                "bob", "hash", "bob@example.com");
+        User alice = new User("alice", "hash", "alice@example.com");
+        repository.save(alice);
+        alice.setPassword("new-hash");
+        repository.update(alice);
+
+        Map<String, String> visited = new HashMap<>();
+        repository.forEach(user -> assertNull(visited.put(user.getUsername(), user.getPassword())));
+        assertEquals(Map.of("alice", "new-hash", "bob", "hash"), visited);
+        // 遍历不在调用线程上写出待写队列
+        assertEquals(2, repository.getPendingCount());
+    }
+
+    @Test
+    void forEachVisitsWrittenUsersWithPendingUpdatesOnce() {
+        User alice = new User("alice", "hash", "alice@example.com");
+        repository.save(alice);
+        repository.save(new User("carol", "hash", "carol@example.com"));
+        repository.flush();
+        alice.setPassword("new-hash");
+        repository.update(alice);
+
+        Map<String, String> visited = new HashMap<>();
+        repository.forEach(user -> assertNull(visited.put(user.getUsername(), user.getPassword())));
+        assertEquals(Map.of("alice", "new-hash", "carol", "hash"), visited);
+    }
+
+    @Test
+    void rolesSurviveReload() {
+        User alice = new User("alice", "hash", "alice@example.com");
+        alice.setRoles(Set.of(new Role("admin"), new Role("user")));
+        repository.save(alice);
+        repository.save(new User("bob", "hash", "bob@example.com"));
+        repository.close();
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000);
+        assertEquals(Set.of(new Role("admin"), new Role("user")), repository.findByUsername("alice").getRoles());
+        assertEquals(Set.of(), repository.findByUsername("bob").getRoles());
+    }
+
+    @Test
+    void closeFlushesRemainingWrites() {
+        repository.save(new User("alice", "hash", "alice@example.com"));
+        repository.close();
+        assertEquals(1, rowCount());
+    }
+
+    @Test
+    void failedRowDoesNotDropRestOfBatch() {
+        repository.save(new User("alice", "hash", "alice@example.com"));
+        repository.save(new User("bob", "hash", "x".repeat(300) + "@example.com"));
+        repository.save(new User("carol", "hash", "carol@example.com"));
+        repository.flush();
+        assertEquals(2, rowCount());
+        assertEquals(1, repository.getRetryCount());
+        assertEquals(0, repository.getFailedWrites());
+        assertNotNull(repository.getLastWriteError());
+    }
+
+    @Test
+    void retryWritesLatestUserState() {
+        User bob = new User("bob", "hash", "x".repeat(300) + "@example.com");
+        repository.save(bob);
+        repository.flush();
+        assertEquals(0, rowCount());
+
+        bob.setEmail("bob@example.com");
+        repository.requeueRetries(true);
+        repository.flush();
+        assertEquals(1, rowCount());
+        assertEquals(0, repository.getRetryCount());
+    }
+
+    @Test
+    void rowIsGivenUpAfterMaxAttempts() {
+        repository.close();
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000, 3);
+        repository.save(new User("bob", "hash", "x".repeat(300) + "@example.com"));
+        for (int i = 0; i < 3; i++) {
+            repository.requeueRetries(true);
+            repository.flush();
+        }
+        assertEquals(0, repository.getRetryCount());
+        assertEquals(1, repository.getFailedWrites());
+        assertEquals(0, rowCount());
+    }
+
+    @Test
+    void insertDoesNotOverwriteRowOfAnotherWriter() {
+        assertTrue(repository.saveIfAbsent(new User("alice", "hash", "alice@example.com")));
+        repository.save(new User("bob", "hash", "bob@example.com"));
+        // 另一个实例在本实例写出之前插入了同名用户
+        jdbcTemplate.update("INSERT INTO users (username, password, email) VALUES (?, ?, ?)",
+                "alice", "other-hash", "alice@other.example.com");
+        repository.flush();
+
+        assertEquals(2, rowCount());
+        assertEquals("other-hash", jdbcTemplate.queryForObject(
+                "SELECT password FROM users WHERE username = 'alice'", String.class));
+        assertEquals(1, repository.getConflictingWrites());
+        assertEquals(1, repository.getFailedWrites());
+        assertEquals("other-hash", repository.findByUsername("alice").getPassword());
+        assertNull(repository.findByEmail("alice@example.com"));
+    }
+
+    @Test
+    void insertUpdatesRowItAlreadyWrote() {
+        repository.save(new User("alice", "hash", "alice@example.com"));
+        repository.save(new User("bob", "hash", "bob@example.com"));
+        // 模拟批量插入中途失败前已写入的本实例的行
+        jdbcTemplate.update("INSERT INTO users (username, password, email) VALUES (?, ?, ?)",
+                "alice", "hash", "old@example.com");
+        repository.flush();
+
+        assertEquals(2, rowCount());
+        assertEquals("alice@example.com", jdbcTemplate.queryForObject(
+                "SELECT email FROM users WHERE username = 'alice'", String.class));
+        assertEquals(0, repository.getConflictingWrites());
+        assertEquals(0, repository.getFailedWrites());
+    }
+
+    @Test
+    void soleWriterUpdatesExistingRow() {
+        repository.close();
+        repository = new JdbcUserRepository(jdbcTemplate, 100, Duration.ofHours(1), 1_000,
+                JdbcUserRepository.DEFAULT_MAX_WRITE_ATTEMPTS, true);
+        repository.save(new User("alice", "new-hash", "alice@example.com"));
+        jdbcTemplate.update("INSERT INTO users (username, password, email) VALUES (?, ?, ?)",
+                "alice", "hash", "alice@example.com");
+        repository.flush();
+
+        assertEquals("new-hash", jdbcTemplate.queryForObject(
+                "SELECT password FROM users WHERE username = 'alice'", String.class));
+        assertEquals(0, repository.getConflictingWrites());
+    }
+}
@@ -0,0 +1,183 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.cluster.ConsistentHashRing;
+import cn.ianzhang.authapi.cluster.UserPeer;
+import cn.ianzhang.authapi.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// 用户名前缀搜索一页（20 条）的耗时分布：有序索引 vs 没有索引时的全量扫描。
+// 采样模式输出 p50/p99，索引查询的尾延迟只随 log n 增长，全量扫描随用户数线性增长。
+// sharded* 把用户名分给 4 个节点，每个对端节点应答前等待一个模拟的往返时间：
+// 逐个询问（对端只有同步的 searchUsernames）的耗时是各节点之和，并行询问只取决于最慢的节点。
+// 运行：mvn -Pbenchmark -DskipTests test -Dbenchmark.include=PrefixSearchBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class PrefixSearchBenchmark {
+    private static final int PAGE = 20;
+    private static final List<String> NODES = List.of("a", "b", "c", "d");
+    private static final long PEER_RTT_NANOS = 200_000;
+
+    @Param({"1000000", "5000000"})
+    private int users;
+
+    private UsernamePrefixIndex index;
+    private String[] all;
+    private ShardedUserRepository shardedSequential;
+    private ShardedUserRepository shardedParallel;
+    // 模拟 HttpClient 的异步发送，应答不占用调用线程
+    private ExecutorService peerExecutor;
+
+    @Setup
+    public void setUp() {
+        index = new UsernamePrefixIndex();
+        all = new String[users];
+        InMemoryUserRepository local = new InMemoryUserRepository();
+        List<UsernamePrefixIndex> shards = new ArrayList<>();
+        for (int n = 1; n < NODES.size(); n++) {
+            shards.add(new UsernamePrefixIndex());
+        }
+        for (int i = 0; i < users; i++) {
+            all[i] = "user" + i;
+            index.add(all[i]);
+            int node = i % NODES.size();
+            if (node == 0) {
+                local.saveIfAbsent(new User(all[i], "hash", all[i] + "@example.com"));
+            } else {
+                shards.get(node - 1).add(all[i]);
+            }
+        }
+        peerExecutor = Executors.newCachedThreadPool();
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 64);
+        Map<String, UserPeer> sequential = new HashMap<>();
+        Map<String, UserPeer> parallel = new HashMap<>();
+        for (int n = 1; n < NODES.size(); n++) {
+            sequential.put(NODES.get(n), new DelayedPeer(shards.get(n - 1)));
+            parallel.put(NODES.get(n), new AsyncDelayedPeer(shards.get(n - 1), peerExecutor));
+        }
+        shardedSequential = new ShardedUserRepository("a", ring, local, sequential,
+                Duration.ofSeconds(30), 100, Duration.ofSeconds(2));
+        shardedParallel = new ShardedUserRepository("a", ring, local, parallel,
+                Duration.ofSeconds(30), 100, Duration.ofSeconds(2));
+    }
+
+    @TearDown
+    public void tearDown() {
+        peerExecutor.shutdownNow();
+    }
+
+    // 以随机用户名的前 6 个字符为前缀，例如 user12
+    private String randomPrefix() {
+        String username = all[ThreadLocalRandom.current().nextInt(users)];
+        return username.substring(0, Math.min(6, username.length()));
+    }
+
+    @Benchmark
+    public List<String> indexedFirstPage() {
+        return index.search(randomPrefix(), null, PAGE);
+    }
+
+    @Benchmark
+    public List<String> indexedNextPage() {
+        String prefix = randomPrefix();
+        return index.search(prefix, prefix + "5", PAGE);
+    }
+
+    @Benchmark
+    public List<String> scanWithoutIndex() {
+        String prefix = randomPrefix();
+        List<String> page = new ArrayList<>(PAGE);
+        for (String username : all) {
+            if (username.startsWith(prefix)) {
+                page.add(username);
+            }
+        }
+        page.sort(null);
+        return page.subList(0, Math.min(PAGE, page.size()));
+    }
+
+    @Benchmark
+    public List<String> shardedSequential() {
+        return shardedSequential.findUsernamesByPrefix(randomPrefix(), null, PAGE);
+    }
+
+    @Benchmark
+    public List<String> shardedParallel() {
+        return shardedParallel.findUsernamesByPrefix(randomPrefix(), null, PAGE);
+    }
+
+    // 只支持前缀搜索的对端节点，应答前等待一个往返时间
+    private static class DelayedPeer implements UserPeer {
+        private final UsernamePrefixIndex shard;
+
+        DelayedPeer(UsernamePrefixIndex shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public List<String> searchUsernames(String prefix, String after, int limit) {
+            LockSupport.parkNanos(PEER_RTT_NANOS);
+            return shard.search(prefix, after, limit);
+        }
+
+        @Override
+        public User fetch(String username) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User fetchByEmail(String email) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean saveIfAbsent(User user) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void update(User user) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class AsyncDelayedPeer extends DelayedPeer {
+        private final ExecutorService executor;
+
+        AsyncDelayedPeer(UsernamePrefixIndex shard, ExecutorService executor) {
+            super(shard);
+            this.executor = executor;
+        }
+
+        @Override
+        public CompletableFuture<List<String>> searchUsernamesAsync(String prefix, String after, int limit) {
+            return CompletableFuture.supplyAsync(() -> searchUsernames(prefix, after, limit), executor);
+        }
+    }
+}
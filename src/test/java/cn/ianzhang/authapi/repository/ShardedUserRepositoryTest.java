@@ -0,0 +1,323 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.cluster.ConsistentHashRing;
+import cn.ianzhang.authapi.cluster.PeerUnavailableException;
+import cn.ianzhang.authapi.cluster.UserCodec;
+import cn.ianzhang.authapi.cluster.UserPeer;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class ShardedUserRepositoryTest {
+
+    private static final List<String> NODES = List.of("a", "b", "c");
+
+    private final ConsistentHashRing ring = new ConsistentHashRing(NODES, 64);
+    private final MutableClock clock = new MutableClock(1_000_000L);
+    private final Map<String, InMemoryUserRepository> locals = new HashMap<>();
+    private final Map<String, ShardedUserRepository> nodes = new HashMap<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final AtomicInteger emailFetches = new AtomicInteger();
+    private volatile boolean partitioned;
+
+    @BeforeEach
+    void setUp() {
+        for (String node : NODES) {
+            locals.put(node, new InMemoryUserRepository());
+        }
+        for (String node : NODES) {
+            Map<String, UserPeer> peers = new HashMap<>();
+            for (String peer : NODES) {
+                if (!peer.equals(node)) {
+                    peers.put(peer, new LoopbackPeer(locals.get(peer)));
+                }
+            }
+            nodes.put(node, new ShardedUserRepository(node, ring, locals.get(node), peers,
+                    Duration.ofSeconds(30), 100, Duration.ofSeconds(2), clock));
+        }
+    }
+
+    @Test
+    void userRegisteredOnOneNodeIsVisibleOnAllNodes() {
+        for (int i = 0; i < 100; i++) {
+            nodes.get(NODES.get(i % 3)).save(new User("user" + i, "hash", "user" + i + "@example.com"));
+        }
+        for (int i = 0; i < 100; i++) {
+            String username = "user" + i;
+            for (ShardedUserRepository node : nodes.values()) {
+                assertTrue(node.existsByUsername(username));
+            }
+            // 只存放在归属节点的本地存储中
+            String owner = ring.ownerOf(username);
+            for (String node : NODES) {
+                assertEquals(node.equals(owner), locals.get(node).existsByUsername(username));
+            }
+        }
+    }
+
+    @Test
+    void nearCacheServesRepeatedReadsUntilTtl() {
+        String username = remoteUsernameFor("a");
+        nodes.get("a").save(new User(username, "hash-1", "e"));
+        fetches.set(0);
+        assertNotNull(nodes.get("a").findByUsername(username));
+        assertNotNull(nodes.get("a").findByUsername(username));
+        assertEquals(0, fetches.get());
+
+        // 归属节点上的改动在缓存过期后可见
+        locals.get(ring.ownerOf(username)).update(new User(username, "hash-2", "e"));
+        assertEquals("hash-1", nodes.get("a").findByUsername(username).getPassword());
+        clock.advance(Duration.ofSeconds(30).toMillis());
+        assertEquals("hash-2", nodes.get("a").findByUsername(username).getPassword());
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void nearCacheEvictionNotifiesListener() {
+        List<String> evicted = new ArrayList<>();
+        ShardedUserRepository node = nodes.get("a");
+        node.setEvictionListener(evicted::add);
+        for (int i = 0; i < 300; i++) {
+            node.save(new User("user" + i, "hash", "user" + i + "@example.com"));
+        }
+        assertTrue(node.nearCacheSize() <= 100);
+        assertFalse(evicted.isEmpty());
+        for (String username : evicted) {
+            assertFalse(node.isLocal(username));
+        }
+    }
+
+    @Test
+    void missingUsersAreNotCached() {
+        String username = remoteUsernameFor("a");
+        assertNull(nodes.get("a").findByUsername(username));
+        nodes.get(ring.ownerOf(username)).save(new User(username, "hash", "e"));
+        assertNotNull(nodes.get("a").findByUsername(username));
+    }
+
+    @Test
+    void saveIfAbsentIsDecidedByOwner() {
+        String username = remoteUsernameFor("a");
+        String other = NODES.stream().filter(n -> !n.equals("a") && !n.equals(ring.ownerOf(username)))
+                .findFirst().orElse("a");
+        assertTrue(nodes.get("a").saveIfAbsent(new User(username, "hash-1", "e")));
+        // 从任意节点再次注册同名用户都会被归属节点拒绝，原用户保持不变
+        assertFalse(nodes.get(other).saveIfAbsent(new User(username, "hash-2", "e")));
+        assertFalse(nodes.get(ring.ownerOf(username)).saveIfAbsent(new User(username, "hash-3", "e")));
+        assertEquals("hash-1", locals.get(ring.ownerOf(username)).findByUsername(username).getPassword());
+    }
+
+    @Test
+    void findByEmailSearchesAllNodes() {
+        String username = remoteUsernameFor("a");
+        nodes.get("b").saveIfAbsent(new User(username, "hash", "Remote@Example.com"));
+        assertEquals(username, nodes.get("a").findByEmail("remote@example.com").getUsername());
+        assertNull(nodes.get("a").findByEmail("nobody@example.com"));
+    }
+
+    @Test
+    void saveIfAbsentRejectsEmailHeldByAnotherNode() {
+        String holder = remoteUsernameFor("a");
+        nodes.get("b").saveIfAbsent(new User(holder, "hash", "shared@example.com"));
+        String username = holder;
+        for (int i = 0; username.equals(holder) || ring.ownerOf(username).equals(ring.ownerOf(holder))
+                || ring.ownerOf(username).equals("a"); i++) {
+            username = "other" + i;
+        }
+        String owner = ring.ownerOf(username);
+
+        // 邮箱只在写入时检查一次：本节点查本地，归属节点以外的对端各问一次，归属节点在 saveIfAbsent 中原子检查
+        emailFetches.set(0);
+        assertFalse(nodes.get("a").saveIfAbsent(new User(username, "hash", "Shared@Example.com")));
+        assertNull(locals.get(owner).findByUsername(username));
+        assertEquals(1, emailFetches.get());
+    }
+
+    @Test
+    void seenEmailIsLookedUpAtOwnerOnly() {
+        String username = remoteUsernameFor("a");
+        nodes.get("b").saveIfAbsent(new User(username, "hash", "Remote@Example.com"));
+        ShardedUserRepository node = nodes.get("a");
+        assertEquals(username, node.findByEmail("remote@example.com").getUsername());
+
+        // 近端缓存过期后只向归属节点按用户名取一次，不再询问所有节点
+        clock.advance(Duration.ofSeconds(31).toMillis());
+        emailFetches.set(0);
+        fetches.set(0);
+        assertEquals(username, node.findByEmail("REMOTE@example.com").getUsername());
+        assertEquals(0, emailFetches.get());
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void unansweredEmailLookupTimesOut() {
+        UserPeer silent = new LoopbackPeer(new InMemoryUserRepository()) {
+            @Override
+            public CompletableFuture<User> fetchByEmailAsync(String email) {
+                return new CompletableFuture<>();
+            }
+        };
+        Map<String, UserPeer> peers = Map.of("b", silent, "c", new LoopbackPeer(locals.get("c")));
+        ShardedUserRepository node = new ShardedUserRepository("a", ring, locals.get("a"), peers,
+                Duration.ofSeconds(30), 100, Duration.ofMillis(50), clock);
+        long start = System.nanoTime();
+        assertThrows(PeerUnavailableException.class, () -> node.findByEmail("nobody@example.com"));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+    }
+
+    @Test
+    void prefixSearchMergesAllNodesInOrder() {
+        for (int i = 0; i < 30; i++) {
+            nodes.get(NODES.get(i % 3)).save(new User(String.format("user%02d", i), "hash", "user" + i + "@example.com"));
+        }
+        nodes.get("a").save(new User("other", "hash", "other@example.com"));
+        List<String> first = nodes.get("b").findUsernamesByPrefix("user", null, 10);
+        assertEquals(List.of("user00", "user01", "user02", "user03", "user04",
+                "user05", "user06", "user07", "user08", "user09"), first);
+        List<String> second = nodes.get("c").findUsernamesByPrefix("user", first.get(9), 25);
+        assertEquals(20, second.size());
+        assertEquals("user10", second.get(0));
+        assertEquals("user29", second.get(19));
+    }
+
+    @Test
+    void prefixSearchAsksAllPeersBeforeWaiting() {
+        locals.get("b").save(new User("user-b", "hash", "b@example.com"));
+        locals.get("c").save(new User("user-c", "hash", "c@example.com"));
+        // 每个节点只有在所有节点都已收到请求后才作答，逐个等待的实现会超时
+        CountDownLatch asked = new CountDownLatch(2);
+        Map<String, UserPeer> peers = new HashMap<>();
+        for (String peer : List.of("b", "c")) {
+            peers.put(peer, new LoopbackPeer(locals.get(peer)) {
+                @Override
+                public CompletableFuture<List<String>> searchUsernamesAsync(String prefix, String after, int limit) {
+                    asked.countDown();
+                    return CompletableFuture.supplyAsync(() -> {
+                        try {
+                            if (!asked.await(1, TimeUnit.SECONDS)) {
+                                throw new PeerUnavailableException("asked sequentially");
+                            }
+                        } catch (InterruptedException e) {
+                            throw new PeerUnavailableException("interrupted", e);
+                        }
+                        return searchUsernames(prefix, after, limit);
+                    });
+                }
+            });
+        }
+        ShardedUserRepository node = new ShardedUserRepository("a", ring, locals.get("a"), peers,
+                Duration.ofSeconds(30), 100, Duration.ofSeconds(5), clock);
+        assertEquals(List.of("user-b", "user-c"), node.findUsernamesByPrefix("user", null, 10));
+    }
+
+    @Test
+    void unansweredPrefixSearchTimesOut() {
+        UserPeer silent = new LoopbackPeer(new InMemoryUserRepository()) {
+            @Override
+            public CompletableFuture<List<String>> searchUsernamesAsync(String prefix, String after, int limit) {
+                return new CompletableFuture<>();
+            }
+        };
+        Map<String, UserPeer> peers = Map.of("b", silent, "c", new LoopbackPeer(locals.get("c")));
+        ShardedUserRepository node = new ShardedUserRepository("a", ring, locals.get("a"), peers,
+                Duration.ofSeconds(30), 100, Duration.ofMillis(50), clock);
+        long start = System.nanoTime();
+        assertThrows(PeerUnavailableException.class, () -> node.findUsernamesByPrefix("user", null, 10));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+    }
+
+    @Test
+    void prefixSearchFailsWhenAnyPeerIsUnreachable() {
+        partitioned = true;
+        assertThrows(PeerUnavailableException.class, () -> nodes.get("a").findUsernamesByPrefix("user", null, 10));
+    }
+
+    @Test
+    void unreachableOwnerFailsFast() {
+        String username = remoteUsernameFor("a");
+        partitioned = true;
+        assertThrows(PeerUnavailableException.class, () -> nodes.get("a").findByUsername(username));
+        assertThrows(PeerUnavailableException.class, () -> nodes.get("a").save(new User(username, "hash", "e")));
+    }
+
+    @Test
+    void rejectsIncompletePeerConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedUserRepository("x", ring,
+                new InMemoryUserRepository(), Map.of(), Duration.ofSeconds(30), 100, Duration.ofSeconds(2)));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedUserRepository("a", ring,
+                new InMemoryUserRepository(), Map.of("b", new LoopbackPeer(new InMemoryUserRepository())),
+                Duration.ofSeconds(30), 100, Duration.ofSeconds(2)));
+    }
+
+    private String remoteUsernameFor(String node) {
+        for (int i = 0; ; i++) {
+            if (!ring.ownerOf("remote" + i).equals(node)) {
+                return "remote" + i;
+            }
+        }
+    }
+
+    // 进程内模拟对端节点，经过一次编解码以贴近真实传输
+    private class LoopbackPeer implements UserPeer {
+        private final UserRepository target;
+
+        LoopbackPeer(UserRepository target) {
+            this.target = target;
+        }
+
+        @Override
+        public User fetch(String username) {
+            checkReachable();
+            fetches.incrementAndGet();
+            User user = target.findByUsername(username);
+            return user != null ? UserCodec.decode(UserCodec.encode(user)) : null;
+        }
+
+        @Override
+        public User fetchByEmail(String email) {
+            checkReachable();
+            emailFetches.incrementAndGet();
+            User user = target.findByEmail(email);
+            return user != null ? UserCodec.decode(UserCodec.encode(user)) : null;
+        }
+
+        @Override
+        public List<String> searchUsernames(String prefix, String after, int limit) {
+            checkReachable();
+            return UserCodec.decodeUsernames(UserCodec.encodeUsernames(target.findUsernamesByPrefix(prefix, after, limit)));
+        }
+
+        @Override
+        public boolean saveIfAbsent(User user) {
+            checkReachable();
+            return target.saveIfAbsent(UserCodec.decode(UserCodec.encode(user)));
+        }
+
+        @Override
+        public void update(User user) {
+            checkReachable();
+            target.update(UserCodec.decode(UserCodec.encode(user)));
+        }
+
+        private void checkReachable() {
+            if (partitioned) {
+                throw new PeerUnavailableException("partitioned");
+            }
+        }
+    }
+}
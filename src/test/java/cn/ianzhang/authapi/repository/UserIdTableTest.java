@@ -0,0 +1,166 @@
+package cn.ianzhang.authapi.repository;
+
+import cn.ianzhang.authapi.model.User;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class UserIdTableTest {
+
+    private final UserIdTable table = new UserIdTable();
+
+    @Test
+    void assignsDenseIds() {
+        User alice = new User("alice", "pw", "alice@example.com");
+        User bob = new User("bob", "pw", "bob@example.com");
+        assertEquals(0, table.intern(alice));
+        assertEquals(1, table.intern(bob));
+        assertEquals(0, alice.getId());
+        assertEquals(1, bob.getId());
+        assertSame(alice, table.get(0));
+        assertSame(bob, table.get(1));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void internIsIdempotent() {
+        User alice = new User("alice", "pw", "alice@example.com");
+        int id = table.intern(alice);
+        assertEquals(id, table.intern(alice));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void replacementObjectKeepsId() {
+        User alice = new User("alice", "pw", "alice@example.com");
+        int id = table.intern(alice);
+        User reloaded = new User("alice", "pw2", "alice@example.com");
+        reloaded.setId(id);
+        assertEquals(id, table.intern(reloaded));
+        assertSame(reloaded, table.get(id));
+    }
+
+    @Test
+    void reloadedObjectWithoutIdKeepsId() {
+        User alice = new User("alice", "pw", "alice@example.com");
+        int id = table.intern(alice);
+        User reloaded = new User("alice", "pw", "alice@example.com");
+        assertEquals(id, table.intern(reloaded));
+        assertEquals(id, reloaded.getId());
+        assertSame(reloaded, table.get(id));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void invalidIdsResolveToNull() {
+        assertNull(table.get(User.NO_ID));
+        assertNull(table.get(0));
+        assertNull(table.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, table.intern(new User("user" + i, "pw", "e")));
+        }
+        assertEquals("user4999", table.get(4999).getUsername());
+    }
+
+    @Test
+    void releasedSlotIsReusedWithNewGeneration() {
+        User alice = new User("alice", "pw", "alice@example.com");
+        int aliceId = table.intern(alice);
+        assertTrue(table.release("alice"));
+        assertFalse(table.release("alice"));
+        assertNull(table.get(aliceId));
+        assertEquals(0, table.size());
+
+        User bob = new User("bob", "pw", "bob@example.com");
+        int bobId = table.intern(bob);
+        assertNotEquals(aliceId, bobId);
+        assertEquals(aliceId & (UserIdTable.MAX_SLOTS - 1), bobId & (UserIdTable.MAX_SLOTS - 1));
+        // 旧ID不会解析到复用同一槽位的用户
+        assertNull(table.get(aliceId));
+        assertSame(bob, table.get(bobId));
+
+        // 同一 User 对象重新分配时得到新ID
+        int reassigned = table.intern(alice);
+        assertNotEquals(aliceId, reassigned);
+        assertSame(alice, table.get(reassigned));
+    }
+
+    @Test
+    void pinnedIdIsNotReleased() {
+        int id = table.intern(new User("alice", "pw", "alice@example.com"));
+        assertFalse(table.release("alice", pinned -> pinned == id));
+        assertTrue(table.isAssigned(id));
+        assertTrue(table.release("alice", pinned -> false));
+        assertFalse(table.isAssigned(id));
+    }
+
+    @Test
+    void exhaustedSlotIsRetired() {
+        User user = new User("alice", "pw", "e");
+        int first = table.intern(user);
+        for (int i = 0; i < UserIdTable.MAX_GENERATION; i++) {
+            table.release("alice");
+            assertEquals(first, table.intern(user) & (UserIdTable.MAX_SLOTS - 1));
+        }
+        assertTrue(table.intern(user) >= 0);
+        table.release("alice");
+        assertNotEquals(first, table.intern(user) & (UserIdTable.MAX_SLOTS - 1));
+    }
+
+    @Test
+    void indexStaysConsistentAcrossReleases() {
+        for (int i = 0; i < 5000; i++) {
+            table.intern(new User("user" + i, "pw", "e"));
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            assertTrue(table.release("user" + i));
+        }
+        assertEquals(2500, table.size());
+        for (int i = 0; i < 5000; i++) {
+            User user = new User("user" + i, "pw", "e");
+            int id = table.intern(user);
+            assertEquals("user" + i, table.get(id).getUsername());
+            // 释放的槽位被复用，表没有继续增长
+            assertTrue((id & (UserIdTable.MAX_SLOTS - 1)) < 5000);
+        }
+        assertEquals(5000, table.size());
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(table.release("user" + i));
+        }
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void concurrentInternAssignsUniqueIds() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                User user = new User("user" + i, "pw", "e");
+                futures.add(pool.submit(() -> table.intern(user)));
+            }
+            Set<Integer> ids = new HashSet<>();
+            for (Future<Integer> future : futures) {
+                ids.add(future.get());
+            }
+            assertEquals(10_000, ids.size());
+            assertEquals(10_000, table.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
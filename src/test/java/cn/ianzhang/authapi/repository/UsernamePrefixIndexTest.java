@@ -0,0 +1,65 @@
+package cn.ianzhang.authapi.repository;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class UsernamePrefixIndexTest {
+
+    private final UsernamePrefixIndex index = new UsernamePrefixIndex();
+
+    @Test
+    void searchReturnsMatchesInLexicographicOrder() {
+        for (String name : new String[]{"bob", "alice", "alex", "al", "b", "alicia"}) {
+            index.add(name);
+        }
+        assertEquals(List.of("al", "alex", "alice", "alicia"), index.search("al", null, 10));
+        assertEquals(List.of("alice", "alicia"), index.search("alic", null, 10));
+        assertEquals(List.of("b", "bob"), index.search("b", null, 10));
+        assertEquals(List.of(), index.search("c", null, 10));
+        // 空前缀按字典序列出全部用户名
+        assertEquals(List.of("al", "alex"), index.search("", null, 2));
+    }
+
+    @Test
+    void cursorPaginationVisitsEveryMatchOnce() {
+        for (int i = 0; i < 95; i++) {
+            index.add(String.format("user%03d", i));
+        }
+        index.add("userx");
+        index.add("zed");
+        List<String> all = new ArrayList<>();
+        String after = null;
+        List<String> page;
+        while (!(page = index.search("user", after, 10)).isEmpty()) {
+            all.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+        assertEquals(96, all.size());
+        assertEquals("user000", all.get(0));
+        assertEquals("userx", all.get(95));
+    }
+
+    @Test
+    void cursorBeforePrefixStartsAtPrefix() {
+        index.add("alice");
+        index.add("bob");
+        index.add("bobby");
+        assertEquals(List.of("bob", "bobby"), index.search("bob", "alice", 10));
+        assertEquals(List.of("bobby"), index.search("bob", "bob", 10));
+    }
+
+    @Test
+    void removedNamesDisappear() {
+        index.add("alice");
+        index.add("alex");
+        index.remove("alice");
+        assertEquals(List.of("alex"), index.search("al", null, 10));
+        assertEquals(1, index.size());
+    }
+}
@@ -0,0 +1,63 @@
+package cn.ianzhang.authapi.security;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class BoundedEvictorTest {
+
+    @Test
+    void evictsStaleEntriesBeforeOthers() {
+        ConcurrentHashMap<Integer, Boolean> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, i == 7);
+        }
+        BoundedEvictor<Integer, Boolean> evictor = new BoundedEvictor<>(map, 9);
+        List<Integer> evicted = new ArrayList<>();
+        assertTrue(evictor.evict((key, stale) -> stale, (key, stale) -> true, (key, stale) -> evicted.add(key)));
+        assertEquals(List.of(7), evicted);
+        assertEquals(9, map.size());
+    }
+
+    @Test
+    void examinesBoundedNumberOfEntriesPerCall() {
+        ConcurrentHashMap<Integer, Boolean> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i, false);
+        }
+        BoundedEvictor<Integer, Boolean> evictor = new BoundedEvictor<>(map, 9_999);
+        AtomicInteger examined = new AtomicInteger();
+        // 没有可淘汰的条目时只检查 BATCH 个就放弃，而不是扫描整张表
+        assertFalse(evictor.evict((key, value) -> {
+            examined.incrementAndGet();
+            return false;
+        }, (key, value) -> false, (key, value) -> fail()));
+        assertEquals(BoundedEvictor.BATCH, examined.get());
+        assertEquals(10_000, map.size());
+    }
+
+    @Test
+    void resumesWhereThePreviousCallStopped() {
+        ConcurrentHashMap<Integer, Boolean> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            map.put(i, false);
+        }
+        // 可淘汰的条目排在第一轮扫描范围之外，后续调用从上次停下的位置继续
+        map.put(999, true);
+        BoundedEvictor<Integer, Boolean> evictor = new BoundedEvictor<>(map, 999);
+        boolean done = false;
+        for (int call = 0; call < 1_000 / BoundedEvictor.BATCH + 1 && !done; call++) {
+            done = evictor.evict((key, stale) -> stale, (key, stale) -> stale, (key, stale) -> {
+            });
+        }
+        assertTrue(done);
+        assertFalse(map.containsKey(999));
+    }
+}
@@ -0,0 +1,79 @@
+package cn.ianzhang.authapi.security;
+
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class CredentialCacheTest {
+
+    private MutableClock clock;
+    private CredentialCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(0);
+        cache = new CredentialCache(Duration.ofMinutes(5), 3, clock);
+    }
+
+    @Test
+    void hitAfterPut() {
+        cache.put("alice", "secret", "hash-1");
+        assertTrue(cache.verify("alice", "secret", "hash-1"));
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void wrongPasswordMisses() {
+        cache.put("alice", "secret", "hash-1");
+        assertFalse(cache.verify("alice", "other", "hash-1"));
+        assertFalse(cache.verify("bob", "secret", "hash-1"));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void passwordChangeInvalidatesEntry() {
+        cache.put("alice", "secret", "hash-1");
+        assertFalse(cache.verify("alice", "secret", "hash-2"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expiresAfterTtl() {
+        cache.put("alice", "secret", "hash-1");
+        clock.advance(Duration.ofMinutes(5).toMillis());
+        assertFalse(cache.verify("alice", "secret", "hash-1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateRemovesEntry() {
+        cache.put("alice", "secret", "hash-1");
+        cache.invalidate("alice");
+        assertFalse(cache.verify("alice", "secret", "hash-1"));
+    }
+
+    @Test
+    void sizeIsBounded() {
+        for (int i = 0; i < 10; i++) {
+            cache.put("user" + i, "secret", "hash");
+        }
+        assertEquals(3, cache.size());
+        assertEquals(7, cache.getEvictions());
+    }
+
+    @Test
+    void disabledCacheNeverHits() {
+        CredentialCache disabled = new CredentialCache(Duration.ofMinutes(5), 0, clock);
+        disabled.put("alice", "secret", "hash-1");
+        assertFalse(disabled.isEnabled());
+        assertFalse(disabled.verify("alice", "secret", "hash-1"));
+        assertEquals(0, disabled.size());
+    }
+}
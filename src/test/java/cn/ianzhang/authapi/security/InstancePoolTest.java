@@ -0,0 +1,72 @@
+package cn.ianzhang.authapi.security;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class InstancePoolTest {
+
+    @Test
+    void releasedInstanceIsReused() {
+        AtomicInteger created = new AtomicInteger();
+        InstancePool<Object> pool = new InstancePool<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }, 4);
+        Object first = pool.acquire();
+        pool.release(first);
+        // 只有一个实例在池中，随机起点探测 4 个槽位必然覆盖容量为 4 的池
+        assertSame(first, pool.acquire());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void retainsAtMostCapacityInstances() {
+        AtomicInteger created = new AtomicInteger();
+        InstancePool<Object> pool = new InstancePool<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }, 4);
+        List<Object> borrowed = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            borrowed.add(pool.acquire());
+        }
+        borrowed.forEach(pool::release);
+        assertEquals(4, pool.capacity());
+        for (int i = 0; i < 100; i++) {
+            pool.acquire();
+        }
+        assertTrue(created.get() >= 196);
+    }
+
+    @Test
+    void virtualThreadsNeverShareAnInstance() throws Exception {
+        InstancePool<AtomicBoolean> pool = new InstancePool<>(AtomicBoolean::new);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                results.add(executor.submit(() -> {
+                    AtomicBoolean inUse = pool.acquire();
+                    boolean exclusive = inUse.compareAndSet(false, true);
+                    Thread.yield();
+                    inUse.set(false);
+                    pool.release(inUse);
+                    return exclusive;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        }
+    }
+}
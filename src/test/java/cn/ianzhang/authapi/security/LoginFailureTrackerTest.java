@@ -0,0 +1,142 @@
+package cn.ianzhang.authapi.security;
+
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class LoginFailureTrackerTest {
+
+    private final MutableClock clock = new MutableClock(1_700_000_000_000L);
+
+    private LoginFailureTracker tracker(int maxAccounts) {
+        return new LoginFailureTracker(5, Duration.ofMinutes(10), Duration.ofMinutes(10), maxAccounts, 1024, clock);
+    }
+
+    @Test
+    void locksAtThresholdForLockoutDuration() {
+        LoginFailureTracker tracker = tracker(100);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(tracker.recordFailure("alice", true));
+            assertEquals(0, tracker.lockedMillis("alice", true));
+        }
+        assertTrue(tracker.recordFailure("alice", true));
+        assertEquals(Duration.ofMinutes(10).toMillis(), tracker.lockedMillis("alice", true), 1000);
+
+        clock.advance(Duration.ofMinutes(5).toMillis());
+        assertTrue(tracker.lockedMillis("alice", true) > 0);
+        clock.advance(Duration.ofMinutes(5).toMillis() + 1000);
+        assertEquals(0, tracker.lockedMillis("alice", true));
+
+        // 刚解除锁定时分数仍接近阈值，再失败一次即重新锁定
+        assertTrue(tracker.recordFailure("alice", true));
+        assertEquals(2, tracker.getLockouts());
+    }
+
+    @Test
+    void failuresDecayOverTime() {
+        LoginFailureTracker tracker = tracker(100);
+        for (int i = 0; i < 4; i++) {
+            tracker.recordFailure("alice", true);
+        }
+        // 一个半衰期后 4 分衰减为 2 分，再失败两次不会锁定
+        clock.advance(Duration.ofMinutes(10).toMillis());
+        assertFalse(tracker.recordFailure("alice", true));
+        assertFalse(tracker.recordFailure("alice", true));
+        assertEquals(0, tracker.lockedMillis("alice", true));
+    }
+
+    @Test
+    void successClearsFailures() {
+        LoginFailureTracker tracker = tracker(100);
+        for (int i = 0; i < 4; i++) {
+            tracker.recordFailure("alice", true);
+        }
+        tracker.recordSuccess("alice");
+        assertEquals(0, tracker.size());
+        assertFalse(tracker.recordFailure("alice", true));
+    }
+
+    @Test
+    void unknownNamesUseFixedSizeSketch() {
+        LoginFailureTracker tracker = new LoginFailureTracker(5, Duration.ofMinutes(10), Duration.ofMinutes(10),
+                100, 65_536, clock);
+        for (int i = 0; i < 10_000; i++) {
+            tracker.recordFailure("spray-" + i, false);
+        }
+        assertEquals(0, tracker.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertFalse(tracker.recordFailure("ghost", false));
+        }
+        assertTrue(tracker.recordFailure("ghost", false));
+        assertTrue(tracker.lockedMillis("ghost", false) > 0);
+        // sketch 的记录不影响同名的已存在账号
+        assertEquals(0, tracker.lockedMillis("ghost", true));
+    }
+
+    @Test
+    void evictsNegligibleAccountsFirst() {
+        LoginFailureTracker tracker = tracker(2);
+        tracker.recordFailure("old", true);
+        clock.advance(Duration.ofHours(1).toMillis());
+        for (int i = 0; i < 5; i++) {
+            tracker.recordFailure("locked", true);
+        }
+        tracker.recordFailure("new", true);
+
+        assertEquals(2, tracker.size());
+        assertEquals(1, tracker.getEvictions());
+        assertTrue(tracker.lockedMillis("locked", true) > 0);
+    }
+
+    @Test
+    void lockedAccountsAreNeverEvicted() {
+        LoginFailureTracker tracker = tracker(2);
+        for (int i = 0; i < 5; i++) {
+            tracker.recordFailure("first", true);
+            tracker.recordFailure("second", true);
+        }
+        // 表中全是锁定中的账号，新账号不挤掉它们，改记入溢出 sketch
+        for (int i = 0; i < 4; i++) {
+            assertFalse(tracker.recordFailure("third", true));
+        }
+        assertTrue(tracker.recordFailure("third", true));
+
+        assertEquals(2, tracker.size());
+        assertEquals(0, tracker.getEvictions());
+        assertTrue(tracker.lockedMillis("first", true) > 0);
+        assertTrue(tracker.lockedMillis("second", true) > 0);
+        assertTrue(tracker.lockedMillis("third", true) > 0);
+    }
+
+    @Test
+    void evictedScoreIsKeptInOverflowSketch() {
+        LoginFailureTracker tracker = tracker(1);
+        for (int i = 0; i < 4; i++) {
+            tracker.recordFailure("alice", true);
+        }
+        // alice 未锁定，被 bob 淘汰，但 4 次失败记录并入溢出 sketch
+        tracker.recordFailure("bob", true);
+        assertEquals(1, tracker.getEvictions());
+        assertEquals(0, tracker.lockedMillis("alice", true));
+
+        // alice 重新进入表时从溢出 sketch 的估计值开始，再失败一次即锁定
+        assertTrue(tracker.recordFailure("alice", true));
+        assertTrue(tracker.lockedMillis("alice", true) > 0);
+    }
+
+    @Test
+    void disabledTrackerNeverLocks() {
+        LoginFailureTracker tracker = LoginFailureTracker.disabled();
+        for (int i = 0; i < 100; i++) {
+            assertFalse(tracker.recordFailure("alice", true));
+        }
+        assertEquals(0, tracker.lockedMillis("alice", true));
+        assertEquals(0, tracker.size());
+    }
+}
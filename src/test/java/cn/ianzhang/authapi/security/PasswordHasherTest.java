@@ -0,0 +1,81 @@
+package cn.ianzhang.authapi.security;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(1_000);
+
+    @Test
+    void hashAndVerify() {
+        String encoded = hasher.hash("password123");
+        assertTrue(encoded.startsWith("pbkdf2-sha256$1000$"));
+        assertTrue(hasher.verify("password123", encoded));
+        assertFalse(hasher.verify("wrongpassword", encoded));
+    }
+
+    @Test
+    void hashesAreSalted() {
+        assertNotEquals(hasher.hash("password123"), hasher.hash("password123"));
+    }
+
+    @Test
+    void verifyLegacyPlaintext() {
+        PasswordHasher migrating = new PasswordHasher(1_000, true);
+        assertTrue(migrating.verify("password123", "password123"));
+        assertFalse(migrating.verify("password", "password123"));
+        assertTrue(migrating.needsRehash("password123"));
+        // 未开启迁移时不接受明文
+        assertFalse(hasher.verify("password123", "password123"));
+    }
+
+    @Test
+    void rejectsExcessiveIterations() {
+        String expensive = new PasswordHasher(1_000 * PasswordHasher.MAX_ITERATIONS_FACTOR + 1).hash("password123");
+        assertFalse(hasher.verify("password123", expensive));
+        assertFalse(hasher.isAcceptableHash(expensive));
+        assertTrue(hasher.isAcceptableHash(new PasswordHasher(1_000 * PasswordHasher.MAX_ITERATIONS_FACTOR)
+                .hash("password123")));
+    }
+
+    @Test
+    void acceptableHashRequiresWellFormedHash() {
+        assertTrue(hasher.isAcceptableHash(hasher.hash("password123")));
+        assertFalse(hasher.isAcceptableHash(null));
+        assertFalse(hasher.isAcceptableHash("password123"));
+        assertFalse(hasher.isAcceptableHash("pbkdf2-sha256$hash"));
+        assertFalse(hasher.isAcceptableHash("pbkdf2-sha256$0$abc$def"));
+        assertFalse(new PasswordHasher(1_000, true).isAcceptableHash("password123"));
+    }
+
+    @Test
+    void verifyRejectsMalformedHashes() {
+        assertFalse(hasher.verify("password123", null));
+        assertFalse(hasher.verify(null, hasher.hash("password123")));
+        assertFalse(hasher.verify("password123", "pbkdf2-sha256$1000$abc"));
+        assertFalse(hasher.verify("password123", "pbkdf2-sha256$x$abc$def"));
+    }
+
+    @Test
+    void needsRehashWhenIterationsIncrease() {
+        String encoded = hasher.hash("password123");
+        assertFalse(hasher.needsRehash(encoded));
+
+        PasswordHasher stronger = new PasswordHasher(2_000);
+        assertTrue(stronger.needsRehash(encoded));
+        // 旧参数生成的散列在升级前依然可以校验
+        assertTrue(stronger.verify("password123", encoded));
+    }
+
+    @Test
+    void calibrateRespectsMinimum() {
+        assertTrue(PasswordHasher.calibrate(Duration.ofNanos(1), 5_000) >= 5_000);
+        assertTrue(PasswordHasher.calibrate(Duration.ofMillis(10), 1) > 1);
+    }
+}
@@ -0,0 +1,98 @@
+package cn.ianzhang.authapi.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    void hashAndVerifyOnPool() {
+        service = new PasswordHashingService(new PasswordHasher(1_000), 2, 4, Duration.ofSeconds(5));
+        String encoded = service.hash("password123");
+        assertTrue(service.verify("password123", encoded));
+        assertFalse(service.verify("wrongpassword", encoded));
+        assertFalse(service.needsRehash(encoded));
+        assertDoesNotThrow(() -> service.verifyDummy("password123"));
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        BlockingHasher hasher = new BlockingHasher();
+        service = new PasswordHashingService(hasher, 1, 1, Duration.ofSeconds(5));
+        hasher.block();
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // 一个任务占用唯一的散列线程，另一个占满队列
+            callers.submit(() -> service.hash("a"));
+            assertTrue(hasher.started.await(5, TimeUnit.SECONDS));
+            callers.submit(() -> service.hash("b"));
+            while (service.getQueueSize() < 1) {
+                Thread.onSpinWait();
+            }
+            assertThrows(HashingBusyException.class, () -> service.hash("c"));
+        } finally {
+            hasher.release.countDown();
+            callers.shutdown();
+            assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void timesOutWhenHashingTakesTooLong() throws Exception {
+        BlockingHasher hasher = new BlockingHasher();
+        service = new PasswordHashingService(hasher, 1, 1, Duration.ofMillis(50));
+        hasher.block();
+        try {
+            assertThrows(HashingBusyException.class, () -> service.hash("a"));
+        } finally {
+            hasher.release.countDown();
+        }
+    }
+
+    private static class BlockingHasher extends PasswordHasher {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean blocking;
+
+        BlockingHasher() {
+            super(1_000);
+        }
+
+        void block() {
+            blocking = true;
+        }
+
+        @Override
+        public String hash(String password) {
+            if (blocking) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.hash(password);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package cn.ianzhang.authapi.security;
+
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// 角色继承下的权限解析：10k 个角色分 20 层，每个角色继承上一层的两个角色。
+// 对比缓存的用户位集（一次版本比较）、从闭包快照解析、每次沿继承关系遍历，以及修改根角色与叶子角色时的增量重建。
+// 运行：mvn -Pbenchmark -DskipTests test -Dbenchmark.include=RoleHierarchyBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoleHierarchyBenchmark {
+    private static final int ROLES = 10_000;
+    private static final int DEPTH = 20;
+    private static final int PER_LEVEL = ROLES / DEPTH;
+
+    private RolePermissions permissions;
+    private Map<String, List<String>> parents;
+    private Map<String, Long> direct;
+    private User cachedUser;
+    private User freshUser;
+    private String rootRole;
+    private String leafRole;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Permission[] all = Permission.values();
+        Map<String, List<Permission>> roles = new HashMap<>();
+        parents = new HashMap<>();
+        direct = new HashMap<>();
+        for (int level = 0; level < DEPTH; level++) {
+            for (int i = 0; i < PER_LEVEL; i++) {
+                String role = "role-" + level + "-" + i;
+                Permission permission = all[random.nextInt(all.length)];
+                roles.put(role, List.of(permission));
+                direct.put(role, permission.bit());
+                if (level > 0) {
+                    parents.put(role, List.of("role-" + (level - 1) + "-" + random.nextInt(PER_LEVEL),
+                            "role-" + (level - 1) + "-" + random.nextInt(PER_LEVEL)));
+                }
+            }
+        }
+        rootRole = "role-0-0";
+        leafRole = "role-" + (DEPTH - 1) + "-0";
+        roles.put("user", List.of());
+        permissions = new RolePermissions(roles, parents, "user");
+
+        Set<Role> userRoles = Set.of(new Role(leafRole), new Role("role-" + (DEPTH - 1) + "-1"),
+                new Role("role-" + (DEPTH - 2) + "-7"));
+        cachedUser = new User("cached", "hash", "cached@example.com");
+        cachedUser.setRoles(userRoles);
+        permissions.refresh(cachedUser);
+        freshUser = new User("fresh", "hash", "fresh@example.com");
+        freshUser.setRoles(userRoles);
+    }
+
+    @Benchmark
+    public long cachedUserBits() {
+        return permissions.permissionsOf(cachedUser);
+    }
+
+    @Benchmark
+    public long resolveFromClosure() {
+        return permissions.refresh(freshUser);
+    }
+
+    @Benchmark
+    public long walkHierarchyPerRequest() {
+        long bits = 0;
+        for (Role role : freshUser.getRoles()) {
+            Set<String> visited = new HashSet<>();
+            ArrayDeque<String> queue = new ArrayDeque<>();
+            queue.add(role.getName());
+            while (!queue.isEmpty()) {
+                String next = queue.poll();
+                if (visited.add(next)) {
+                    bits |= direct.getOrDefault(next, 0L);
+                    queue.addAll(parents.getOrDefault(next, List.of()));
+                }
+            }
+        }
+        return bits;
+    }
+
+    // 叶子角色没有后代，只重算它自己
+    @Benchmark
+    public void redefineLeafRole() {
+        permissions.defineRole(leafRole, List.of(Permission.USER_SEARCH), parents.get(leafRole));
+    }
+
+    // 根角色的后代遍布下面各层，重算的角色数远多于叶子
+    @Benchmark
+    public void redefineRootRole() {
+        permissions.defineRole(rootRole, List.of(Permission.USER_SEARCH), List.of());
+    }
+}
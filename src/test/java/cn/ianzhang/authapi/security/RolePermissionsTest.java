@@ -0,0 +1,144 @@
+package cn.ianzhang.authapi.security;
+
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class RolePermissionsTest {
+
+    private final RolePermissions permissions = new RolePermissions(Map.of(
+            "user", List.of(Permission.USER_SEARCH),
+            "manager", List.of(Permission.ROLE_MANAGE),
+            "guest", List.of()), "user");
+
+    private static User withRoles(String username, String... roles) {
+        User user = new User(username, "hash", username + "@example.com");
+        Set<Role> set = new HashSet<>();
+        for (String role : roles) {
+            set.add(new Role(role));
+        }
+        user.setRoles(set);
+        return user;
+    }
+
+    @Test
+    void usersWithoutRolesGetDefaultRole() {
+        assertEquals(Permission.USER_SEARCH.bit(), permissions.refresh(withRoles("alice")));
+    }
+
+    @Test
+    void rolesAreCombinedWithBitwiseOr() {
+        long bits = permissions.refresh(withRoles("alice", "user", "manager"));
+        assertTrue(RolePermissions.allows(bits, Permission.mask(Permission.USER_SEARCH, Permission.ROLE_MANAGE)));
+        // 显式的角色不再叠加默认角色
+        assertFalse(RolePermissions.allows(permissions.refresh(withRoles("bob", "manager")), Permission.USER_SEARCH.bit()));
+        assertEquals(0, permissions.refresh(withRoles("carol", "guest")));
+    }
+
+    @Test
+    void undefinedRolesGrantNothing() {
+        assertEquals(0, permissions.refresh(withRoles("alice", "ghost")));
+        assertFalse(permissions.isDefined("ghost"));
+        assertTrue(permissions.isDefined("manager"));
+    }
+
+    @Test
+    void usernameAloneGrantsNothing() {
+        // 权限只来自角色，名为 root 或 admin 的用户没有特殊待遇
+        assertEquals(0, permissions.refresh(withRoles("root", "guest")));
+        assertEquals(0, permissions.refresh(withRoles("admin", "guest")));
+        for (Permission permission : Permission.values()) {
+            assertTrue(RolePermissions.allows(RolePermissions.ALL, permission.bit()));
+        }
+    }
+
+    @Test
+    void emptyRequirementIsAlwaysAllowed() {
+        assertTrue(RolePermissions.allows(0, 0));
+        assertFalse(RolePermissions.allows(0, Permission.USER_SEARCH.bit()));
+    }
+
+    @Test
+    void rejectsUndefinedDefaultRole() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RolePermissions(Map.of("user", List.of()), "member"));
+    }
+
+    @Test
+    void rolesInheritPermissionsTransitively() {
+        RolePermissions hierarchy = new RolePermissions(
+                Map.of("base", List.of(Permission.USER_SEARCH), "middle", List.of(), "top", List.of(Permission.ROLE_MANAGE)),
+                Map.of("middle", List.of("base"), "top", List.of("middle")), "base");
+        assertEquals(Permission.USER_SEARCH.bit(), hierarchy.effectiveBits("middle"));
+        assertEquals(Permission.mask(Permission.USER_SEARCH, Permission.ROLE_MANAGE), hierarchy.effectiveBits("top"));
+        assertEquals(Permission.USER_SEARCH.bit(), hierarchy.effectiveBits("base"));
+    }
+
+    @Test
+    void redefiningRoleUpdatesDescendantsOnly() {
+        RolePermissions hierarchy = new RolePermissions(
+                Map.of("base", List.of(), "middle", List.of(), "top", List.of(), "other", List.of()),
+                Map.of("middle", List.of("base"), "top", List.of("middle")), "base");
+        hierarchy.defineRole("base", List.of(Permission.USER_SEARCH), List.of());
+        assertEquals(Permission.USER_SEARCH.bit(), hierarchy.effectiveBits("top"));
+        assertEquals(0, hierarchy.effectiveBits("other"));
+
+        // 改换父角色后，原继承链上的权限不再生效
+        hierarchy.defineRole("middle", List.of(), List.of("other"));
+        assertEquals(0, hierarchy.effectiveBits("top"));
+        hierarchy.defineRole("other", List.of(Permission.ROLE_MANAGE), List.of());
+        assertEquals(Permission.ROLE_MANAGE.bit(), hierarchy.effectiveBits("top"));
+
+        hierarchy.defineRole("leaf", List.of(), List.of("top", "base"));
+        assertEquals(Permission.mask(Permission.USER_SEARCH, Permission.ROLE_MANAGE), hierarchy.effectiveBits("leaf"));
+    }
+
+    @Test
+    void rejectsCyclesAndUndefinedParents() {
+        RolePermissions hierarchy = new RolePermissions(
+                Map.of("base", List.of(Permission.USER_SEARCH), "top", List.of()),
+                Map.of("top", List.of("base")), "base");
+        assertThrows(IllegalArgumentException.class, () -> hierarchy.defineRole("base", List.of(), List.of("top")));
+        assertThrows(IllegalArgumentException.class, () -> hierarchy.defineRole("base", List.of(), List.of("base")));
+        assertThrows(IllegalArgumentException.class, () -> hierarchy.defineRole("top", List.of(), List.of("ghost")));
+        // 被拒绝的修改不影响现有定义
+        assertEquals(Permission.USER_SEARCH.bit(), hierarchy.effectiveBits("top"));
+
+        assertThrows(IllegalArgumentException.class, () -> new RolePermissions(
+                Map.of("a", List.of(), "b", List.of()), Map.of("a", List.of("b"), "b", List.of("a")), "a"));
+    }
+
+    @Test
+    void cachedUserPermissionsFollowRoleChanges() {
+        RolePermissions hierarchy = new RolePermissions(
+                Map.of("user", List.of(), "member", List.of()), Map.of("member", List.of("user")), "user");
+        User alice = withRoles("alice", "member");
+        assertEquals(0, hierarchy.permissionsOf(alice));
+        hierarchy.defineRole("user", List.of(Permission.USER_SEARCH), List.of());
+        assertEquals(Permission.USER_SEARCH.bit(), hierarchy.permissionsOf(alice));
+        assertEquals(Permission.USER_SEARCH.bit(), alice.getPermissions());
+    }
+
+    @Test
+    void staleResolutionIsNotReturnedForCurrentVersion() {
+        RolePermissions hierarchy = new RolePermissions(
+                Map.of("user", List.of(Permission.USER_SEARCH), "member", List.of()), "user");
+        User alice = withRoles("alice", "member");
+        long current = hierarchy.refresh(alice);
+        int version = alice.getResolvedPermissions().version();
+        // 模拟另一线程发布了旧版本的解析结果：版本与位集一起被替换，读取时不会把旧位集当作新版本的结果
+        alice.setResolvedPermissions(new User.ResolvedPermissions(version - 1, RolePermissions.ALL));
+        assertEquals(current, hierarchy.permissionsOf(alice));
+        assertEquals(version, alice.getResolvedPermissions().version());
+    }
+}
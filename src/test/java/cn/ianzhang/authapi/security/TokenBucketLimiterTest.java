@@ -0,0 +1,162 @@
+package cn.ianzhang.authapi.security;
+
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class TokenBucketLimiterTest {
+
+    private final MutableClock clock = new MutableClock(1_000_000L);
+
+    @Test
+    void allowsBurstThenRefillsLazily() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, Duration.ofSeconds(10), 100, clock);
+        assertTrue(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+        assertEquals(10_000, limiter.millisUntilAvailable("alice"));
+
+        clock.advance(9_999);
+        assertFalse(limiter.tryAcquire("alice"));
+        clock.advance(1);
+        assertEquals(0, limiter.millisUntilAvailable("alice"));
+        assertTrue(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+
+        // 长时间空闲后最多恢复到容量，不会无限积攒
+        clock.advance(Duration.ofHours(1).toMillis());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("alice"));
+        }
+        assertFalse(limiter.tryAcquire("alice"));
+        assertEquals(4, limiter.getRejections());
+    }
+
+    @Test
+    void keysAreIndependent() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, Duration.ofMinutes(1), 100, clock);
+        assertTrue(limiter.tryAcquire("alice"));
+        assertFalse(limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("bob"));
+        assertEquals(0, limiter.millisUntilAvailable("carol"));
+    }
+
+    @Test
+    void evictsIdleBucketsFirst() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, Duration.ofSeconds(10), 3, clock);
+        limiter.tryAcquire("busy");
+        limiter.tryAcquire("busy");
+        clock.advance(5_000);
+        limiter.tryAcquire("idle-1");
+        limiter.tryAcquire("idle-2");
+        // 此时 idle-1、idle-2 已攒满令牌，busy 只恢复了一个
+        clock.advance(10_000);
+        limiter.tryAcquire("new");
+        assertEquals(3, limiter.size());
+        assertEquals(1, limiter.getEvictions());
+        // busy 没有被淘汰，不能借淘汰重置令牌
+        assertTrue(limiter.tryAcquire("busy"));
+        assertFalse(limiter.tryAcquire("busy"));
+    }
+
+    @Test
+    void floodedKeyDoesNotExhaustEveryOverflowBucket() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, Duration.ofMinutes(1), 1, clock);
+        assertTrue(limiter.tryAcquire("known"));
+        // 被刷的键只耗尽它所在的溢出桶
+        assertTrue(limiter.tryAcquire("flood"));
+        assertFalse(limiter.tryAcquire("flood"));
+        int admitted = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (limiter.tryAcquire("new-" + i)) {
+                admitted++;
+            }
+        }
+        // 其他新键分散到其余溢出桶，但总数仍以溢出桶数量为上限
+        assertTrue(admitted > 0);
+        assertTrue(admitted < TokenBucketLimiter.OVERFLOW_BUCKETS);
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void newKeysShareOverflowBucketInsteadOfEvictingActiveThrottles() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, Duration.ofMinutes(1), 3, 1, clock);
+        for (String key : List.of("a", "b", "c")) {
+            assertTrue(limiter.tryAcquire(key));
+        }
+        // 三个桶都在限流中：只有一个溢出桶时新键全部共用它，只能分到一个令牌
+        assertTrue(limiter.tryAcquire("flood-1"));
+        assertFalse(limiter.tryAcquire("flood-2"));
+        assertTrue(limiter.millisUntilAvailable("flood-3") > 0);
+        assertEquals(3, limiter.size());
+        assertEquals(0, limiter.getEvictions());
+        for (String key : List.of("a", "b", "c")) {
+            assertFalse(limiter.tryAcquire(key));
+        }
+
+        // 桶恢复空闲后可以被回收，新键重新拿到自己的桶
+        clock.advance(Duration.ofMinutes(1).toMillis());
+        assertTrue(limiter.tryAcquire("late"));
+        assertFalse(limiter.tryAcquire("late"));
+        assertEquals(3, limiter.size());
+        assertEquals(1, limiter.getEvictions());
+    }
+
+    @Test
+    void sweepReclaimsIdleBucketsAcrossCalls() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, Duration.ofSeconds(1), 500, clock);
+        for (int i = 0; i < 500; i++) {
+            limiter.tryAcquire("old-" + i);
+        }
+        clock.advance(1_000);
+        // 每个新键只需回收一个空闲桶，清扫从上次停下的位置继续；
+        // 偶尔一批只扫到新建的桶时，该新键落到溢出桶
+        for (int i = 0; i < 500; i++) {
+            limiter.tryAcquire("new-" + i);
+        }
+        assertTrue(limiter.size() <= 500);
+        assertTrue(limiter.getEvictions() > 450);
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedCapacity() throws Exception {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(50, Duration.ofHours(1), 100, clock);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (limiter.tryAcquire("hot")) {
+                    granted.incrementAndGet();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(50, granted.get());
+        assertEquals(150, limiter.getRejections());
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(0, Duration.ofSeconds(1), 10));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(1, Duration.ZERO, 10));
+    }
+}
@@ -0,0 +1,121 @@
+package cn.ianzhang.authapi.service;
+
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.security.HashingBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@Disabled
+class ReactiveUserServiceTest {
+
+    private UserService userService;
+    private Scheduler scheduler;
+    private ReactiveUserService reactiveUserService;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        scheduler = Schedulers.newSingle("blocking-test");
+        reactiveUserService = new ReactiveUserService(userService, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    void loginRunsOnBlockingScheduler() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(userService.login("testuser", "password123")).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return "session-123";
+        });
+
+        assertEquals("session-123", reactiveUserService.login("testuser", "password123").block());
+        assertTrue(thread.get().startsWith("blocking-test"));
+    }
+
+    @Test
+    void loginFailureCompletesEmpty() {
+        when(userService.login("testuser", "wrong")).thenReturn(null);
+        assertNull(reactiveUserService.login("testuser", "wrong").block());
+        when(userService.loginByEmail("test@example.com", "wrong")).thenReturn(null);
+        assertNull(reactiveUserService.loginByEmail("test@example.com", "wrong").block());
+    }
+
+    @Test
+    void loginErrorIsSignalled() {
+        when(userService.login("testuser", "password123")).thenThrow(new HashingBusyException("busy"));
+        assertThrows(HashingBusyException.class, () -> reactiveUserService.login("testuser", "password123").block());
+    }
+
+    @Test
+    void nothingRunsUntilSubscribed() {
+        reactiveUserService.login("testuser", "password123");
+        reactiveUserService.register(new User("testuser", "password123", "test@example.com"));
+        reactiveUserService.getUserBySessionId("session-123");
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void sessionLookupRunsOnCallerThread() {
+        User user = new User("testuser", "hash", "test@example.com");
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        when(userService.getUserBySessionId("session-123")).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread());
+            return user;
+        });
+
+        assertSame(user, reactiveUserService.getUserBySessionId("session-123").block());
+        assertSame(Thread.currentThread(), thread.get());
+        assertNull(reactiveUserService.getUserBySessionId("invalid").block());
+    }
+
+    @Test
+    void blockingSessionLookupRunsOnBlockingScheduler() {
+        ReactiveUserService blocking = new ReactiveUserService(userService, scheduler, true);
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(userService.getUserBySessionId("session-123")).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return new User("testuser", "hash", "test@example.com");
+        });
+        when(userService.logoutAll("session-123")).thenAnswer(invocation -> {
+            assertTrue(Thread.currentThread().getName().startsWith("blocking-test"));
+            return 2;
+        });
+
+        assertNotNull(blocking.getUserBySessionId("session-123").block());
+        assertTrue(thread.get().startsWith("blocking-test"));
+        assertEquals(2, blocking.logoutAll("session-123").block());
+    }
+
+    @Test
+    void logoutAndLogoutAll() {
+        when(userService.logoutAll("session-123")).thenReturn(3);
+        reactiveUserService.logout("session-123").block();
+        verify(userService).logout("session-123");
+        assertEquals(3, reactiveUserService.logoutAll("session-123").block());
+    }
+
+    @Test
+    void registerAndEmailCheck() {
+        User user = new User("testuser", "password123", "test@example.com");
+        when(userService.register(user)).thenReturn(true);
+        when(userService.isEmailTaken("test@example.com")).thenReturn(true);
+        assertTrue(reactiveUserService.register(user).block());
+        assertTrue(reactiveUserService.isEmailTaken("test@example.com").block());
+    }
+}
@@ -0,0 +1,148 @@
+package cn.ianzhang.authapi.service;
+
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.repository.InMemoryUserRepository;
+import cn.ianzhang.authapi.repository.UserIdTable;
+import cn.ianzhang.authapi.security.CredentialCache;
+import cn.ianzhang.authapi.security.PasswordHasher;
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import cn.ianzhang.authapi.session.RandomSessionIdGenerator;
+import cn.ianzhang.authapi.session.SessionStore;
+import cn.ianzhang.authapi.session.SignedSessionManager;
+import cn.ianzhang.authapi.session.StoreSessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// 平台线程池与虚拟线程的登录吞吐对比：一次并发提交 REQUESTS 个登录请求，等全部完成。
+// platform 模拟 Tomcat 默认的 200 个工作线程，virtual 为每个请求启动一个虚拟线程。
+// 每次登录先经过 lookupLatency 的阻塞查询（模拟 JDBC 往返），再把 PBKDF2 交给有界散列线程池并等待结果。
+// 阻塞时间占主导时平台线程池受线程数限制，虚拟线程的吞吐随并发请求数增长，直到散列线程池成为瓶颈。
+// resolveSession 在同样的线程模式下为每个请求校验一次签名令牌并生成一个会话ID，比较两种模式下
+// 每个请求的分配量（gc profiler 的 gc.alloc.rate.norm）：按线程缓存 Mac/DRBG 时虚拟线程每个请求都会新建一份，
+// 从有界实例池借用时两种模式相同。
+// 运行：mvn -Pbenchmark -DskipTests test -Dbenchmark.include=ThreadModeBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ThreadModeBenchmark {
+
+    private static final int REQUESTS = 2_000;
+    private static final int USERS = 1_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"5", "50", "200"})
+    public int lookupLatencyMillis;
+
+    private PasswordHashingService passwordHashing;
+    private UserService userService;
+    private ExecutorService executor;
+    private SignedSessionManager signedSessions;
+    private RandomSessionIdGenerator sessionIds;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long latencyNanos = TimeUnit.MILLISECONDS.toNanos(lookupLatencyMillis);
+        InMemoryUserRepository repository = new InMemoryUserRepository() {
+            @Override
+            public User findByUsername(String username) {
+                parkNanos(latencyNanos);
+                return super.findByUsername(username);
+            }
+        };
+        // 低迭代次数让散列不成为瓶颈，队列足够容纳全部在途请求
+        passwordHashing = new PasswordHashingService(new PasswordHasher(1_000),
+                Runtime.getRuntime().availableProcessors(), REQUESTS, Duration.ofSeconds(30));
+        SessionStore sessions = new SessionStore(Duration.ofHours(1), Duration.ofHours(12), Duration.ofSeconds(1), 10);
+        userService = new UserService(repository, new UserIdTable(),
+                new StoreSessionManager(sessions, new RandomSessionIdGenerator()),
+                passwordHashing, new CredentialCache(Duration.ofMinutes(5), 0));
+        for (int i = 0; i < USERS; i++) {
+            userService.register(new User("user" + i, "password" + i, "user" + i + "@example.com"));
+        }
+        byte[] signingKey = new byte[32];
+        new SecureRandom().nextBytes(signingKey);
+        signedSessions = new SignedSessionManager(signingKey, Duration.ofHours(1), 1_000, username -> 0);
+        sessionIds = new RandomSessionIdGenerator();
+        tokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            tokens[i] = signedSessions.create(i, "user" + i);
+        }
+        executor = "virtual".equals(mode)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        passwordHashing.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int login() throws Exception {
+        List<Future<String>> responses = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            int user = i % USERS;
+            responses.add(executor.submit(() -> userService.login("user" + user, "password" + user)));
+        }
+        int succeeded = 0;
+        for (Future<String> response : responses) {
+            if (response.get() != null) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int resolveSession() throws Exception {
+        List<Future<Integer>> responses = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            String token = tokens[i % USERS];
+            responses.add(executor.submit(() -> signedSessions.resolve(token) + sessionIds.generate().length()));
+        }
+        int total = 0;
+        for (Future<Integer> response : responses) {
+            total += response.get();
+        }
+        return total;
+    }
+
+    private static void parkNanos(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
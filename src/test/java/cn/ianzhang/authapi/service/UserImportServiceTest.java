@@ -0,0 +1,241 @@
+package cn.ianzhang.authapi.service;
+
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.repository.InMemoryUserRepository;
+import cn.ianzhang.authapi.repository.UserIdTable;
+import cn.ianzhang.authapi.security.CredentialCache;
+import cn.ianzhang.authapi.security.PasswordHasher;
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import cn.ianzhang.authapi.session.RandomSessionIdGenerator;
+import cn.ianzhang.authapi.session.SessionStore;
+import cn.ianzhang.authapi.session.StoreSessionManager;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class UserImportServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PasswordHashingService passwordHashing;
+    private UserService userService;
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        passwordHashing = new PasswordHashingService(new PasswordHasher(1_000), 1, 4, Duration.ofSeconds(5));
+        userService = new UserService(
+                new InMemoryUserRepository(),
+                new UserIdTable(),
+                new StoreSessionManager(
+                        new SessionStore(Duration.ofMinutes(30), Duration.ofHours(12), Duration.ofSeconds(1)),
+                        new RandomSessionIdGenerator()),
+                passwordHashing,
+                new CredentialCache(Duration.ofMinutes(5), 0));
+        // 块设得很小，让测试覆盖多块交替处理
+        importService = new UserImportService(userService, passwordHashing, objectMapper, 4, 3, "secret");
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.close();
+        passwordHashing.close();
+    }
+
+    private List<JsonNode> run(String input, UserImportService.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        importService.importUsers(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format, out);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    @Test
+    void importsNdjsonAndReportsEachRecordInOrder() throws IOException {
+        userService.register(new User("taken", "password", "t@example.com"));
+        String input = """
+                {"username":"alice","password":"p1","email":"alice@example.com"}
+                {"username":"bob","password":"p2","email":"bob@example.com"}
+
+                {"username":"taken","password":"p3","email":"t@example.com"}
+                {"username":"carol","password":"","email":"carol@example.com"}
+                not json
+                {"username":"alice","password":"p4","email":"alice2@example.com"}
+                {"username":"dave","password":"p5","email":"dave@example.com"}
+                """;
+        List<JsonNode> lines = run(input, UserImportService.Format.NDJSON);
+
+        String[] expected = {"CREATED", "CREATED", "EXISTS", "INVALID", "INVALID", "EXISTS", "CREATED"};
+        int[] lineNumbers = {1, 2, 4, 5, 6, 7, 8};
+        assertEquals(expected.length + 1, lines.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(lineNumbers[i], lines.get(i).get("line").asInt());
+            assertEquals(expected[i], lines.get(i).get("status").asText());
+        }
+        JsonNode summary = lines.get(expected.length);
+        assertEquals(3, summary.get("created").asInt());
+        assertEquals(2, summary.get("exists").asInt());
+        assertEquals(2, summary.get("invalid").asInt());
+
+        // 导入的用户密码已散列，可以正常登录
+        assertTrue(userService.getUserByUsername("alice").getPassword().startsWith("pbkdf2-sha256$"));
+        assertNotNull(userService.login("alice", "p1"));
+        assertNotNull(userService.login("dave", "p5"));
+    }
+
+    @Test
+    void reservedAdminUsernameIsNotImported() throws IOException {
+        userService.bootstrapAdmins(List.of("root"));
+        String input = """
+                {"username":"root","password":"p1","email":"root@example.com"}
+                {"username":"alice","password":"p2","email":"alice@example.com"}
+                """;
+        List<JsonNode> lines = run(input, UserImportService.Format.NDJSON);
+
+        assertEquals("EXISTS", lines.get(0).get("status").asText());
+        assertEquals("CREATED", lines.get(1).get("status").asText());
+        assertNull(userService.getUserByUsername("root"));
+    }
+
+    @Test
+    void usernameOverByteLimitIsInvalid() throws IOException {
+        String input = "{\"username\":\"" + "a".repeat(User.MAX_USERNAME_BYTES + 1)
+                + "\",\"password\":\"p1\",\"email\":\"long@example.com\"}\n"
+                + "{\"username\":\"alice\",\"password\":\"p2\",\"email\":\"alice@example.com\"}\n";
+        List<JsonNode> lines = run(input, UserImportService.Format.NDJSON);
+
+        assertEquals("INVALID", lines.get(0).get("status").asText());
+        assertEquals("CREATED", lines.get(1).get("status").asText());
+        assertFalse(userService.isEmailTaken("long@example.com"));
+    }
+
+    @Test
+    void emailWiderThanStoreColumnIsInvalid() throws IOException {
+        String email = "b".repeat(User.MAX_EMAIL_LENGTH) + "@example.com";
+        String input = "{\"username\":\"bob\",\"password\":\"p1\",\"email\":\"" + email + "\"}\n";
+        List<JsonNode> lines = run(input, UserImportService.Format.NDJSON);
+
+        assertEquals("INVALID", lines.get(0).get("status").asText());
+        assertFalse(userService.isUsernameTaken("bob"));
+    }
+
+    @Test
+    void importsCsvWithHeaderInAnyColumnOrder() throws IOException {
+        String input = "email,username,password\n"
+                + "alice@example.com,alice,p1\n"
+                + "\"bob@example.com\",\"b,ob\",\"p\"\"2\"\n"
+                + "carol@example.com,\"carol,p3\n";
+        List<JsonNode> lines = run(input, UserImportService.Format.CSV);
+
+        assertEquals("CREATED", lines.get(0).get("status").asText());
+        assertEquals(2, lines.get(0).get("line").asInt());
+        assertEquals("b,ob", lines.get(1).get("username").asText());
+        assertEquals("CREATED", lines.get(1).get("status").asText());
+        assertEquals("INVALID", lines.get(2).get("status").asText());
+        assertNotNull(userService.login("b,ob", "p\"2"));
+    }
+
+    @Test
+    void csvWithoutRequiredColumnsRejectsAllRecords() throws IOException {
+        List<JsonNode> lines = run("name,secret\nalice,p1\n", UserImportService.Format.CSV);
+        assertEquals("INVALID", lines.get(0).get("status").asText());
+        assertNull(userService.getUserByUsername("alice"));
+    }
+
+    @Test
+    void largeInputIsStreamedInChunks() throws IOException {
+        int count = 2_000;
+        // 按需生成输入，不在测试中先拼出完整请求体
+        InputStream input = new InputStream() {
+            private int next;
+            private byte[] line = new byte[0];
+            private int pos;
+
+            @Override
+            public int read() {
+                if (pos == line.length) {
+                    if (next == count) {
+                        return -1;
+                    }
+                    int i = next++;
+                    line = ("{\"username\":\"user" + i + "\",\"password\":\"p" + i + "\",\"email\":\"u" + i
+                            + "@example.com\"}\n").getBytes(StandardCharsets.UTF_8);
+                    pos = 0;
+                }
+                return line[pos++];
+            }
+        };
+        importService.close();
+        importService = new UserImportService(userService, passwordHashing, objectMapper, 4, 100, "secret");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImportSummary summary = importService.importUsers(input, UserImportService.Format.NDJSON, out);
+
+        assertEquals(count, summary.getCreated());
+        assertNotNull(userService.getUserByUsername("user" + (count - 1)));
+    }
+
+    @Test
+    void overlongLineIsInvalidAndSkippedToNextNewline() throws IOException {
+        String huge = "{\"username\":\"" + "x".repeat(UserImportService.MAX_LINE_LENGTH) + "\"}";
+        List<JsonNode> lines = run("{\"username\":\"alice\",\"password\":\"p1\",\"email\":\"alice@example.com\"}\r\n"
+                + huge + "\r\n"
+                + "{\"username\":\"bob\",\"password\":\"p2\",\"email\":\"bob@example.com\"}\n"
+                + huge, UserImportService.Format.NDJSON);
+
+        assertEquals("CREATED", lines.get(0).get("status").asText());
+        assertEquals(2, lines.get(1).get("line").asInt());
+        assertEquals("INVALID", lines.get(1).get("status").asText());
+        assertEquals("CREATED", lines.get(2).get("status").asText());
+        assertEquals(4, lines.get(3).get("line").asInt());
+        assertEquals("INVALID", lines.get(3).get("status").asText());
+        assertEquals(2, lines.get(4).get("invalid").asInt());
+        assertNotNull(userService.getUserByUsername("bob"));
+    }
+
+    @Test
+    void lineReaderDoesNotBufferPastTheLimit() throws IOException {
+        UserImportService.LineReader reader = new UserImportService.LineReader(
+                new StringReader("a".repeat(100_000) + "\nok\n"), 16);
+        assertEquals("", reader.readLine());
+        assertTrue(reader.isOverlong());
+        assertEquals("ok", reader.readLine());
+        assertFalse(reader.isOverlong());
+        assertEquals(2, reader.getLineNumber());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    void tokenIsRequired() {
+        assertTrue(importService.isAuthorized("secret"));
+        assertFalse(importService.isAuthorized("wrong"));
+        assertFalse(importService.isAuthorized(null));
+        UserImportService disabled = new UserImportService(userService, passwordHashing, objectMapper, 1, 10, "");
+        assertFalse(disabled.isAuthorized(""));
+        disabled.close();
+    }
+
+    @Test
+    void parallelismIsCappedBelowCoreCount() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        UserImportService greedy = new UserImportService(userService, passwordHashing, objectMapper, cores * 4, 10, "secret");
+        assertEquals(Math.max(1, cores / 2), greedy.parallelism());
+        greedy.close();
+    }
+}
@@ -1,19 +1,73 @@
 package cn.ianzhang.authapi.service;
 
+import cn.ianzhang.authapi.dto.UserSearchPage;
+import cn.ianzhang.authapi.model.Permission;
+import cn.ianzhang.authapi.model.Role;
 import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.repository.InMemoryUserRepository;
+import cn.ianzhang.authapi.repository.UserIdTable;
+import cn.ianzhang.authapi.security.AccountLockedException;
+import cn.ianzhang.authapi.security.CredentialCache;
+import cn.ianzhang.authapi.security.LoginFailureTracker;
+import cn.ianzhang.authapi.security.PasswordHasher;
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import cn.ianzhang.authapi.security.RolePermissions;
+import cn.ianzhang.authapi.session.RandomSessionIdGenerator;
+import cn.ianzhang.authapi.session.SessionPrincipal;
+import cn.ianzhang.authapi.session.StoreSessionManager;
+import cn.ianzhang.authapi.session.TestSessionStores;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @Disabled
 class UserServiceTest {
 
+    private final List<AutoCloseable> resources = new ArrayList<>();
     private UserService userService;
 
     @BeforeEach
     void setUp() {
-        userService = new UserService();
+        userService = newService(new InMemoryUserRepository(), new UserIdTable(),
+                new CredentialCache(Duration.ofMinutes(5), 0), LoginFailureTracker.disabled(), 1, 64);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    // 低迭代次数、不启动会话清理线程；散列线程池在 tearDown 中关闭
+    private UserService newService(InMemoryUserRepository repository, UserIdTable userIds, CredentialCache cache,
+                                   LoginFailureTracker failures, int threads, int queueCapacity) {
+        return newService(repository, userIds, cache, failures, new PasswordHasher(1_000), threads, queueCapacity);
+    }
+
+    private UserService newService(InMemoryUserRepository repository, UserIdTable userIds, CredentialCache cache,
+                                   LoginFailureTracker failures, PasswordHasher hasher, int threads,
+                                   int queueCapacity) {
+        PasswordHashingService hashing = new PasswordHashingService(hasher, threads, queueCapacity,
+                Duration.ofSeconds(30));
+        resources.add(hashing);
+        return new UserService(repository, userIds,
+                new StoreSessionManager(TestSessionStores.withoutSweeper(), new RandomSessionIdGenerator()),
+                hashing, cache, RolePermissions.defaults(), failures);
     }
 
     @Test
@@ -32,6 +86,114 @@ class UserServiceTest {
         assertFalse(userService.register(user2));
     }
 
+    @Test
+    void testRegister_leavesUsernameCheckToSaveIfAbsent() {
+        AtomicInteger lookups = new AtomicInteger();
+        InMemoryUserRepository repository = new InMemoryUserRepository() {
+            @Override
+            public boolean existsByUsername(String username) {
+                lookups.incrementAndGet();
+                return super.existsByUsername(username);
+            }
+        };
+        UserService service = newService(repository, new UserIdTable(),
+                new CredentialCache(Duration.ofMinutes(5), 0), LoginFailureTracker.disabled(), 1, 64);
+        assertTrue(service.register(new User("alice", "password123", "alice@example.com")));
+        assertFalse(service.register(new User("alice", "password456", "other@example.com")));
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    void testRegister_emailTaken() {
+        assertTrue(userService.register(new User("user1", "password123", "shared@example.com")));
+        assertFalse(userService.register(new User("user2", "password456", "Shared@Example.com")));
+        assertTrue(userService.isEmailTaken("SHARED@example.com"));
+        assertNull(userService.getUserByUsername("user2"));
+        assertEquals(UserService.RegistrationResult.EMAIL_TAKEN,
+                userService.registerAccount(new User("user3", "password789", "SHARED@example.com")));
+        assertEquals(UserService.RegistrationResult.USERNAME_TAKEN,
+                userService.registerAccount(new User("user1", "password789", "other@example.com")));
+    }
+
+    @Test
+    void testRegister_rejectsUsernameOverByteLimit() {
+        // 85 个三字节字符正好 255 字节，再多一个即超出签名令牌能容纳的长度
+        String longest = "名".repeat(85);
+        assertTrue(userService.register(new User(longest, "password123", "a@example.com")));
+        assertNotNull(userService.login(longest, "password123"));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.register(new User(longest + "名", "password123", "b@example.com")));
+        String hash = new PasswordHasher(1_000).hash("password123");
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.registerHashed(new User("a".repeat(256), hash, "c@example.com")));
+        assertFalse(userService.isEmailTaken("b@example.com"));
+    }
+
+    @Test
+    void testRegister_rejectsFieldsWiderThanStoreColumns() {
+        String longEmail = "a".repeat(User.MAX_EMAIL_LENGTH) + "@example.com";
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.register(new User("alice", "password123", longEmail)));
+        String hash = new PasswordHasher(1_000).hash("password123");
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.registerHashed(new User("alice", hash, longEmail)));
+        User withRoles = new User("bob", hash, "bob@example.com");
+        withRoles.setRoles(Set.of(new Role("r".repeat(User.MAX_ROLES_LENGTH + 1))));
+        assertThrows(IllegalArgumentException.class, () -> userService.registerHashed(withRoles));
+        assertFalse(userService.isUsernameTaken("alice"));
+        assertFalse(userService.isUsernameTaken("bob"));
+
+        assertTrue(userService.register(new User("carol", "password123", "carol@example.com")));
+        userService.defineRole("r".repeat(User.MAX_ROLES_LENGTH + 1), List.of(), List.of());
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.assignRoles("carol", Set.of("r".repeat(User.MAX_ROLES_LENGTH + 1))));
+        assertEquals(Set.of(), userService.getUserByUsername("carol").getRoles());
+    }
+
+    @Test
+    void testReleaseUserId_keptWhileSessionsReferenceIt() {
+        userService.register(new User("testuser", "password123", "test@example.com"));
+        String sessionId = userService.login("testuser", "password123");
+        assertFalse(userService.releaseUserId("testuser"));
+        assertEquals("testuser", userService.getUsernameBySessionId(sessionId));
+
+        userService.logout(sessionId);
+        assertTrue(userService.releaseUserId("testuser"));
+        // 再次登录时重新分配ID
+        String again = userService.login("testuser", "password123");
+        assertEquals("testuser", userService.getUsernameBySessionId(again));
+    }
+
+    @Test
+    void testLoginByEmail() {
+        userService.register(new User("testuser", "password123", "Test@Example.com"));
+
+        String sessionId = userService.loginByEmail("test@example.com", "password123");
+        assertNotNull(sessionId);
+        assertEquals("testuser", userService.getUsernameBySessionId(sessionId));
+        assertNull(userService.loginByEmail("test@example.com", "wrongpassword"));
+        assertNull(userService.loginByEmail("nobody@example.com", "password123"));
+    }
+
+    @Test
+    void testResolvePrincipal() {
+        userService.register(new User("testuser", "password123", "test@example.com"));
+        String sessionId = userService.login("testuser", "password123");
+
+        SessionPrincipal principal = userService.resolvePrincipal(sessionId);
+        assertNotNull(principal);
+        assertEquals(sessionId, principal.sessionId());
+        assertEquals("testuser", principal.username());
+        assertEquals(userService.getUserByUsername("testuser").getId(), principal.userId());
+        assertEquals(userService.permissionsOf(userService.getUserByUsername("testuser")),
+                userService.permissionsOf(principal));
+
+        userService.logout(sessionId);
+        assertNull(userService.resolvePrincipal(sessionId));
+        assertNull(userService.resolvePrincipal(null));
+        assertNull(userService.resolvePrincipal("invalid-session"));
+    }
+
     @Test
     void testLogin_success() {
         User user = new User("testuser", "password123", "test@example.com");
@@ -39,7 +201,19 @@ class UserServiceTest {
         
         String sessionId = userService.login("testuser", "password123");
         assertNotNull(sessionId);
-        assertTrue(sessionId.startsWith("session-"));
+        assertEquals(22, sessionId.length());
+    }
+
+    @Test
+    void testLogin_repeatedLoginsGetDistinctSessions() {
+        User user = new User("testuser", "password123", "test@example.com");
+        userService.register(user);
+
+        String first = userService.login("testuser", "password123");
+        String second = userService.login("testuser", "password123");
+        assertNotEquals(first, second);
+        assertTrue(userService.isSessionValid(first));
+        assertTrue(userService.isSessionValid(second));
     }
 
     @Test
@@ -70,6 +244,21 @@ class UserServiceTest {
         assertFalse(userService.isSessionValid(sessionId));
     }
 
+    @Test
+    void testGetUserBySessionId() {
+        User user = new User("testuser", "password123", "test@example.com");
+        userService.register(user);
+        assertNotEquals(User.NO_ID, user.getId());
+
+        String sessionId = userService.login("testuser", "password123");
+        assertSame(user, userService.getUserBySessionId(sessionId));
+        assertNull(userService.getUserBySessionId("invalid-session"));
+        assertNull(userService.getUserBySessionId(null));
+
+        userService.logout(sessionId);
+        assertNull(userService.getUserBySessionId(sessionId));
+    }
+
     @Test
     void testGetUserByUsername() {
         User user = new User("testuser", "password123", "test@example.com");
@@ -79,6 +268,198 @@ class UserServiceTest {
         assertNotNull(retrievedUser);
         assertEquals("testuser", retrievedUser.getUsername());
         assertEquals("test@example.com", retrievedUser.getEmail());
-        assertEquals("password123", retrievedUser.getPassword());
+        // 密码以散列形式存储
+        assertNotEquals("password123", retrievedUser.getPassword());
+        assertTrue(retrievedUser.getPassword().startsWith("pbkdf2-sha256$"));
+    }
+
+    @Test
+    void testLogin_upgradesLegacyPlaintextPassword() {
+        UserService migrating = newService(new InMemoryUserRepository(), new UserIdTable(),
+                new CredentialCache(Duration.ofMinutes(5), 0), LoginFailureTracker.disabled(),
+                new PasswordHasher(1_000, true), 1, 64);
+        migrating.register(new User("testuser", "password123", "test@example.com"));
+        // 模拟改造前以明文存储的密码
+        migrating.getUserByUsername("testuser").setPassword("password123");
+
+        assertNotNull(migrating.login("testuser", "password123"));
+        assertTrue(migrating.getUserByUsername("testuser").getPassword().startsWith("pbkdf2-sha256$"));
+        assertNotNull(migrating.login("testuser", "password123"));
+    }
+
+    @Test
+    void testLogin_rejectsPlaintextPasswordOutsideMigration() {
+        userService.register(new User("testuser", "password123", "test@example.com"));
+        userService.getUserByUsername("testuser").setPassword("password123");
+
+        assertNull(userService.login("testuser", "password123"));
+    }
+
+    @Test
+    void testLogin_credentialCacheSkipsRepeatedHashing() {
+        CredentialCache cache = new CredentialCache(Duration.ofMinutes(5), 100);
+        UserService cachedService = newService(new InMemoryUserRepository(), new UserIdTable(), cache,
+                LoginFailureTracker.disabled(), 1, 4);
+        cachedService.register(new User("testuser", "password123", "test@example.com"));
+
+        assertNotNull(cachedService.login("testuser", "password123"));
+        assertNotNull(cachedService.login("testuser", "password123"));
+        assertNull(cachedService.login("testuser", "wrongpassword"));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testLogoutAll() {
+        userService.register(new User("testuser", "password123", "test@example.com"));
+        userService.register(new User("other", "password123", "other@example.com"));
+        String first = userService.login("testuser", "password123");
+        String second = userService.login("testuser", "password123");
+        String other = userService.login("other", "password123");
+
+        assertEquals(2, userService.logoutAll(second));
+        assertFalse(userService.isSessionValid(first));
+        assertFalse(userService.isSessionValid(second));
+        assertTrue(userService.isSessionValid(other));
+        assertEquals(-1, userService.logoutAll(second));
+    }
+
+    @Test
+    void testLogin_lockedAfterRepeatedFailures() {
+        LoginFailureTracker failures = new LoginFailureTracker(3, Duration.ofMinutes(15), Duration.ofMinutes(15),
+                100, 1024);
+        UserService lockingService = newService(new InMemoryUserRepository(), new UserIdTable(),
+                new CredentialCache(Duration.ofMinutes(5), 0), failures, 1, 4);
+        lockingService.register(new User("testuser", "password123", "test@example.com"));
+
+        // 成功登录清除之前的失败记录
+        assertNull(lockingService.login("testuser", "wrong"));
+        assertNull(lockingService.login("testuser", "wrong"));
+        assertNotNull(lockingService.login("testuser", "password123"));
+
+        // 用户名和邮箱登录的失败计入同一账号，锁定后正确的密码也被拒绝
+        assertNull(lockingService.login("testuser", "wrong"));
+        assertNull(lockingService.loginByEmail("TEST@example.com", "wrong"));
+        assertNull(lockingService.login("testuser", "wrong"));
+        AccountLockedException locked = assertThrows(AccountLockedException.class,
+                () -> lockingService.loginByEmail("test@example.com", "password123"));
+        assertTrue(locked.getRetryAfterMillis() > Duration.ofMinutes(14).toMillis());
+
+        // 不存在的用户名同样会被锁定，不能据此区分账号是否存在
+        for (int i = 0; i < 3; i++) {
+            assertNull(lockingService.login("ghost", "password123"));
+        }
+        assertThrows(AccountLockedException.class, () -> lockingService.login("ghost", "password123"));
+        assertEquals(2, failures.getLockouts());
+    }
+
+    @Test
+    void testRegister_concurrentDuplicatesOnlyOneWins() throws Exception {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        UserIdTable userIds = new UserIdTable();
+        UserService concurrentService = newService(repository, userIds, new CredentialCache(Duration.ofMinutes(5), 100),
+                LoginFailureTracker.disabled(), 4, 1_000);
+        int names = 50;
+        int attempts = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        // 数百个虚拟线程同时注册 50 个用户名，每个用户名只能有一次注册成功
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < attempts; i++) {
+                String username = "user" + (i % names);
+                String password = "password" + i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return concurrentService.register(new User(username, password, username + "@example.com"));
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+            assertEquals(names, succeeded);
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < names; i++) {
+            User user = repository.findByUsername("user" + i);
+            assertNotNull(user);
+            assertSame(user, userIds.get(user.getId()));
+            assertTrue(ids.add(user.getId()));
+        }
+    }
+
+    @Test
+    void testSearchUsernames_pagesWithCursor() {
+        for (String name : new String[]{"alice", "alex", "albert", "bob"}) {
+            userService.register(new User(name, "password123", name + "@example.com"));
+        }
+        UserSearchPage first = userService.searchUsernames("al", null, 2);
+        assertEquals(List.of("albert", "alex"), first.getUsernames());
+        assertEquals("alex", first.getNext());
+        UserSearchPage second = userService.searchUsernames("al", first.getNext(), 2);
+        assertEquals(List.of("alice"), second.getUsernames());
+        assertNull(second.getNext());
+        // 页大小被限制在 [1, MAX_SEARCH_LIMIT]
+        assertEquals(1, userService.searchUsernames("al", null, 0).getUsernames().size());
+    }
+
+    @Test
+    void testAssignRoles_updatesPermissionsOfActiveSessions() {
+        userService.register(new User("alice", "password123", "alice@example.com"));
+        String sessionId = userService.login("alice", "password123");
+        assertEquals(Permission.USER_SEARCH.bit(), userService.getUserBySessionId(sessionId).getPermissions());
+
+        assertTrue(userService.assignRoles("alice", Set.of("admin")));
+        assertEquals(RolePermissions.ALL, userService.getUserBySessionId(sessionId).getPermissions());
+        assertEquals(Set.of(new Role("admin")), userService.getUserByUsername("alice").getRoles());
+
+        assertFalse(userService.assignRoles("nobody", Set.of("admin")));
+        assertThrows(IllegalArgumentException.class, () -> userService.assignRoles("alice", Set.of("ghost")));
+    }
+
+    @Test
+    void testDefineRole_appliesToActiveSessions() {
+        userService.register(new User("alice", "password123", "alice@example.com"));
+        String sessionId = userService.login("alice", "password123");
+        User user = userService.getUserBySessionId(sessionId);
+        assertFalse(RolePermissions.allows(userService.permissionsOf(user), Permission.ROLE_MANAGE.bit()));
+
+        userService.defineRole("user", List.of(Permission.USER_SEARCH, Permission.ROLE_MANAGE), List.of());
+        assertTrue(RolePermissions.allows(userService.permissionsOf(user), Permission.ROLE_MANAGE.bit()));
+    }
+
+    @Test
+    void testBootstrapAdmins_persistsRoleOnExistingAccountsOnly() {
+        userService.register(new User("alice", "password123", "alice@example.com"));
+        assertEquals(List.of("alice"), userService.bootstrapAdmins(List.of("alice", "root")));
+        assertEquals(Set.of(new Role("admin")), userService.getUserByUsername("alice").getRoles());
+        // 已有管理员角色时不重复授予
+        assertEquals(List.of(), userService.bootstrapAdmins(List.of("alice", "root")));
+
+        // 尚不存在的管理员用户名不能被注册，注册同名账号不会获得任何权限
+        assertFalse(userService.register(new User("root", "password123", "root@example.com")));
+        assertFalse(userService.isUsernameTaken("root"));
+    }
+
+    @Test
+    void testRegisterHashed_rejectsReservedAdminUsername() {
+        userService.bootstrapAdmins(List.of("root"));
+        // 导入和恢复同样不能占用保留的管理员用户名
+        String hash = new PasswordHasher(1_000).hash("password123");
+        assertFalse(userService.registerHashed(new User("root", hash, "root@example.com")));
+        assertFalse(userService.isUsernameTaken("root"));
+        assertTrue(userService.registerHashed(new User("alice", hash, "alice@example.com")));
+    }
+
+    @Test
+    void testRegisterHashed_rejectsPlaintextAndExcessiveIterations() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.registerHashed(new User("alice", "password123", "alice@example.com")));
+        String expensive = new PasswordHasher(1_000 * PasswordHasher.MAX_ITERATIONS_FACTOR + 1).hash("password123");
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.registerHashed(new User("alice", expensive, "alice@example.com")));
+        assertFalse(userService.isUsernameTaken("alice"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,181 @@
+package cn.ianzhang.authapi.service;
+
+import cn.ianzhang.authapi.model.Role;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.repository.InMemoryUserRepository;
+import cn.ianzhang.authapi.repository.UserIdTable;
+import cn.ianzhang.authapi.security.CredentialCache;
+import cn.ianzhang.authapi.security.PasswordHasher;
+import cn.ianzhang.authapi.security.PasswordHashingService;
+import cn.ianzhang.authapi.session.RandomSessionIdGenerator;
+import cn.ianzhang.authapi.session.SessionStore;
+import cn.ianzhang.authapi.session.StoreSessionManager;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class UserSnapshotServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PasswordHashingService passwordHashing =
+            new PasswordHashingService(new PasswordHasher(1_000), 1, 4, Duration.ofSeconds(5));
+    private UserService userService;
+    private UserSnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() {
+        userService = newUserService();
+        snapshotService = new UserSnapshotService(userService, objectMapper, "export-secret");
+        for (int i = 0; i < 100; i++) {
+            userService.register(new User("user" + i, "password" + i, "user" + i + "@example.com"));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashing.close();
+    }
+
+    private UserService newUserService() {
+        return new UserService(
+                new InMemoryUserRepository(),
+                new UserIdTable(),
+                new StoreSessionManager(
+                        new SessionStore(Duration.ofMinutes(30), Duration.ofHours(12), Duration.ofSeconds(1)),
+                        new RandomSessionIdGenerator()),
+                passwordHashing,
+                new CredentialCache(Duration.ofMinutes(5), 0));
+    }
+
+    @Test
+    void ndjsonExportHasOneLinePerUser() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(100, snapshotService.exportNdjson(out));
+
+        Set<String> usernames = new HashSet<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode node = objectMapper.readTree(line);
+            usernames.add(node.get("username").asText());
+            assertEquals(userService.getUserByUsername(node.get("username").asText()).getPassword(),
+                    node.get("password").asText());
+        }
+        assertEquals(100, usernames.size());
+    }
+
+    @Test
+    void snapshotRestoresIntoEmptyStore() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(100, snapshotService.writeSnapshot(out));
+
+        UserService restored = newUserService();
+        ImportSummary summary = new UserSnapshotService(restored, objectMapper, "")
+                .restoreSnapshot(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(100, summary.getCreated());
+        // 恢复的是密码散列，原密码依然可以登录
+        assertNotNull(restored.login("user42", "password42"));
+
+        // 再次恢复时已存在的用户全部跳过
+        summary = new UserSnapshotService(restored, objectMapper, "")
+                .restoreSnapshot(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(0, summary.getCreated());
+        assertEquals(100, summary.getExists());
+    }
+
+    @Test
+    void restoreDropsRolesAndRejectsUnacceptableHashes() throws IOException {
+        assertTrue(userService.assignRoles("user1", Set.of("admin")));
+        userService.getUserByUsername("user2").setPassword("plaintext");
+        // 签名会话令牌容纳不下的用户名
+        userService.getUserByUsername("user3").setUsername("u".repeat(User.MAX_USERNAME_BYTES + 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshotService.writeSnapshot(out);
+
+        UserService restored = newUserService();
+        ImportSummary summary = new UserSnapshotService(restored, objectMapper, "")
+                .restoreSnapshot(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(98, summary.getCreated());
+        assertEquals(2, summary.getInvalid());
+        // 持有导入令牌不能借恢复获得管理员角色，被丢弃的角色计入统计
+        assertEquals(Set.of(), restored.getUserByUsername("user1").getRoles());
+        assertEquals(1, summary.getRolesDropped());
+        assertNull(restored.getUserByUsername("user2"));
+        assertFalse(restored.isEmailTaken("user3@example.com"));
+    }
+
+    @Test
+    void restoreKeepsDefinedRolesWhenAllowed() throws IOException {
+        assertTrue(userService.assignRoles("user1", Set.of("admin")));
+        userService.getUserByUsername("user2").setRoles(Set.of(new Role("admin"), new Role("retired")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshotService.writeSnapshot(out);
+
+        UserService restored = newUserService();
+        ImportSummary summary = new UserSnapshotService(restored, objectMapper, "")
+                .restoreSnapshot(new ByteArrayInputStream(out.toByteArray()), true);
+        assertEquals(100, summary.getCreated());
+        assertEquals(Set.of(new Role("admin")), restored.getUserByUsername("user1").getRoles());
+        // 未定义的角色仍被丢弃
+        assertEquals(Set.of(new Role("admin")), restored.getUserByUsername("user2").getRoles());
+        assertEquals(1, summary.getRolesDropped());
+    }
+
+    @Test
+    void truncatedOrForeignSnapshotIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshotService.writeSnapshot(out);
+        byte[] snapshot = out.toByteArray();
+
+        UserSnapshotService target = new UserSnapshotService(newUserService(), objectMapper, "");
+        assertThrows(IllegalArgumentException.class, () -> target.restoreSnapshot(
+                new ByteArrayInputStream(Arrays.copyOf(snapshot, snapshot.length - 10))));
+        assertThrows(IllegalArgumentException.class, () -> target.restoreSnapshot(
+                new ByteArrayInputStream("{\"username\":\"x\"}".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void exportWritesThroughBoundedBuffer() throws IOException {
+        String hash = new PasswordHasher(1_000).hash("password");
+        for (int i = 100; i < 5_000; i++) {
+            userService.registerHashed(new User("user" + i, hash, "user" + i + "@example.com"));
+        }
+        int[] largestWrite = new int[1];
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                largestWrite[0] = Math.max(largestWrite[0], 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                largestWrite[0] = Math.max(largestWrite[0], len);
+            }
+        };
+        assertEquals(5_000, snapshotService.writeSnapshot(out));
+        // 输出在写出过程中分块推送，而不是最后一次性写出整个快照
+        assertTrue(largestWrite[0] <= 16 * 1024, "largest write: " + largestWrite[0]);
+    }
+
+    @Test
+    void exportRequiresItsOwnToken() {
+        assertTrue(snapshotService.isExportAuthorized("export-secret"));
+        assertFalse(snapshotService.isExportAuthorized("secret"));
+        assertFalse(snapshotService.isExportAuthorized(null));
+        assertFalse(new UserSnapshotService(userService, objectMapper, "").isExportAuthorized(""));
+    }
+}
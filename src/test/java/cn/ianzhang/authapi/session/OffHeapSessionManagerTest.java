@@ -0,0 +1,84 @@
+package cn.ianzhang.authapi.session;
+
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class OffHeapSessionManagerTest {
+
+    private MutableClock clock;
+    private OffHeapSessionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(1_000_000L);
+        manager = new OffHeapSessionManager(Duration.ofMinutes(30), Duration.ofHours(2), Duration.ofSeconds(1),
+                4, 64, clock, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    void createResolveInvalidate() {
+        String token = manager.create(7, "alice");
+        assertEquals(RandomSessionIdGenerator.TOKEN_LENGTH, token.length());
+        assertEquals(7, manager.resolve(token));
+        manager.invalidate(token);
+        assertEquals(SessionManager.NO_USER, manager.resolve(token));
+    }
+
+    @Test
+    void invalidateAllRemovesOnlyThatUsersSessions() {
+        String[] alice = new String[50];
+        for (int i = 0; i < alice.length; i++) {
+            alice[i] = manager.create(7, "alice");
+            manager.create(8, "bob");
+        }
+        assertEquals(50, manager.invalidateAll(7, "alice"));
+        for (String token : alice) {
+            assertEquals(SessionManager.NO_USER, manager.resolve(token));
+        }
+        assertEquals(50, manager.size());
+        assertEquals(0, manager.invalidateAll(7, "alice"));
+    }
+
+    @Test
+    void malformedTokensResolveToNoUser() {
+        assertEquals(SessionManager.NO_USER, manager.resolve(null));
+        assertEquals(SessionManager.NO_USER, manager.resolve("session-123-alice"));
+        assertDoesNotThrow(() -> manager.invalidate("not a token"));
+    }
+
+    @Test
+    void idleAndAbsoluteExpiry() {
+        String idle = manager.create(1, "alice");
+        String active = manager.create(2, "bob");
+        for (int i = 0; i < 3; i++) {
+            clock.advance(Duration.ofMinutes(20).toMillis());
+            assertEquals(2, manager.resolve(active));
+        }
+        assertEquals(SessionManager.NO_USER, manager.resolve(idle));
+        clock.advance(Duration.ofMinutes(60).toMillis());
+        assertEquals(SessionManager.NO_USER, manager.resolve(active));
+    }
+
+    @Test
+    void sweepRemovesExpiredSessions() {
+        for (int i = 0; i < 100; i++) {
+            manager.create(i, "user" + i);
+        }
+        clock.advance(Duration.ofMinutes(30).toMillis());
+        assertEquals(100, manager.sweep());
+        assertEquals(0, manager.size());
+    }
+}
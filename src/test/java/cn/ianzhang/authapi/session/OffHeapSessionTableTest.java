@@ -0,0 +1,134 @@
+package cn.ianzhang.authapi.session;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class OffHeapSessionTableTest {
+
+    private static final long IDLE = 30 * 60_000L;
+    private static final long NOW = 1_000_000L;
+    private static final long ABSOLUTE = NOW + 12 * 3_600_000L;
+
+    private OffHeapSessionTable table;
+
+    @BeforeEach
+    void setUp() {
+        table = new OffHeapSessionTable(4, 64, IDLE, 1000);
+    }
+
+    @Test
+    void putGetRemove() {
+        assertTrue(table.put(1L, 2L, 42, NOW, ABSOLUTE, true));
+        assertEquals(42, table.get(1L, 2L, NOW));
+        assertEquals(OffHeapSessionTable.NOT_FOUND, table.get(1L, 3L, NOW));
+        assertTrue(table.remove(1L, 2L));
+        assertFalse(table.remove(1L, 2L));
+        assertEquals(OffHeapSessionTable.NOT_FOUND, table.get(1L, 2L, NOW));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void putIfAbsentKeepsLiveEntry() {
+        table.put(1L, 2L, 42, NOW, ABSOLUTE, true);
+        assertFalse(table.put(1L, 2L, 43, NOW, ABSOLUTE, true));
+        assertEquals(42, table.get(1L, 2L, NOW));
+        assertTrue(table.put(1L, 2L, 43, NOW, ABSOLUTE, false));
+        assertEquals(43, table.get(1L, 2L, NOW));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void idleExpiryAndTouch() {
+        table.put(1L, 2L, 42, NOW, ABSOLUTE, true);
+        assertEquals(42, table.get(1L, 2L, NOW + IDLE - 1));
+        // 上一次读取刷新了访问时间
+        assertEquals(42, table.get(1L, 2L, NOW + 2 * IDLE - 2));
+        assertEquals(OffHeapSessionTable.NOT_FOUND, table.get(1L, 2L, NOW + 3 * IDLE));
+    }
+
+    @Test
+    void absoluteExpiryWinsOverActivity() {
+        table.put(1L, 2L, 42, NOW, NOW + 5000, true);
+        assertEquals(42, table.get(1L, 2L, NOW + 4000));
+        assertEquals(OffHeapSessionTable.NOT_FOUND, table.get(1L, 2L, NOW + 5000));
+    }
+
+    @Test
+    void expiredEntryCanBeReplacedByPutIfAbsent() {
+        table.put(1L, 2L, 42, NOW, NOW + 5000, true);
+        assertTrue(table.put(1L, 2L, 43, NOW + 5000, ABSOLUTE, true));
+        assertEquals(43, table.get(1L, 2L, NOW + 5000));
+    }
+
+    @Test
+    void removeExpiredKeepsLiveEntriesReachable() {
+        for (int i = 0; i < 2000; i++) {
+            long absolute = i % 2 == 0 ? NOW + 5000 : ABSOLUTE;
+            table.put(i, ~i, i, NOW, absolute, true);
+        }
+        assertEquals(1000, table.removeExpired(NOW + 5000));
+        assertEquals(1000, table.size());
+        for (int i = 0; i < 2000; i++) {
+            int expected = i % 2 == 0 ? OffHeapSessionTable.NOT_FOUND : i;
+            assertEquals(expected, table.get(i, ~i, NOW + 5000));
+        }
+    }
+
+    @Test
+    void growsAndSurvivesRandomChurn() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<long[]> live = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long[] key = {random.nextLong(), random.nextLong()};
+            table.put(key[0], key[1], i, NOW, ABSOLUTE, true);
+            live.add(key);
+            // 随机删除一部分，覆盖向后移位删除的各种回绕情况
+            if (i % 3 == 0) {
+                long[] victim = live.remove(random.nextInt(live.size()));
+                assertTrue(table.remove(victim[0], victim[1]));
+            }
+        }
+        assertEquals(live.size(), table.size());
+        for (long[] key : live) {
+            assertNotEquals(OffHeapSessionTable.NOT_FOUND, table.get(key[0], key[1], NOW));
+        }
+        assertTrue(table.offHeapBytes() >= (long) live.size() * OffHeapSessionTable.ENTRY_BYTES);
+    }
+
+    @Test
+    void concurrentReadersAndWriters() throws Exception {
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        long hi = ((long) thread << 32) | i;
+                        table.put(hi, i, thread, NOW, ABSOLUTE, true);
+                        assertEquals(thread, table.get(hi, i, NOW));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(threads * perThread, table.size());
+    }
+}
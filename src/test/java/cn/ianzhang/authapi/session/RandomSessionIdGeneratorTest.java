@@ -0,0 +1,76 @@
+package cn.ianzhang.authapi.session;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class RandomSessionIdGeneratorTest {
+
+    private final RandomSessionIdGenerator generator = new RandomSessionIdGenerator();
+
+    @Test
+    void generatesFixedLengthUrlSafeTokens() {
+        for (int i = 0; i < 1000; i++) {
+            String token = generator.generate();
+            assertEquals(RandomSessionIdGenerator.TOKEN_LENGTH, token.length());
+            assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        }
+    }
+
+    @Test
+    void encodingMatchesUrlSafeBase64() {
+        long hi = 0x0123456789abcdefL;
+        long lo = 0xfedcba9876543210L;
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (hi >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (lo >>> (56 - 8 * i));
+        }
+        String expected = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        assertEquals(expected, RandomSessionIdGenerator.encode(hi, lo));
+    }
+
+    @Test
+    void decodeRoundTrips() {
+        long hi = 0x0123456789abcdefL;
+        long lo = 0xfedcba9876543210L;
+        String token = RandomSessionIdGenerator.encode(hi, lo);
+        assertTrue(RandomSessionIdGenerator.isWellFormed(token));
+        assertEquals(hi, RandomSessionIdGenerator.decodeHigh(token));
+        assertEquals(lo, RandomSessionIdGenerator.decodeLow(token));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertFalse(RandomSessionIdGenerator.isWellFormed(null));
+        assertFalse(RandomSessionIdGenerator.isWellFormed("short"));
+        assertFalse(RandomSessionIdGenerator.isWellFormed("session-1234567890-abc"));
+        assertFalse(RandomSessionIdGenerator.isWellFormed("AAAAAAAAAAAAAAAAAAAAAB"));
+        assertTrue(RandomSessionIdGenerator.isWellFormed(generator.generate()));
+    }
+
+    @Test
+    void tokensAreUniqueAcrossThreads() throws Exception {
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    tokens.add(generator.generate());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(80_000, tokens.size());
+    }
+}
@@ -0,0 +1,55 @@
+package cn.ianzhang.authapi.session;
+
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class RevocationFilterTest {
+
+    private static final long ROTATION = 60_000;
+
+    private final MutableClock clock = new MutableClock(1_000_000L);
+    private final RevocationFilter filter = new RevocationFilter(10_000, ROTATION, clock);
+
+    @Test
+    void addedEntriesAreFound() {
+        SplittableRandom random = new SplittableRandom(1);
+        long[][] keys = new long[10_000][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new long[]{random.nextLong(), random.nextLong()};
+            filter.add(keys[i][0], keys[i][1]);
+        }
+        for (long[] key : keys) {
+            assertTrue(filter.mightContain(key[0], key[1]));
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysLowAtCapacity() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(random.nextLong(), random.nextLong());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(random.nextLong(), random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void entriesSurviveOneRotationAndExpireAfterTwo() {
+        filter.add(1L, 2L);
+        clock.advance(ROTATION);
+        assertTrue(filter.mightContain(1L, 2L));
+        clock.advance(ROTATION);
+        assertFalse(filter.mightContain(1L, 2L));
+    }
+}
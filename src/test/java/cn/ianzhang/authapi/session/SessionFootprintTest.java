@@ -0,0 +1,40 @@
+package cn.ianzhang.authapi.session;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 用 JOL 对比百万会话下 ConcurrentHashMap<String, String> 与堆外会话表的内存占用
+@Disabled
+class SessionFootprintTest {
+
+    private static final int SESSIONS = 1_000_000;
+
+    @Test
+    void offHeapTableIsSmallerThanStringMap() {
+        RandomSessionIdGenerator generator = new RandomSessionIdGenerator();
+        ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
+        OffHeapSessionTable table = new OffHeapSessionTable(64, SESSIONS, 30 * 60_000L, 1000);
+        for (int i = 0; i < SESSIONS; i++) {
+            String token = generator.generate();
+            map.put(token, "user" + (i % 10_000));
+            table.put(RandomSessionIdGenerator.decodeHigh(token), RandomSessionIdGenerator.decodeLow(token),
+                    i % 10_000, 0, Long.MAX_VALUE, false);
+        }
+
+        long mapBytes = GraphLayout.parseInstance(map).totalSize();
+        long tableHeapBytes = GraphLayout.parseInstance(table).totalSize();
+        long tableBytes = tableHeapBytes + table.offHeapBytes();
+
+        assertEquals(SESSIONS, table.size());
+        assertTrue(tableHeapBytes < 64 * 1024, "heap part should not grow with session count");
+        // 槽位数取 2 的幂且装载因子不超过 3/4，每个会话实际占 40 字节的 1.33 到 2.67 倍；
+        // ConcurrentHashMap 每个会话约 150 字节（令牌字符串、节点和桶数组）
+        assertTrue(tableBytes <= (long) SESSIONS * OffHeapSessionTable.ENTRY_BYTES * 8 / 3 + tableHeapBytes);
+        assertTrue(tableBytes * 3 < mapBytes * 2, "table " + tableBytes + " map " + mapBytes);
+    }
+}
@@ -0,0 +1,57 @@
+package cn.ianzhang.authapi.session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// 会话ID生成吞吐量对比：旧的 "session-时间戳-用户名" 拼接方式 vs RandomSessionIdGenerator。
+// 单线程结果即每核吞吐；多线程结果除以核数可看出是否存在争用。
+// 运行：mvn -Pbenchmark -DskipTests test -Dbenchmark.include=SessionIdGeneratorBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionIdGeneratorBenchmark {
+
+    private final RandomSessionIdGenerator generator = new RandomSessionIdGenerator();
+    private final String username = "benchmark-user";
+
+    @Benchmark
+    @Threads(1)
+    public String legacySingleThread() {
+        return legacy();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String legacyAllCores() {
+        return legacy();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String randomSingleThread() {
+        return generator.generate();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String randomAllCores() {
+        return generator.generate();
+    }
+
+    private String legacy() {
+        return "session-" + System.currentTimeMillis() + "-" + username;
+    }
+}
@@ -0,0 +1,327 @@
+package cn.ianzhang.authapi.session;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@Disabled
+class SessionJournalTest {
+
+    private static final int USER_ID = 7;
+
+    // 回放时已被删除的用户
+    private final Set<String> deletedUsers = new HashSet<>();
+    // 回放时每个用户名被换算的次数
+    private final Map<String, AtomicInteger> resolutions = new ConcurrentHashMap<>();
+    private Path dir;
+    private Path file;
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("session-journal");
+        file = dir.resolve("sessions.journal");
+        clock = new MutableClock(1_000_000L);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private SessionStore newStore() {
+        return new SessionStore(Duration.ofMinutes(30), Duration.ofHours(2), Duration.ofSeconds(1), clock, false);
+    }
+
+    private SessionJournal newJournal(SessionStore store, long compactionThreshold) throws IOException {
+        SessionJournal journal = new SessionJournal(file, store,
+                username -> {
+                    resolutions.computeIfAbsent(username, name -> new AtomicInteger()).incrementAndGet();
+                    return deletedUsers.contains(username) ? -1 : USER_ID;
+                },
+                Duration.ofHours(1), compactionThreshold, clock);
+        journal.replay();
+        store.addListener(journal);
+        return journal;
+    }
+
+    @Test
+    void sessionsSurviveRestart() throws IOException {
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        store.put("s1", USER_ID, "alice");
+        store.put("s2", USER_ID, "bob");
+        store.put("s3", USER_ID, "carol");
+        store.remove("s2");
+        journal.close();
+
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertEquals("alice", restarted.getUsername("s1"));
+        assertFalse(restarted.contains("s2"));
+        assertEquals("carol", restarted.getUsername("s3"));
+        replayed.close();
+    }
+
+    @Test
+    void restoredSessionsCarryResolvedUserId() throws IOException {
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        store.put("s1", USER_ID, "alice");
+        store.put("s2", USER_ID, "bob");
+        journal.close();
+
+        deletedUsers.add("bob");
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertEquals(USER_ID, restarted.get("s1").getUserId());
+        assertFalse(restarted.contains("s2"));
+        replayed.close();
+    }
+
+    @Test
+    void eachUsernameIsResolvedOnceOnReplay() throws IOException {
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        for (int i = 0; i < 50; i++) {
+            store.put("a" + i, USER_ID, "alice");
+            store.put("b" + i, USER_ID, "bob");
+        }
+        journal.close();
+
+        deletedUsers.add("bob");
+        resolutions.clear();
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertEquals(1, resolutions.get("alice").get());
+        assertEquals(1, resolutions.get("bob").get());
+        assertEquals(50, restarted.size());
+        assertEquals(50, replayed.getDroppedOnReplay());
+        replayed.close();
+    }
+
+    // 内存用户存储重启后为空，所有用户都换算不到，日志中的会话全部被丢弃
+    @Test
+    void allSessionsAreDroppedWhenNoUserSurvivesRestart() throws IOException {
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        store.put("s1", USER_ID, "alice");
+        store.put("s2", USER_ID, "bob");
+        journal.close();
+
+        deletedUsers.addAll(Set.of("alice", "bob"));
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertEquals(0, restarted.size());
+        assertEquals(2, replayed.getDroppedOnReplay());
+        replayed.close();
+    }
+
+    @Test
+    void expiredSessionsAreNotRestored() throws IOException {
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        store.put("s1", USER_ID, "alice");
+        journal.close();
+
+        clock.advance(Duration.ofHours(2).toMillis());
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertFalse(restarted.contains("s1"));
+        replayed.close();
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        store.put("s1", USER_ID, "alice");
+        journal.close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertEquals("alice", restarted.getUsername("s1"));
+        restarted.put("s2", USER_ID, "bob");
+        replayed.close();
+        // 格式头加两条会话记录
+        assertEquals(3 * SessionJournal.RECORD_SIZE, Files.size(file));
+    }
+
+    @Test
+    void corruptedRecordIsSkipped() throws IOException {
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        store.put("s1", USER_ID, "alice");
+        store.put("s2", USER_ID, "bob");
+        journal.close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), SessionJournal.RECORD_SIZE + 60);
+        }
+
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertFalse(restarted.contains("s1"));
+        assertEquals("bob", restarted.getUsername("s2"));
+        replayed.close();
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveSessions() throws IOException {
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, 10);
+        for (int i = 0; i < 20; i++) {
+            store.put("s" + i, USER_ID, "user" + i);
+            if (i % 4 != 0) {
+                store.remove("s" + i);
+            }
+        }
+        journal.flush();
+        assertEquals(5, journal.getRecordCount());
+        assertEquals(6L * SessionJournal.RECORD_SIZE, Files.size(file));
+        journal.close();
+
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertEquals(5, restarted.size());
+        assertEquals("user8", restarted.getUsername("s8"));
+        replayed.close();
+    }
+
+    @Test
+    void journalIsOwnerOnlyAfterOpenAndCompaction() throws IOException {
+        assumeTrue(file.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        // 已存在且权限宽松的日志在打开时被收紧
+        Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-r--r--")));
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+
+        store.put("s1", USER_ID, "alice");
+        journal.flush();
+        journal.compact();
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        journal.close();
+    }
+
+    @Test
+    void longestUsernamesSurviveRestart() throws IOException {
+        String username = "用".repeat(85);
+        assertEquals(User.MAX_USERNAME_BYTES, username.getBytes(StandardCharsets.UTF_8).length);
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        store.put("s1", USER_ID, username);
+        journal.flush();
+        assertEquals(1, journal.getRecordCount());
+        assertEquals(0, journal.getSkipped());
+        journal.close();
+
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertEquals(username, restarted.getUsername("s1"));
+        replayed.close();
+    }
+
+    @Test
+    void overlongSessionsAreSkippedWithWarning() throws IOException {
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        Logger logger = (Logger) LoggerFactory.getLogger(SessionJournal.class);
+        logger.addAppender(appender);
+        try {
+            SessionStore store = newStore();
+            SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+            store.put("x".repeat(200), USER_ID, "alice");
+            journal.flush();
+            assertEquals(0, journal.getRecordCount());
+            assertEquals(1, journal.getSkipped());
+            journal.close();
+        } finally {
+            logger.detachAppender(appender);
+        }
+        // 会话ID即凭证，不出现在日志中
+        assertTrue(appender.list.stream().anyMatch(event -> event.getLevel() == Level.WARN
+                && event.getFormattedMessage().contains("alice")
+                && !event.getFormattedMessage().contains("x".repeat(200))));
+    }
+
+    @Test
+    void legacyJournalIsMigratedOnReplay() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long expiresAt = clock.millis() + Duration.ofHours(1).toMillis();
+            channel.write(ByteBuffer.wrap(legacyRecord(1, "s1", "alice", expiresAt)));
+            channel.write(ByteBuffer.wrap(legacyRecord(1, "s2", "bob", expiresAt)));
+            channel.write(ByteBuffer.wrap(legacyRecord(2, "s2", null, 0)));
+        }
+
+        SessionStore store = newStore();
+        SessionJournal journal = newJournal(store, Long.MAX_VALUE);
+        assertEquals("alice", store.getUsername("s1"));
+        assertFalse(store.contains("s2"));
+        assertFalse(Files.exists(dir.resolve("sessions.journal.v1")));
+        // 压缩后只剩格式头和一条存活会话
+        assertEquals(2L * SessionJournal.RECORD_SIZE, Files.size(file));
+        store.put("s3", USER_ID, "carol");
+        journal.close();
+
+        SessionStore restarted = newStore();
+        SessionJournal replayed = newJournal(restarted, Long.MAX_VALUE);
+        assertEquals("alice", restarted.getUsername("s1"));
+        assertEquals("carol", restarted.getUsername("s3"));
+        replayed.close();
+    }
+
+    // 按旧格式（128 字节，会话ID [24-55]，用户名 [56-127]）构造一条记录
+    private byte[] legacyRecord(int type, String id, String username, long absoluteExpiresAt) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] usernameBytes = username != null ? username.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] record = new byte[SessionJournal.LEGACY_RECORD_SIZE];
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        buf.put(0, (byte) type);
+        buf.put(1, (byte) idBytes.length);
+        buf.putShort(2, (short) usernameBytes.length);
+        buf.putLong(4, clock.millis());
+        buf.putLong(12, absoluteExpiresAt);
+        buf.put(24, idBytes);
+        buf.put(56, usernameBytes);
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, 20);
+        crc.update(record, 24, record.length - 24);
+        buf.putInt(20, (int) crc.getValue());
+        return record;
+    }
+}
@@ -0,0 +1,63 @@
+package cn.ianzhang.authapi.session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 会话查找延迟对比：ConcurrentHashMap<String, String> vs 堆外会话表（含令牌解码）。
+// 运行：mvn -Pbenchmark -DskipTests test -Dbenchmark.include=SessionLookupBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Threads(Threads.MAX)
+public class SessionLookupBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int sessions;
+
+    private String[] tokens;
+    private ConcurrentHashMap<String, String> map;
+    private OffHeapSessionTable table;
+
+    @Setup
+    public void setUp() {
+        RandomSessionIdGenerator generator = new RandomSessionIdGenerator();
+        tokens = new String[sessions];
+        map = new ConcurrentHashMap<>(sessions * 2);
+        table = new OffHeapSessionTable(64, sessions * 2, Long.MAX_VALUE / 2, Long.MAX_VALUE);
+        for (int i = 0; i < sessions; i++) {
+            String token = generator.generate();
+            tokens[i] = token;
+            map.put(token, "user" + i);
+            table.put(RandomSessionIdGenerator.decodeHigh(token), RandomSessionIdGenerator.decodeLow(token),
+                    i, 0, Long.MAX_VALUE, false);
+        }
+    }
+
+    @Benchmark
+    public String concurrentHashMap() {
+        return map.get(tokens[ThreadLocalRandom.current().nextInt(sessions)]);
+    }
+
+    @Benchmark
+    public int offHeapTable() {
+        String token = tokens[ThreadLocalRandom.current().nextInt(sessions)];
+        return table.get(RandomSessionIdGenerator.decodeHigh(token), RandomSessionIdGenerator.decodeLow(token), 1);
+    }
+}
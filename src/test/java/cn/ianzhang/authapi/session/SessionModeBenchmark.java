@@ -0,0 +1,208 @@
+package cn.ianzhang.authapi.session;
+
+import cn.ianzhang.authapi.cluster.ConsistentHashRing;
+import cn.ianzhang.authapi.cluster.UserCodec;
+import cn.ianzhang.authapi.cluster.UserPeer;
+import cn.ianzhang.authapi.model.User;
+import cn.ianzhang.authapi.repository.CachingUserIdResolver;
+import cn.ianzhang.authapi.repository.InMemoryUserRepository;
+import cn.ianzhang.authapi.repository.JdbcUserRepository;
+import cn.ianzhang.authapi.repository.ShardedUserRepository;
+import cn.ianzhang.authapi.repository.UserIdTable;
+import cn.ianzhang.authapi.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToIntFunction;
+
+// 三种会话模式的令牌解析延迟对比：store（ConcurrentHashMap）、off-heap、signed（HMAC 校验）。
+// signed 模式另外在 jdbc 存储和分片存储上各测一次，对比每次按用户名查找用户与经 CachingUserIdResolver 缓存换算；
+// 分片存储为两个节点，对端用进程内编解码加固定的往返延迟模拟，近端缓存只容纳十分之一的用户。
+// 带缓存的分片变体要在预热中填满缓存，单核机器上需调大预热，例如 -wi 4 -w 5。
+// 加上 -prof gc 可查看每次解析的分配字节数。
+// 运行：mvn -Pbenchmark -DskipTests test -Dbenchmark.include=SessionModeBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class SessionModeBenchmark {
+
+    private static final int SESSIONS = 100_000;
+    // 模拟的节点间往返延迟
+    private static final long PEER_RTT_NANOS = 200_000;
+
+    private SessionStore store;
+    private StoreSessionManager storeManager;
+    private OffHeapSessionManager offHeapManager;
+    private SignedSessionManager signedManager;
+    private JdbcUserRepository jdbcRepository;
+    private SignedSessionManager signedJdbcManager;
+    private SignedSessionManager signedJdbcCachedManager;
+    private SignedSessionManager signedShardedManager;
+    private SignedSessionManager signedShardedCachedManager;
+    private String[] storeTokens;
+    private String[] offHeapTokens;
+    private String[] signedTokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Duration idle = Duration.ofHours(1);
+        Duration absolute = Duration.ofHours(12);
+        store = new SessionStore(idle, absolute, Duration.ofSeconds(1));
+        storeManager = new StoreSessionManager(store, new RandomSessionIdGenerator());
+        offHeapManager = new OffHeapSessionManager(idle, absolute, Duration.ofSeconds(1), 64, SESSIONS * 2);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        // 用户名到ID的换算在真实部署中是一次索引查找，这里用常量排除其影响
+        signedManager = new SignedSessionManager(key, absolute, 10_000, username -> 1);
+
+        storeTokens = new String[SESSIONS];
+        offHeapTokens = new String[SESSIONS];
+        signedTokens = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            String username = "user" + i;
+            storeTokens[i] = storeManager.create(i, username);
+            offHeapTokens[i] = offHeapManager.create(i, username);
+            signedTokens[i] = signedManager.create(i, username);
+        }
+
+        // 同一签名密钥，上面签发的令牌对以下各实例同样有效
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:session-mode-benchmark;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcRepository = new JdbcUserRepository(jdbcTemplate, 1_000, Duration.ofMillis(50), SESSIONS);
+        InMemoryUserRepository shardStore = new InMemoryUserRepository();
+        for (int i = 0; i < SESSIONS; i++) {
+            User user = new User("user" + i, "hash", "user" + i + "@example.com");
+            jdbcRepository.save(user);
+            shardStore.saveIfAbsent(new User(user.getUsername(), "hash", user.getEmail()));
+        }
+        jdbcRepository.flush();
+        // 两个节点：约一半用户归属本节点 a，其余经对端 b 查找；两端共用同一份存储，只按归属读取
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b"), 128);
+        ShardedUserRepository sharded = new ShardedUserRepository("a", ring, shardStore,
+                Map.of("b", new DelayedPeer(shardStore)), Duration.ofSeconds(30), SESSIONS / 10, Duration.ofSeconds(2));
+
+        signedJdbcManager = new SignedSessionManager(key, absolute, 10_000,
+                lookupEveryTime(jdbcRepository, new UserIdTable()));
+        signedJdbcCachedManager = new SignedSessionManager(key, absolute, 10_000,
+                new CachingUserIdResolver(jdbcRepository, new UserIdTable(), Duration.ofSeconds(30), SESSIONS));
+        signedShardedManager = new SignedSessionManager(key, absolute, 10_000,
+                lookupEveryTime(sharded, new UserIdTable()));
+        signedShardedCachedManager = new SignedSessionManager(key, absolute, 10_000,
+                new CachingUserIdResolver(sharded, new UserIdTable(), Duration.ofSeconds(30), SESSIONS));
+    }
+
+    // 改造前的换算方式：每次都经存储查找用户再 intern
+    private static ToIntFunction<String> lookupEveryTime(UserRepository repository, UserIdTable userIds) {
+        return username -> {
+            User user = repository.findByUsername(username);
+            return user != null ? userIds.intern(user) : User.NO_ID;
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+        offHeapManager.close();
+        jdbcRepository.close();
+    }
+
+    @Benchmark
+    public int store() {
+        return storeManager.resolve(storeTokens[ThreadLocalRandom.current().nextInt(SESSIONS)]);
+    }
+
+    @Benchmark
+    public int offHeap() {
+        return offHeapManager.resolve(offHeapTokens[ThreadLocalRandom.current().nextInt(SESSIONS)]);
+    }
+
+    @Benchmark
+    public int signed() {
+        return signedManager.resolve(signedTokens[ThreadLocalRandom.current().nextInt(SESSIONS)]);
+    }
+
+    @Benchmark
+    public int signedJdbc() {
+        return signedJdbcManager.resolve(signedTokens[ThreadLocalRandom.current().nextInt(SESSIONS)]);
+    }
+
+    @Benchmark
+    public int signedJdbcCached() {
+        return signedJdbcCachedManager.resolve(signedTokens[ThreadLocalRandom.current().nextInt(SESSIONS)]);
+    }
+
+    @Benchmark
+    public int signedSharded() {
+        return signedShardedManager.resolve(signedTokens[ThreadLocalRandom.current().nextInt(SESSIONS)]);
+    }
+
+    @Benchmark
+    public int signedShardedCached() {
+        return signedShardedCachedManager.resolve(signedTokens[ThreadLocalRandom.current().nextInt(SESSIONS)]);
+    }
+
+    // 经一次编解码和固定延迟返回对端存储中的用户
+    private static class DelayedPeer implements UserPeer {
+        private final UserRepository target;
+
+        DelayedPeer(UserRepository target) {
+            this.target = target;
+        }
+
+        @Override
+        public User fetch(String username) {
+            LockSupport.parkNanos(PEER_RTT_NANOS);
+            User user = target.findByUsername(username);
+            return user != null ? UserCodec.decode(UserCodec.encode(user)) : null;
+        }
+
+        @Override
+        public User fetchByEmail(String email) {
+            LockSupport.parkNanos(PEER_RTT_NANOS);
+            User user = target.findByEmail(email);
+            return user != null ? UserCodec.decode(UserCodec.encode(user)) : null;
+        }
+
+        @Override
+        public List<String> searchUsernames(String prefix, String after, int limit) {
+            LockSupport.parkNanos(PEER_RTT_NANOS);
+            return target.findUsernamesByPrefix(prefix, after, limit);
+        }
+
+        @Override
+        public boolean saveIfAbsent(User user) {
+            LockSupport.parkNanos(PEER_RTT_NANOS);
+            return target.saveIfAbsent(user);
+        }
+
+        @Override
+        public void update(User user) {
+            LockSupport.parkNanos(PEER_RTT_NANOS);
+            target.update(user);
+        }
+    }
+}
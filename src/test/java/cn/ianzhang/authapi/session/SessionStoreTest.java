@@ -0,0 +1,179 @@
+package cn.ianzhang.authapi.session;
+
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class SessionStoreTest {
+
+    private MutableClock clock;
+    private SessionStore store;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(1_000_000L);
+        store = new SessionStore(Duration.ofMinutes(30), Duration.ofHours(2), Duration.ofSeconds(1), clock, false);
+    }
+
+    @Test
+    void putAndGet() {
+        store.put("s1", 1, "alice");
+        assertTrue(store.contains("s1"));
+        assertEquals("alice", store.getUsername("s1"));
+    }
+
+    @Test
+    void nullSessionIdIsAbsent() {
+        assertFalse(store.contains(null));
+        assertNull(store.getUsername(null));
+        assertDoesNotThrow(() -> store.remove(null));
+    }
+
+    @Test
+    void idleSessionExpiresWithoutSweep() {
+        store.put("s1", 1, "alice");
+        clock.advance(Duration.ofMinutes(30).toMillis());
+        // 未经清理线程处理，读路径也要把过期会话视为不存在
+        assertFalse(store.contains("s1"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void accessExtendsIdleExpiry() {
+        store.put("s1", 1, "alice");
+        clock.advance(Duration.ofMinutes(20).toMillis());
+        assertTrue(store.contains("s1"));
+        clock.advance(Duration.ofMinutes(20).toMillis());
+        assertTrue(store.contains("s1"));
+    }
+
+    @Test
+    void absoluteExpiryWinsOverActivity() {
+        store.put("s1", 1, "alice");
+        for (int i = 0; i < 7; i++) {
+            clock.advance(Duration.ofMinutes(20).toMillis());
+            store.contains("s1");
+        }
+        assertFalse(store.contains("s1"));
+    }
+
+    @Test
+    void sweepEvictsExpiredSessions() {
+        store.put("s1", 1, "alice");
+        store.put("s2", 1, "bob");
+        store.sweep();
+        assertEquals(2, store.scheduledCount());
+
+        clock.advance(Duration.ofMinutes(10).toMillis());
+        assertTrue(store.contains("s2"));
+        clock.advance(Duration.ofMinutes(25).toMillis());
+        store.sweep();
+
+        assertEquals(1, store.size());
+        assertTrue(store.contains("s2"));
+        assertEquals(1, store.scheduledCount());
+    }
+
+    @Test
+    void sweepReschedulesTouchedSessions() {
+        store.put("s1", 1, "alice");
+        store.sweep();
+        clock.advance(Duration.ofMinutes(29).toMillis());
+        assertTrue(store.contains("s1"));
+        clock.advance(Duration.ofMinutes(2).toMillis());
+        store.sweep();
+        assertEquals(1, store.size());
+        assertEquals(1, store.scheduledCount());
+    }
+
+    @Test
+    void removeCancelsScheduledExpiry() {
+        store.put("s1", 1, "alice");
+        store.sweep();
+        store.remove("s1");
+        store.sweep();
+        assertFalse(store.contains("s1"));
+        assertEquals(0, store.scheduledCount());
+    }
+
+    @Test
+    void replacingSessionIdDoesNotEvictNewSession() {
+        store.put("s1", 1, "alice");
+        store.sweep();
+        clock.advance(Duration.ofMinutes(29).toMillis());
+        store.put("s1", 1, "bob");
+        clock.advance(Duration.ofMinutes(2).toMillis());
+        store.sweep();
+        assertEquals("bob", store.getUsername("s1"));
+        assertEquals(1, store.scheduledCount());
+    }
+
+    @Test
+    void capEvictsOldestSessionOfSameUser() {
+        SessionStore capped = new SessionStore(Duration.ofMinutes(30), Duration.ofHours(2), Duration.ofSeconds(1), 2,
+                clock, false);
+        capped.putIfAbsent("s1", 1, "alice");
+        capped.putIfAbsent("s2", 1, "alice");
+        capped.putIfAbsent("b1", 2, "bob");
+        capped.putIfAbsent("s3", 1, "alice");
+
+        assertFalse(capped.contains("s1"));
+        assertTrue(capped.contains("s2"));
+        assertTrue(capped.contains("s3"));
+        assertTrue(capped.contains("b1"));
+        assertEquals(2, capped.sessionCount(1));
+        assertEquals(3, capped.size());
+    }
+
+    @Test
+    void removeAllOnlyTouchesThatUser() {
+        store.put("s1", 1, "alice");
+        store.put("s2", 1, "alice");
+        store.put("b1", 2, "bob");
+        store.remove("s1");
+
+        assertEquals(1, store.removeAll(1));
+        assertFalse(store.contains("s2"));
+        assertTrue(store.contains("b1"));
+        assertEquals(0, store.sessionCount(1));
+        assertEquals(0, store.removeAll(1));
+    }
+
+    @Test
+    void expiredSessionsLeaveUserIndex() {
+        store.put("s1", 1, "alice");
+        store.sweep();
+        clock.advance(Duration.ofMinutes(31).toMillis());
+        store.sweep();
+        assertEquals(0, store.sessionCount(1));
+    }
+
+    @Test
+    void removalNotifiesListenersForEvictedSessions() {
+        SessionStore capped = new SessionStore(Duration.ofMinutes(30), Duration.ofHours(2), Duration.ofSeconds(1), 1,
+                clock, false);
+        List<String> removed = new ArrayList<>();
+        capped.addListener(new SessionListener() {
+            @Override
+            public void sessionCreated(Session session) {
+            }
+
+            @Override
+            public void sessionRemoved(Session session) {
+                removed.add(session.getId());
+            }
+        });
+        capped.putIfAbsent("s1", 1, "alice");
+        capped.putIfAbsent("s2", 1, "alice");
+        capped.removeAll(1);
+        assertEquals(List.of("s1", "s2"), removed);
+    }
+}
@@ -0,0 +1,122 @@
+package cn.ianzhang.authapi.session;
+
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class SignedSessionManagerTest {
+
+    private static final byte[] KEY = new byte[32];
+
+    private MutableClock clock;
+    private SignedSessionManager manager;
+
+    static {
+        Arrays.fill(KEY, (byte) 7);
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(1_000_000L);
+        manager = newManager(KEY);
+    }
+
+    private SignedSessionManager newManager(byte[] key) {
+        return new SignedSessionManager(key, Duration.ofHours(2), 1000,
+                username -> username.equals("ghost") ? -1 : username.length(), clock);
+    }
+
+    @Test
+    void createAndResolve() {
+        String token = manager.create(0, "alice");
+        assertEquals(5, manager.resolve(token));
+        // 同一密钥的其他节点也能校验
+        assertEquals(5, newManager(KEY).resolve(token));
+    }
+
+    @Test
+    void invalidateAllRejectsTokensIssuedBefore() {
+        String first = manager.create(0, "alice");
+        clock.advance(1_000);
+        String second = manager.create(0, "alice");
+        String bob = manager.create(0, "bob");
+        assertEquals(0, manager.invalidateAll(5, "alice"));
+        assertEquals(SessionManager.NO_USER, manager.resolve(first));
+        assertEquals(SessionManager.NO_USER, manager.resolve(second));
+        assertEquals(3, manager.resolve(bob));
+        // 同一毫秒内重新登录签发的令牌不受影响
+        String fresh = manager.create(0, "alice");
+        assertEquals(5, manager.resolve(fresh));
+    }
+
+    @Test
+    void expiredCutoffsAreDropped() {
+        manager.invalidateAll(5, "alice");
+        clock.advance(Duration.ofHours(2).toMillis());
+        manager.invalidateAll(3, "bob");
+        String token = manager.create(0, "alice");
+        assertEquals(5, manager.resolve(token));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertEquals(SessionManager.NO_USER, manager.resolve(null));
+        assertEquals(SessionManager.NO_USER, manager.resolve(""));
+        assertEquals(SessionManager.NO_USER, manager.resolve("not a token!"));
+        assertEquals(SessionManager.NO_USER, manager.resolve("x".repeat(1000)));
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        String token = manager.create(0, "alice");
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        // 把用户名改成等长的另一个名字
+        bytes[18] = 'A';
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        assertEquals(SessionManager.NO_USER, manager.resolve(tampered));
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherKey() {
+        byte[] otherKey = new byte[32];
+        String token = newManager(otherKey).create(0, "alice");
+        assertEquals(SessionManager.NO_USER, manager.resolve(token));
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        String token = manager.create(0, "alice");
+        clock.advance(Duration.ofHours(2).toMillis() - 1);
+        assertEquals(5, manager.resolve(token));
+        clock.advance(1);
+        assertEquals(SessionManager.NO_USER, manager.resolve(token));
+    }
+
+    @Test
+    void invalidatedTokenIsRevoked() {
+        String first = manager.create(0, "alice");
+        clock.advance(1);
+        String second = manager.create(0, "alice");
+        manager.invalidate(first);
+        assertEquals(SessionManager.NO_USER, manager.resolve(first));
+        assertEquals(5, manager.resolve(second));
+    }
+
+    @Test
+    void deletedUserResolvesToNoUser() {
+        assertEquals(SessionManager.NO_USER, manager.resolve(manager.create(0, "ghost")));
+    }
+
+    @Test
+    void rejectsShortKeys() {
+        assertThrows(IllegalArgumentException.class, () -> newManager(new byte[16]));
+    }
+}
@@ -0,0 +1,72 @@
+package cn.ianzhang.authapi.session;
+
+import cn.ianzhang.authapi.support.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class StoreSessionManagerTest {
+
+    private MutableClock clock;
+    private SessionStore store;
+    private StoreSessionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(1_000_000L);
+        store = new SessionStore(Duration.ofMinutes(30), Duration.ofHours(2), Duration.ofSeconds(1), clock, false);
+        manager = new StoreSessionManager(store, new RandomSessionIdGenerator());
+    }
+
+    @Test
+    void createResolveInvalidate() {
+        String token = manager.create(7, "alice");
+        assertEquals(7, manager.resolve(token));
+        assertEquals("alice", store.getUsername(token));
+        manager.invalidate(token);
+        assertEquals(SessionManager.NO_USER, manager.resolve(token));
+    }
+
+    @Test
+    void unknownAndNullTokensResolveToNoUser() {
+        assertEquals(SessionManager.NO_USER, manager.resolve(null));
+        assertEquals(SessionManager.NO_USER, manager.resolve("unknown"));
+        assertDoesNotThrow(() -> manager.invalidate(null));
+    }
+
+    @Test
+    void expiredSessionResolvesToNoUser() {
+        String token = manager.create(7, "alice");
+        clock.advance(Duration.ofMinutes(30).toMillis());
+        assertEquals(SessionManager.NO_USER, manager.resolve(token));
+    }
+
+    @Test
+    void collidingIdIsRegenerated() {
+        AtomicInteger calls = new AtomicInteger();
+        StoreSessionManager colliding = new StoreSessionManager(store,
+                () -> calls.getAndIncrement() < 2 ? "fixed" : "other");
+        assertEquals("fixed", colliding.create(1, "alice"));
+        assertEquals("other", colliding.create(2, "bob"));
+        assertEquals(1, colliding.resolve("fixed"));
+        assertEquals(2, colliding.resolve("other"));
+    }
+
+    @Test
+    void invalidateAllRemovesEveryTokenOfUser() {
+        String first = manager.create(7, "alice");
+        String second = manager.create(7, "alice");
+        String other = manager.create(8, "bob");
+
+        assertEquals(2, manager.invalidateAll(7, "alice"));
+        assertEquals(SessionManager.NO_USER, manager.resolve(first));
+        assertEquals(SessionManager.NO_USER, manager.resolve(second));
+        assertEquals(8, manager.resolve(other));
+    }
+}
@@ -0,0 +1,16 @@
+package cn.ianzhang.authapi.session;
+
+import java.time.Clock;
+import java.time.Duration;
+
+// 供其他包的测试构造不启动清理线程的 SessionStore，过期会话在访问时惰性移除
+public final class TestSessionStores {
+
+    private TestSessionStores() {
+    }
+
+    public static SessionStore withoutSweeper() {
+        return new SessionStore(Duration.ofMinutes(30), Duration.ofHours(12), Duration.ofSeconds(1),
+                Clock.systemUTC(), false);
+    }
+}
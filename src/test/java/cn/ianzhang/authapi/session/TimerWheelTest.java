@@ -0,0 +1,82 @@
+package cn.ianzhang.authapi.session;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Disabled
+class TimerWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long NEVER_IDLE = Long.MAX_VALUE / 2;
+
+    @Test
+    void firesOnlyAfterDeadline() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        Session session = new Session("s1", 1, "alice", 0, 5_500);
+        wheel.schedule(session, 5_500);
+
+        List<Session> expired = new ArrayList<>();
+        wheel.advance(5_000, NEVER_IDLE, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(6_000, NEVER_IDLE, expired::add);
+        assertEquals(List.of(session), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesFromHigherLevels() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        long[] deadlines = {70_000, 5_000_000, 300_000_000, 20_000_000_000L};
+        List<Session> sessions = new ArrayList<>();
+        for (long deadline : deadlines) {
+            Session session = new Session("s" + deadline, 1, "u", 0, deadline);
+            sessions.add(session);
+            wheel.schedule(session, deadline);
+        }
+
+        List<Session> expired = new ArrayList<>();
+        for (int i = 0; i < deadlines.length; i++) {
+            wheel.advance(deadlines[i] - TICK, NEVER_IDLE, expired::add);
+            assertEquals(i, expired.size());
+            wheel.advance(deadlines[i], NEVER_IDLE, expired::add);
+            assertEquals(i + 1, expired.size());
+            assertSame(sessions.get(i), expired.get(i));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelUnlinksSession() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        Session session = new Session("s1", 1, "alice", 0, 10_000);
+        wheel.schedule(session, 10_000);
+        assertEquals(1, wheel.size());
+        wheel.cancel(session);
+        wheel.cancel(session);
+        assertEquals(0, wheel.size());
+
+        List<Session> expired = new ArrayList<>();
+        wheel.advance(20_000, NEVER_IDLE, expired::add);
+        assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    void reschedulesSessionsThatAreNotYetExpired() {
+        TimerWheel wheel = new TimerWheel(TICK, 0);
+        Session session = new Session("s1", 1, "alice", 0, 100_000);
+        wheel.schedule(session, 10_000);
+        session.touch(8_000, 0);
+
+        List<Session> expired = new ArrayList<>();
+        wheel.advance(10_000, 10_000, expired::add);
+        assertTrue(expired.isEmpty());
+        assertEquals(1, wheel.size());
+        wheel.advance(18_000, 10_000, expired::add);
+        assertEquals(List.of(session), expired);
+    }
+}